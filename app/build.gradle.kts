@@ -143,6 +143,13 @@ android {
     testOptions {
         unitTests {
             isIncludeAndroidResources = true
+            // benchmarks are only run when requested, see benchmarks/README.md
+            all {
+                if (project.hasProperty("benchmark")) {
+                    it.systemProperty("benchmark", project.property("benchmark").toString())
+                    it.outputs.upToDateWhen { false }
+                }
+            }
         }
     }
 
@@ -204,4 +211,6 @@ dependencies {
     testImplementation("org.robolectric:robolectric:4.14.1")
     testImplementation("androidx.test:runner:1.6.2")
     testImplementation("androidx.test:core:1.6.1")
+    testImplementation("org.openjdk.jmh:jmh-core:1.37")
+    testAnnotationProcessor("org.openjdk.jmh:jmh-generator-annprocess:1.37")
 }
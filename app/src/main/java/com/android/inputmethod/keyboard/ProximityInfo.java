@@ -224,6 +224,25 @@ public class ProximityInfo {
         return mNativeProximityInfo;
     }
 
+    /**
+     * Rough estimate of the memory used by this proximity info, including the native part.
+     */
+    public int estimateSizeInBytes() {
+        // array of neighbor lists, and the lists with a reference per key
+        int size = mGridSize * 4;
+        for (final List<Key> neighbors : mGridNeighbors) {
+            if (neighbors != null) {
+                size += 40 + 4 * neighbors.size();
+            }
+        }
+        if (mNativeProximityInfo != 0) {
+            // proximity chars and near keys per cell, and distances between all keys
+            final int keyCount = getProximityInfoKeysCount(mSortedKeys);
+            size += 2 * mGridSize * MAX_PROXIMITY_CHARS_SIZE * 4 + keyCount * keyCount * 4;
+        }
+        return size;
+    }
+
     @Override
     protected void finalize() throws Throwable {
         try {
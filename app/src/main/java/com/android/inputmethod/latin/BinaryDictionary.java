@@ -200,6 +200,7 @@ public final class BinaryDictionary extends Dictionary {
             WordInputEventForPersonalization[] inputEvents, int startIndex);
     private static native String getPropertyNative(long dict, String query);
     private static native boolean isCorruptedNative(long dict);
+    private static native int warmUpNative(long dict);
     private static native boolean migrateNative(long dict, String dictFilePath,
             long newFormatVersion);
 
@@ -328,6 +329,15 @@ public final class BinaryDictionary extends Dictionary {
         return mNativeDict != 0;
     }
 
+    @Override
+    public void warmUp() {
+        // the gesture library does not have warmUpNative
+        if (!isValidDictionary() || JniUtils.sHaveGestureLib) {
+            return;
+        }
+        warmUpNative(mNativeDict);
+    }
+
     public int getFormatVersion() {
         return getFormatVersionNative(mNativeDict);
     }
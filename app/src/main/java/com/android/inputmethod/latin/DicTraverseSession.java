@@ -8,6 +8,7 @@ package com.android.inputmethod.latin;
 
 import helium314.keyboard.latin.common.NativeSuggestOptions;
 import helium314.keyboard.latin.define.DecoderSpecificConstants;
+import helium314.keyboard.latin.utils.DeviceClassUtils;
 import helium314.keyboard.latin.utils.JniUtils;
 
 import java.util.Locale;
@@ -18,6 +19,14 @@ public final class DicTraverseSession {
     }
     // Must be equal to MAX_RESULTS in native/jni/src/defines.h
     private static final int MAX_RESULTS = 18;
+    // Must be equal to the constants in native/jni/src/suggest/core/session/traversal_budget.h
+    public static final int DEVICE_CLASS_LOW_END = 0;
+    public static final int DEVICE_CLASS_DEFAULT = 1;
+    public static final int DEVICE_CLASS_HIGH_END = 2;
+    // Only fast devices have spare cores while the user types or swipes, the results are the same
+    // for any thread count. Stays at 1 until a measurement on a multi-core device shows a gain, in
+    // the host benchmark more threads were not faster and used more memory.
+    private static final int EXPANSION_THREAD_COUNT_HIGH_END = 1;
     public final int[] mInputCodePoints =
             new int[DecoderSpecificConstants.DICTIONARY_MAX_WORD_LENGTH];
     public final int[][] mPrevWordCodePointArrays =
@@ -40,12 +49,27 @@ public final class DicTraverseSession {
     private static native void initDicTraverseSessionNative(long nativeDicTraverseSession,
             long dictionary, int[] previousWord, int previousWordLength);
     private static native void releaseDicTraverseSessionNative(long nativeDicTraverseSession);
+    // Native code adapts the width of the search to the latency of suggestions, starting from a
+    // profile for the device class. The default class is not adapted.
+    private static native void setDeviceClassNative(long nativeDicTraverseSession, int deviceClass);
+    // Native code expands long searches on this many threads, at most 4.
+    private static native void setExpansionThreadCountNative(long nativeDicTraverseSession,
+            int threadCount);
 
     private long mNativeDicTraverseSession;
 
     public DicTraverseSession(Locale locale, long dictionary, long dictSize) {
         mNativeDicTraverseSession = createNativeDicTraverseSession(
                 locale != null ? locale.toString() : "", dictSize);
+        // the gesture library does not have the traversal budget
+        final int deviceClass = DeviceClassUtils.getDeviceClass();
+        if (!JniUtils.sHaveGestureLib && deviceClass != DEVICE_CLASS_DEFAULT) {
+            setDeviceClassNative(mNativeDicTraverseSession, deviceClass);
+            if (deviceClass == DEVICE_CLASS_HIGH_END) {
+                setExpansionThreadCountNative(mNativeDicTraverseSession,
+                        EXPANSION_THREAD_COUNT_HIGH_END);
+            }
+        }
         initSession(dictionary);
     }
 
@@ -837,6 +837,15 @@ public class Key implements Comparable<Key> {
         mLocked = locked;
     }
 
+    // whether the background is drawn in pressed state
+    boolean isPressedOrLocked() {
+        return mPressed || mLocked;
+    }
+
+    int getLabelFlags() {
+        return mLabelFlags;
+    }
+
     @NonNull
     public Rect getHitBox() {
         return mHitBox;
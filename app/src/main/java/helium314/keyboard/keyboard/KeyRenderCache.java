@@ -0,0 +1,193 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+package helium314.keyboard.keyboard;
+
+import android.graphics.Bitmap;
+import android.graphics.Typeface;
+import android.graphics.drawable.Drawable;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import helium314.keyboard.keyboard.internal.KeyDrawParams;
+import helium314.keyboard.keyboard.internal.KeyVisualAttributes;
+
+/**
+ * Cache of rendered keys for {@link KeyboardView}, bounded by the size of the bitmaps.
+ * <p>
+ * The bound is the size of the bitmaps for the keys of {@link #KEYBOARDS_TO_KEEP} keyboards of the
+ * current size (so it depends on key count and density), but at most 1/64 of the heap.
+ * <p>
+ * Rendered keys are stored by what they look like instead of by key, so keys that look the same
+ * on different keyboards are rendered only once. E.g. when toggling shift, only the letter keys
+ * and the shift key need to be rendered again, all other keys are drawn from the cache.
+ * <p>
+ * Drawing state of the view that is the same for all keys is not part of the {@link Signature},
+ * the cache is cleared when it changes. Only used on the UI thread.
+ */
+final class KeyRenderCache {
+    // e.g. unshifted and shifted keyboard, plus keys in pressed state
+    private static final int KEYBOARDS_TO_KEEP = 3;
+    private static final int BYTES_PER_PIXEL = 4; // ARGB_8888
+    private static final long NANOS_PER_MICRO = 1000;
+
+    private final LinkedHashMap<Signature, Bitmap> mBitmaps = new LinkedHashMap<>(64, 0.75f, true);
+    private final int mMaxHeapSize;
+    private int mMaxSize;
+    private int mSize;
+
+    @Nullable
+    private KeyDrawParams mDrawParams;
+    private boolean mShowsHints;
+    private float mIconScaleFactor;
+    private float mFontSizeMultiplier;
+
+    private int mRenderedCount;
+    private int mReusedCount;
+    private int mEvictionCount;
+    private int mFullDrawCount;
+    private long mFullDrawTimeNanos;
+    private long mMaxFullDrawTimeNanos;
+    // full draws that did not render any key, compared to the others this is the gain of the cache
+    private int mCachedFullDrawCount;
+    private long mCachedFullDrawTimeNanos;
+    private long mLastFullDrawTimeNanos;
+    private int mLastFullDrawRenderedCount;
+    private int mRenderedCountAtDrawStart;
+
+    /**
+     * Everything that determines what a key looks like, apart from the drawing state of the view.
+     * Drawables and visual attributes are compared by identity, so reloaded icons are rendered
+     * again.
+     * @param shifted whether the keyboard is shifted, which changes the color of the shift icon
+     */
+    record Signature(@Nullable String label, @Nullable String hintLabel, @Nullable Drawable icon,
+            int code, int labelFlags, int backgroundType, boolean pressed, boolean enabled,
+            boolean hasPopupKeys, boolean shifted, int width, int height,
+            @Nullable KeyVisualAttributes attributes, @NonNull Typeface typeface,
+            int textSize, int textColor, int hintTextSize, int hintTextColor) {}
+
+    KeyRenderCache() {
+        this((int) Math.min(Integer.MAX_VALUE, Runtime.getRuntime().maxMemory() / 64));
+    }
+
+    KeyRenderCache(final int maxHeapSize) {
+        mMaxHeapSize = maxHeapSize;
+        mMaxSize = maxHeapSize;
+    }
+
+    /**
+     * Sets the bound for the keyboard that is drawn, keys cover about the keyboard area.
+     */
+    void updateMaxSize(final int keyboardWidth, final int keyboardHeight) {
+        final long keyboardBytes = (long) keyboardWidth * keyboardHeight * BYTES_PER_PIXEL;
+        final int maxSize = (int) Math.min(mMaxHeapSize, keyboardBytes * KEYBOARDS_TO_KEEP);
+        if (maxSize == mMaxSize) return;
+        mMaxSize = maxSize;
+        trimToSize(null);
+    }
+
+    @NonNull
+    static Signature newSignature(@NonNull final Key key, @NonNull final KeyDrawParams params,
+            @Nullable final Drawable icon, final boolean shifted) {
+        return new Signature(key.getLabel(), key.getHintLabel(), icon, key.getCode(),
+                key.getLabelFlags(), key.getBackgroundType(), key.isPressedOrLocked(),
+                key.isEnabled(), key.getPopupKeys() != null, shifted, key.getDrawWidth(),
+                key.getHeight(), key.getVisualAttributes(), key.selectTypeface(params),
+                key.selectTextSize(params), key.selectTextColor(params),
+                key.selectHintTextSize(params), key.selectHintTextColor(params));
+    }
+
+    /**
+     * Clears the cache if the drawing state that is the same for all keys has changed.
+     */
+    void updateDrawingState(@NonNull final KeyDrawParams params, final boolean showsHints,
+            final float iconScaleFactor, final float fontSizeMultiplier) {
+        if (mDrawParams != null && mDrawParams.hasSameValues(params)
+                && mShowsHints == showsHints && mIconScaleFactor == iconScaleFactor
+                && mFontSizeMultiplier == fontSizeMultiplier) {
+            return;
+        }
+        clear();
+        mDrawParams = params.copy();
+        mShowsHints = showsHints;
+        mIconScaleFactor = iconScaleFactor;
+        mFontSizeMultiplier = fontSizeMultiplier;
+    }
+
+    @Nullable
+    Bitmap get(@NonNull final Signature signature) {
+        final Bitmap bitmap = mBitmaps.get(signature);
+        if (bitmap != null) {
+            mReusedCount++;
+        }
+        return bitmap;
+    }
+
+    void put(@NonNull final Signature signature, @NonNull final Bitmap bitmap) {
+        mRenderedCount++;
+        final Bitmap previous = mBitmaps.put(signature, bitmap);
+        if (previous != null) {
+            mSize -= previous.getByteCount();
+        }
+        mSize += bitmap.getByteCount();
+        trimToSize(signature);
+    }
+
+    // bitmaps are not recycled, as they may still be used by the display list of the view
+    void clear() {
+        mBitmaps.clear();
+        mSize = 0;
+        mDrawParams = null;
+    }
+
+    void onFullDrawStarted() {
+        mRenderedCountAtDrawStart = mRenderedCount;
+    }
+
+    void onFullDrawFinished(final long drawTimeNanos) {
+        mFullDrawCount++;
+        mFullDrawTimeNanos += drawTimeNanos;
+        mMaxFullDrawTimeNanos = Math.max(mMaxFullDrawTimeNanos, drawTimeNanos);
+        mLastFullDrawTimeNanos = drawTimeNanos;
+        mLastFullDrawRenderedCount = mRenderedCount - mRenderedCountAtDrawStart;
+        if (mLastFullDrawRenderedCount == 0) {
+            mCachedFullDrawCount++;
+            mCachedFullDrawTimeNanos += drawTimeNanos;
+        }
+    }
+
+    String getStats() {
+        final int renderingFullDrawCount = mFullDrawCount - mCachedFullDrawCount;
+        return "keys: " + mBitmaps.size() + ", size: " + mSize + "/" + mMaxSize
+                + " bytes, rendered: " + mRenderedCount + ", reused: " + mReusedCount
+                + ", evictions: " + mEvictionCount + ", full draws: " + mFullDrawCount
+                + ", draw time: " + average(mFullDrawTimeNanos, mFullDrawCount)
+                + " us (max " + mMaxFullDrawTimeNanos / NANOS_PER_MICRO
+                + " us, last " + mLastFullDrawTimeNanos / NANOS_PER_MICRO + " us with "
+                + mLastFullDrawRenderedCount + " keys rendered), only from cache: "
+                + average(mCachedFullDrawTimeNanos, mCachedFullDrawCount) + " us in " + mCachedFullDrawCount
+                + " draws, rendering keys: " + average(mFullDrawTimeNanos - mCachedFullDrawTimeNanos, renderingFullDrawCount)
+                + " us in " + renderingFullDrawCount + " draws";
+    }
+
+    private static long average(final long nanos, final int count) {
+        return count == 0 ? 0 : nanos / count / NANOS_PER_MICRO;
+    }
+
+    // the bitmap that was just added is never removed, even if it alone is larger than the cache
+    private void trimToSize(@Nullable final Signature addedSignature) {
+        final Iterator<Map.Entry<Signature, Bitmap>> iterator = mBitmaps.entrySet().iterator();
+        while (mSize > mMaxSize && iterator.hasNext()) {
+            final Map.Entry<Signature, Bitmap> entry = iterator.next();
+            if (entry.getKey().equals(addedSignature)) continue;
+            mSize -= entry.getValue().getByteCount();
+            iterator.remove();
+            mEvictionCount++;
+        }
+    }
+}
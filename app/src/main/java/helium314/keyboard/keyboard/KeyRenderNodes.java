@@ -0,0 +1,83 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+package helium314.keyboard.keyboard;
+
+import android.graphics.RenderNode;
+import android.os.Build;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RequiresApi;
+
+/**
+ * Display lists of the keys drawn by a hardware accelerated {@link KeyboardView}, one per key.
+ * <p>
+ * A node is recorded again only when its key is invalidated, all other nodes are just drawn.
+ * Nodes of invalidated keys are reused for recording keys without a valid node. Only used on the
+ * UI thread.
+ */
+@RequiresApi(api = Build.VERSION_CODES.Q)
+final class KeyRenderNodes {
+    private final HashMap<Key, RenderNode> mNodes = new HashMap<>();
+    private final ArrayList<RenderNode> mUnusedNodes = new ArrayList<>();
+    private int mRecordedCount;
+
+    /**
+     * Returns the node of the key if it is still valid, null otherwise.
+     */
+    @Nullable
+    RenderNode get(@NonNull final Key key) {
+        return mNodes.get(key);
+    }
+
+    /**
+     * Returns a node for recording the key, positioned at x, y in the view. Background padding may
+     * be drawn outside the key, so the node does not clip to the key bounds.
+     */
+    @NonNull
+    RenderNode obtain(@NonNull final Key key, final int x, final int y) {
+        final RenderNode node = mUnusedNodes.isEmpty()
+                ? new RenderNode("key")
+                : mUnusedNodes.remove(mUnusedNodes.size() - 1);
+        node.setPosition(x, y, x + key.getDrawWidth(), y + key.getHeight());
+        node.setClipToBounds(false);
+        mNodes.put(key, node);
+        mRecordedCount++;
+        return node;
+    }
+
+    void invalidate(@NonNull final Key key) {
+        final RenderNode node = mNodes.remove(key);
+        if (node != null) {
+            mUnusedNodes.add(node);
+        }
+    }
+
+    void invalidateAll() {
+        mUnusedNodes.addAll(mNodes.values());
+        mNodes.clear();
+    }
+
+    /**
+     * Discards the content of nodes that were invalidated and not used again, so they don't keep
+     * resources of old keys. Needs to be called after drawing.
+     */
+    void discardUnusedDisplayLists() {
+        for (final RenderNode node : mUnusedNodes) {
+            node.discardDisplayList();
+        }
+    }
+
+    void clear() {
+        invalidateAll();
+        discardUnusedDisplayLists();
+        mUnusedNodes.clear();
+    }
+
+    String getStats() {
+        return "nodes: " + mNodes.size() + ", recorded: " + mRecordedCount;
+    }
+}
@@ -91,6 +91,13 @@ public class Keyboard {
 
     private final boolean mProximityCharsCorrectionEnabled;
 
+    // A key with its labels, hint label, popup key specs and hit box, counted from the fields with
+    // 4 byte references and 12 byte object headers, not measured: the Key itself has about 20 fields
+    // (~100 bytes), label and hint label strings ~50 bytes each, the hit box Rect ~30 bytes, and a
+    // typical letter key has around 4 popup keys at ~80 bytes with their labels. Letter keys make up
+    // most keys, keys without popup keys take about half of this.
+    private static final int ESTIMATED_KEY_SIZE_BYTES = 512;
+
     public Keyboard(@NonNull final KeyboardParams params) {
         mId = params.mId;
         mThemeId = params.mThemeId;
@@ -158,6 +165,13 @@ public class Keyboard {
         return mProximityInfo;
     }
 
+    /**
+     * Rough estimate of the memory used by this keyboard, used for limiting the keyboard cache.
+     */
+    public int estimateSizeInBytes() {
+        return mSortedKeys.size() * ESTIMATED_KEY_SIZE_BYTES + mProximityInfo.estimateSizeInBytes();
+    }
+
     /**
      * Return the sorted list of keys of this keyboard.
      * The keys are sorted from top-left to bottom-right order.
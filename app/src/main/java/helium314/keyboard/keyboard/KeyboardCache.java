@@ -0,0 +1,170 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+package helium314.keyboard.keyboard;
+
+import android.util.SparseIntArray;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Cache of created keyboards, bounded by their estimated memory use instead of relying on soft
+ * references, so the GC does not decide which keyboards need to be created again.
+ * <p>
+ * Entries are kept in access order. When the cache is full, the keyboard to remove is taken from
+ * the less recently used half of the entries, preferring element ids that are used less often,
+ * e.g. a symbols keyboard that has not been used recently is kept over a rarely used emoji
+ * category. Use counts are halved from time to time, so they follow changing habits.
+ * <p>
+ * Keyboards are cached per resource configuration, so a configuration change like rotating the
+ * device does not remove the keyboards for the previous configuration.
+ */
+final class KeyboardCache {
+    private static final int MIN_CACHE_SIZE_BYTES = 2 * 1024 * 1024;
+    private static final int MAX_CACHE_SIZE_BYTES = 8 * 1024 * 1024;
+    private static final int MAX_ELEMENT_USE_COUNT = 1024;
+
+    private final LinkedHashMap<CacheKey, Entry> mEntries = new LinkedHashMap<>(16, 0.75f, true);
+    private final SparseIntArray mElementUseCounts = new SparseIntArray();
+    private final int mMaxSize;
+    private int mSize;
+    // increased when the cache is cleared, so keyboards built before are not added
+    private int mGeneration;
+
+    private int mHitCount;
+    private int mMissCount;
+    private int mEvictionCount;
+    private int mPrebuiltCount;
+    private long mBuildTimeMillis;
+    private long mMaxBuildTimeMillis;
+
+    /**
+     * A keyboard depends on its id, and on the resource configuration (orientation, density, night
+     * mode, font scale, smallest screen width and locale) of the context it is created with, and
+     * on the padding and split spacer settings.
+     */
+    record CacheKey(@NonNull KeyboardId id, @NonNull String configuration) {}
+
+    private static final class Entry {
+        final Keyboard mKeyboard;
+        final int mSize;
+
+        Entry(final Keyboard keyboard, final int size) {
+            mKeyboard = keyboard;
+            mSize = size;
+        }
+    }
+
+    KeyboardCache() {
+        this((int) Math.max(MIN_CACHE_SIZE_BYTES,
+                Math.min(MAX_CACHE_SIZE_BYTES, Runtime.getRuntime().maxMemory() / 32)));
+    }
+
+    KeyboardCache(final int maxSize) {
+        mMaxSize = maxSize;
+    }
+
+    /**
+     * Returns the cached keyboard. If {@code countUse} is set, a use of the element id is counted
+     * whether the keyboard is cached or not.
+     */
+    @Nullable
+    synchronized Keyboard get(@NonNull final CacheKey key, final boolean countUse) {
+        if (countUse) {
+            countElementUse(key.id().mElementId);
+        }
+        final Entry entry = mEntries.get(key);
+        if (entry == null) {
+            mMissCount++;
+            return null;
+        }
+        mHitCount++;
+        return entry.mKeyboard;
+    }
+
+    /**
+     * Returns the cached keyboard without counting it as use or access.
+     */
+    @Nullable
+    synchronized Keyboard peek(@NonNull final CacheKey key) {
+        final Entry entry = mEntries.get(key);
+        return entry == null ? null : entry.mKeyboard;
+    }
+
+    synchronized int getGeneration() {
+        return mGeneration;
+    }
+
+    /**
+     * Adds a created keyboard, unless the cache was cleared after the keyboard creation started.
+     * @param generation value of {@link #getGeneration} before creating the keyboard
+     * @param buildTimeMillis time it took to create the keyboard
+     * @param isPrebuilt whether the keyboard was created before it was requested
+     */
+    synchronized void put(@NonNull final CacheKey key, @NonNull final Keyboard keyboard,
+            final int generation, final long buildTimeMillis, final boolean isPrebuilt) {
+        if (generation != mGeneration) return;
+        if (isPrebuilt) {
+            mPrebuiltCount++;
+        }
+        mBuildTimeMillis += buildTimeMillis;
+        mMaxBuildTimeMillis = Math.max(mMaxBuildTimeMillis, buildTimeMillis);
+        final Entry entry = new Entry(keyboard, keyboard.estimateSizeInBytes());
+        final Entry previous = mEntries.put(key, entry);
+        if (previous != null) {
+            mSize -= previous.mSize;
+        }
+        mSize += entry.mSize;
+        trimToSize(key);
+    }
+
+    synchronized void clear() {
+        mEntries.clear();
+        mSize = 0;
+        mGeneration++;
+    }
+
+    synchronized String getStats() {
+        final int total = mHitCount + mMissCount;
+        return "keyboards: " + mEntries.size() + ", size: " + mSize + "/" + mMaxSize
+                + " bytes, hits: " + mHitCount + ", misses: " + mMissCount
+                + ", hit rate: " + (total == 0 ? 0 : mHitCount * 100 / total) + "%"
+                + ", evictions: " + mEvictionCount + ", prebuilt: " + mPrebuiltCount
+                + ", build time: " + mBuildTimeMillis + " ms (max " + mMaxBuildTimeMillis + " ms)";
+    }
+
+    private void countElementUse(final int elementId) {
+        final int count = mElementUseCounts.get(elementId) + 1;
+        mElementUseCounts.put(elementId, count);
+        if (count < MAX_ELEMENT_USE_COUNT) return;
+        for (int i = 0; i < mElementUseCounts.size(); i++) {
+            mElementUseCounts.put(mElementUseCounts.keyAt(i), mElementUseCounts.valueAt(i) / 2);
+        }
+    }
+
+    // the keyboard that was just added is never removed, even if it alone is larger than the cache
+    private void trimToSize(@NonNull final CacheKey addedKey) {
+        while (mSize > mMaxSize && mEntries.size() > 1) {
+            final int candidateCount = Math.max(1, mEntries.size() / 2);
+            CacheKey victim = null;
+            int victimUseCount = Integer.MAX_VALUE;
+            final Iterator<Map.Entry<CacheKey, Entry>> iterator = mEntries.entrySet().iterator();
+            for (int i = 0; i < candidateCount && iterator.hasNext(); i++) {
+                final CacheKey key = iterator.next().getKey();
+                if (key.equals(addedKey)) continue;
+                final int useCount = mElementUseCounts.get(key.id().mElementId);
+                if (useCount < victimUseCount) {
+                    victim = key;
+                    victimUseCount = useCount;
+                }
+            }
+            if (victim == null) return;
+            mSize -= mEntries.remove(victim).mSize;
+            mEvictionCount++;
+        }
+    }
+}
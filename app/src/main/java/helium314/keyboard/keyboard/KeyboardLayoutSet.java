@@ -7,9 +7,12 @@
 package helium314.keyboard.keyboard;
 
 import android.content.Context;
+import android.content.res.Configuration;
+import android.os.SystemClock;
 import android.text.InputType;
 import android.view.inputmethod.EditorInfo;
 
+import helium314.keyboard.compat.ConfigurationCompatKt;
 import helium314.keyboard.compat.IsLockedCompatKt;
 import helium314.keyboard.keyboard.internal.KeyboardBuilder;
 import helium314.keyboard.keyboard.internal.KeyboardIconsSet;
@@ -21,14 +24,16 @@ import helium314.keyboard.keyboard.internal.keyboard_parser.LocaleKeyboardInfosK
 import helium314.keyboard.latin.RichInputMethodManager;
 import helium314.keyboard.latin.RichInputMethodSubtype;
 import helium314.keyboard.latin.settings.Settings;
+import helium314.keyboard.latin.settings.SettingsValues;
+import helium314.keyboard.latin.utils.ExecutorUtils;
 import helium314.keyboard.latin.utils.InputTypeUtils;
 import helium314.keyboard.latin.utils.Log;
 import helium314.keyboard.latin.utils.ResourceUtils;
 import helium314.keyboard.latin.utils.ScriptUtils;
 import helium314.keyboard.latin.utils.SubtypeLocaleUtils;
 
-import java.lang.ref.SoftReference;
-import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
@@ -48,16 +53,16 @@ public final class KeyboardLayoutSet {
     @NonNull
     private final Params mParams;
     public final LocaleKeyboardInfos mLocaleKeyboardInfos;
-
-    // How many layouts we forcibly keep in cache. This only includes ALPHABET (default) and
-    // ALPHABET_AUTOMATIC_SHIFTED layouts - other layouts may stay in memory in the map of
-    // soft-references, but we forcibly cache this many alphabetic/auto-shifted layouts.
-    private static final int FORCIBLE_CACHE_SIZE = 4;
-    // By construction of soft references, anything that is also referenced somewhere else
-    // will stay in the cache. So we forcibly keep some references in an array to prevent
-    // them from disappearing from sKeyboardCache.
-    private static final Keyboard[] sForcibleKeyboardCache = new Keyboard[FORCIBLE_CACHE_SIZE];
-    private static final HashMap<KeyboardId, SoftReference<Keyboard>> sKeyboardCache = new HashMap<>();
+    // the resource configuration keyboards of this set are created with, see KeyboardCache.CacheKey
+    private final String mConfiguration;
+
+    private static final KeyboardCache sKeyboardCache = new KeyboardCache();
+    // creating keyboards is not thread safe, and is done in background by prebuildKeyboards
+    private static final Object sBuildLock = new Object();
+    // keyboards requested on the UI thread waiting for sBuildLock, background creation is abandoned for them
+    private static final AtomicInteger sWaitingBuilds = new AtomicInteger();
+    // don't compete with drawing the keyboard that was just shown
+    private static final long PREBUILD_DELAY_MILLIS = 100;
     @NonNull
     private static final UniqueKeysCache sUniqueKeysCache = UniqueKeysCache.newInstance();
 
@@ -102,30 +107,105 @@ public final class KeyboardLayoutSet {
     }
 
     public static void onSystemLocaleChanged() {
-        clearKeyboardCache();
-        LocaleKeyboardInfosKt.clearCache();
+        synchronized (sBuildLock) {
+            onKeyboardThemeChanged();
+            LayoutParser.INSTANCE.clearCache();
+            LocaleKeyboardInfosKt.clearCache();
+        }
         SubtypeLocaleUtils.clearSubtypeDisplayNameCache();
     }
 
+    /**
+     * Called when the keyboard theme or settings used for creating keyboards changed.
+     */
     public static void onKeyboardThemeChanged() {
-        clearKeyboardCache();
+        synchronized (sBuildLock) {
+            sKeyboardCache.clear();
+            sUniqueKeysCache.clear();
+            KeyboardIconsSet.Companion.setNeedsReload(true);
+        }
     }
 
-    private static void clearKeyboardCache() {
-        sKeyboardCache.clear();
-        sUniqueKeysCache.clear();
-        LayoutParser.INSTANCE.clearCache();
+    /**
+     * Called when only the resource configuration or colors changed. Keyboards are cached per
+     * configuration, and parsed layouts and locale infos don't depend on it. Icons are reloaded
+     * right away, as cached keyboards of the new configuration don't load them.
+     */
+    public static void onConfigurationChanged(final Context context) {
         KeyboardIconsSet.Companion.setNeedsReload(true);
+        KeyboardIconsSet.Companion.getInstance().loadIcons(context);
+    }
+
+    /**
+     * Called when layout files changed, parsed layouts and keyboards using them can't be used any more.
+     */
+    public static void onLayoutFilesChanged() {
+        synchronized (sBuildLock) {
+            LayoutParser.INSTANCE.clearCache();
+            sKeyboardCache.clear();
+        }
+    }
+
+    public static String getKeyboardCacheStats() {
+        return sKeyboardCache.getStats();
     }
 
     KeyboardLayoutSet(final Context context, @NonNull final Params params) {
         mContext = context;
         mParams = params;
         mLocaleKeyboardInfos = LocaleKeyboardInfosKt.getOrCreate(context, params.mSubtype.getLocale());
+        final Configuration configuration = context.getResources().getConfiguration();
+        // padding and split spacer are not part of the KeyboardId, but change the keyboard geometry
+        final SettingsValues settingsValues = Settings.getValues();
+        mConfiguration = configuration.orientation + ":" + configuration.densityDpi + ":"
+                + (configuration.uiMode & Configuration.UI_MODE_NIGHT_MASK) + ":" + configuration.fontScale + ":"
+                + configuration.smallestScreenWidthDp + ":" + ConfigurationCompatKt.locale(configuration) + ":"
+                + settingsValues.mBottomPaddingScale + ":" + settingsValues.mSidePaddingScale + ":"
+                + settingsValues.mSplitKeyboardSpacerRelativeWidth;
     }
 
     @NonNull
     public Keyboard getKeyboard(final int baseKeyboardLayoutSetElementId) {
+        final KeyboardId id = getKeyboardId(baseKeyboardLayoutSetElementId);
+        try {
+            return getKeyboard(id);
+        } catch (final RuntimeException e) {
+            Log.e(TAG, "Can't create keyboard: " + id, e);
+            throw new KeyboardLayoutSetException(e, id);
+        }
+    }
+
+    /**
+     * Creates the keyboards for the given element ids in background, if they are not cached yet.
+     * If a keyboard is requested meanwhile, creating keyboards in background is abandoned at the
+     * next step, so the request waits at most for loading the layout of one keyboard.
+     */
+    public void prebuildKeyboards(final int... baseKeyboardLayoutSetElementIds) {
+        // icons are loaded here, so they are not replaced in background while being drawn
+        KeyboardIconsSet.Companion.getInstance().loadIcons(mContext);
+        ExecutorUtils.getBackgroundExecutor(ExecutorUtils.KEYBOARD).schedule(() -> {
+            for (final int elementId : baseKeyboardLayoutSetElementIds) {
+                final KeyboardCache.CacheKey key =
+                        new KeyboardCache.CacheKey(getKeyboardId(elementId), mConfiguration);
+                try {
+                    synchronized (sBuildLock) {
+                        if (sWaitingBuilds.get() > 0) {
+                            return;
+                        }
+                        if (sKeyboardCache.peek(key) == null) {
+                            prebuildKeyboard(key);
+                        }
+                    }
+                } catch (final RuntimeException e) {
+                    // will be tried again and reported when the keyboard is requested
+                    Log.w(TAG, "Can't prebuild keyboard: " + key.id(), e);
+                }
+            }
+        }, PREBUILD_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    @NonNull
+    private KeyboardId getKeyboardId(final int baseKeyboardLayoutSetElementId) {
         final int keyboardLayoutSetElementId;
         switch (mParams.mMode) {
             case KeyboardId.MODE_PHONE -> {
@@ -145,51 +225,70 @@ public final class KeyboardLayoutSet {
         // attribute in a keyboard_layout_set XML file.  Also each keyboard layout XML resource is
         // specified as an elementKeyboard attribute in the file.
         // The KeyboardId is an internal key for a Keyboard object.
-
-        final KeyboardId id = new KeyboardId(keyboardLayoutSetElementId, mParams);
-        try {
-            return getKeyboard(id);
-        } catch (final RuntimeException e) {
-            Log.e(TAG, "Can't create keyboard: " + id, e);
-            throw new KeyboardLayoutSetException(e, id);
-        }
+        return new KeyboardId(keyboardLayoutSetElementId, mParams);
     }
 
     @NonNull
     private Keyboard getKeyboard(final KeyboardId id) {
-        final SoftReference<Keyboard> ref = sKeyboardCache.get(id);
-        final Keyboard cachedKeyboard = (ref == null) ? null : ref.get();
+        final KeyboardCache.CacheKey key = new KeyboardCache.CacheKey(id, mConfiguration);
+        // the spell checker keyboard is never shown, so its lookups are not counted as element uses
+        final Keyboard cachedKeyboard = sKeyboardCache.get(key, !mParams.mIsSpellChecker);
         if (cachedKeyboard != null) {
             if (DEBUG_CACHE) {
-                Log.d(TAG, "keyboard cache size=" + sKeyboardCache.size() + ": HIT  id=" + id);
+                Log.d(TAG, "HIT id=" + id + ", " + sKeyboardCache.getStats());
             }
             return cachedKeyboard;
         }
+        sWaitingBuilds.incrementAndGet();
+        synchronized (sBuildLock) {
+            sWaitingBuilds.decrementAndGet();
+            // may have been created in background while waiting for the lock
+            final Keyboard prebuiltKeyboard = sKeyboardCache.peek(key);
+            if (prebuiltKeyboard != null) {
+                return prebuiltKeyboard;
+            }
+            return buildKeyboard(key);
+        }
+    }
 
+    // must be called with sBuildLock held, as the caches used when creating keyboards are shared
+    @NonNull
+    private Keyboard buildKeyboard(final KeyboardCache.CacheKey key) {
+        final int generation = sKeyboardCache.getGeneration();
+        final long startTime = SystemClock.uptimeMillis();
+        return addKeyboard(key, loadKeyboard(key.id()), generation, startTime, false);
+    }
+
+    // must be called with sBuildLock held, abandoned if a keyboard is requested meanwhile
+    private void prebuildKeyboard(final KeyboardCache.CacheKey key) {
+        final int generation = sKeyboardCache.getGeneration();
+        final long startTime = SystemClock.uptimeMillis();
+        final KeyboardBuilder<KeyboardParams> builder = loadKeyboard(key.id());
+        if (sWaitingBuilds.get() > 0) {
+            return;
+        }
+        addKeyboard(key, builder, generation, startTime, true);
+    }
+
+    @NonNull
+    private KeyboardBuilder<KeyboardParams> loadKeyboard(final KeyboardId id) {
         final KeyboardBuilder<KeyboardParams> builder =
                 new KeyboardBuilder<>(mContext, new KeyboardParams(sUniqueKeysCache));
         sUniqueKeysCache.setEnabled(id.isAlphabetKeyboard());
         builder.load(id);
+        return builder;
+    }
+
+    @NonNull
+    private Keyboard addKeyboard(final KeyboardCache.CacheKey key, final KeyboardBuilder<KeyboardParams> builder,
+            final int generation, final long startTime, final boolean isPrebuilt) {
         if (mParams.mDisableTouchPositionCorrectionDataForTest) {
             builder.disableTouchPositionCorrectionDataForTest();
         }
         final Keyboard keyboard = builder.build();
-        sKeyboardCache.put(id, new SoftReference<>(keyboard));
-        if ((id.mElementId == KeyboardId.ELEMENT_ALPHABET
-                || id.mElementId == KeyboardId.ELEMENT_ALPHABET_AUTOMATIC_SHIFTED)
-                && !mParams.mIsSpellChecker) {
-            // We only forcibly cache the primary, "ALPHABET", layouts.
-            for (int i = sForcibleKeyboardCache.length - 1; i >= 1; --i) {
-                sForcibleKeyboardCache[i] = sForcibleKeyboardCache[i - 1];
-            }
-            sForcibleKeyboardCache[0] = keyboard;
-            if (DEBUG_CACHE) {
-                Log.d(TAG, "forcing caching of keyboard with id=" + id);
-            }
-        }
+        sKeyboardCache.put(key, keyboard, generation, SystemClock.uptimeMillis() - startTime, isPrebuilt);
         if (DEBUG_CACHE) {
-            Log.d(TAG, "keyboard cache size=" + sKeyboardCache.size() + ": "
-                    + ((ref == null) ? "LOAD" : "GCed") + " id=" + id);
+            Log.d(TAG, (isPrebuilt ? "PREBUILD" : "LOAD") + " id=" + key.id() + ", " + sKeyboardCache.getStats());
         }
         return keyboard;
     }
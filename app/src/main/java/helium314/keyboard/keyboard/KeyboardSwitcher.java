@@ -83,6 +83,8 @@ public final class KeyboardSwitcher implements KeyboardState.SwitchActions {
     private int mCurrentOrientation;
     private int mCurrentDpi;
     private boolean mThemeNeedsReload;
+    // whether the theme reload also needs to remove cached keyboards
+    private boolean mKeyboardsNeedReload;
 
     @SuppressLint("StaticFieldLeak") // this is a keyboard, we want to keep it alive in background
     private static final KeyboardSwitcher sInstance = new KeyboardSwitcher();
@@ -121,9 +123,12 @@ public final class KeyboardSwitcher implements KeyboardState.SwitchActions {
     private boolean updateKeyboardThemeAndContextThemeWrapper(final Context context,
             final KeyboardTheme keyboardTheme) {
         final Resources res = context.getResources();
-        if (mThemeNeedsReload
+        // other changes don't affect how keyboards are created, or keyboards are cached for them
+        final boolean keyboardsNeedReload = mKeyboardsNeedReload
                 || mThemeContext == null
-                || !keyboardTheme.equals(mKeyboardTheme)
+                || !keyboardTheme.equals(mKeyboardTheme);
+        if (keyboardsNeedReload
+                || mThemeNeedsReload
                 || mCurrentDpi != res.getDisplayMetrics().densityDpi
                 || mCurrentOrientation != res.getConfiguration().orientation
                 || (mCurrentUiMode & Configuration.UI_MODE_NIGHT_MASK) != (res.getConfiguration().uiMode
@@ -131,12 +136,17 @@ public final class KeyboardSwitcher implements KeyboardState.SwitchActions {
                 || !mThemeContext.getResources().equals(res)
                 || Settings.getValues().mColors.haveColorsChanged(context)) {
             mThemeNeedsReload = false;
+            mKeyboardsNeedReload = false;
             mKeyboardTheme = keyboardTheme;
             mThemeContext = new ContextThemeWrapper(context, keyboardTheme.mStyleId);
             mCurrentUiMode = res.getConfiguration().uiMode;
             mCurrentOrientation = res.getConfiguration().orientation;
             mCurrentDpi = res.getDisplayMetrics().densityDpi;
-            KeyboardLayoutSet.onKeyboardThemeChanged();
+            if (keyboardsNeedReload) {
+                KeyboardLayoutSet.onKeyboardThemeChanged();
+            } else {
+                KeyboardLayoutSet.onConfigurationChanged(mThemeContext);
+            }
             return true;
         }
         return false;
@@ -163,6 +173,10 @@ public final class KeyboardSwitcher implements KeyboardState.SwitchActions {
                 .build();
         try {
             mState.onLoadKeyboard(currentAutoCapsState, currentRecapitalizeState, oneHandedModeEnabled);
+            // keyboards that are likely to be shown next, so they are not created when switching to them
+            mKeyboardLayoutSet.prebuildKeyboards(KeyboardId.ELEMENT_ALPHABET,
+                    KeyboardId.ELEMENT_ALPHABET_AUTOMATIC_SHIFTED, KeyboardId.ELEMENT_ALPHABET_MANUAL_SHIFTED,
+                    KeyboardId.ELEMENT_SYMBOLS, KeyboardId.ELEMENT_SYMBOLS_SHIFTED, KeyboardId.ELEMENT_NUMPAD);
         } catch (KeyboardLayoutSetException e) {
             Log.e(TAG, "loading keyboard failed: " + e.mKeyboardId, e.getCause());
             try {
@@ -802,6 +816,15 @@ public final class KeyboardSwitcher implements KeyboardState.SwitchActions {
      * If the keyboard is currently showing, theme will be reloaded immediately.
      */
     public void setThemeNeedsReload() {
+        mKeyboardsNeedReload = true;
+        setThemeNeedsReloadKeepingKeyboards();
+    }
+
+    /**
+     * Like {@link #setThemeNeedsReload()}, but cached keyboards are kept. For changes keyboards
+     * don't depend on, like colors, or that are part of the cache key, like height and paddings.
+     */
+    public void setThemeNeedsReloadKeepingKeyboards() {
         mThemeNeedsReload = true;
         if (mLatinIME == null || !mLatinIME.isInputViewShown())
             return; // will be reloaded right before showing IME
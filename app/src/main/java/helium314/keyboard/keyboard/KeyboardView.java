@@ -17,15 +17,18 @@ import android.graphics.Paint;
 import android.graphics.Paint.Align;
 import android.graphics.PorterDuff;
 import android.graphics.Rect;
+import android.graphics.RenderNode;
 import android.graphics.Typeface;
 import android.graphics.drawable.Drawable;
 import android.graphics.drawable.NinePatchDrawable;
+import android.os.Build;
 import android.text.TextUtils;
 import android.util.AttributeSet;
 import android.view.View;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.RequiresApi;
 
 import helium314.keyboard.keyboard.emoji.EmojiPageKeyboardView;
 import helium314.keyboard.keyboard.internal.KeyDrawParams;
@@ -85,8 +88,11 @@ public class KeyboardView extends View {
     private final HashSet<Key> mInvalidatedKeys = new HashSet<>();
     /** The working rectangle for clipping */
     private final Rect mClipRect = new Rect();
-    /** The keyboard bitmap buffer for faster updates */
+    /** The keyboard bitmap buffer for faster updates, only used when drawing in software */
     private Bitmap mOffscreenBuffer;
+    /** Display lists of the keys when drawing hardware accelerated, replaces the offscreen buffer */
+    @Nullable
+    private KeyRenderNodes mKeyRenderNodes;
     /** Flag for whether the key hints should be displayed */
     private boolean mShowsHints;
     /** Scale for downscaling icons and fixed size backgrounds if keyboard height is set below 80% */
@@ -94,6 +100,12 @@ public class KeyboardView extends View {
     /** The canvas for the above mutable keyboard bitmap */
     @NonNull
     private final Canvas mOffscreenCanvas = new Canvas();
+    /** Rendered keys, if keys of this view can be drawn from a cache */
+    @Nullable
+    private KeyRenderCache mKeyRenderCache;
+    /** The canvas for rendering keys into bitmaps of {@link #mKeyRenderCache} */
+    @NonNull
+    private final Canvas mKeyRenderCanvas = new Canvas();
     @NonNull
     private final Paint mPaint = new Paint();
     private final Paint.FontMetrics mFontMetrics = new Paint.FontMetrics();
@@ -240,6 +252,7 @@ public class KeyboardView extends View {
     protected void onDraw(@NonNull final Canvas canvas) {
         super.onDraw(canvas);
         if (canvas.isHardwareAccelerated()) {
+            freeOffscreenBuffer();
             onDrawKeyboard(canvas);
             return;
         }
@@ -289,22 +302,34 @@ public class KeyboardView extends View {
         mShowsHints = Settings.getValues().mShowsHints;
         final float scale = Settings.getValues().mKeyboardHeightScale;
         mIconScaleFactor = scale < 0.8f ? scale + 0.2f : 1f;
+        if (mKeyRenderCache != null) {
+            mKeyRenderCache.updateDrawingState(mKeyDrawParams, mShowsHints, mIconScaleFactor, mFontSizeMultiplier);
+            mKeyRenderCache.updateMaxSize(keyboard.mOccupiedWidth, keyboard.mOccupiedHeight);
+        }
         final Paint paint = mPaint;
         final Drawable background = getBackground();
         // Calculate clip region and set.
         final boolean drawAllKeys = mInvalidateAllKeys || mInvalidatedKeys.isEmpty();
         final boolean isHardwareAccelerated = canvas.isHardwareAccelerated();
-        // TODO: Confirm if it's really required to draw all keys when hardware acceleration is on.
-        if (drawAllKeys || isHardwareAccelerated) {
+        if (isHardwareAccelerated && Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            onDrawKeyRenderNodes(keyboard, canvas, paint);
+        } else if (drawAllKeys || isHardwareAccelerated) {
             if (!isHardwareAccelerated && background != null) {
                 // Need to draw keyboard background on {@link #mOffscreenBuffer}.
                 canvas.drawColor(Color.BLACK, PorterDuff.Mode.CLEAR);
                 background.draw(canvas);
             }
             // Draw all keys.
+            final long startTime = System.nanoTime();
+            if (mKeyRenderCache != null) {
+                mKeyRenderCache.onFullDrawStarted();
+            }
             for (final Key key : keyboard.getSortedKeys()) {
                 onDrawKey(key, canvas, paint);
             }
+            if (mKeyRenderCache != null) {
+                mKeyRenderCache.onFullDrawFinished(System.nanoTime() - startTime);
+            }
         } else {
             for (final Key key : mInvalidatedKeys) {
                 if (!keyboard.hasKey(key)) {
@@ -329,25 +354,128 @@ public class KeyboardView extends View {
         mInvalidateAllKeys = false;
     }
 
+    // Record the display lists of invalidated keys, or of all keys if the whole keyboard is
+    // invalidated, and draw the display lists of all keys.
+    @RequiresApi(api = Build.VERSION_CODES.Q)
+    private void onDrawKeyRenderNodes(@NonNull final Keyboard keyboard, @NonNull final Canvas canvas,
+            @NonNull final Paint paint) {
+        if (mKeyRenderNodes == null) {
+            mKeyRenderNodes = new KeyRenderNodes();
+        }
+        final KeyRenderNodes nodes = mKeyRenderNodes;
+        final long startTime = System.nanoTime();
+        final boolean isFullDraw = mInvalidateAllKeys;
+        if (isFullDraw) {
+            nodes.invalidateAll();
+            if (mKeyRenderCache != null) {
+                mKeyRenderCache.onFullDrawStarted();
+            }
+        } else {
+            for (final Key key : mInvalidatedKeys) {
+                nodes.invalidate(key);
+            }
+        }
+        for (final Key key : keyboard.getSortedKeys()) {
+            RenderNode node = nodes.get(key);
+            if (node == null) {
+                node = nodes.obtain(key, key.getDrawX() + getPaddingLeft(), key.getY() + getPaddingTop());
+                final Canvas recordingCanvas = node.beginRecording();
+                try {
+                    onDrawKeyAtOrigin(key, recordingCanvas, paint);
+                } finally {
+                    node.endRecording();
+                }
+            }
+            canvas.drawRenderNode(node);
+        }
+        nodes.discardUnusedDisplayLists();
+        if (isFullDraw && mKeyRenderCache != null) {
+            mKeyRenderCache.onFullDrawFinished(System.nanoTime() - startTime);
+        }
+    }
+
     private void onDrawKey(@NonNull final Key key, @NonNull final Canvas canvas,
             @NonNull final Paint paint) {
         final int keyDrawX = key.getDrawX() + getPaddingLeft();
         final int keyDrawY = key.getY() + getPaddingTop();
         canvas.translate(keyDrawX, keyDrawY);
+        onDrawKeyAtOrigin(key, canvas, paint);
+        canvas.translate(-keyDrawX, -keyDrawY);
+    }
 
+    // Draw the key with its top left corner at the origin of the canvas.
+    private void onDrawKeyAtOrigin(@NonNull final Key key, @NonNull final Canvas canvas,
+            @NonNull final Paint paint) {
         final KeyVisualAttributes attr = key.getVisualAttributes();
         // don't use the raw key height, linear font scaling with height is too extreme
         final KeyDrawParams params = mKeyDrawParams.mayCloneAndUpdateParams((int) (key.getHeight() * mKeyScaleForText), attr);
         params.mAnimAlpha = Constants.Color.ALPHA_OPAQUE;
 
+        // keys with a background that keeps its aspect ratio may be drawn outside the bitmap bounds
+        if (!key.isSpacer() && !key.needsToKeepBackgroundAspectRatio(mDefaultKeyLabelFlags)
+                && canCacheKeyRendering(key)) {
+            onDrawCachedKey(key, canvas, paint, params);
+        } else {
+            onDrawKeyVisuals(key, canvas, paint, params);
+        }
+    }
+
+    private void onDrawKeyVisuals(@NonNull final Key key, @NonNull final Canvas canvas,
+            @NonNull final Paint paint, @NonNull final KeyDrawParams params) {
         if (!key.isSpacer()) {
             final Drawable background = key.selectBackgroundDrawable(
                     mKeyBackground, mFunctionalKeyBackground, mSpacebarBackground, mActionKeyBackground);
             onDrawKeyBackground(key, canvas, background);
         }
         onDrawKeyTopVisuals(key, canvas, paint, params);
+    }
 
-        canvas.translate(-keyDrawX, -keyDrawY);
+    // Draw the key from a bitmap that also contains the background padding, and render it first if
+    // no key that looks the same has been rendered before.
+    private void onDrawCachedKey(@NonNull final Key key, @NonNull final Canvas canvas,
+            @NonNull final Paint paint, @NonNull final KeyDrawParams params) {
+        if (mKeyRenderCache == null) {
+            mKeyRenderCache = new KeyRenderCache();
+            mKeyRenderCache.updateDrawingState(mKeyDrawParams, mShowsHints, mIconScaleFactor, mFontSizeMultiplier);
+        }
+        final Keyboard keyboard = getKeyboard();
+        if (keyboard != null) {
+            mKeyRenderCache.updateMaxSize(keyboard.mOccupiedWidth, keyboard.mOccupiedHeight);
+        }
+        final Drawable icon = keyboard == null ? null : key.getIcon(keyboard.mIconsSet, params.mAnimAlpha);
+        final KeyRenderCache.Signature signature = KeyRenderCache.newSignature(key, params, icon,
+                key.isShift() && isShiftedKeyboard(keyboard));
+        final Rect padding = mKeyBackgroundPadding;
+        Bitmap bitmap = mKeyRenderCache.get(signature);
+        if (bitmap == null) {
+            bitmap = Bitmap.createBitmap(key.getDrawWidth() + padding.left + padding.right,
+                    key.getHeight() + padding.top + padding.bottom, Bitmap.Config.ARGB_8888);
+            mKeyRenderCanvas.setBitmap(bitmap);
+            mKeyRenderCanvas.translate(padding.left, padding.top);
+            onDrawKeyVisuals(key, mKeyRenderCanvas, paint, params);
+            mKeyRenderCanvas.setBitmap(null);
+            mKeyRenderCanvas.setMatrix(null);
+            mKeyRenderCache.put(signature, bitmap);
+        }
+        canvas.drawBitmap(bitmap, -padding.left, -padding.top, null);
+    }
+
+    /**
+     * Whether the key can be drawn from a cache of rendered keys, i.e. whether it looks the same
+     * whenever the visual state of the key is the same. Keys with content that changes otherwise,
+     * e.g. with an animation, must not be cached.
+     */
+    protected boolean canCacheKeyRendering(@NonNull final Key key) {
+        return false;
+    }
+
+    @NonNull
+    public String getKeyRenderCacheStats() {
+        final String stats = mKeyRenderCache == null ? "not used" : mKeyRenderCache.getStats();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q && mKeyRenderNodes != null) {
+            return stats + ", " + mKeyRenderNodes.getStats();
+        }
+        return stats;
     }
 
     // Draw key background.
@@ -583,8 +711,8 @@ public class KeyboardView extends View {
 
     /**
      * Requests a redraw of the entire keyboard. Calling {@link #invalidate} is not sufficient
-     * because the keyboard renders the keys to an off-screen buffer and an invalidate() only
-     * draws the cached buffer.
+     * because the keyboard renders the keys to an off-screen buffer or display lists and an
+     * invalidate() only draws the cached buffer or display lists.
      * @see #invalidateKey(Key)
      */
     public void invalidateAllKeys() {
@@ -614,21 +742,28 @@ public class KeyboardView extends View {
     protected void onDetachedFromWindow() {
         super.onDetachedFromWindow();
         freeOffscreenBuffer();
+        freeKeyRenderCache();
     }
 
     public void deallocateMemory() {
         freeOffscreenBuffer();
+        freeKeyRenderCache();
+    }
+
+    private void freeKeyRenderCache() {
+        if (mKeyRenderCache != null) {
+            mKeyRenderCache.clear();
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q && mKeyRenderNodes != null) {
+            mKeyRenderNodes.clear();
+        }
     }
 
     private void setKeyIconColor(Key key, Drawable icon, Keyboard keyboard) {
         if (key.hasActionKeyBackground()) {
             mColors.setColor(icon, ColorType.ACTION_KEY_ICON);
         } else if (key.isShift() && keyboard != null) {
-            if (keyboard.mId.mElementId == KeyboardId.ELEMENT_ALPHABET_MANUAL_SHIFTED
-                    || keyboard.mId.mElementId == KeyboardId.ELEMENT_ALPHABET_SHIFT_LOCKED
-                    || keyboard.mId.mElementId == KeyboardId.ELEMENT_ALPHABET_AUTOMATIC_SHIFTED
-                    || keyboard.mId.mElementId == KeyboardId.ELEMENT_ALPHABET_SHIFT_LOCK_SHIFTED
-            )
+            if (isShiftedKeyboard(keyboard))
                 mColors.setColor(icon, ColorType.SHIFT_KEY_ICON);
             else
                 mColors.setColor(icon, ColorType.KEY_ICON); // normal key if not shifted
@@ -644,4 +779,13 @@ public class KeyboardView extends View {
         }
     }
 
+    private static boolean isShiftedKeyboard(@Nullable final Keyboard keyboard) {
+        if (keyboard == null) return false;
+        final int elementId = keyboard.mId.mElementId;
+        return elementId == KeyboardId.ELEMENT_ALPHABET_MANUAL_SHIFTED
+                || elementId == KeyboardId.ELEMENT_ALPHABET_SHIFT_LOCKED
+                || elementId == KeyboardId.ELEMENT_ALPHABET_AUTOMATIC_SHIFTED
+                || elementId == KeyboardId.ELEMENT_ALPHABET_SHIFT_LOCK_SHIFTED;
+    }
+
 }
@@ -83,6 +83,7 @@ public final class MainKeyboardView extends KeyboardView implements DrawingProxy
     private final ObjectAnimator mLanguageOnSpacebarFadeoutAnimator;
     private int mLanguageOnSpacebarFormatType;
     private boolean mHasMultipleEnabledIMEsOrSubtypes;
+    private boolean mKeyRenderCacheEnabled;
     private int mLanguageOnSpacebarAnimAlpha = Constants.Color.ALPHA_OPAQUE;
     private final float mLanguageOnSpacebarTextRatio;
     private float mLanguageOnSpacebarTextSize;
@@ -426,6 +427,15 @@ public final class MainKeyboardView extends KeyboardView implements DrawingProxy
         mSlidingKeyInputDrawingPreview.setPreviewEnabled(enabled);
     }
 
+    public void setKeyRenderCacheEnabled(final boolean enabled) {
+        if (mKeyRenderCacheEnabled == enabled) return;
+        mKeyRenderCacheEnabled = enabled;
+        if (!enabled) {
+            deallocateMemory();
+        }
+        invalidateAllKeys();
+    }
+
     @Override
     public void showSlidingKeyInputPreview(@Nullable final PointerTracker tracker) {
         locatePreviewPlacerView();
@@ -727,6 +737,14 @@ public final class MainKeyboardView extends KeyboardView implements DrawingProxy
         invalidateKey(mSpaceKey);
     }
 
+    // space and language switch key depend on settings and subtypes, and alt code keys are animated
+    @Override
+    protected boolean canCacheKeyRendering(@NonNull final Key key) {
+        if (!mKeyRenderCacheEnabled) return false;
+        final int code = key.getCode();
+        return code != Constants.CODE_SPACE && code != KeyCode.LANGUAGE_SWITCH && !key.altCodeWhileTyping();
+    }
+
     @Override
     protected void onDrawKeyTopVisuals(@NonNull final Key key, @NonNull final Canvas canvas,
             @NonNull final Paint paint, @NonNull final KeyDrawParams params) {
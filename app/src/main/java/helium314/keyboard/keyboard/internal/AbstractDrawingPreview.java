@@ -7,6 +7,7 @@
 package helium314.keyboard.keyboard.internal;
 
 import android.graphics.Canvas;
+import android.graphics.Rect;
 import android.view.View;
 
 import androidx.annotation.NonNull;
@@ -35,6 +36,16 @@ public abstract class AbstractDrawingPreview {
         }
     }
 
+    /**
+     * Invalidates only the given rectangle of the drawing view.
+     * @param dirtyRect the rectangle in the coordinates of the drawing view.
+     */
+    protected void invalidateDrawingView(@NonNull final Rect dirtyRect) {
+        if (mDrawingView != null) {
+            mDrawingView.invalidate(dirtyRect.left, dirtyRect.top, dirtyRect.right, dirtyRect.bottom);
+        }
+    }
+
     protected final boolean isPreviewEnabled() {
         return mPreviewEnabled && mHasValidGeometry;
     }
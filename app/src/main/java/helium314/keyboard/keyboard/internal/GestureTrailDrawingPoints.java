@@ -58,17 +58,27 @@ final class GestureTrailDrawingPoints {
                 ? DOWN_EVENT_MARKER - xCoordOrMark : xCoordOrMark;
     }
 
-    public void addStroke(final GestureStrokeDrawingPoints stroke, final long downTime) {
+    /**
+     * Add new points of a gesture stroke
+     * @param stroke The gesture stroke
+     * @param downTime The down time of the gesture stroke
+     * @param outPointsBounds the bounding box of the added points and of the points changed by
+     * interpolation, not including the width of the gesture trail
+     * @return true if points were added
+     */
+    public boolean addStroke(final GestureStrokeDrawingPoints stroke, final long downTime,
+            final Rect outPointsBounds) {
         synchronized (mEventTimes) {
-            addStrokeLocked(stroke, downTime);
+            return addStrokeLocked(stroke, downTime, outPointsBounds);
         }
     }
 
-    private void addStrokeLocked(final GestureStrokeDrawingPoints stroke, final long downTime) {
+    private boolean addStrokeLocked(final GestureStrokeDrawingPoints stroke, final long downTime,
+            final Rect outPointsBounds) {
         final int trailSize = mEventTimes.getLength();
         stroke.appendPreviewStroke(mEventTimes, mXCoordinates, mYCoordinates, mPointTypes);
         if (mEventTimes.getLength() == trailSize) {
-            return;
+            return false;
         }
         final int[] eventTimes = mEventTimes.getPrimitiveArray();
         final int strokeId = stroke.getGestureStrokeId();
@@ -95,6 +105,29 @@ final class GestureTrailDrawingPoints {
             mCurrentTimeBase = downTime - eventTimes[trailSize];
             mCurrentStrokeId = strokeId;
         }
+        // Include the point before the first changed one, as the segment to it changes too.
+        final int changedStartIndex = Math.max(mTrailStartIndex,
+                Math.min(lastInterpolatedIndex, trailSize) - 1);
+        setPointsBounds(changedStartIndex, mEventTimes.getLength(), outPointsBounds);
+        return true;
+    }
+
+    private void setPointsBounds(final int startIndex, final int endIndex, final Rect outBounds) {
+        final int[] xCoords = mXCoordinates.getPrimitiveArray();
+        final int[] yCoords = mYCoordinates.getPrimitiveArray();
+        int left = Integer.MAX_VALUE;
+        int top = Integer.MAX_VALUE;
+        int right = Integer.MIN_VALUE;
+        int bottom = Integer.MIN_VALUE;
+        for (int i = startIndex; i < endIndex; i++) {
+            final int x = getXCoordValue(xCoords[i]);
+            final int y = yCoords[i];
+            left = Math.min(left, x);
+            top = Math.min(top, y);
+            right = Math.max(right, x);
+            bottom = Math.max(bottom, y);
+        }
+        outBounds.set(left, top, right, bottom);
     }
 
     /**
@@ -132,8 +165,9 @@ final class GestureTrailDrawingPoints {
         return params.mTrailStartWidth - (deltaWidth * elapsedTime) / params.mTrailLingerDuration;
     }
 
-    private final RoundedLine mRoundedLine = new RoundedLine();
-    private final Rect mRoundedLineBounds = new Rect();
+    // All segments of a trail that are drawn with the same alpha are added to this path, and drawn
+    // at once. With shadow each segment is drawn separately, as the shadow radius changes.
+    private final Path mTrailPath = new Path();
 
     /**
      * Draw gesture trail
@@ -177,7 +211,12 @@ final class GestureTrailDrawingPoints {
         if (startIndex < trailSize) {
             paint.setColor(params.mTrailColor);
             paint.setStyle(Paint.Style.FILL);
-            final RoundedLine roundedLine = mRoundedLine;
+            final Path path = mTrailPath;
+            path.rewind();
+            int pathAlpha = 0;
+            float pathShadow = 0.0f;
+            // Whether the path contains the circle at p1.
+            boolean hasStartCircle = false;
             int p1x = getXCoordValue(xCoords[startIndex]);
             int p1y = yCoords[startIndex];
             final int lastTime = sinceDown - eventTimes[startIndex];
@@ -191,26 +230,37 @@ final class GestureTrailDrawingPoints {
                 if (!isDownEventXCoord(xCoords[i])) {
                     final float body1 = r1 * params.mTrailBodyRatio;
                     final float body2 = r2 * params.mTrailBodyRatio;
-                    final Path path = roundedLine.makePath(p1x, p1y, body1, p2x, p2y, body2);
-                    if (!path.isEmpty()) {
-                        roundedLine.getBounds(mRoundedLineBounds);
-                        if (params.mTrailShadowEnabled) {
-                            final float shadow2 = r2 * params.mTrailShadowRatio;
-                            paint.setShadowLayer(shadow2, 0.0f, 0.0f, params.mTrailColor);
-                            final int shadowInset = -(int)Math.ceil(shadow2);
-                            mRoundedLineBounds.inset(shadowInset, shadowInset);
-                        }
-                        // Take union for the bounds.
-                        outBoundsRect.union(mRoundedLineBounds);
-                        final int alpha = getAlpha(elapsedTime, params);
-                        paint.setAlpha(alpha);
-                        canvas.drawPath(path, paint);
+                    final int alpha = getAlpha(elapsedTime, params);
+                    if (!path.isEmpty() && (alpha != pathAlpha || params.mTrailShadowEnabled)) {
+                        drawTrailPath(canvas, paint, pathAlpha, pathShadow, params);
+                        hasStartCircle = false;
                     }
+                    if (RoundedLine.addToPath(path, p1x, p1y, body1, p2x, p2y, body2,
+                            !hasStartCircle)) {
+                        hasStartCircle = true;
+                        pathAlpha = alpha;
+                        pathShadow = r2 * params.mTrailShadowRatio;
+                        // The rounded line is inside the bounds of its circles, plus one pixel
+                        // for anti-aliasing.
+                        final float margin = (params.mTrailShadowEnabled ? pathShadow : 0.0f) + 1.0f;
+                        outBoundsRect.union(
+                                (int)Math.floor(Math.min(p1x - body1, p2x - body2) - margin),
+                                (int)Math.floor(Math.min(p1y - body1, p2y - body2) - margin),
+                                (int)Math.ceil(Math.max(p1x + body1, p2x + body2) + margin),
+                                (int)Math.ceil(Math.max(p1y + body1, p2y + body2) + margin));
+                    } else {
+                        hasStartCircle = false;
+                    }
+                } else {
+                    hasStartCircle = false;
                 }
                 p1x = p2x;
                 p1y = p2y;
                 r1 = r2;
             }
+            if (!path.isEmpty()) {
+                drawTrailPath(canvas, paint, pathAlpha, pathShadow, params);
+            }
             if (DEBUG_SHOW_POINTS) {
                 debugDrawPoints(canvas, startIndex, trailSize, paint);
             }
@@ -241,6 +291,16 @@ final class GestureTrailDrawingPoints {
         return newSize > 0;
     }
 
+    private void drawTrailPath(final Canvas canvas, final Paint paint, final int alpha,
+            final float shadow, final GestureTrailDrawingParams params) {
+        if (params.mTrailShadowEnabled) {
+            paint.setShadowLayer(shadow, 0.0f, 0.0f, params.mTrailColor);
+        }
+        paint.setAlpha(alpha);
+        canvas.drawPath(mTrailPath, paint);
+        mTrailPath.rewind();
+    }
+
     private void debugDrawPoints(final Canvas canvas, final int startIndex, final int endIndex,
             final Paint paint) {
         final int[] xCoords = mXCoordinates.getPrimitiveArray();
@@ -18,13 +18,19 @@ import android.os.Handler;
 import android.util.SparseArray;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
 import helium314.keyboard.keyboard.PointerTracker;
+import helium314.keyboard.latin.common.CoordinateUtils;
+import helium314.keyboard.latin.define.DebugFlags;
+import helium314.keyboard.latin.utils.Log;
 
 /**
  * Draw preview graphics of multiple gesture trails during gesture input.
  */
 public final class GestureTrailsDrawingPreview extends AbstractDrawingPreview implements Runnable {
+    private static final String TAG = GestureTrailsDrawingPreview.class.getSimpleName();
+
     private final SparseArray<GestureTrailDrawingPoints> mGestureTrails = new SparseArray<>();
     private final GestureTrailDrawingParams mDrawingParams;
     private final Paint mGesturePaint;
@@ -36,6 +42,18 @@ public final class GestureTrailsDrawingPreview extends AbstractDrawingPreview im
     private final Rect mOffscreenSrcRect = new Rect();
     private final Rect mDirtyRect = new Rect();
     private final Rect mGestureTrailBoundsRect = new Rect(); // per trail
+    private final Rect mAddedPointsBoundsRect = new Rect();
+    private final Rect mInvalidateRect = new Rect();
+    // The maximum distance of the drawn trail from its points, including shadow and anti-aliasing.
+    private final int mTrailMargin;
+    private int mKeyboardViewOriginX;
+    private int mKeyboardViewOriginY;
+
+    // Statistics of the frames drawn for the current gesture trails, logged in debug mode.
+    private int mFrameCount;
+    private long mFrameTimeNanos;
+    private long mMaxFrameTimeNanos;
+    private long mInvalidatedArea;
 
     private final Handler mDrawingHandler = new Handler();
 
@@ -45,12 +63,18 @@ public final class GestureTrailsDrawingPreview extends AbstractDrawingPreview im
         gesturePaint.setAntiAlias(true);
         gesturePaint.setXfermode(new PorterDuffXfermode(PorterDuff.Mode.SRC));
         mGesturePaint = gesturePaint;
+        final GestureTrailDrawingParams params = mDrawingParams;
+        final float maxRadius = params.mTrailStartWidth / 2.0f;
+        mTrailMargin = (int)Math.ceil(maxRadius * params.mTrailBodyRatio
+                + (params.mTrailShadowEnabled ? maxRadius * params.mTrailShadowRatio : 0.0f)) + 1;
     }
 
     @Override
     public void setKeyboardViewGeometry(@NonNull final int[] originCoords, final int width,
             final int height) {
         super.setKeyboardViewGeometry(originCoords, width, height);
+        mKeyboardViewOriginX = CoordinateUtils.x(originCoords);
+        mKeyboardViewOriginY = CoordinateUtils.y(originCoords);
         mOffscreenOffsetY = (int)(height
                 * GestureStrokeRecognitionPoints.EXTRA_GESTURE_TRAIL_AREA_ABOVE_KEYBOARD_RATIO);
         mOffscreenWidth = width;
@@ -110,8 +134,25 @@ public final class GestureTrailsDrawingPreview extends AbstractDrawingPreview im
 
     @Override
     public void run() {
-        // Update preview.
-        invalidateDrawingView();
+        // Update preview. Trails only fade out, so only the area of the last drawn trails changes.
+        if (mDirtyRect.isEmpty()) {
+            invalidateDrawingView();
+        } else {
+            invalidateTrails(null);
+        }
+    }
+
+    // Invalidates the area of the last drawn trails, where fading trails are drawn or cleared, and
+    // the area of added trail points, in keyboard view coordinates.
+    private void invalidateTrails(@Nullable final Rect addedBoundsRect) {
+        final Rect rect = mInvalidateRect;
+        rect.set(mDirtyRect);
+        if (addedBoundsRect != null) {
+            rect.union(addedBoundsRect);
+        }
+        rect.offset(mKeyboardViewOriginX, mKeyboardViewOriginY);
+        mInvalidatedArea += (long)rect.width() * rect.height();
+        invalidateDrawingView(rect);
     }
 
     /**
@@ -123,6 +164,8 @@ public final class GestureTrailsDrawingPreview extends AbstractDrawingPreview im
         if (!isPreviewEnabled()) {
             return;
         }
+        final long startTime = System.nanoTime();
+        final boolean hadGestureTrails = !mDirtyRect.isEmpty();
         mayAllocateOffscreenBuffer();
         // Draw gesture trails to offscreen buffer.
         final boolean needsUpdatingGestureTrail = drawGestureTrails(
@@ -139,6 +182,30 @@ public final class GestureTrailsDrawingPreview extends AbstractDrawingPreview im
             // Note: Defer clearing the dirty rectangle here because we will get cleared
             // rectangle on the canvas.
         }
+        if (hadGestureTrails || !mDirtyRect.isEmpty()) {
+            onFrameDrawn(System.nanoTime() - startTime, needsUpdatingGestureTrail);
+        }
+    }
+
+    private void onFrameDrawn(final long frameTimeNanos, final boolean needsUpdatingGestureTrail) {
+        mFrameCount++;
+        mFrameTimeNanos += frameTimeNanos;
+        mMaxFrameTimeNanos = Math.max(mMaxFrameTimeNanos, frameTimeNanos);
+        if (needsUpdatingGestureTrail) {
+            return;
+        }
+        if (DebugFlags.DEBUG_ENABLED) {
+            final long viewArea = (long)mOffscreenWidth * mOffscreenHeight;
+            Log.d(TAG, "gesture trail frames: " + mFrameCount
+                    + ", average draw time: " + mFrameTimeNanos / mFrameCount / 1000
+                    + " us, max: " + mMaxFrameTimeNanos / 1000
+                    + " us, average invalidated area: "
+                    + (viewArea == 0 ? 0 : mInvalidatedArea * 100 / mFrameCount / viewArea) + "%");
+        }
+        mFrameCount = 0;
+        mFrameTimeNanos = 0;
+        mMaxFrameTimeNanos = 0;
+        mInvalidatedArea = 0;
     }
 
     /**
@@ -158,9 +225,10 @@ public final class GestureTrailsDrawingPreview extends AbstractDrawingPreview im
                 mGestureTrails.put(tracker.mPointerId, trail);
             }
         }
-        trail.addStroke(tracker.getGestureStrokeDrawingPoints(), tracker.getDownTime());
-
-        // TODO: Should narrow the invalidate region.
-        invalidateDrawingView();
+        if (trail.addStroke(tracker.getGestureStrokeDrawingPoints(), tracker.getDownTime(),
+                mAddedPointsBoundsRect)) {
+            mAddedPointsBoundsRect.inset(-mTrailMargin, -mTrailMargin);
+            invalidateTrails(mAddedPointsBoundsRect);
+        }
     }
 }
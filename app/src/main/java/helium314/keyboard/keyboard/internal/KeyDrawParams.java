@@ -122,6 +122,37 @@ public final class KeyDrawParams {
         return newParams;
     }
 
+    @NonNull
+    public KeyDrawParams copy() {
+        return new KeyDrawParams(this);
+    }
+
+    /**
+     * Whether all values are the same, except for {@link #mAnimAlpha} which is set for each drawn key.
+     */
+    public boolean hasSameValues(@NonNull final KeyDrawParams other) {
+        return mTypeface.equals(other.mTypeface)
+                && mLetterSize == other.mLetterSize
+                && mLabelSize == other.mLabelSize
+                && mLargeLetterSize == other.mLargeLetterSize
+                && mHintLetterSize == other.mHintLetterSize
+                && mShiftedLetterHintSize == other.mShiftedLetterHintSize
+                && mHintLabelSize == other.mHintLabelSize
+                && mPreviewTextSize == other.mPreviewTextSize
+                && mTextColor == other.mTextColor
+                && mTextInactivatedColor == other.mTextInactivatedColor
+                && mTextShadowColor == other.mTextShadowColor
+                && mFunctionalTextColor == other.mFunctionalTextColor
+                && mHintLetterColor == other.mHintLetterColor
+                && mHintLabelColor == other.mHintLabelColor
+                && mShiftedLetterHintInactivatedColor == other.mShiftedLetterHintInactivatedColor
+                && mShiftedLetterHintActivatedColor == other.mShiftedLetterHintActivatedColor
+                && mPreviewTextColor == other.mPreviewTextColor
+                && mHintLabelVerticalAdjustment == other.mHintLabelVerticalAdjustment
+                && mLabelOffCenterRatio == other.mLabelOffCenterRatio
+                && mHintLabelOffCenterRatio == other.mHintLabelOffCenterRatio;
+    }
+
     private static int selectTextSizeFromDimensionOrRatio(final int keyHeight,
             final int dimens, final float ratio, final int defaultDimens) {
         if (ResourceUtils.isValidDimensionPixelSize(dimens)) {
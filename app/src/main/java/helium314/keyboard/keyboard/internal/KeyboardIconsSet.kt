@@ -15,10 +15,14 @@ import helium314.keyboard.latin.utils.prefs
 import java.util.Locale
 
 class KeyboardIconsSet private constructor() {
+    @Volatile
     var iconIds = emptyMap<String, Int>()
         private set
-    private val iconsByName = HashMap<String, Drawable>(80)
+    // replaced instead of modified, as keyboards are also created in background while icons are drawn
+    @Volatile
+    private var iconsByName: Map<String, Drawable> = emptyMap()
 
+    @Synchronized
     fun loadIcons(context: Context) {
         val prefs = context.prefs()
         val iconStyle = prefs.getString(Settings.PREF_ICON_STYLE, Defaults.PREF_ICON_STYLE)
@@ -30,18 +34,20 @@ class KeyboardIconsSet private constructor() {
         val overrideIds = customIconIds(context, prefs)
         val ids = if (overrideIds.isEmpty()) defaultIds else defaultIds + overrideIds
         if (!needsReload && ids == iconIds) return
-        iconIds = ids
-        iconsByName.clear()
+        // cleared before loading, so a reload requested meanwhile is not lost
+        needsReload = false
+        val icons = HashMap<String, Drawable>(80)
         ids.forEach { (name, id) ->
             try {
                 val icon = ContextCompat.getDrawable(context, id) ?: return@forEach
                 icon.setBounds(0, 0, icon.intrinsicWidth, icon.intrinsicHeight)
-                iconsByName[name] = icon
+                icons[name] = icon
             } catch (_: Resources.NotFoundException) {
                 Log.w(TAG, "Drawable resource for icon $name not found")
             }
         }
-        needsReload = false
+        iconsByName = icons
+        iconIds = ids
     }
 
     fun getIconDrawable(name: String?): Drawable? = name?.lowercase(Locale.US)?.let {
@@ -332,6 +338,7 @@ class KeyboardIconsSet private constructor() {
         }
 
         val instance = KeyboardIconsSet()
+        @Volatile
         var needsReload = false
     }
 }
@@ -95,6 +95,77 @@ public final class RoundedLine {
         return mPath;
     }
 
+    /**
+     * Add a rounded line to a path that may already contain other rounded lines, as the circles at
+     * both points and the trapezoid connecting them. All parts are added in clockwise direction,
+     * so overlapping rounded lines are filled as their union when using the winding fill type.
+     *
+     * @param path the path to add the rounded line to.
+     * @param p1x the x-coordinate of the start point.
+     * @param p1y the y-coordinate of the start point.
+     * @param r1 the radius at the start point
+     * @param p2x the x-coordinate of the end point.
+     * @param p2y the y-coordinate of the end point.
+     * @param r2 the radius at the end point
+     * @param addStartCircle false if the path already contains the circle at the start point,
+     * i.e. if it is the end point of the previously added rounded line.
+     * @return false if nothing was added because the start and end points are equal.
+     */
+    public static boolean addToPath(final Path path, final float p1x, final float p1y,
+            final float r1, final float p2x, final float p2y, final float r2,
+            final boolean addStartCircle) {
+        final double dx = p2x - p1x;
+        final double dy = p2y - p1y;
+        // Distance of the points.
+        final double l = Math.hypot(dx, dy);
+        if (Double.compare(0.0d, l) == 0) {
+            return false;
+        }
+        if (addStartCircle) {
+            path.addCircle(p1x, p1y, r1, Path.Direction.CW);
+        }
+        path.addCircle(p2x, p2y, r2, Path.Direction.CW);
+        // Difference of trail cap radius.
+        final double dr = r2 - r1;
+        if (Math.abs(dr) >= l) {
+            return true; // One circle contains the other one.
+        }
+        // Angle of the line p1-p2
+        final double a = Math.atan2(dy, dx);
+        // Variation of angle at trail cap.
+        final double ar = Math.asin(dr / l);
+        // Angles of the points where the trapezoid touches the circles.
+        final double aa = a - (RIGHT_ANGLE + ar);
+        final double ab = a + (RIGHT_ANGLE + ar);
+        final float cosa = (float)Math.cos(aa);
+        final float sina = (float)Math.sin(aa);
+        final float cosb = (float)Math.cos(ab);
+        final float sinb = (float)Math.sin(ab);
+        final float p1ax = p1x + r1 * cosa;
+        final float p1ay = p1y + r1 * sina;
+        final float p1bx = p1x + r1 * cosb;
+        final float p1by = p1y + r1 * sinb;
+        final float p2ax = p2x + r2 * cosa;
+        final float p2ay = p2y + r2 * sina;
+        final float p2bx = p2x + r2 * cosb;
+        final float p2by = p2y + r2 * sinb;
+        // With y pointing down, a positive area means the points are in clockwise order.
+        final float doubleArea = (p1ax * p2ay - p2ax * p1ay) + (p2ax * p2by - p2bx * p2ay)
+                + (p2bx * p1by - p1bx * p2by) + (p1bx * p1ay - p1ax * p1by);
+        path.moveTo(p1ax, p1ay);
+        if (doubleArea >= 0) {
+            path.lineTo(p2ax, p2ay);
+            path.lineTo(p2bx, p2by);
+            path.lineTo(p1bx, p1by);
+        } else {
+            path.lineTo(p1bx, p1by);
+            path.lineTo(p2bx, p2by);
+            path.lineTo(p2ax, p2ay);
+        }
+        path.close();
+        return true;
+    }
+
     public void getBounds(final Rect outBounds) {
         // Reuse mArc1 as working variable
         mPath.computeBounds(mArc1, true /* unused */);
@@ -0,0 +1,194 @@
+// SPDX-License-Identifier: GPL-3.0-only
+package helium314.keyboard.keyboard.internal.keyboard_parser
+
+import android.content.Context
+import helium314.keyboard.keyboard.internal.keyboard_parser.floris.AbstractKeyData
+import helium314.keyboard.latin.BuildConfig
+import helium314.keyboard.latin.utils.ExecutorUtils
+import helium314.keyboard.latin.utils.LayoutType
+import helium314.keyboard.latin.utils.Log
+import kotlinx.serialization.ExperimentalSerializationApi
+import kotlinx.serialization.KSerializer
+import kotlinx.serialization.PolymorphicSerializer
+import kotlinx.serialization.builtins.ListSerializer
+import kotlinx.serialization.descriptors.SerialDescriptor
+import kotlinx.serialization.encoding.AbstractDecoder
+import kotlinx.serialization.encoding.AbstractEncoder
+import kotlinx.serialization.encoding.CompositeDecoder
+import kotlinx.serialization.encoding.CompositeEncoder
+import kotlinx.serialization.modules.SerializersModule
+import java.io.DataInput
+import java.io.DataInputStream
+import java.io.DataOutput
+import java.io.DataOutputStream
+import java.io.File
+
+/**
+ * Layout files in a compiled binary form, stored in the cache directory. This way creating a keyboard after
+ * the app is started does not need to read assets or parse json again.
+ *
+ * Only the result of parsing the file is stored, keys are still computed for the current keyboard params.
+ * Entries of built-in layouts are valid for the installed apk, and entries of custom layouts for the file
+ * content they were created from. Outdated entries are simply overwritten.
+ *
+ * Note that empty SimplePopups are read as empty PopupSet, which behaves the same.
+ *
+ * Not used yet: only parsing json is skipped, and it is not measured whether decoding is faster than parsing
+ * (compare decodeCompiledJsonLayout and parseJsonString in LayoutParserBenchmark) before enabling it.
+ */
+object CompiledLayoutCache {
+    private const val TAG = "CompiledLayoutCache"
+    private const val DIRECTORY_NAME = "compiled_layouts"
+    // needs to be increased when the format or any of the serialized key data classes changes
+    private const val FORMAT_VERSION = 1
+    private const val KIND_JSON: Byte = 0
+    private const val KIND_SIMPLE: Byte = 1
+    private const val ENABLED = false
+
+    private val jsonLayoutSerializer: KSerializer<List<List<AbstractKeyData>>> =
+        ListSerializer(ListSerializer(PolymorphicSerializer(AbstractKeyData::class)))
+
+    // assets only change with a new apk, which also changes the apk modification time (unlike the version code for debug builds)
+    // also part of the key for custom layouts, as parsing may differ between app versions
+    @Volatile
+    private var apkKey: String? = null
+
+    /** Either the parsed rows of a json layout, or the text of a simple layout. */
+    sealed interface CompiledLayout
+    class JsonLayout(val rows: List<List<AbstractKeyData>>) : CompiledLayout
+    class SimpleLayout(val text: String) : CompiledLayout
+
+    /**
+     * Returns the compiled layout if it is up to date, null otherwise.
+     * [content] must be provided for custom layouts, and is not used for built-in layouts.
+     */
+    fun read(context: Context, layoutType: LayoutType, layoutName: String, content: String?): CompiledLayout? {
+        if (!ENABLED) return null
+        val file = getFile(context, layoutType, layoutName)
+        if (!file.isFile) return null
+        try {
+            DataInputStream(file.inputStream().buffered()).use { input ->
+                if (input.readInt() != FORMAT_VERSION || input.readUTF() != getKey(context, content))
+                    return null
+                return when (input.readByte()) {
+                    KIND_JSON -> JsonLayout(decodeJsonLayout(input))
+                    KIND_SIMPLE -> SimpleLayout(ByteArray(input.readInt()).also { input.readFully(it) }.decodeToString())
+                    else -> null
+                }
+            }
+        } catch (e: Exception) {
+            Log.w(TAG, "could not read compiled layout $layoutName", e)
+            file.delete()
+            return null
+        }
+    }
+
+    /** Writes the compiled layout in background, [content] like for [read]. */
+    fun write(context: Context, layoutType: LayoutType, layoutName: String, content: String?, layout: CompiledLayout) {
+        if (!ENABLED) return
+        ExecutorUtils.getBackgroundExecutor(ExecutorUtils.KEYBOARD).execute {
+            val file = getFile(context, layoutType, layoutName)
+            var tempFile: File? = null
+            try {
+                file.parentFile?.mkdirs()
+                // unique name, as the same layout may be written by multiple threads
+                tempFile = File.createTempFile(file.name + ".tmp", null, file.parentFile)
+                DataOutputStream(tempFile.outputStream().buffered()).use { output ->
+                    output.writeInt(FORMAT_VERSION)
+                    output.writeUTF(getKey(context, content))
+                    when (layout) {
+                        is JsonLayout -> {
+                            output.writeByte(KIND_JSON.toInt())
+                            encodeJsonLayout(layout.rows, output)
+                        }
+                        is SimpleLayout -> {
+                            output.writeByte(KIND_SIMPLE.toInt())
+                            val bytes = layout.text.encodeToByteArray()
+                            output.writeInt(bytes.size)
+                            output.write(bytes)
+                        }
+                    }
+                }
+                if (!tempFile.renameTo(file))
+                    tempFile.delete()
+            } catch (e: Exception) {
+                Log.w(TAG, "could not write compiled layout $layoutName", e)
+                tempFile?.delete()
+            }
+        }
+    }
+
+    fun encodeJsonLayout(rows: List<List<AbstractKeyData>>, output: DataOutput) =
+        DataOutputEncoder(output, LayoutParser.keyDataSerializersModule).encodeSerializableValue(jsonLayoutSerializer, rows)
+
+    fun decodeJsonLayout(input: DataInput): List<List<AbstractKeyData>> =
+        DataInputDecoder(input, LayoutParser.keyDataSerializersModule).decodeSerializableValue(jsonLayoutSerializer)
+
+    private fun getFile(context: Context, layoutType: LayoutType, layoutName: String) =
+        File(context.cacheDir, DIRECTORY_NAME + File.separator + layoutType.folder + File.separator + layoutName)
+
+    private fun getKey(context: Context, content: String?): String {
+        val key = apkKey ?: ("apk:" + BuildConfig.VERSION_CODE + ":" + File(context.applicationInfo.sourceDir).lastModified())
+            .also { apkKey = it }
+        if (content != null) return key + ":custom:" + content.hashCode() + ":" + content.length
+        return key
+    }
+}
+
+// Binary format following the DataOutput example of the kotlinx.serialization guide: elements are written
+// in order without names, collections are prefixed with their size, and nullable values with a marker.
+@OptIn(ExperimentalSerializationApi::class)
+private class DataOutputEncoder(
+    private val output: DataOutput,
+    override val serializersModule: SerializersModule
+) : AbstractEncoder() {
+    override fun encodeBoolean(value: Boolean) = output.writeByte(if (value) 1 else 0)
+    override fun encodeByte(value: Byte) = output.writeByte(value.toInt())
+    override fun encodeShort(value: Short) = output.writeShort(value.toInt())
+    override fun encodeInt(value: Int) = output.writeInt(value)
+    override fun encodeLong(value: Long) = output.writeLong(value)
+    override fun encodeFloat(value: Float) = output.writeFloat(value)
+    override fun encodeDouble(value: Double) = output.writeDouble(value)
+    override fun encodeChar(value: Char) = output.writeChar(value.code)
+    override fun encodeString(value: String) = output.writeUTF(value)
+    override fun encodeEnum(enumDescriptor: SerialDescriptor, index: Int) = output.writeInt(index)
+    override fun encodeNull() = encodeBoolean(false)
+    override fun encodeNotNullMark() = encodeBoolean(true)
+
+    override fun beginCollection(descriptor: SerialDescriptor, collectionSize: Int): CompositeEncoder {
+        encodeInt(collectionSize)
+        return this
+    }
+}
+
+@OptIn(ExperimentalSerializationApi::class)
+private class DataInputDecoder(
+    private val input: DataInput,
+    override val serializersModule: SerializersModule,
+    private var elementsCount: Int = 0
+) : AbstractDecoder() {
+    private var elementIndex = 0
+
+    override fun decodeBoolean() = input.readByte().toInt() != 0
+    override fun decodeByte() = input.readByte()
+    override fun decodeShort() = input.readShort()
+    override fun decodeInt() = input.readInt()
+    override fun decodeLong() = input.readLong()
+    override fun decodeFloat() = input.readFloat()
+    override fun decodeDouble() = input.readDouble()
+    override fun decodeChar() = input.readChar()
+    override fun decodeString(): String = input.readUTF()
+    override fun decodeEnum(enumDescriptor: SerialDescriptor) = input.readInt()
+    override fun decodeNotNullMark() = decodeBoolean()
+    override fun decodeSequentially() = true
+
+    override fun decodeElementIndex(descriptor: SerialDescriptor): Int {
+        if (elementIndex == elementsCount) return CompositeDecoder.DECODE_DONE
+        return elementIndex++
+    }
+
+    override fun beginStructure(descriptor: SerialDescriptor): CompositeDecoder =
+        DataInputDecoder(input, serializersModule, descriptor.elementsCount)
+
+    override fun decodeCollectionSize(descriptor: SerialDescriptor) = decodeInt().also { elementsCount = it }
+}
@@ -73,21 +73,42 @@ object LayoutParser {
 
     private fun createCacheLambda(layoutType: LayoutType, layoutName: String, context: Context):
                 (KeyboardParams) -> MutableList<MutableList<KeyData>> {
-        val layoutFileContent = getLayoutFileContent(layoutType, layoutName.substringBefore("+"), context).trimStart()
-        if (layoutFileContent.startsWith("[") || (LayoutUtilsCustom.isCustomLayout(layoutName) && layoutFileContent.startsWith("//"))) {
+        val fileName = layoutName.substringBefore("+")
+        val isCustom = LayoutUtilsCustom.isCustomLayout(layoutName)
+        // built-in layouts can only change with the app, so the compiled layout can be used without reading the file
+        if (!isCustom)
+            CompiledLayoutCache.read(context, layoutType, fileName, null)?.let { return createCacheLambda(it, layoutName) }
+        val layoutFileContent = getLayoutFileContent(layoutType, fileName, context).trimStart()
+        val cacheKeyContent = if (isCustom) layoutFileContent else null
+        if (layoutFileContent.startsWith("[") || (isCustom && layoutFileContent.startsWith("//"))) {
+            if (isCustom) CompiledLayoutCache.read(context, layoutType, fileName, cacheKeyContent)
+                ?.let { return createCacheLambda(it, layoutName) }
             try {
-                val florisKeyData = parseJsonString(layoutFileContent, false)
-                return { params ->
-                    florisKeyData.mapTo(mutableListOf()) { row ->
-                        row.mapNotNullTo(mutableListOf()) { it.compute(params) }
-                    }
-                }
+                val compiledLayout = CompiledLayoutCache.JsonLayout(parseJsonString(layoutFileContent, false))
+                CompiledLayoutCache.write(context, layoutType, fileName, cacheKeyContent, compiledLayout)
+                return createCacheLambda(compiledLayout, layoutName)
             } catch (e: Exception) {
                 Log.w(TAG, "could not parse json layout for $layoutName, falling back to simple layout parsing", e)
             }
         }
         // not a json, or invalid json
-        val simpleKeyData = parseSimpleString(layoutFileContent)
+        // simple layouts are cheap to parse, but storing them avoids reading the file for built-in layouts
+        val compiledLayout = CompiledLayoutCache.SimpleLayout(layoutFileContent)
+        if (!isCustom) CompiledLayoutCache.write(context, layoutType, fileName, null, compiledLayout)
+        return createCacheLambda(compiledLayout, layoutName)
+    }
+
+    private fun createCacheLambda(compiledLayout: CompiledLayoutCache.CompiledLayout, layoutName: String):
+                (KeyboardParams) -> MutableList<MutableList<KeyData>> {
+        if (compiledLayout is CompiledLayoutCache.JsonLayout) {
+            val florisKeyData = compiledLayout.rows
+            return { params ->
+                florisKeyData.mapTo(mutableListOf()) { row ->
+                    row.mapNotNullTo(mutableListOf()) { it.compute(params) }
+                }
+            }
+        }
+        val simpleKeyData = parseSimpleString((compiledLayout as CompiledLayoutCache.SimpleLayout).text)
         return { params ->
             simpleKeyData.mapIndexedTo(mutableListOf()) { i, row ->
                 val newRow = row.toMutableList()
@@ -114,6 +135,29 @@ object LayoutParser {
      * modified
      * SPDX-License-Identifier: Apache-2.0
      */
+    // also used for the binary format of CompiledLayoutCache
+    internal val keyDataSerializersModule = SerializersModule {
+        polymorphic(AbstractKeyData::class) {
+            subclass(TextKeyData::class, TextKeyData.serializer())
+            subclass(AutoTextKeyData::class, AutoTextKeyData.serializer())
+            subclass(MultiTextKeyData::class, MultiTextKeyData.serializer())
+            subclass(CaseSelector::class, CaseSelector.serializer())
+            subclass(ShiftStateSelector::class, ShiftStateSelector.serializer())
+            subclass(VariationSelector::class, VariationSelector.serializer())
+            subclass(KeyboardStateSelector::class, KeyboardStateSelector.serializer())
+            subclass(LayoutDirectionSelector::class, LayoutDirectionSelector.serializer())
+            subclass(CharWidthSelector::class, CharWidthSelector.serializer())
+            subclass(KanaSelector::class, KanaSelector.serializer())
+            defaultDeserializer { TextKeyData.serializer() }
+        }
+        polymorphic(KeyData::class) {
+            subclass(TextKeyData::class, TextKeyData.serializer())
+            subclass(AutoTextKeyData::class, AutoTextKeyData.serializer())
+            subclass(MultiTextKeyData::class, MultiTextKeyData.serializer())
+            defaultDeserializer { TextKeyData.serializer() }
+        }
+    }
+
     @OptIn(ExperimentalSerializationApi::class)
     private val florisJsonConfig = Json {
         allowTrailingComma = true
@@ -121,27 +165,7 @@ object LayoutParser {
         encodeDefaults = true
         ignoreUnknownKeys = true
         isLenient = true
-        serializersModule = SerializersModule {
-            polymorphic(AbstractKeyData::class) {
-                subclass(TextKeyData::class, TextKeyData.serializer())
-                subclass(AutoTextKeyData::class, AutoTextKeyData.serializer())
-                subclass(MultiTextKeyData::class, MultiTextKeyData.serializer())
-                subclass(CaseSelector::class, CaseSelector.serializer())
-                subclass(ShiftStateSelector::class, ShiftStateSelector.serializer())
-                subclass(VariationSelector::class, VariationSelector.serializer())
-                subclass(KeyboardStateSelector::class, KeyboardStateSelector.serializer())
-                subclass(LayoutDirectionSelector::class, LayoutDirectionSelector.serializer())
-                subclass(CharWidthSelector::class, CharWidthSelector.serializer())
-                subclass(KanaSelector::class, KanaSelector.serializer())
-                defaultDeserializer { TextKeyData.serializer() }
-            }
-            polymorphic(KeyData::class) {
-                subclass(TextKeyData::class, TextKeyData.serializer())
-                subclass(AutoTextKeyData::class, AutoTextKeyData.serializer())
-                subclass(MultiTextKeyData::class, MultiTextKeyData.serializer())
-                defaultDeserializer { TextKeyData.serializer() }
-            }
-        }
+        serializersModule = keyDataSerializersModule
     }
 
     // copy of florisJsonConfig, but with ignoreUnknownKeys = false so users get warned
@@ -153,26 +177,6 @@ object LayoutParser {
         encodeDefaults = true
         ignoreUnknownKeys = false
         isLenient = true
-        serializersModule = SerializersModule {
-            polymorphic(AbstractKeyData::class) {
-                subclass(TextKeyData::class, TextKeyData.serializer())
-                subclass(AutoTextKeyData::class, AutoTextKeyData.serializer())
-                subclass(MultiTextKeyData::class, MultiTextKeyData.serializer())
-                subclass(CaseSelector::class, CaseSelector.serializer())
-                subclass(ShiftStateSelector::class, ShiftStateSelector.serializer())
-                subclass(VariationSelector::class, VariationSelector.serializer())
-                subclass(KeyboardStateSelector::class, KeyboardStateSelector.serializer())
-                subclass(LayoutDirectionSelector::class, LayoutDirectionSelector.serializer())
-                subclass(CharWidthSelector::class, CharWidthSelector.serializer())
-                subclass(KanaSelector::class, KanaSelector.serializer())
-                defaultDeserializer { TextKeyData.serializer() }
-            }
-            polymorphic(KeyData::class) {
-                subclass(TextKeyData::class, TextKeyData.serializer())
-                subclass(AutoTextKeyData::class, AutoTextKeyData.serializer())
-                subclass(MultiTextKeyData::class, MultiTextKeyData.serializer())
-                defaultDeserializer { TextKeyData.serializer() }
-            }
-        }
+        serializersModule = keyDataSerializersModule
     }
 }
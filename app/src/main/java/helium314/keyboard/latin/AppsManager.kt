@@ -14,23 +14,40 @@ class AppsManager(val context: Context) : BroadcastReceiver() {
     private var listener: AppsChangedListener? = null
 
     /**
-     * Returns all app labels associated with a launcher icon, sorted arbitrarily.
+     * Returns the app labels associated with a launcher icon for each package.
+     * This queries all launcher activities, so it should only be used for the initial build.
      */
-    fun getNames(): HashSet<String> {
-        val filter = Intent(Intent.ACTION_MAIN).addCategory(Intent.CATEGORY_LAUNCHER)
-        // activities with an entry/icon for the launcher
-        val launcherApps: List<ResolveInfo> = mPackageManager.queryIntentActivities(filter, 0)
+    fun getNamesByPackage(): HashMap<String, HashSet<String>> {
+        val launcherApps = mPackageManager.queryIntentActivities(launcherIntent(), 0)
+        val namesByPackage = HashMap<String, HashSet<String>>()
+        launcherApps.forEach {
+            namesByPackage.getOrPut(it.activityInfo.packageName) { HashSet() }
+                .add(it.activityInfo.loadLabel(mPackageManager).toString())
+        }
+        return namesByPackage
+    }
 
+    /**
+     * Returns the labels of the launcher activities of the given package, empty if it's not installed.
+     */
+    fun getNames(packageName: String): HashSet<String> {
+        val launcherApps: List<ResolveInfo> =
+            mPackageManager.queryIntentActivities(launcherIntent().setPackage(packageName), 0)
         return launcherApps.mapTo(HashSet(launcherApps.size)) {
             it.activityInfo.loadLabel(mPackageManager).toString()
         }
     }
 
+    // activities with an entry/icon for the launcher
+    private fun launcherIntent() = Intent(Intent.ACTION_MAIN).addCategory(Intent.CATEGORY_LAUNCHER)
+
     fun registerForUpdates(listener: AppsChangedListener) {
         this.listener = listener
         val packageFilter = IntentFilter()
         packageFilter.addAction(Intent.ACTION_PACKAGE_ADDED)
         packageFilter.addAction(Intent.ACTION_PACKAGE_REMOVED)
+        packageFilter.addAction(Intent.ACTION_PACKAGE_REPLACED)
+        packageFilter.addAction(Intent.ACTION_PACKAGE_CHANGED)
         packageFilter.addDataScheme("package")
         context.registerReceiver(this, packageFilter)
     }
@@ -41,11 +58,15 @@ class AppsManager(val context: Context) : BroadcastReceiver() {
     }
 
     override fun onReceive(context: Context, intent: Intent) {
-        if (!intent.getBooleanExtra(Intent.EXTRA_REPLACING, false))
-            listener?.onAppsChanged()
+        val packageName = intent.data?.schemeSpecificPart ?: return
+        // an update sends removed and added with EXTRA_REPLACING, followed by replaced
+        if (intent.action != Intent.ACTION_PACKAGE_REPLACED && intent.getBooleanExtra(Intent.EXTRA_REPLACING, false))
+            return
+        listener?.onPackageChanged(packageName)
     }
 
     interface AppsChangedListener {
-        fun onAppsChanged()
+        /** Called when the package was added, removed, updated or had its components changed. */
+        fun onPackageChanged(packageName: String)
     }
 }
@@ -255,6 +255,8 @@ class DictionaryFacilitatorImpl : DictionaryFacilitator {
 
                 listener?.onUpdateMainDictionaryAvailability(hasAtLeastOneInitializedMainDictionary())
                 latchForWaitingLoadingMainDictionary.countDown()
+                // after the dictionaries are available, so suggestions don't wait for it
+                dictGroupsWithNewMainDict.forEach { (_, mainDict) -> mainDict.warmUp() }
             } catch (e: Throwable) {
                 Log.e(TAG, "could not initialize main dictionaries for $locales", e)
             }
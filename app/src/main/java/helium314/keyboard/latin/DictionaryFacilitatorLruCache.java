@@ -12,6 +12,8 @@ import helium314.keyboard.latin.utils.Log;
 import java.util.Locale;
 import java.util.concurrent.TimeUnit;
 
+import androidx.annotation.Nullable;
+
 /**
  * Cache for dictionary facilitators of multiple locales.
  * This class automatically creates and releases up to 3 facilitator instances using LRU policy.
@@ -28,10 +30,19 @@ public class DictionaryFacilitatorLruCache {
     private boolean mUseContactsDictionary;
     private boolean mUseAppsDictionary;
     private Locale mLocale;
+    // called when dictionaries are reset, closed, or main dictionaries finished loading
+    @Nullable
+    private final Runnable mOnDictionariesChanged;
 
     public DictionaryFacilitatorLruCache(final Context context, final String dictionaryNamePrefix) {
+        this(context, dictionaryNamePrefix, null);
+    }
+
+    public DictionaryFacilitatorLruCache(final Context context, final String dictionaryNamePrefix,
+            @Nullable final Runnable onDictionariesChanged) {
         mContext = context;
         mDictionaryNamePrefix = dictionaryNamePrefix;
+        mOnDictionariesChanged = onDictionariesChanged;
         mDictionaryFacilitator = DictionaryFacilitatorProvider.getDictionaryFacilitator(
                 true /* isNeededForSpellChecking */);
     }
@@ -60,7 +71,15 @@ public class DictionaryFacilitatorLruCache {
         if (mLocale != null) {
           // Note: Given that personalized dictionaries are not used here; we can pass null account.
           mDictionaryFacilitator.resetDictionaries(mContext, mLocale, mUseContactsDictionary,
-                  mUseAppsDictionary, false, false, mDictionaryNamePrefix, null);
+                  mUseAppsDictionary, false, false, mDictionaryNamePrefix,
+                  mOnDictionariesChanged == null ? null : isAvailable -> mOnDictionariesChanged.run());
+          onDictionariesChanged();
+        }
+    }
+
+    private void onDictionariesChanged() {
+        if (mOnDictionariesChanged != null) {
+            mOnDictionariesChanged.run();
         }
     }
 
@@ -102,6 +121,7 @@ public class DictionaryFacilitatorLruCache {
     public void closeDictionaries() {
         synchronized (mLock) {
             mDictionaryFacilitator.closeDictionaries();
+            onDictionariesChanged();
         }
     }
 }
@@ -5,7 +5,13 @@ package helium314.keyboard.latin.dictionary;
 import android.content.Context;
 import com.android.inputmethod.latin.BinaryDictionary;
 import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 import helium314.keyboard.latin.AppsManager;
 import helium314.keyboard.latin.NgramContext;
 import helium314.keyboard.latin.common.StringUtils;
@@ -25,6 +31,8 @@ public class AppsBinaryDictionary extends ExpandableBinaryDictionary implements
     private static final boolean DEBUG_DUMP = false;
 
     private final AppsManager mAppsManager;
+    // app labels in the dictionary by package name, null if not known yet
+    private HashMap<String, HashSet<String>> mLabelsByPackage;
 
     protected AppsBinaryDictionary(final Context ctx, final Locale locale,
             final File dictFile, final String name) {
@@ -46,8 +54,21 @@ public class AppsBinaryDictionary extends ExpandableBinaryDictionary implements
     }
 
     @Override
-    public void onAppsChanged() {
-        setNeedsToRecreate();
+    public void onPackageChanged(final String packageName) {
+        asyncUpdateDictionaryIncrementally(() -> applyPackageChangeLocked(packageName));
+    }
+
+    /**
+     * Reads the label index before the dictionary files are removed, so recreating the dictionary
+     * does not query all launcher apps again. The index is removed before if the dictionary file
+     * is invalid.
+     */
+    @Override
+    void createNewDictionaryLocked() {
+        if (mLabelsByPackage == null) {
+            readLabelIndexLocked();
+        }
+        super.createNewDictionaryLocked();
     }
 
     /**
@@ -60,12 +81,101 @@ public class AppsBinaryDictionary extends ExpandableBinaryDictionary implements
     }
 
     /**
-     * Loads app names to the dictionary.
+     * Loads app names to the dictionary. Launcher apps are only queried if the labels are not known
+     * yet, otherwise the dictionary is recreated from the label index.
      */
     private void loadDictionaryLocked() {
-        for (final String name : mAppsManager.getNames()) {
-            addNameLocked(name);
+        if (mLabelsByPackage == null) {
+            mLabelsByPackage = mAppsManager.getNamesByPackage();
+        }
+        for (final Set<String> labels : mLabelsByPackage.values()) {
+            for (final String label : labels) {
+                addNameLocked(label);
+            }
+        }
+        writeContentSnapshotLocked(getLabelIndexLines());
+    }
+
+    /**
+     * Updates the dictionary for the labels of a single package.
+     */
+    private void applyPackageChangeLocked(final String packageName) {
+        if (mLabelsByPackage == null && !readLabelIndexLocked()) {
+            // we don't know what's in the dictionary
+            setNeedsToRecreate();
+            reloadDictionaryIfRequired();
+            return;
+        }
+        final HashSet<String> newLabels = mAppsManager.getNames(packageName);
+        final HashSet<String> oldLabels = mLabelsByPackage.get(packageName);
+        if (oldLabels == null ? newLabels.isEmpty() : oldLabels.equals(newLabels)) {
+            return;
+        }
+        if (newLabels.isEmpty()) {
+            mLabelsByPackage.remove(packageName);
+        } else {
+            mLabelsByPackage.put(packageName, newLabels);
+        }
+        if (oldLabels != null) {
+            final HashSet<String> wordsToKeep = new HashSet<>();
+            for (final Set<String> labels : mLabelsByPackage.values()) {
+                for (final String label : labels) {
+                    for (final String word : new SpacedTokens(label)) {
+                        wordsToKeep.add(word);
+                    }
+                }
+            }
+            for (final String label : oldLabels) {
+                if (newLabels.contains(label)) continue;
+                for (final String word : new SpacedTokens(label)) {
+                    if (!wordsToKeep.contains(word)) {
+                        removeUnigramLocked(word);
+                    }
+                }
+            }
+        }
+        for (final String label : newLabels) {
+            if (oldLabels == null || !oldLabels.contains(label)) {
+                addNameLocked(label);
+            }
+        }
+        if (DEBUG) {
+            Log.d(TAG, "updated labels of " + packageName + ": " + oldLabels + " -> " + newLabels);
+        }
+        flushLocked();
+        writeContentSnapshotLocked(getLabelIndexLines());
+    }
+
+    private boolean readLabelIndexLocked() {
+        final List<String> lines = readContentSnapshotLocked();
+        if (lines == null) {
+            return false;
+        }
+        final HashMap<String, HashSet<String>> labelsByPackage = new HashMap<>();
+        for (final String line : lines) {
+            final int separator = line.indexOf('\t');
+            if (separator < 0) continue;
+            final String packageName = line.substring(0, separator);
+            HashSet<String> labels = labelsByPackage.get(packageName);
+            if (labels == null) {
+                labels = new HashSet<>();
+                labelsByPackage.put(packageName, labels);
+            }
+            labels.add(line.substring(separator + 1));
+        }
+        mLabelsByPackage = labelsByPackage;
+        return true;
+    }
+
+    // one line per label: package name and label, separated by tab
+    private List<String> getLabelIndexLines() {
+        final ArrayList<String> lines = new ArrayList<>();
+        for (final Map.Entry<String, HashSet<String>> entry : mLabelsByPackage.entrySet()) {
+            for (final String label : entry.getValue()) {
+                lines.add(entry.getKey() + "\t" + label.replace('\n', ' '));
+            }
         }
+        return lines;
     }
 
     /**
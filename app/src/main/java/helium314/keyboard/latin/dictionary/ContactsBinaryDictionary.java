@@ -27,7 +27,11 @@ import helium314.keyboard.latin.permissions.PermissionsUtil;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Locale;
+import java.util.Set;
 
 public class ContactsBinaryDictionary extends ExpandableBinaryDictionary
         implements ContactsChangedListener {
@@ -42,6 +46,10 @@ public class ContactsBinaryDictionary extends ExpandableBinaryDictionary
      */
     private final boolean mUseFirstLastBigrams;
     private final ContactsManager mContactsManager;
+    /**
+     * Names currently in the dictionary, null if not known yet.
+     */
+    private Set<String> mIndexedNames;
 
     protected ContactsBinaryDictionary(final Context context, final Locale locale,
             final File dictFile, final String name) {
@@ -71,15 +79,20 @@ public class ContactsBinaryDictionary extends ExpandableBinaryDictionary
      */
     @Override
     public void loadInitialContentsLocked() {
-        loadDictionaryForUriLocked(ContactsContract.Profile.CONTENT_URI);
+        final LinkedHashSet<String> indexedNames = new LinkedHashSet<>();
+        indexedNames.addAll(loadDictionaryForUriLocked(ContactsContract.Profile.CONTENT_URI));
         // TODO: Switch this URL to the newer ContactsContract too
-        loadDictionaryForUriLocked(Contacts.CONTENT_URI);
+        indexedNames.addAll(loadDictionaryForUriLocked(Contacts.CONTENT_URI));
+        mIndexedNames = indexedNames;
+        // initial contents are flushed after loading, so the snapshot will match the dictionary file
+        writeContentSnapshotLocked(indexedNames);
     }
 
     /**
      * Loads data within content providers to the dictionary.
+     * @return the added names
      */
-    private void loadDictionaryForUriLocked(final Uri uri) {
+    private ArrayList<String> loadDictionaryForUriLocked(final Uri uri) {
         if (!PermissionsUtil.checkAllPermissionsGranted(
                 mContext, Manifest.permission.READ_CONTACTS)) {
             Log.i(TAG, "No permission to read contacts. Not loading the Dictionary.");
@@ -94,16 +107,72 @@ public class ContactsBinaryDictionary extends ExpandableBinaryDictionary
             // state of the manager.
             mContactsManager.updateLocalState(validNames);
         }
+        return validNames;
     }
 
     /**
-     * Adds the words in a name (e.g., firstname/lastname) to the binary dictionary along with their
-     * bigrams depending on locale.
+     * Compares the current contact names to the names in the dictionary, and only adds words of
+     * new names and removes words that are not part of any name any more.
+     * Bigrams of removed names are not removed, they are only dropped on the next full rebuild.
      */
-    private void addNameLocked(final String name) {
+    private void applyContactsDeltaLocked() {
+        if (!PermissionsUtil.checkAllPermissionsGranted(
+                mContext, Manifest.permission.READ_CONTACTS)) {
+            return;
+        }
+        if (mIndexedNames == null) {
+            final List<String> snapshot = readContentSnapshotLocked();
+            if (snapshot == null) {
+                // we don't know what's in the dictionary
+                setNeedsToRecreate();
+                reloadDictionaryIfRequired();
+                return;
+            }
+            mIndexedNames = new LinkedHashSet<>(snapshot);
+        }
+        final ArrayList<String> contactNames = mContactsManager.getValidNames(Contacts.CONTENT_URI);
+        final LinkedHashSet<String> names = new LinkedHashSet<>(
+                mContactsManager.getValidNames(ContactsContract.Profile.CONTENT_URI));
+        names.addAll(contactNames);
+
+        final HashSet<String> wordsToKeep = new HashSet<>();
+        for (final String name : names) {
+            wordsToKeep.addAll(getWordsInName(name));
+        }
+        int removedCount = 0;
+        int addedCount = 0;
+        for (final String name : mIndexedNames) {
+            if (names.contains(name)) continue;
+            removedCount++;
+            for (final String word : getWordsInName(name)) {
+                if (!wordsToKeep.contains(word)) {
+                    removeUnigramLocked(word);
+                }
+            }
+        }
+        for (final String name : names) {
+            if (mIndexedNames.contains(name)) continue;
+            addedCount++;
+            addNameLocked(name);
+        }
+        mContactsManager.updateLocalState(contactNames);
+        if (DEBUG) {
+            Log.d(TAG, "applied contacts delta: " + addedCount + " added, " + removedCount + " removed");
+        }
+        if (addedCount == 0 && removedCount == 0) {
+            return;
+        }
+        mIndexedNames = names;
+        flushLocked();
+        writeContentSnapshotLocked(names);
+    }
+
+    /**
+     * Returns the words in a name (e.g., firstname/lastname) that are added to the dictionary.
+     */
+    private static ArrayList<String> getWordsInName(final String name) {
+        final ArrayList<String> words = new ArrayList<>();
         int len = StringUtils.codePointCount(name);
-        NgramContext ngramContext = NgramContext.getEmptyPrevWordsContext(
-                BinaryDictionary.MAX_PREV_WORD_COUNT_FOR_N_GRAM);
         // TODO: Better tokenization for non-Latin writing systems
         for (int i = 0; i < len; i++) {
             if (Character.isLetter(name.codePointAt(i))) {
@@ -117,30 +186,43 @@ public class ContactsBinaryDictionary extends ExpandableBinaryDictionary
                 // capitalization of i.
                 final int wordLen = StringUtils.codePointCount(word);
                 if (wordLen <= MAX_WORD_LENGTH && wordLen > 1) {
-                    if (DEBUG) {
-                        Log.d(TAG, "addName " + name + ", " + word + ", "  + ngramContext);
-                    }
-                    runGCIfRequiredLocked(true /* mindsBlockByGC */);
-                    addUnigramLocked(word, ContactsDictionaryConstants.FREQUENCY_FOR_CONTACTS,
-                            null /* shortcut */, 0 /* shortcutFreq */, false /* isNotAWord */,
-                            false /* isPossiblyOffensive */,
-                            BinaryDictionary.NOT_A_VALID_TIMESTAMP);
-                    if (ngramContext.isValid() && mUseFirstLastBigrams) {
-                        runGCIfRequiredLocked(true /* mindsBlockByGC */);
-                        addNgramEntryLocked(ngramContext,
-                                word,
-                                ContactsDictionaryConstants.FREQUENCY_FOR_CONTACTS_BIGRAM,
-                                BinaryDictionary.NOT_A_VALID_TIMESTAMP);
-                    }
-                    ngramContext = ngramContext.getNextNgramContext(
-                            new NgramContext.WordInfo(word));
+                    words.add(word);
                 }
             }
         }
+        return words;
+    }
+
+    /**
+     * Adds the words in a name (e.g., firstname/lastname) to the binary dictionary along with their
+     * bigrams depending on locale.
+     */
+    private void addNameLocked(final String name) {
+        NgramContext ngramContext = NgramContext.getEmptyPrevWordsContext(
+                BinaryDictionary.MAX_PREV_WORD_COUNT_FOR_N_GRAM);
+        for (final String word : getWordsInName(name)) {
+            if (DEBUG) {
+                Log.d(TAG, "addName " + name + ", " + word + ", "  + ngramContext);
+            }
+            runGCIfRequiredLocked(true /* mindsBlockByGC */);
+            addUnigramLocked(word, ContactsDictionaryConstants.FREQUENCY_FOR_CONTACTS,
+                    null /* shortcut */, 0 /* shortcutFreq */, false /* isNotAWord */,
+                    false /* isPossiblyOffensive */,
+                    BinaryDictionary.NOT_A_VALID_TIMESTAMP);
+            if (ngramContext.isValid() && mUseFirstLastBigrams) {
+                runGCIfRequiredLocked(true /* mindsBlockByGC */);
+                addNgramEntryLocked(ngramContext,
+                        word,
+                        ContactsDictionaryConstants.FREQUENCY_FOR_CONTACTS_BIGRAM,
+                        BinaryDictionary.NOT_A_VALID_TIMESTAMP);
+            }
+            ngramContext = ngramContext.getNextNgramContext(
+                    new NgramContext.WordInfo(word));
+        }
     }
 
     @Override
     public void onContactsChange() {
-        setNeedsToRecreate();
+        asyncUpdateDictionaryIncrementally(this::applyContactsDeltaLocked);
     }
 }
@@ -145,6 +145,14 @@ public abstract class Dictionary {
         //empty base implementation
     }
 
+    /**
+     * Override to load the parts of the dictionary that are needed for the first suggestions, so
+     * they don't wait for reading from storage. Called on a background thread after loading.
+     */
+    public void warmUp() {
+        // empty base implementation
+    }
+
     /**
      * Subclasses may override to indicate that this Dictionary is not yet properly initialized.
      */
@@ -94,6 +94,12 @@ public final class DictionaryCollection extends Dictionary {
         return !mDictionaries.isEmpty();
     }
 
+    @Override
+    public void warmUp() {
+        for (final Dictionary dict : mDictionaries)
+            dict.warmUp();
+    }
+
     @Override
     public void close() {
         for (final Dictionary dict : mDictionaries)
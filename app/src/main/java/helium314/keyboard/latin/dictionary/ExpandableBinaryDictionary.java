@@ -28,13 +28,25 @@ import helium314.keyboard.latin.utils.AsyncResultHolder;
 import helium314.keyboard.latin.utils.CombinedFormatUtils;
 import helium314.keyboard.latin.utils.ExecutorUtils;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -97,11 +109,17 @@ abstract public class ExpandableBinaryDictionary extends Dictionary {
     /** Indicates whether the current dictionary needs to be recreated. */
     private boolean mNeedsToRecreate;
 
+    /** Number of dictionaries (re)loaded or updated in this process, for caches of lookup results. */
+    private static final AtomicInteger sReloadCount = new AtomicInteger();
+
     private final ReentrantReadWriteLock mLock;
 
     /* A extension for a binary dictionary file. */
     protected static final String DICT_FILE_EXTENSION = ".dict";
 
+    /* A extension for the file describing the content of the binary dictionary, for incremental updates. */
+    private static final String CONTENT_SNAPSHOT_FILE_EXTENSION = ".snapshot";
+
     /**
      * Abstract method for loading initial contents of a given dictionary.
      */
@@ -147,6 +165,14 @@ abstract public class ExpandableBinaryDictionary extends Dictionary {
         mLock = new ReentrantReadWriteLock();
     }
 
+    /**
+     * Returns a number that changes whenever a dictionary of this type has been reloaded or
+     * incrementally updated in this process, so results of lookups before may be different now.
+     */
+    public static int getReloadCount() {
+        return sReloadCount.get();
+    }
+
     public static File getDictFile(final Context context, final String dictName,
             final File dictFile) {
         return (dictFile != null) ? dictFile
@@ -226,6 +252,68 @@ abstract public class ExpandableBinaryDictionary extends Dictionary {
         if (mDictFile.exists() && !FileUtils.deleteRecursively(mDictFile)) {
             Log.e(TAG, "Can't remove a file: " + mDictFile.getName());
         }
+        removeContentSnapshotLocked();
+    }
+
+    private void removeContentSnapshotLocked() {
+        final File snapshotFile = getContentSnapshotFile();
+        if (snapshotFile.exists() && !snapshotFile.delete()) {
+            Log.e(TAG, "Can't remove a file: " + snapshotFile.getName());
+        }
+    }
+
+    private File getContentSnapshotFile() {
+        return new File(mDictFile.getParentFile(), mDictFile.getName() + CONTENT_SNAPSHOT_FILE_EXTENSION);
+    }
+
+    /**
+     * Reads the lines stored with {@link #writeContentSnapshotLocked(Collection)}.
+     *
+     * @return the lines, or null if there is no snapshot for the current dictionary file.
+     */
+    @Nullable
+    protected List<String> readContentSnapshotLocked() {
+        final File snapshotFile = getContentSnapshotFile();
+        if (!snapshotFile.isFile() || !mDictFile.exists()) {
+            return null;
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new FileInputStream(snapshotFile), StandardCharsets.UTF_8))) {
+            final ArrayList<String> lines = new ArrayList<>();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+            return lines;
+        } catch (final IOException e) {
+            Log.w(TAG, "Can't read content snapshot of " + mDictName, e);
+            return null;
+        }
+    }
+
+    /**
+     * Stores a description of the dictionary content next to the dictionary file, so subclasses can
+     * find out what changed since the dictionary was written, and update it instead of recreating it.
+     * Should be called after flushing the dictionary. Lines must not contain line breaks.
+     */
+    protected void writeContentSnapshotLocked(@NonNull final Collection<String> lines) {
+        final File snapshotFile = getContentSnapshotFile();
+        final File tempFile = new File(snapshotFile.getPath() + ".tmp");
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(tempFile), StandardCharsets.UTF_8))) {
+            for (final String line : lines) {
+                writer.write(line);
+                writer.write('\n');
+            }
+        } catch (final IOException e) {
+            Log.w(TAG, "Can't write content snapshot of " + mDictName, e);
+            tempFile.delete();
+            return;
+        }
+        if (!tempFile.renameTo(snapshotFile)) {
+            Log.w(TAG, "Can't rename content snapshot of " + mDictName);
+            tempFile.delete();
+        }
     }
 
     private void openBinaryDictionaryLocked() {
@@ -273,6 +361,7 @@ abstract public class ExpandableBinaryDictionary extends Dictionary {
             }
             runGCIfRequiredLocked(true /* mindsBlockByGC */);
             updateTask.run();
+            sReloadCount.incrementAndGet();
         });
     }
 
@@ -296,6 +385,45 @@ abstract public class ExpandableBinaryDictionary extends Dictionary {
         }
     }
 
+    protected void removeUnigramLocked(final String word) {
+        if (!mBinaryDictionary.removeUnigramEntry(word)) {
+            if (DEBUG) {
+                Log.i(TAG, "Cannot remove unigram entry: " + word);
+            }
+        }
+    }
+
+    /**
+     * Writes the dictionary to its file, so changes are kept when the process is restarted.
+     */
+    protected void flushLocked() {
+        if (mBinaryDictionary.needsToRunGC(false /* mindsBlockByGC */)) {
+            mBinaryDictionary.flushWithGCIfHasUpdated();
+        } else {
+            mBinaryDictionary.flush();
+        }
+    }
+
+    /**
+     * Runs the task with the write lock on the existing dictionary, instead of recreating the
+     * dictionary. If the dictionary is not loaded or is going to be recreated anyway, the task is
+     * not run, as the reload will pick up the current content.
+     */
+    protected void asyncUpdateDictionaryIncrementally(@NonNull final Runnable updateTask) {
+        if (isReloadRequired()) {
+            reloadDictionaryIfRequired();
+            return;
+        }
+        asyncExecuteTaskWithWriteLock(() -> {
+            if (getBinaryDictionary() == null || isNeededToRecreate()) {
+                reloadDictionaryIfRequired();
+                return;
+            }
+            updateTask.run();
+            sReloadCount.incrementAndGet();
+        });
+    }
+
     /**
      * Dynamically remove the unigram entry from the dictionary.
      */
@@ -556,10 +684,13 @@ abstract public class ExpandableBinaryDictionary extends Dictionary {
                         // Binary dictionary or its format version is not valid. Regenerate
                         // the dictionary file. createNewDictionaryLocked will remove the
                         // existing files if appropriate.
+                        // The snapshot is removed first, as subclasses may read it when recreating.
+                        removeContentSnapshotLocked();
                         createNewDictionaryLocked();
                     }
                 }
                 clearNeedsToRecreate();
+                sReloadCount.incrementAndGet();
             } finally {
                 isReloading.set(false);
             }
@@ -576,11 +707,7 @@ abstract public class ExpandableBinaryDictionary extends Dictionary {
             if (binaryDictionary == null) {
                 return;
             }
-            if (binaryDictionary.needsToRunGC(false /* mindsBlockByGC */)) {
-                binaryDictionary.flushWithGCIfHasUpdated();
-            } else {
-                binaryDictionary.flush();
-            }
+            flushLocked();
         });
     }
 
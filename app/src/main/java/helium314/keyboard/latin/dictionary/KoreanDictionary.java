@@ -97,6 +97,11 @@ public class KoreanDictionary extends Dictionary {
         mDictionary.onFinishInput();
     }
 
+    @Override
+    public void warmUp() {
+        mDictionary.warmUp();
+    }
+
     @Override
     public boolean isInitialized() {
         return mDictionary.isInitialized();
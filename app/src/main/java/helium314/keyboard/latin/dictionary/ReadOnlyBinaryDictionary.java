@@ -121,6 +121,17 @@ public final class ReadOnlyBinaryDictionary extends Dictionary {
         return null;
     }
 
+    @Override
+    public void warmUp() {
+        if (mLock.readLock().tryLock()) {
+            try {
+                mBinaryDictionary.warmUp();
+            } finally {
+                mLock.readLock().unlock();
+            }
+        }
+    }
+
     @Override
     public void close() {
         mLock.writeLock().lock();
@@ -16,12 +16,23 @@ import android.text.TextUtils;
 
 import com.android.inputmethod.latin.BinaryDictionary;
 
+import helium314.keyboard.latin.utils.ExecutorUtils;
 import helium314.keyboard.latin.utils.Log;
 import helium314.keyboard.latin.utils.SubtypeLocaleUtils;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 /**
  * An expandable dictionary that stores the words in the user dictionary provider into a binary
@@ -29,6 +40,7 @@ import java.util.Locale;
  */
 public class UserBinaryDictionary extends ExpandableBinaryDictionary {
     private static final String TAG = ExpandableBinaryDictionary.class.getSimpleName();
+    private static final boolean DEBUG = false;
 
     // The user dictionary provider uses an empty string to mean "all languages".
     private static final String USER_DICTIONARY_ALL_LANGUAGES = "";
@@ -42,15 +54,31 @@ public class UserBinaryDictionary extends ExpandableBinaryDictionary {
             Words.WORD,
             Words.SHORTCUT,
             Words.FREQUENCY,
+            Words.LOCALE,
     };
     private static final String[] PROJECTION_QUERY_WITHOUT_SHORTCUT = new String[] {
             Words.WORD,
             Words.FREQUENCY,
+            Words.LOCALE,
     };
 
+    // Changes to the user dictionary often come in bursts (e.g. when importing or editing
+    // many words), so we wait a little before updating the dictionary.
+    private static final long UPDATE_DELAY_MILLIS = 500;
+
     private static final String NAME = "userunigram";
 
+    // while bulk updates are running, dictionaries don't update on every change notification
+    private static int sBulkUpdateCount = 0;
+    private static final Set<UserBinaryDictionary> sDictionariesWithPendingUpdate =
+            Collections.newSetFromMap(new WeakHashMap<>());
+
     private ContentObserver mObserver;
+    private ScheduledFuture<?> mPendingUpdate;
+    /**
+     * Provider entries currently in the dictionary (see {@link Entry#toSnapshotLine()}), null if not known yet.
+     */
+    private Set<String> mLoadedEntries;
     // this really needs to be the locale string, as it interacts with system
     final private String mLocaleString;
     final private boolean mAlsoUseMoreRestrictiveLocales;
@@ -72,7 +100,7 @@ public class UserBinaryDictionary extends ExpandableBinaryDictionary {
         mObserver = new ContentObserver(null) {
             @Override
             public void onChange(final boolean self, final Uri uri) {
-                setNeedsToRecreate();
+                scheduleUpdate();
             }
         };
         context.getContentResolver().registerContentObserver(Words.CONTENT_URI, true, mObserver);
@@ -84,8 +112,78 @@ public class UserBinaryDictionary extends ExpandableBinaryDictionary {
         return new UserBinaryDictionary(context, locale, false, dictFile, dictNamePrefix + NAME);
     }
 
+    /**
+     * A row of the user dictionary provider.
+     */
+    static final class Entry {
+        final String mWord;
+        final String mShortcut;
+        final int mFrequency;
+        final String mLocale;
+
+        Entry(final String word, final String shortcut, final int frequency, final String locale) {
+            mWord = word;
+            mShortcut = shortcut;
+            mFrequency = frequency;
+            mLocale = locale;
+        }
+
+        String toSnapshotLine() {
+            return sanitize(mWord) + "\t" + sanitize(mShortcut) + "\t" + mFrequency + "\t" + sanitize(mLocale);
+        }
+
+        private static String sanitize(final String s) {
+            return s == null ? "" : s.replace('\t', ' ').replace('\n', ' ');
+        }
+    }
+
+    /**
+     * Call before inserting many words into the user dictionary provider. Dictionaries will not
+     * update until {@link #endBulkUpdate()} is called.
+     */
+    public static void beginBulkUpdate() {
+        synchronized (sDictionariesWithPendingUpdate) {
+            sBulkUpdateCount++;
+        }
+    }
+
+    /**
+     * Updates all dictionaries that received change notifications since {@link #beginBulkUpdate()}.
+     */
+    public static void endBulkUpdate() {
+        final ArrayList<UserBinaryDictionary> dictionaries;
+        synchronized (sDictionariesWithPendingUpdate) {
+            if (sBulkUpdateCount == 0 || --sBulkUpdateCount > 0) return;
+            dictionaries = new ArrayList<>(sDictionariesWithPendingUpdate);
+            sDictionariesWithPendingUpdate.clear();
+        }
+        for (final UserBinaryDictionary dictionary : dictionaries) {
+            dictionary.scheduleUpdate();
+        }
+    }
+
+    private synchronized void scheduleUpdate() {
+        if (mObserver == null) return; // closed
+        synchronized (sDictionariesWithPendingUpdate) {
+            if (sBulkUpdateCount > 0) {
+                sDictionariesWithPendingUpdate.add(this);
+                return;
+            }
+        }
+        if (mPendingUpdate != null) {
+            mPendingUpdate.cancel(false);
+        }
+        mPendingUpdate = ExecutorUtils.getBackgroundExecutor(ExecutorUtils.KEYBOARD).schedule(
+                () -> asyncUpdateDictionaryIncrementally(this::applyUserDictionaryDeltaLocked),
+                UPDATE_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
     @Override
     public synchronized void close() {
+        if (mPendingUpdate != null) {
+            mPendingUpdate.cancel(false);
+            mPendingUpdate = null;
+        }
         if (mObserver != null) {
             mContext.getContentResolver().unregisterContentObserver(mObserver);
             mObserver = null;
@@ -93,8 +191,12 @@ public class UserBinaryDictionary extends ExpandableBinaryDictionary {
         super.close();
     }
 
-    @Override
-    public void loadInitialContentsLocked() {
+    /**
+     * Reads the entries for this locale from the user dictionary provider.
+     *
+     * @return the entries, or null if the provider could not be queried
+     */
+    private ArrayList<Entry> queryEntriesForLocale() {
         // Split the locale. For example "en" => ["en"], "de_DE" => ["de", "DE"],
         // "en_US_foo_bar_qux" => ["en", "US", "foo_bar_qux"] because of the limit of 3.
         // This is correct for locale processing. (well, and it sucks e.g. for sr-Latn, resp. sr__#Latn as string)
@@ -142,24 +244,129 @@ public class UserBinaryDictionary extends ExpandableBinaryDictionary {
             requestArguments = localeElements;
         }
         final String requestString = request.toString();
+        ArrayList<Entry> entries;
         try {
-            addWordsFromProjectionLocked(PROJECTION_QUERY_WITH_SHORTCUT, requestString, requestArguments);
+            entries = queryEntries(PROJECTION_QUERY_WITH_SHORTCUT, requestString, requestArguments);
         } catch (IllegalArgumentException e) {
             // This may happen on some non-compliant devices where the declared API is JB+ but
             // the SHORTCUT column is not present for some reason.
-            addWordsFromProjectionLocked(PROJECTION_QUERY_WITHOUT_SHORTCUT, requestString, requestArguments);
+            entries = queryEntries(PROJECTION_QUERY_WITHOUT_SHORTCUT, requestString, requestArguments);
+        }
+        return entries;
+    }
+
+    @Override
+    public void loadInitialContentsLocked() {
+        final ArrayList<Entry> entries = queryEntriesForLocale();
+        if (entries == null) {
+            mLoadedEntries = null;
+            return;
         }
+        final HashSet<String> loadedEntries = new HashSet<>();
+        for (final Entry entry : entries) {
+            addEntryLocked(entry);
+            loadedEntries.add(entry.toSnapshotLine());
+        }
+        mLoadedEntries = loadedEntries;
+        // initial contents are flushed after loading, so the snapshot will match the dictionary file
+        writeContentSnapshotLocked(loadedEntries);
     }
 
-    private void addWordsFromProjectionLocked(final String[] query, String request, final String[] requestArguments)
+    /**
+     * Compares the provider content to the entries that are in the dictionary, and only removes
+     * and adds the changed entries.
+     */
+    private void applyUserDictionaryDeltaLocked() {
+        if (mLoadedEntries == null) {
+            final List<String> snapshot = readContentSnapshotLocked();
+            if (snapshot == null) {
+                // we don't know what's in the dictionary
+                setNeedsToRecreate();
+                reloadDictionaryIfRequired();
+                return;
+            }
+            mLoadedEntries = new HashSet<>(snapshot);
+        }
+        final ArrayList<Entry> entries = queryEntriesForLocale();
+        if (entries == null) return;
+
+        final HashMap<String, Entry> newEntries = new HashMap<>();
+        for (final Entry entry : entries) {
+            newEntries.put(entry.toSnapshotLine(), entry);
+        }
+        final Delta delta = computeDelta(mLoadedEntries, newEntries);
+        for (final String word : delta.mRemovedUnigrams) {
+            removeUnigramLocked(word);
+        }
+        for (final Entry entry : delta.mAddedEntries) {
+            addEntryLocked(entry);
+        }
+        if (DEBUG) {
+            Log.d(TAG, "user dictionary update for " + mLocaleString + ": " + delta.mAddedCount
+                    + " added or changed, " + delta.mRemovedCount + " removed or changed");
+        }
+        if (delta.mAddedCount == 0 && delta.mRemovedCount == 0) {
+            return;
+        }
+        mLoadedEntries = new HashSet<>(newEntries.keySet());
+        flushLocked();
+        writeContentSnapshotLocked(mLoadedEntries);
+    }
+
+    /**
+     * Changes to the dictionary for going from the loaded entries to the new entries.
+     */
+    static final class Delta {
+        // words and shortcuts of entries that are gone, removing a shortcut also removes all its targets
+        final HashSet<String> mRemovedUnigrams = new HashSet<>();
+        // new entries, and entries that need to be added again because their word or shortcut is removed
+        final ArrayList<Entry> mAddedEntries = new ArrayList<>();
+        int mRemovedCount;
+        int mAddedCount;
+    }
+
+    /**
+     * @param loadedEntries snapshot lines of the entries currently in the dictionary
+     * @param newEntries the entries that should be in the dictionary, by snapshot line
+     */
+    static Delta computeDelta(final Set<String> loadedEntries, final Map<String, Entry> newEntries) {
+        final Delta delta = new Delta();
+        for (final String line : loadedEntries) {
+            if (newEntries.containsKey(line)) continue;
+            delta.mRemovedCount++;
+            final String[] fields = line.split("\t", -1);
+            delta.mRemovedUnigrams.add(fields[0]);
+            // a shortcut may still exist for other words, but the target of this entry must be removed
+            if (fields.length > 1 && !fields[1].isEmpty()) {
+                delta.mRemovedUnigrams.add(fields[1]);
+            }
+        }
+        for (final Map.Entry<String, Entry> e : newEntries.entrySet()) {
+            final Entry entry = e.getValue();
+            if (!loadedEntries.contains(e.getKey())) {
+                delta.mAddedCount++;
+            } else if (!delta.mRemovedUnigrams.contains(entry.mWord)
+                    && (entry.mShortcut == null || !delta.mRemovedUnigrams.contains(entry.mShortcut))) {
+                continue;
+            }
+            delta.mAddedEntries.add(entry);
+        }
+        return delta;
+    }
+
+    /**
+     * @return the entries, or null if the provider could not be queried
+     */
+    private ArrayList<Entry> queryEntries(final String[] query, String request, final String[] requestArguments)
             throws IllegalArgumentException {
         Cursor cursor = null;
         try {
             cursor = mContext.getContentResolver().query(
                     Words.CONTENT_URI, query, request, requestArguments, null);
-            addWordsLocked(cursor);
+            return readEntries(cursor);
         } catch (final SQLiteException e) {
             Log.e(TAG, "SQLiteException in the remote User dictionary process.", e);
+            return null;
         } finally {
             try {
                 if (null != cursor) cursor.close();
@@ -181,35 +388,42 @@ public class UserBinaryDictionary extends ExpandableBinaryDictionary {
                 / HISTORICAL_DEFAULT_USER_DICTIONARY_FREQUENCY;
     }
 
-    private void addWordsLocked(final Cursor cursor) {
-        final boolean hasShortcutColumn = true;
-        if (cursor == null) return;
+    private static ArrayList<Entry> readEntries(final Cursor cursor) {
+        final ArrayList<Entry> entries = new ArrayList<>();
+        if (cursor == null) return entries;
         if (cursor.moveToFirst()) {
             final int indexWord = cursor.getColumnIndex(Words.WORD);
-            final int indexShortcut = hasShortcutColumn ? cursor.getColumnIndex(Words.SHORTCUT) : 0;
+            final int indexShortcut = cursor.getColumnIndex(Words.SHORTCUT);
             final int indexFrequency = cursor.getColumnIndex(Words.FREQUENCY);
+            final int indexLocale = cursor.getColumnIndex(Words.LOCALE);
             while (!cursor.isAfterLast()) {
                 final String word = cursor.getString(indexWord);
-                final String shortcut = hasShortcutColumn ? cursor.getString(indexShortcut) : null;
+                final String shortcut = indexShortcut >= 0 ? cursor.getString(indexShortcut) : null;
                 final int frequency = cursor.getInt(indexFrequency);
-                final int adjustedFrequency = scaleFrequencyFromDefaultToLatinIme(frequency);
+                final String locale = indexLocale >= 0 ? cursor.getString(indexLocale) : null;
                 // Safeguard against adding really long words.
-                if (word.length() <= MAX_WORD_LENGTH) {
-                    runGCIfRequiredLocked(true /* mindsBlockByGC */);
-                    addUnigramLocked(word, adjustedFrequency, null /* shortcutTarget */,
-                            0 /* shortcutFreq */, false /* isNotAWord */,
-                            false /* isPossiblyOffensive */,
-                            BinaryDictionary.NOT_A_VALID_TIMESTAMP);
-                    if (null != shortcut && shortcut.length() <= MAX_WORD_LENGTH) {
-                        runGCIfRequiredLocked(true /* mindsBlockByGC */);
-                        addUnigramLocked(shortcut, adjustedFrequency, word,
-                                USER_DICT_SHORTCUT_FREQUENCY, true /* isNotAWord */,
-                                false /* isPossiblyOffensive */,
-                                BinaryDictionary.NOT_A_VALID_TIMESTAMP);
-                    }
+                if (word != null && word.length() <= MAX_WORD_LENGTH) {
+                    entries.add(new Entry(word, shortcut, frequency, locale));
                 }
                 cursor.moveToNext();
             }
         }
+        return entries;
+    }
+
+    private void addEntryLocked(final Entry entry) {
+        final int adjustedFrequency = scaleFrequencyFromDefaultToLatinIme(entry.mFrequency);
+        runGCIfRequiredLocked(true /* mindsBlockByGC */);
+        addUnigramLocked(entry.mWord, adjustedFrequency, null /* shortcutTarget */,
+                0 /* shortcutFreq */, false /* isNotAWord */,
+                false /* isPossiblyOffensive */,
+                BinaryDictionary.NOT_A_VALID_TIMESTAMP);
+        if (null != entry.mShortcut && entry.mShortcut.length() <= MAX_WORD_LENGTH) {
+            runGCIfRequiredLocked(true /* mindsBlockByGC */);
+            addUnigramLocked(entry.mShortcut, adjustedFrequency, entry.mWord,
+                    USER_DICT_SHORTCUT_FREQUENCY, true /* isNotAWord */,
+                    false /* isPossiblyOffensive */,
+                    BinaryDictionary.NOT_A_VALID_TIMESTAMP);
+        }
     }
 }
@@ -110,6 +110,7 @@ public class SettingsValues {
         public final int mGestureFastTypingCooldown;
         public final int mGestureTrailFadeoutDuration;
         public final boolean mSlidingKeyInputPreviewEnabled;
+        public final boolean mKeyRenderCacheEnabled;
         public final int mKeyLongpressTimeout;
         public final boolean mEnableEmojiAltPhysicalKey;
         public final boolean mIsSplitKeyboardEnabled;
@@ -194,6 +195,8 @@ public class SettingsValues {
                 mKeyPreviewPopupOn = prefs.getBoolean(Settings.PREF_POPUP_ON, Defaults.PREF_POPUP_ON);
                 mSlidingKeyInputPreviewEnabled = prefs.getBoolean(
                                 DebugSettings.PREF_SLIDING_KEY_INPUT_PREVIEW, Defaults.PREF_SLIDING_KEY_INPUT_PREVIEW);
+                mKeyRenderCacheEnabled = prefs.getBoolean(DebugSettings.PREF_KEY_RENDER_CACHE,
+                                Defaults.PREF_KEY_RENDER_CACHE);
                 mShowsVoiceInputKey = mInputAttributes.mShouldShowVoiceInputKey;
                 final String languagePref = prefs.getString(Settings.PREF_LANGUAGE_SWITCH_KEY,
                                 Defaults.PREF_LANGUAGE_SWITCH_KEY);
@@ -491,6 +494,8 @@ public class SettingsValues {
                 sb.append("" + mGestureFloatingPreviewTextEnabled);
                 sb.append("\n   mSlidingKeyInputPreviewEnabled = ");
                 sb.append("" + mSlidingKeyInputPreviewEnabled);
+                sb.append("\n   mKeyRenderCacheEnabled = ");
+                sb.append("" + mKeyRenderCacheEnabled);
                 sb.append("\n   mKeyLongpressTimeout = ");
                 sb.append("" + mKeyLongpressTimeout);
                 sb.append("\n   mLocale = ");
@@ -8,6 +8,10 @@ package helium314.keyboard.latin.spellcheck;
 
 import android.content.Intent;
 import android.content.SharedPreferences;
+import android.database.ContentObserver;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteException;
+import android.provider.UserDictionary.Words;
 import android.service.textservice.SpellCheckerService;
 import android.text.InputType;
 import android.view.inputmethod.EditorInfo;
@@ -21,6 +25,7 @@ import helium314.keyboard.keyboard.KeyboardId;
 import helium314.keyboard.keyboard.KeyboardLayoutSet;
 import helium314.keyboard.latin.DictionaryFacilitator;
 import helium314.keyboard.latin.DictionaryFacilitatorLruCache;
+import helium314.keyboard.latin.define.DebugFlags;
 import helium314.keyboard.latin.InputAttributes;
 import helium314.keyboard.latin.NgramContext;
 import helium314.keyboard.latin.R;
@@ -30,21 +35,27 @@ import helium314.keyboard.latin.common.ComposedData;
 import helium314.keyboard.latin.settings.Defaults;
 import helium314.keyboard.latin.settings.Settings;
 import helium314.keyboard.latin.settings.SettingsValuesForSuggestion;
+import helium314.keyboard.latin.utils.ExecutorUtils;
 import helium314.keyboard.latin.utils.KtxKt;
+import helium314.keyboard.latin.utils.Log;
 import helium314.keyboard.latin.utils.SubtypeSettings;
 import helium314.keyboard.latin.utils.SubtypeUtilsAdditional;
 import helium314.keyboard.latin.utils.SuggestionResults;
 
+import java.util.HashSet;
 import java.util.Locale;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.Semaphore;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Service for spell checking, using LatinIME's dictionaries and mechanisms.
  */
 public final class AndroidSpellCheckerService extends SpellCheckerService
         implements SharedPreferences.OnSharedPreferenceChangeListener {
+    private static final String TAG = AndroidSpellCheckerService.class.getSimpleName();
 
     public static final int SPELLCHECKER_DUMMY_KEYBOARD_WIDTH = 480;
     public static final int SPELLCHECKER_DUMMY_KEYBOARD_HEIGHT = 301;
@@ -52,15 +63,46 @@ public final class AndroidSpellCheckerService extends SpellCheckerService
     private static final String DICTIONARY_NAME_PREFIX = "spellcheck_";
 
     private static final String[] EMPTY_STRING_ARRAY = new String[0];
+    private static final String[] USER_DICTIONARY_PROJECTION = new String[] { Words.WORD };
+    // user dictionary is reloaded asynchronously after a change, so results computed
+    // in the meantime may still be based on the old words
+    private static final long USER_DICTIONARY_RELOAD_DELAY_MILLIS = 1000;
+    // changes often come in bursts, e.g. when importing words
+    private static final long USER_DICTIONARY_CHANGE_DELAY_MILLIS = 500;
 
-    private final int MAX_NUM_OF_THREADS_READ_DICTIONARY = 2;
-    private final Semaphore mSemaphore = new Semaphore(MAX_NUM_OF_THREADS_READ_DICTIONARY, true);
-    // TODO: Make each spell checker session has its own session id.
+    // client id used for requests by the service itself
+    private static final int SERVICE_CLIENT_ID = -1;
+
+    // Word validity lookups are cheap and only need read access to the dictionaries, so we allow
+    // one per core. Suggestion lookups need a native traverse session (with a DicNodesCache) for each
+    // thread, so we keep those at half the cores, which is also what the keyboard executors use.
+    private static final int NUM_CORES = Runtime.getRuntime().availableProcessors();
+    private static final int MAX_NUM_OF_THREADS_CHECK_WORD = Math.max(2, Math.min(NUM_CORES, 8));
+    private static final int MAX_NUM_OF_THREADS_GET_SUGGESTIONS = Math.max(2, Math.min(NUM_CORES / 2, 4));
+    private final FairPermitScheduler mCheckWordScheduler =
+            new FairPermitScheduler("check word", MAX_NUM_OF_THREADS_CHECK_WORD);
+    private final FairPermitScheduler mSuggestionsScheduler =
+            new FairPermitScheduler("suggestions", MAX_NUM_OF_THREADS_GET_SUGGESTIONS);
     private final ConcurrentLinkedQueue<Integer> mSessionIdPool = new ConcurrentLinkedQueue<>();
 
+    private final SpellCheckResultCache mResultCache = new SpellCheckResultCache();
     private final DictionaryFacilitatorLruCache mDictionaryFacilitatorCache =
-            new DictionaryFacilitatorLruCache(this, DICTIONARY_NAME_PREFIX);
+            new DictionaryFacilitatorLruCache(this, DICTIONARY_NAME_PREFIX, mResultCache::onDictionariesChanged);
     private final ConcurrentHashMap<Locale, Keyboard> mKeyboardCache = new ConcurrentHashMap<>();
+    private final Object mUserDictionaryWordsLock = new Object();
+    // lower case words in the user dictionary when last checked, null if not yet loaded
+    private Set<String> mUserDictionaryWords;
+    private ScheduledFuture<?> mPendingUserDictionaryChange;
+    private final ContentObserver mUserDictionaryObserver = new ContentObserver(null) {
+        @Override
+        public void onChange(final boolean self) {
+            synchronized (this) {
+                if (mPendingUserDictionaryChange != null) mPendingUserDictionaryChange.cancel(false);
+                mPendingUserDictionaryChange = ExecutorUtils.getBackgroundExecutor(ExecutorUtils.SPELLING)
+                        .schedule(() -> onUserDictionaryChanged(), USER_DICTIONARY_CHANGE_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+            }
+        }
+    };
 
     // The threshold for a suggestion to be considered "recommended".
     private float mRecommendedThreshold;
@@ -71,7 +113,7 @@ public final class AndroidSpellCheckerService extends SpellCheckerService
 
     public AndroidSpellCheckerService() {
         super();
-        for (int i = 0; i < MAX_NUM_OF_THREADS_READ_DICTIONARY; i++) {
+        for (int i = 0; i < MAX_NUM_OF_THREADS_GET_SUGGESTIONS; i++) {
             mSessionIdPool.add(i);
         }
     }
@@ -86,6 +128,19 @@ public final class AndroidSpellCheckerService extends SpellCheckerService
         onSharedPreferenceChanged(prefs, Settings.PREF_USE_APPS);
         final boolean blockOffensive = prefs.getBoolean(Settings.PREF_BLOCK_POTENTIALLY_OFFENSIVE, Defaults.PREF_BLOCK_POTENTIALLY_OFFENSIVE);
         mSettingsValuesForSuggestion = new SettingsValuesForSuggestion(blockOffensive, false);
+        getContentResolver().registerContentObserver(Words.CONTENT_URI, true, mUserDictionaryObserver);
+        ExecutorUtils.getBackgroundExecutor(ExecutorUtils.SPELLING).execute(() -> {
+            synchronized (mUserDictionaryWordsLock) {
+                if (mUserDictionaryWords == null)
+                    mUserDictionaryWords = readUserDictionaryWords();
+            }
+        });
+    }
+
+    @Override
+    public void onDestroy() {
+        getContentResolver().unregisterContentObserver(mUserDictionaryObserver);
+        super.onDestroy();
     }
 
     public float getRecommendedThreshold() {
@@ -98,14 +153,17 @@ public final class AndroidSpellCheckerService extends SpellCheckerService
         case Settings.PREF_USE_CONTACTS -> {
             final boolean useContactsDictionary = prefs.getBoolean(Settings.PREF_USE_CONTACTS, Defaults.PREF_USE_CONTACTS);
             mDictionaryFacilitatorCache.setUseContactsDictionary(useContactsDictionary);
+            mResultCache.onDictionariesChanged();
         }
         case Settings.PREF_USE_APPS -> {
             final boolean useAppsDictionary = prefs.getBoolean(Settings.PREF_USE_APPS, Defaults.PREF_USE_APPS);
             mDictionaryFacilitatorCache.setUseAppsDictionary(useAppsDictionary);
+            mResultCache.onDictionariesChanged();
         }
         case Settings.PREF_BLOCK_POTENTIALLY_OFFENSIVE -> {
             final boolean blockOffensive = prefs.getBoolean(Settings.PREF_BLOCK_POTENTIALLY_OFFENSIVE, Defaults.PREF_BLOCK_POTENTIALLY_OFFENSIVE);
             mSettingsValuesForSuggestion = new SettingsValuesForSuggestion(blockOffensive, false);
+            mResultCache.onDictionariesChanged();
         }}
     }
 
@@ -134,21 +192,76 @@ public final class AndroidSpellCheckerService extends SpellCheckerService
         return new SuggestionsInfo(SuggestionsInfo.RESULT_ATTR_IN_THE_DICTIONARY, EMPTY_STRING_ARRAY);
     }
 
-    public boolean isValidWord(final Locale locale, final String word) {
-        mSemaphore.acquireUninterruptibly();
+    public SpellCheckResultCache getResultCache() {
+        return mResultCache;
+    }
+
+    private Set<String> readUserDictionaryWords() {
+        final Set<String> words = new HashSet<>();
+        try (Cursor cursor = getContentResolver().query(Words.CONTENT_URI, USER_DICTIONARY_PROJECTION, null, null, null)) {
+            if (cursor == null) return words;
+            final int indexWord = cursor.getColumnIndex(Words.WORD);
+            while (cursor.moveToNext()) {
+                final String word = cursor.getString(indexWord);
+                if (word != null) words.add(word.toLowerCase(Locale.ROOT));
+            }
+        } catch (final SQLiteException e) {
+            Log.e(TAG, "SQLiteException when reading user dictionary", e);
+        }
+        return words;
+    }
+
+    /**
+     * Compares the user dictionary to the last known state, and removes only cached results
+     * that may be affected by the changed words.
+     */
+    private void onUserDictionaryChanged() {
+        final Set<String> changedWords;
+        synchronized (mUserDictionaryWordsLock) {
+            final Set<String> newWords = readUserDictionaryWords();
+            final Set<String> oldWords = mUserDictionaryWords;
+            mUserDictionaryWords = newWords;
+            if (oldWords == null) {
+                // we don't know what changed
+                mResultCache.clear();
+                return;
+            }
+            changedWords = new HashSet<>(newWords);
+            changedWords.removeAll(oldWords);
+            for (final String word : oldWords) {
+                if (!newWords.contains(word)) changedWords.add(word);
+            }
+        }
+        if (changedWords.isEmpty()) return;
+        mResultCache.invalidateForUserDictionaryChange(changedWords);
+        // again after the user dictionary has been reloaded, in case results were cached in between
+        ExecutorUtils.getBackgroundExecutor(ExecutorUtils.SPELLING).schedule(
+                () -> mResultCache.invalidateForUserDictionaryChange(changedWords),
+                USER_DICTIONARY_RELOAD_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        if (DebugFlags.DEBUG_ENABLED) {
+            Log.d(TAG, "user dictionary changed, result cache: " + mResultCache.getStats());
+        }
+    }
+
+    /**
+     * @param clientId identifies the requesting client, waiting requests of different clients are
+     *                 served in turns
+     */
+    public boolean isValidWord(final Locale locale, final String word, final int clientId) {
+        mCheckWordScheduler.acquire(clientId);
         try {
             DictionaryFacilitator dictionaryFacilitatorForLocale = mDictionaryFacilitatorCache.get(locale);
             return dictionaryFacilitatorForLocale.isValidSpellingWord(word);
         } finally {
-            mSemaphore.release();
+            mCheckWordScheduler.release();
         }
     }
 
     public SuggestionResults getSuggestionResults(final Locale locale,
             final ComposedData composedData, final NgramContext ngramContext,
-            @NonNull final Keyboard keyboard) {
+            @NonNull final Keyboard keyboard, final int clientId) {
         Integer sessionId = null;
-        mSemaphore.acquireUninterruptibly();
+        mSuggestionsScheduler.acquire(clientId);
         try {
             sessionId = mSessionIdPool.poll();
             DictionaryFacilitator dictionaryFacilitatorForLocale = mDictionaryFacilitatorCache.get(locale);
@@ -159,30 +272,43 @@ public final class AndroidSpellCheckerService extends SpellCheckerService
             if (sessionId != null) {
                 mSessionIdPool.add(sessionId);
             }
-            mSemaphore.release();
+            mSuggestionsScheduler.release();
         }
     }
 
-    public boolean hasMainDictionaryForLocale(final Locale locale) {
-        mSemaphore.acquireUninterruptibly();
+    public boolean hasMainDictionaryForLocale(final Locale locale, final int clientId) {
+        mCheckWordScheduler.acquire(clientId);
         try {
             final DictionaryFacilitator dictionaryFacilitator =
                     mDictionaryFacilitatorCache.get(locale);
             return dictionaryFacilitator.hasAtLeastOneInitializedMainDictionary();
         } finally {
-            mSemaphore.release();
+            mCheckWordScheduler.release();
         }
     }
 
+    /**
+     * Number of suggestion lookups that may run at the same time.
+     */
+    public int getMaxParallelSuggestionLookups() {
+        return MAX_NUM_OF_THREADS_GET_SUGGESTIONS;
+    }
+
     @Override
     public boolean onUnbind(final Intent intent) {
-        mSemaphore.acquireUninterruptibly(MAX_NUM_OF_THREADS_READ_DICTIONARY);
+        mCheckWordScheduler.acquireAll(SERVICE_CLIENT_ID);
+        mSuggestionsScheduler.acquireAll(SERVICE_CLIENT_ID);
         try {
             mDictionaryFacilitatorCache.closeDictionaries();
         } finally {
-            mSemaphore.release(MAX_NUM_OF_THREADS_READ_DICTIONARY);
+            mSuggestionsScheduler.releaseAll();
+            mCheckWordScheduler.releaseAll();
         }
         mKeyboardCache.clear();
+        if (DebugFlags.DEBUG_ENABLED) {
+            Log.d(TAG, "unbind, result cache: " + mResultCache.getStats());
+            Log.d(TAG, "unbind, " + mCheckWordScheduler.getStats() + "; " + mSuggestionsScheduler.getStats());
+        }
         return false;
     }
 
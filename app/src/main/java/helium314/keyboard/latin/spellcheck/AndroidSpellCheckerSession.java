@@ -15,19 +15,30 @@ import android.view.textservice.TextInfo;
 
 import helium314.keyboard.latin.NgramContext;
 import helium314.keyboard.latin.common.LocaleUtils;
+import helium314.keyboard.latin.utils.ExecutorUtils;
 import helium314.keyboard.latin.utils.Log;
 import helium314.keyboard.latin.utils.SpannableStringUtils;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public final class AndroidSpellCheckerSession extends AndroidWordLevelSpellCheckerSession {
     private static final String TAG = AndroidSpellCheckerSession.class.getSimpleName();
     private static final boolean DBG = false;
+    // don't bother with background threads for few words
+    private static final int MIN_WORDS_PER_THREAD = 4;
+    private final AndroidSpellCheckerService mService;
     private final Resources mResources;
     private SentenceLevelAdapter mSentenceLevelAdapter;
+    private final SentenceSuggestionsMemo mSentenceMemo = new SentenceSuggestionsMemo();
 
     public AndroidSpellCheckerSession(AndroidSpellCheckerService service) {
         super(service);
+        mService = service;
         mResources = service.getResources();
     }
 
@@ -64,7 +75,7 @@ public final class AndroidSpellCheckerSession extends AndroidWordLevelSpellCheck
                 if (TextUtils.isEmpty(splitText)) {
                     continue;
                 }
-                if (mSuggestionsCache.getSuggestionsFromCache(splitText.toString()) == null) {
+                if (!isCachedTypoWithSuggestions(splitText.toString())) {
                     continue;
                 }
                 final int newLength = splitText.length();
@@ -129,6 +140,7 @@ public final class AndroidSpellCheckerSession extends AndroidWordLevelSpellCheck
      * This function will run on the incoming IPC thread.
      * So, this is not called on the main thread,
      * but will be called in series on another thread.
+     * Sentences that were checked in a previous call are not checked again.
      * @param textInfos an array of the text metadata
      * @param suggestionsLimit the maximum number of suggestions to be returned
      * @return an array of {@link SentenceSuggestionsInfo} returned by
@@ -152,28 +164,114 @@ public final class AndroidSpellCheckerSession extends AndroidWordLevelSpellCheck
         if (sentenceLevelAdapter == null) {
             return SentenceLevelAdapter.getEmptySentenceSuggestionsInfo();
         }
+        mSentenceMemo.setStateKey(getCurrentLocale() + "/" + suggestionsLimit + "/" + mService.getResultCache().getVersion());
+        final SentenceLevelAdapter adapter = sentenceLevelAdapter;
+        return mSentenceMemo.getSuggestions(textInfos,
+                sentences -> checkSentences(adapter, sentences, suggestionsLimit));
+    }
+
+    private SentenceSuggestionsInfo[] checkSentences(final SentenceLevelAdapter sentenceLevelAdapter,
+            final TextInfo[] textInfos, final int suggestionsLimit) {
         final int infosSize = textInfos.length;
+        final SentenceLevelAdapter.SentenceTextInfoParams[] textInfoParams =
+                new SentenceLevelAdapter.SentenceTextInfoParams[infosSize];
+        // The same word often appears many times in a long text, so we check each word only once.
+        // The context (previous word) of the first occurrence is used.
+        final LinkedHashMap<String, NgramContext> uniqueWords = new LinkedHashMap<>();
+        for (int i = 0; i < infosSize; ++i) {
+            textInfoParams[i] = sentenceLevelAdapter.getSplitWords(textInfos[i]);
+            final ArrayList<SentenceLevelAdapter.SentenceWordItem> items = textInfoParams[i].mItems;
+            for (int j = 0; j < items.size(); ++j) {
+                final String word = items.get(j).mTextInfo.getText();
+                if (uniqueWords.containsKey(word)) continue;
+                final CharSequence prevWord = j == 0 ? null : items.get(j - 1).mTextInfo.getCharSequence();
+                uniqueWords.put(word, new NgramContext(
+                        new NgramContext.WordInfo(TextUtils.isEmpty(prevWord) ? null : prevWord)));
+            }
+        }
+        final HashMap<String, SuggestionsInfo> results = getSuggestionsForUniqueWords(uniqueWords, suggestionsLimit);
+
         final SentenceSuggestionsInfo[] retval = new SentenceSuggestionsInfo[infosSize];
         for (int i = 0; i < infosSize; ++i) {
-            final SentenceLevelAdapter.SentenceTextInfoParams textInfoParams =
-                    sentenceLevelAdapter.getSplitWords(textInfos[i]);
-            final ArrayList<SentenceLevelAdapter.SentenceWordItem> mItems =
-                    textInfoParams.mItems;
-            final int itemsSize = mItems.size();
-            final TextInfo[] splitTextInfos = new TextInfo[itemsSize];
-            for (int j = 0; j < itemsSize; ++j) {
-                splitTextInfos[j] = mItems.get(j).mTextInfo;
+            final ArrayList<SentenceLevelAdapter.SentenceWordItem> items = textInfoParams[i].mItems;
+            final SuggestionsInfo[] itemResults = new SuggestionsInfo[items.size()];
+            for (int j = 0; j < items.size(); ++j) {
+                final TextInfo itemTextInfo = items.get(j).mTextInfo;
+                // copy, because reconstructSuggestions sets cookie and sequence of the original text info
+                itemResults[j] = SentenceSuggestionsMemo.copyWithCookieAndSequence(results.get(itemTextInfo.getText()),
+                        itemTextInfo.getCookie(), itemTextInfo.getSequence());
             }
-            retval[i] = SentenceLevelAdapter.reconstructSuggestions(
-                    textInfoParams, onGetSuggestionsMultiple(
-                            splitTextInfos, suggestionsLimit, true));
+            retval[i] = SentenceLevelAdapter.reconstructSuggestions(textInfoParams[i], itemResults);
         }
         return retval;
     }
 
+    /**
+     * Checks the words in parallel, using at most as many threads as the service allows for
+     * concurrent suggestion lookups. The calling thread takes part in the work, so this never
+     * waits for background tasks that have not started yet.
+     */
+    private HashMap<String, SuggestionsInfo> getSuggestionsForUniqueWords(
+            final LinkedHashMap<String, NgramContext> uniqueWords, final int suggestionsLimit) {
+        final int size = uniqueWords.size();
+        final String[] words = uniqueWords.keySet().toArray(new String[0]);
+        final SuggestionsInfo[] suggestionsInfos = new SuggestionsInfo[size];
+        final AtomicInteger nextIndex = new AtomicInteger();
+        final CountDownLatch remaining = new CountDownLatch(size);
+        final Runnable worker = () -> {
+            int index;
+            while ((index = nextIndex.getAndIncrement()) < size) {
+                try {
+                    final String word = words[index];
+                    suggestionsInfos[index] = onGetSuggestionsInternal(
+                            new TextInfo(word), uniqueWords.get(word), suggestionsLimit);
+                } finally {
+                    remaining.countDown();
+                }
+            }
+        };
+        updateClientId();
+        final int threads = Math.min(mService.getMaxParallelSuggestionLookups(), size / MIN_WORDS_PER_THREAD);
+        final ArrayList<Future<?>> futures = new ArrayList<>();
+        for (int i = 1; i < threads; i++) {
+            futures.add(ExecutorUtils.getBackgroundExecutor(ExecutorUtils.SPELLING).submit(worker));
+        }
+        final long ident = Binder.clearCallingIdentity();
+        try {
+            worker.run();
+        } finally {
+            Binder.restoreCallingIdentity(ident);
+        }
+        // all words are taken, tasks that did not start yet are not needed any more
+        for (final Future<?> future : futures) {
+            future.cancel(false);
+        }
+        boolean interrupted = false;
+        while (true) {
+            try {
+                remaining.await();
+                break;
+            } catch (final InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        final HashMap<String, SuggestionsInfo> results = new HashMap<>(size * 2);
+        for (int i = 0; i < size; i++) {
+            results.put(words[i], suggestionsInfos[i]);
+        }
+        if (DBG) {
+            Log.d(TAG, "checked " + size + " unique words using " + Math.max(threads, 1) + " threads");
+        }
+        return results;
+    }
+
     @Override
     public SuggestionsInfo[] onGetSuggestionsMultiple(TextInfo[] textInfos,
             int suggestionsLimit, boolean sequentialWords) {
+        updateClientId();
         long ident = Binder.clearCallingIdentity();
         try {
             final int length = textInfos.length;
@@ -6,17 +6,14 @@
 
 package helium314.keyboard.latin.spellcheck;
 
-import android.content.ContentResolver;
 import android.content.SharedPreferences;
-import android.database.ContentObserver;
 import android.os.Binder;
-import android.provider.UserDictionary.Words;
+import android.os.Process;
 import android.service.textservice.SpellCheckerService.Session;
 import android.text.TextUtils;
 
 import helium314.keyboard.latin.utils.KtxKt;
 import helium314.keyboard.latin.utils.Log;
-import android.util.LruCache;
 import android.view.inputmethod.InputMethodManager;
 import android.view.inputmethod.InputMethodSubtype;
 import android.view.textservice.SuggestionsInfo;
@@ -54,8 +51,8 @@ public abstract class AndroidWordLevelSpellCheckerSession extends Session {
     // Cache this for performance
     private String mScript;
     private final AndroidSpellCheckerService mService;
-    protected final SuggestionsCache mSuggestionsCache = new SuggestionsCache();
-    private final ContentObserver mObserver;
+    // uid of the app using this session, for sharing dictionary access fairly between apps
+    private volatile int mClientId = Process.myUid();
 
     private static final String quotesRegexp = "([\\u0022\\u0027\\u0060\\u00B4\\u2018\\u2018\\u201C\\u201D])";
 
@@ -69,50 +66,8 @@ public abstract class AndroidWordLevelSpellCheckerSession extends Session {
         );
     }
 
-    private static final class SuggestionsParams {
-        public final String[] mSuggestions;
-        public final int mFlags;
-        public SuggestionsParams(String[] suggestions, int flags) {
-            mSuggestions = suggestions;
-            mFlags = flags;
-        }
-    }
-
-    protected static final class SuggestionsCache {
-        private static final int MAX_CACHE_SIZE = 50;
-        private final LruCache<String, SuggestionsParams> mUnigramSuggestionsInfoCache =
-                new LruCache<>(MAX_CACHE_SIZE);
-
-        private static String generateKey(final String query) {
-            return query;
-        }
-
-        SuggestionsParams getSuggestionsFromCache(final String query) {
-            return mUnigramSuggestionsInfoCache.get(query);
-        }
-
-        public void putSuggestionsToCache(
-                final String query, final String[] suggestions, final int flags) {
-            if (suggestions == null || TextUtils.isEmpty(query)) {
-                return;
-            }
-            mUnigramSuggestionsInfoCache.put(generateKey(query), new SuggestionsParams(suggestions, flags));
-        }
-
-        public void clearCache() {
-            mUnigramSuggestionsInfoCache.evictAll();
-        }
-    }
-
     AndroidWordLevelSpellCheckerSession(final AndroidSpellCheckerService service) {
         mService = service;
-        mObserver = new ContentObserver(null) {
-            @Override
-            public void onChange(boolean self) {
-                mSuggestionsCache.clearCache();
-            }
-        };
-        service.getContentResolver().registerContentObserver(Words.CONTENT_URI, true, mObserver);
     }
 
     private void updateLocale() {
@@ -134,6 +89,13 @@ public abstract class AndroidWordLevelSpellCheckerSession extends Session {
         updateLocale();
     }
 
+    /**
+     * @return the locale used for the most recent request
+     */
+    protected Locale getCurrentLocale() {
+        return mLocale;
+    }
+
     @Override
     public String getLocale() { // unfortunately this can only return a string, with the obvious issues for
         // This function was taken from https://github.com/LineageOS/android_frameworks_base/blob/1235c24a0f092d0e41fd8e86f332f8dc03896a7b/services/core/java/com/android/server/TextServicesManagerService.java#L544 and slightly adopted.
@@ -163,10 +125,21 @@ public abstract class AndroidWordLevelSpellCheckerSession extends Session {
         return super.getLocale();
     }
 
-    @Override
-    public void onClose() {
-        final ContentResolver cres = mService.getContentResolver();
-        cres.unregisterContentObserver(mObserver);
+    /**
+     * Whether the word was recently found to be a typo with suggestions, in any session.
+     */
+    protected boolean isCachedTypoWithSuggestions(final String text) {
+        return mService.getResultCache().isTypoWithSuggestions(mLocale, text);
+    }
+
+    /**
+     * Remembers the calling app. Must be called on the binder thread before clearing the calling identity.
+     */
+    protected void updateClientId() {
+        final int callingUid = Binder.getCallingUid();
+        if (callingUid != Process.myUid()) {
+            mClientId = callingUid;
+        }
     }
 
     private static final int CHECKABILITY_CHECKABLE = 0;
@@ -236,20 +209,20 @@ public abstract class AndroidWordLevelSpellCheckerSession extends Session {
     private boolean isInDictForAnyCapitalization(final String text, final int capitalizeType) {
         // If the word is in there as is, then it's in the dictionary. If not, we'll test lower
         // case versions, but only if the word is not already all-lower case or mixed case.
-        if (mService.isValidWord(mLocale, text)) return true;
+        if (mService.isValidWord(mLocale, text, mClientId)) return true;
         if (StringUtils.CAPITALIZE_NONE == capitalizeType) return false;
 
         // If we come here, we have a capitalized word (either First- or All-).
         // Downcase the word and look it up again. If the word is only capitalized, we
         // tested all possibilities, so if it's still negative we can return false.
         final String lowerCaseText = text.toLowerCase(mLocale);
-        if (mService.isValidWord(mLocale, lowerCaseText)) return true;
+        if (mService.isValidWord(mLocale, lowerCaseText, mClientId)) return true;
         if (StringUtils.CAPITALIZE_FIRST == capitalizeType) return false;
 
         // If the lower case version is not in the dictionary, it's still possible
         // that we have an all-caps version of a word that needs to be capitalized
         // according to the dictionary. E.g. "GERMANS" only exists in the dictionary as "Germans".
-        return mService.isValidWord(mLocale, StringUtils.capitalizeFirstAndDowncaseRest(lowerCaseText, mLocale));
+        return mService.isValidWord(mLocale, StringUtils.capitalizeFirstAndDowncaseRest(lowerCaseText, mLocale), mClientId);
     }
 
     // Note : this must be reentrant
@@ -280,10 +253,18 @@ public abstract class AndroidWordLevelSpellCheckerSession extends Session {
                 text = text.replaceAll(localeRegex, "");
             }
 
-            if (!mService.hasMainDictionaryForLocale(mLocale)) {
+            if (!mService.hasMainDictionaryForLocale(mLocale, mClientId)) {
                 return AndroidSpellCheckerService.getNotInDictEmptySuggestions(false /* reportAsTypo */);
             }
 
+            final SpellCheckResultCache resultCache = mService.getResultCache();
+            // read before the lookup, so the result is not stored if dictionaries change meanwhile
+            final int cacheVersion = resultCache.getVersion();
+            final SuggestionsInfo cached = resultCache.get(mLocale, text, suggestionsLimit);
+            if (cached != null) {
+                return cached;
+            }
+
             // Handle special patterns like email, URI, telephone number.
             final int checkability = getCheckabilityInScript(text, mScript);
             if (CHECKABILITY_CHECKABLE != checkability) {
@@ -294,21 +275,24 @@ public abstract class AndroidWordLevelSpellCheckerSession extends Session {
                     boolean allWordsAreValid = true;
                     // Validate all words on both sides of periods, skip empty tokens due to periods at first/last index
                     for (final String word : splitText) {
-                        if (!word.isEmpty() && !mService.isValidWord(mLocale, word) && !mService.isValidWord(mLocale, word.toLowerCase(mLocale))) {
+                        if (!word.isEmpty() && !mService.isValidWord(mLocale, word, mClientId) && !mService.isValidWord(mLocale, word.toLowerCase(mLocale), mClientId)) {
                             allWordsAreValid = false;
                             break;
                         }
                     }
                     if (allWordsAreValid && !periodOnlyAtLastIndex) {
-                        return new SuggestionsInfo(SuggestionsInfo.RESULT_ATTR_LOOKS_LIKE_TYPO
-                                | SuggestionsInfo.RESULT_ATTR_HAS_RECOMMENDED_SUGGESTIONS,
-                                new String[] {
-                                        TextUtils.join(Constants.STRING_SPACE, splitText) });
+                        final int flags = SuggestionsInfo.RESULT_ATTR_LOOKS_LIKE_TYPO
+                                | SuggestionsInfo.RESULT_ATTR_HAS_RECOMMENDED_SUGGESTIONS;
+                        final String[] suggestions = new String[] { TextUtils.join(Constants.STRING_SPACE, splitText) };
+                        resultCache.put(cacheVersion, mLocale, text, flags, suggestions, Integer.MAX_VALUE);
+                        return new SuggestionsInfo(flags, suggestions);
                     }
                 }
-                return mService.isValidWord(mLocale, text) ?
+                final SuggestionsInfo suggestionsInfo = mService.isValidWord(mLocale, text, mClientId) ?
                         AndroidSpellCheckerService.getInDictEmptySuggestions() :
                         AndroidSpellCheckerService.getNotInDictEmptySuggestions(!periodOnlyAtLastIndex);
+                resultCache.put(cacheVersion, mLocale, text, suggestionsInfo.getSuggestionsAttributes());
+                return suggestionsInfo;
             }
 
             // Handle normal words.
@@ -318,7 +302,9 @@ public abstract class AndroidWordLevelSpellCheckerSession extends Session {
                 if (DebugFlags.DEBUG_ENABLED) {
                     Log.i(TAG, "onGetSuggestionsInternal() : [" + text + "] is a valid word");
                 }
-                return AndroidSpellCheckerService.getInDictEmptySuggestions();
+                final SuggestionsInfo suggestionsInfo = AndroidSpellCheckerService.getInDictEmptySuggestions();
+                resultCache.put(cacheVersion, mLocale, text, suggestionsInfo.getSuggestionsAttributes());
+                return suggestionsInfo;
             }
             if (DebugFlags.DEBUG_ENABLED) {
                 Log.i(TAG, "onGetSuggestionsInternal() : [" + text + "] is NOT a valid word");
@@ -334,7 +320,7 @@ public abstract class AndroidWordLevelSpellCheckerSession extends Session {
             composer.setComposingWord(codePoints, coordinates);
             // TODO: Don't gather suggestions if the limit is <= 0 unless necessary
             final SuggestionResults suggestionResults = mService.getSuggestionResults(
-                    mLocale, composer.getComposedDataSnapshot(), ngramContext, keyboard);
+                    mLocale, composer.getComposedDataSnapshot(), ngramContext, keyboard, mClientId);
             final Result result = getResult(capitalizeType, mLocale, suggestionsLimit,
                     mService.getRecommendedThreshold(), text, suggestionResults);
             if (DebugFlags.DEBUG_ENABLED) {
@@ -362,7 +348,7 @@ public abstract class AndroidWordLevelSpellCheckerSession extends Session {
                             ? SuggestionsInfo.RESULT_ATTR_HAS_RECOMMENDED_SUGGESTIONS
                             : 0);
             final SuggestionsInfo retval = new SuggestionsInfo(flags, result.mSuggestions);
-            mSuggestionsCache.putSuggestionsToCache(text, result.mSuggestions, flags);
+            resultCache.put(cacheVersion, mLocale, text, flags, result.mSuggestions, suggestionsLimit);
             return retval;
         } catch (RuntimeException e) {
             // Don't kill the keyboard if there is a bug in the spell checker
@@ -426,6 +412,7 @@ public abstract class AndroidWordLevelSpellCheckerSession extends Session {
      */
     @Override
     public SuggestionsInfo onGetSuggestions(final TextInfo textInfo, final int suggestionsLimit) {
+        updateClientId();
         long ident = Binder.clearCallingIdentity();
         try {
             return onGetSuggestionsInternal(textInfo, suggestionsLimit);
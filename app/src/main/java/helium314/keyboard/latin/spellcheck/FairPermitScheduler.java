@@ -0,0 +1,122 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+package helium314.keyboard.latin.spellcheck;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+
+/**
+ * A counting semaphore that serves waiting clients in round-robin order, so a single client
+ * sending many requests can't starve other clients. Requests of the same client are served in order.
+ * Also records how long requests had to wait for a permit.
+ */
+final class FairPermitScheduler {
+    private final String mName;
+    private final int mPermits;
+    private int mAvailablePermits;
+    // client ids that have waiting requests, in the order they will be served
+    private final ArrayDeque<Integer> mClientOrder = new ArrayDeque<>();
+    private final HashMap<Integer, ArrayDeque<Waiter>> mWaitersByClient = new HashMap<>();
+
+    private long mAcquireCount;
+    private long mQueuedCount;
+    private long mTotalWaitNanos;
+    private long mMaxWaitNanos;
+
+    private static final class Waiter {
+        boolean mGranted;
+    }
+
+    FairPermitScheduler(final String name, final int permits) {
+        mName = name;
+        mPermits = permits;
+        mAvailablePermits = permits;
+    }
+
+    int getPermits() {
+        return mPermits;
+    }
+
+    void acquire(final int clientId) {
+        final Waiter waiter;
+        synchronized (this) {
+            mAcquireCount++;
+            if (mAvailablePermits > 0 && mClientOrder.isEmpty()) {
+                mAvailablePermits--;
+                return;
+            }
+            waiter = new Waiter();
+            ArrayDeque<Waiter> waiters = mWaitersByClient.get(clientId);
+            if (waiters == null) {
+                waiters = new ArrayDeque<>();
+                mWaitersByClient.put(clientId, waiters);
+                mClientOrder.add(clientId);
+            }
+            waiters.add(waiter);
+            mQueuedCount++;
+        }
+        final long start = System.nanoTime();
+        boolean interrupted = false;
+        synchronized (waiter) {
+            while (!waiter.mGranted) {
+                try {
+                    waiter.wait();
+                } catch (final InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        final long waited = System.nanoTime() - start;
+        synchronized (this) {
+            mTotalWaitNanos += waited;
+            if (waited > mMaxWaitNanos) mMaxWaitNanos = waited;
+        }
+    }
+
+    void release() {
+        final Waiter next;
+        synchronized (this) {
+            final Integer clientId = mClientOrder.poll();
+            if (clientId == null) {
+                mAvailablePermits++;
+                return;
+            }
+            final ArrayDeque<Waiter> waiters = mWaitersByClient.get(clientId);
+            next = waiters.poll();
+            if (waiters.isEmpty()) {
+                mWaitersByClient.remove(clientId);
+            } else {
+                // next request of this client is served after the other clients had their turn
+                mClientOrder.add(clientId);
+            }
+        }
+        synchronized (next) {
+            next.mGranted = true;
+            next.notify();
+        }
+    }
+
+    void acquireAll(final int clientId) {
+        for (int i = 0; i < mPermits; i++) {
+            acquire(clientId);
+        }
+    }
+
+    void releaseAll() {
+        for (int i = 0; i < mPermits; i++) {
+            release();
+        }
+    }
+
+    private long getAverageWaitMillis() {
+        return mQueuedCount == 0 ? 0 : mTotalWaitNanos / mQueuedCount / 1000000;
+    }
+
+    synchronized String getStats() {
+        return mName + ": permits: " + mPermits + ", requests: " + mAcquireCount + ", queued: " + mQueuedCount
+                + ", average wait: " + getAverageWaitMillis() + " ms, max wait: " + mMaxWaitNanos / 1000000 + " ms";
+    }
+}
@@ -16,6 +16,7 @@ import helium314.keyboard.latin.settings.SpacingAndPunctuations;
 import helium314.keyboard.latin.utils.RunInLocaleKt;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Locale;
 
 /**
@@ -155,15 +156,17 @@ public class SentenceLevelAdapter {
         final int[] offsets = new int[querySize];
         final int[] lengths = new int[querySize];
         final SuggestionsInfo[] reconstructedSuggestions = new SuggestionsInfo[querySize];
+        final HashMap<Integer, SuggestionsInfo> resultsBySequence = new HashMap<>();
+        for (final SuggestionsInfo cur : results) {
+            if (cur != null) {
+                resultsBySequence.putIfAbsent(cur.getSequence(), cur);
+            }
+        }
         for (int i = 0; i < querySize; ++i) {
             final SentenceWordItem item = originalTextInfoParams.mItems.get(i);
-            SuggestionsInfo result = null;
-            for (final SuggestionsInfo cur : results) {
-                if (cur != null && cur.getSequence() == item.mTextInfo.getSequence()) {
-                    result = cur;
-                    result.setCookieAndSequence(originalCookie, originalSequence);
-                    break;
-                }
+            final SuggestionsInfo result = resultsBySequence.get(item.mTextInfo.getSequence());
+            if (result != null) {
+                result.setCookieAndSequence(originalCookie, originalSequence);
             }
             offsets[i] = item.mStart;
             lengths[i] = item.mLength;
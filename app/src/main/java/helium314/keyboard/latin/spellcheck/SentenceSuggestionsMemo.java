@@ -0,0 +1,189 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+package helium314.keyboard.latin.spellcheck;
+
+import android.view.textservice.SentenceSuggestionsInfo;
+import android.view.textservice.SuggestionsInfo;
+import android.view.textservice.TextInfo;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Remembers sentence level spell checker results of a session.
+ * <p>
+ * Editors send the whole paragraph again after every small edit. Texts are split into sentences,
+ * and only sentences that were not checked recently are passed to the {@link SentenceChecker}.
+ * Results for known sentences are re-used with offsets shifted to the sentence position.
+ */
+public final class SentenceSuggestionsMemo {
+    private static final int MAX_CACHED_SENTENCES = 500;
+    private static final int[] EMPTY_INT_ARRAY = new int[0];
+    private static final SuggestionsInfo[] EMPTY_SUGGESTIONS_INFO_ARRAY = new SuggestionsInfo[0];
+
+    public interface SentenceChecker {
+        /**
+         * @param sentences the sentences to check
+         * @return results for each sentence (may contain null if there are no words), with offsets
+         * relative to the start of the sentence
+         */
+        SentenceSuggestionsInfo[] check(TextInfo[] sentences);
+    }
+
+    private static final class CachedSentence {
+        final int[] mOffsets;
+        final int[] mLengths;
+        final SuggestionsInfo[] mSuggestionsInfos;
+
+        CachedSentence(final SentenceSuggestionsInfo ssi) {
+            final int count = ssi == null ? 0 : ssi.getSuggestionsCount();
+            mOffsets = count == 0 ? EMPTY_INT_ARRAY : new int[count];
+            mLengths = count == 0 ? EMPTY_INT_ARRAY : new int[count];
+            mSuggestionsInfos = count == 0 ? EMPTY_SUGGESTIONS_INFO_ARRAY : new SuggestionsInfo[count];
+            for (int i = 0; i < count; i++) {
+                mOffsets[i] = ssi.getOffsetAt(i);
+                mLengths[i] = ssi.getLengthAt(i);
+                mSuggestionsInfos[i] = ssi.getSuggestionsInfoAt(i);
+            }
+        }
+    }
+
+    private final LinkedHashMap<String, CachedSentence> mCache =
+            new LinkedHashMap<>(MAX_CACHED_SENTENCES, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, CachedSentence> eldest) {
+            return size() > MAX_CACHED_SENTENCES;
+        }
+    };
+    private Object mStateKey;
+
+    /**
+     * Forgets all results if the state key (e.g. locale, suggestion limit and dictionary state) changed.
+     */
+    public synchronized void setStateKey(final Object stateKey) {
+        if (!Objects.equals(stateKey, mStateKey)) {
+            mCache.clear();
+            mStateKey = stateKey;
+        }
+    }
+
+    public synchronized void clear() {
+        mCache.clear();
+    }
+
+    /**
+     * Splits the text into sentences, including trailing whitespace. A sentence ends after
+     * sentence terminators that are followed by whitespace, or at a line break.
+     * @return the start index of each sentence, followed by the text length
+     */
+    static int[] getSentenceBoundaries(final CharSequence text) {
+        final int length = text.length();
+        final ArrayList<Integer> boundaries = new ArrayList<>();
+        boundaries.add(0);
+        int i = 0;
+        while (i < length) {
+            final int codePoint = Character.codePointAt(text, i);
+            i += Character.charCount(codePoint);
+            if (codePoint != '\n' && !isSentenceTerminator(codePoint)) continue;
+            if (codePoint != '\n') {
+                // skip further terminators like in "?!" or "..."
+                while (i < length && isSentenceTerminator(Character.codePointAt(text, i)))
+                    i += Character.charCount(Character.codePointAt(text, i));
+                if (i < length && !Character.isWhitespace(Character.codePointAt(text, i))) continue;
+            }
+            while (i < length && Character.isWhitespace(Character.codePointAt(text, i)))
+                i += Character.charCount(Character.codePointAt(text, i));
+            if (i < length) boundaries.add(i);
+        }
+        boundaries.add(length);
+        final int[] result = new int[boundaries.size()];
+        for (int j = 0; j < result.length; j++) {
+            result[j] = boundaries.get(j);
+        }
+        return result;
+    }
+
+    private static boolean isSentenceTerminator(final int codePoint) {
+        return switch (codePoint) {
+            case '.', '!', '?', '…', '。', '！', '？', '।', '؟', '۔' -> true;
+            default -> false;
+        };
+    }
+
+    public SentenceSuggestionsInfo[] getSuggestions(final TextInfo[] textInfos, final SentenceChecker checker) {
+        final int[][] boundaries = new int[textInfos.length][];
+        final CachedSentence[][] sentenceResults = new CachedSentence[textInfos.length][];
+        // sentences not in cache, each one only once
+        final LinkedHashMap<String, TextInfo> missingSentences = new LinkedHashMap<>();
+        synchronized (this) {
+            for (int i = 0; i < textInfos.length; i++) {
+                final CharSequence text = textInfos[i].getCharSequence();
+                boundaries[i] = getSentenceBoundaries(text);
+                sentenceResults[i] = new CachedSentence[boundaries[i].length - 1];
+                for (int j = 0; j < sentenceResults[i].length; j++) {
+                    final CharSequence sentence = text.subSequence(boundaries[i][j], boundaries[i][j + 1]);
+                    final String key = sentence.toString();
+                    sentenceResults[i][j] = mCache.get(key);
+                    if (sentenceResults[i][j] == null && !missingSentences.containsKey(key)) {
+                        missingSentences.put(key, new TextInfo(sentence, 0, sentence.length(),
+                                textInfos[i].getCookie(), key.hashCode()));
+                    }
+                }
+            }
+        }
+
+        final LinkedHashMap<String, CachedSentence> newResults = new LinkedHashMap<>();
+        if (!missingSentences.isEmpty()) {
+            final TextInfo[] sentences = missingSentences.values().toArray(new TextInfo[0]);
+            final SentenceSuggestionsInfo[] checked = checker.check(sentences);
+            int j = 0;
+            for (final String key : missingSentences.keySet()) {
+                newResults.put(key, new CachedSentence(checked == null ? null : checked[j]));
+                j++;
+            }
+            synchronized (this) {
+                mCache.putAll(newResults);
+            }
+        }
+
+        final SentenceSuggestionsInfo[] retval = new SentenceSuggestionsInfo[textInfos.length];
+        for (int i = 0; i < textInfos.length; i++) {
+            final CharSequence text = textInfos[i].getCharSequence();
+            int count = 0;
+            for (int j = 0; j < sentenceResults[i].length; j++) {
+                if (sentenceResults[i][j] == null) {
+                    sentenceResults[i][j] = newResults.get(
+                            text.subSequence(boundaries[i][j], boundaries[i][j + 1]).toString());
+                }
+                count += sentenceResults[i][j].mOffsets.length;
+            }
+            final int[] offsets = new int[count];
+            final int[] lengths = new int[count];
+            final SuggestionsInfo[] suggestionsInfos = new SuggestionsInfo[count];
+            int k = 0;
+            for (int j = 0; j < sentenceResults[i].length; j++) {
+                final CachedSentence sentence = sentenceResults[i][j];
+                for (int l = 0; l < sentence.mOffsets.length; l++) {
+                    offsets[k] = sentence.mOffsets[l] + boundaries[i][j];
+                    lengths[k] = sentence.mLengths[l];
+                    suggestionsInfos[k] = copyWithCookieAndSequence(sentence.mSuggestionsInfos[l],
+                            textInfos[i].getCookie(), textInfos[i].getSequence());
+                    k++;
+                }
+            }
+            retval[i] = new SentenceSuggestionsInfo(suggestionsInfos, offsets, lengths);
+        }
+        return retval;
+    }
+
+    static SuggestionsInfo copyWithCookieAndSequence(final SuggestionsInfo si, final int cookie,
+            final int sequence) {
+        final String[] suggestions = new String[Math.max(si.getSuggestionsCount(), 0)];
+        for (int i = 0; i < suggestions.length; i++) {
+            suggestions[i] = si.getSuggestionAt(i);
+        }
+        return new SuggestionsInfo(si.getSuggestionsAttributes(), suggestions, cookie, sequence);
+    }
+}
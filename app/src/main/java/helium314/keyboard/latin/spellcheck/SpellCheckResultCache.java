@@ -0,0 +1,230 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+package helium314.keyboard.latin.spellcheck;
+
+import android.text.TextUtils;
+import android.util.LruCache;
+import android.view.textservice.SuggestionsInfo;
+
+import helium314.keyboard.latin.dictionary.ExpandableBinaryDictionary;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Process-wide cache of spell checker results, shared by all sessions of
+ * {@link AndroidSpellCheckerService}.
+ * <p>
+ * Entries are keyed by locale, word and dictionary generation. When the dictionaries are reset,
+ * closed, reloaded or updated (e.g. contacts dictionary toggled or contacts changed), the generation
+ * is increased and old entries simply stop matching until they fall out of the LRU. The cache is
+ * bounded by the estimated memory used by the entries, not by entry count.
+ * <p>
+ * Callers read {@link #getVersion()} before looking up a word and pass it to {@code put}, so a
+ * result computed while the dictionaries changed is not stored.
+ * <p>
+ * Results are stored as flags and suggestions, and a new {@link SuggestionsInfo} is created on
+ * every hit, because callers set cookie and sequence on the returned instance.
+ */
+public final class SpellCheckResultCache {
+    private static final int MAX_CACHE_SIZE_BYTES = 512 * 1024;
+    // rough object overhead of key and entry, plus LruCache map node
+    private static final int ENTRY_OVERHEAD_BYTES = 96;
+    private static final int NO_SUGGESTIONS_LIMIT = Integer.MAX_VALUE;
+
+    private static final class Key {
+        final Locale mLocale;
+        final String mWord;
+        final int mGeneration;
+        private final int mHashCode;
+
+        Key(final Locale locale, final String word, final int generation) {
+            mLocale = locale;
+            mWord = word;
+            mGeneration = generation;
+            mHashCode = Objects.hash(locale, word, generation);
+        }
+
+        @Override
+        public int hashCode() {
+            return mHashCode;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key other)) return false;
+            return mGeneration == other.mGeneration && mWord.equals(other.mWord)
+                    && Objects.equals(mLocale, other.mLocale);
+        }
+    }
+
+    private static final class Entry {
+        final int mFlags;
+        final String[] mSuggestions;
+        // limit used when gathering the suggestions, NO_SUGGESTIONS_LIMIT if the result does not depend on it
+        final int mSuggestionsLimit;
+
+        Entry(final int flags, final String[] suggestions, final int suggestionsLimit) {
+            mFlags = flags;
+            mSuggestions = suggestions;
+            mSuggestionsLimit = suggestionsLimit;
+        }
+
+        boolean isTypo() {
+            return (mFlags & SuggestionsInfo.RESULT_ATTR_LOOKS_LIKE_TYPO) != 0;
+        }
+
+        boolean canServe(final int suggestionsLimit) {
+            if (mSuggestionsLimit == suggestionsLimit) return true;
+            // a smaller limit can be served by truncating, unless the original one was <= 0, which gathers nothing
+            return suggestionsLimit > 0 && suggestionsLimit < mSuggestionsLimit;
+        }
+
+        int estimateSize(final Key key) {
+            int size = ENTRY_OVERHEAD_BYTES + 2 * key.mWord.length();
+            if (mSuggestions != null) {
+                for (final String suggestion : mSuggestions) {
+                    size += 24 + 2 * suggestion.length();
+                }
+            }
+            return size;
+        }
+    }
+
+    private final LruCache<Key, Entry> mCache = new LruCache<>(MAX_CACHE_SIZE_BYTES) {
+        @Override
+        protected int sizeOf(final Key key, final Entry entry) {
+            return entry.estimateSize(key);
+        }
+    };
+
+    private volatile int mGeneration;
+    // ExpandableBinaryDictionary.getReloadCount() the generation was last increased for
+    private volatile int mDictionaryReloadCount = ExpandableBinaryDictionary.getReloadCount();
+    // changed whenever results may have changed
+    private volatile int mVersion;
+    private volatile int mInvalidatedCount;
+    // own counters, as LruCache also counts lookups that are not served
+    private final AtomicInteger mHitCount = new AtomicInteger();
+    private final AtomicInteger mMissCount = new AtomicInteger();
+
+    /**
+     * Increase the dictionary generation, so that all results computed before are not returned any more.
+     */
+    public synchronized void onDictionariesChanged() {
+        mGeneration++;
+        mVersion++;
+    }
+
+    /**
+     * @return a number that changes whenever previously returned results may be outdated
+     */
+    public int getVersion() {
+        updateGeneration();
+        return mVersion;
+    }
+
+    // editable dictionaries are reloaded or updated in background without a reset, e.g. when contacts change
+    private int updateGeneration() {
+        final int reloadCount = ExpandableBinaryDictionary.getReloadCount();
+        if (reloadCount != mDictionaryReloadCount) {
+            synchronized (this) {
+                if (reloadCount != mDictionaryReloadCount) {
+                    mDictionaryReloadCount = reloadCount;
+                    onDictionariesChanged();
+                }
+            }
+        }
+        return mGeneration;
+    }
+
+    public SuggestionsInfo get(final Locale locale, final String word, final int suggestionsLimit) {
+        if (TextUtils.isEmpty(word)) return null;
+        final Entry entry = mCache.get(new Key(locale, word, updateGeneration()));
+        if (entry == null || !entry.canServe(suggestionsLimit)) {
+            mMissCount.incrementAndGet();
+            return null;
+        }
+        mHitCount.incrementAndGet();
+        final String[] suggestions;
+        if (entry.mSuggestions != null && suggestionsLimit >= 0 && entry.mSuggestions.length > suggestionsLimit)
+            suggestions = Arrays.copyOf(entry.mSuggestions, suggestionsLimit);
+        else suggestions = entry.mSuggestions;
+        return new SuggestionsInfo(entry.mFlags, suggestions);
+    }
+
+    /**
+     * Whether the word is cached as typo with suggestions.
+     */
+    public boolean isTypoWithSuggestions(final Locale locale, final String word) {
+        if (TextUtils.isEmpty(word)) return false;
+        final Entry entry = mCache.get(new Key(locale, word, updateGeneration()));
+        return entry != null && entry.isTypo() && entry.mSuggestions != null;
+    }
+
+    /**
+     * Cache a result that does not depend on the number of requested suggestions.
+     * @param version the {@link #getVersion()} read before the result was computed
+     */
+    public void put(final int version, final Locale locale, final String word, final int flags) {
+        put(version, locale, word, flags, null, NO_SUGGESTIONS_LIMIT);
+    }
+
+    /**
+     * Cache a result, unless results may have changed since the given version was read.
+     * @param version the {@link #getVersion()} read before the result was computed
+     */
+    public void put(final int version, final Locale locale, final String word, final int flags,
+            final String[] suggestions, final int suggestionsLimit) {
+        if (TextUtils.isEmpty(word)) return;
+        // synchronized with the invalidating methods, so nothing can be invalidated between check and put
+        synchronized (this) {
+            if (getVersion() != version) return;
+            mCache.put(new Key(locale, word, mGeneration), new Entry(flags, suggestions, suggestionsLimit));
+        }
+    }
+
+    /**
+     * Remove entries that may be affected by a change of the given user dictionary words, i.e.
+     * results for the words themselves (in any capitalization), and typo results as the changed
+     * words may be or have been suggestions for them.
+     * Results for other correctly spelled words stay valid.
+     * @param changedWords the added or removed words, in lower case
+     */
+    public synchronized void invalidateForUserDictionaryChange(final Collection<String> changedWords) {
+        if (changedWords.isEmpty()) return;
+        int removed = 0;
+        for (final Map.Entry<Key, Entry> e : mCache.snapshot().entrySet()) {
+            final Key key = e.getKey();
+            final String lowerCaseWord = key.mLocale == null
+                    ? key.mWord.toLowerCase(Locale.ROOT) : key.mWord.toLowerCase(key.mLocale);
+            if (e.getValue().isTypo() || changedWords.contains(lowerCaseWord)) {
+                mCache.remove(key);
+                removed++;
+            }
+        }
+        mInvalidatedCount += removed;
+        mVersion++;
+    }
+
+    public synchronized void clear() {
+        mCache.evictAll();
+        mVersion++;
+    }
+
+    public String getStats() {
+        final int hits = mHitCount.get();
+        final int misses = mMissCount.get();
+        final int total = hits + misses;
+        return "entries: " + mCache.snapshot().size() + ", size: " + mCache.size() + "/" + mCache.maxSize()
+                + " bytes, hits: " + hits + ", misses: " + misses
+                + ", hit rate: " + (total == 0 ? 0 : hits * 100 / total) + "%"
+                + ", evictions: " + mCache.evictionCount() + ", invalidated: " + mInvalidatedCount
+                + ", generation: " + mGeneration;
+    }
+}
@@ -0,0 +1,37 @@
+// SPDX-License-Identifier: GPL-3.0-only
+package helium314.keyboard.latin.utils
+
+import android.app.ActivityManager
+import android.content.Context
+import com.android.inputmethod.latin.DicTraverseSession
+
+/**
+ * Rough classification of the device speed, used as starting point for work that adapts to the
+ * measured speed, like the width of the suggestion search.
+ */
+object DeviceClassUtils {
+    private const val GIGABYTE = 1024L * 1024 * 1024
+
+    /** One of the DEVICE_CLASS constants in [DicTraverseSession], the default until [init] is called. */
+    @JvmStatic
+    var deviceClass = DicTraverseSession.DEVICE_CLASS_DEFAULT
+        private set
+
+    fun init(context: Context) {
+        deviceClass = detectDeviceClass(context)
+    }
+
+    private fun detectDeviceClass(context: Context): Int {
+        val activityManager = context.getSystemService(ActivityManager::class.java)
+            ?: return DicTraverseSession.DEVICE_CLASS_DEFAULT
+        if (activityManager.isLowRamDevice) return DicTraverseSession.DEVICE_CLASS_LOW_END
+        val memoryInfo = ActivityManager.MemoryInfo()
+        activityManager.getMemoryInfo(memoryInfo)
+        val cores = Runtime.getRuntime().availableProcessors()
+        return when {
+            cores <= 4 || memoryInfo.totalMem < 3 * GIGABYTE -> DicTraverseSession.DEVICE_CLASS_LOW_END
+            cores >= 8 && memoryInfo.totalMem >= 6 * GIGABYTE -> DicTraverseSession.DEVICE_CLASS_HIGH_END
+            else -> DicTraverseSession.DEVICE_CLASS_DEFAULT
+        }
+    }
+}
@@ -115,6 +115,7 @@ object LayoutUtilsCustom {
 
     fun onLayoutFileChanged() {
         customLayoutMap.clear()
+        KeyboardLayoutSet.onLayoutFilesChanged()
     }
 
     fun deleteLayout(layoutName: String, layoutType: LayoutType, context: Context) {
@@ -211,7 +211,7 @@ open class SettingsActivity : ComponentActivity(), SharedPreferences.OnSharedPre
             return
         forceTheme = theme
         forceNight = night
-        KeyboardSwitcher.getInstance().setThemeNeedsReload()
+        KeyboardSwitcher.getInstance().setThemeNeedsReloadKeepingKeyboards()
     }
 
     private fun findCrashReports(onlyUnprotected: Boolean): List<File> {
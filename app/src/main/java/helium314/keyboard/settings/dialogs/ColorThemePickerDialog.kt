@@ -193,7 +193,7 @@ private fun AddColorRow(onDismissRequest: () -> Unit, userColors: Collection<Str
             prefs.edit { putString(prefKey, currentName) }
             KeyboardTheme.writeUserMoreColors(prefs, currentName, Defaults.PREF_USER_MORE_COLORS) // write sth so theme is stored
             SettingsDestination.navigateTo(targetScreen + currentName)
-            KeyboardSwitcher.getInstance().setThemeNeedsReload()
+            KeyboardSwitcher.getInstance().setThemeNeedsReloadKeepingKeyboards()
         }
     }
 }
@@ -209,7 +209,7 @@ private fun ColorItemRow(onDismissRequest: () -> Unit, item: String, isSelected:
             .clickable {
                 onDismissRequest()
                 prefs.edit {putString(prefKey, item)}
-                KeyboardSwitcher.getInstance().setThemeNeedsReload()
+                KeyboardSwitcher.getInstance().setThemeNeedsReloadKeepingKeyboards()
             }
             .padding(start = 6.dp)
             .heightIn(min = 40.dp)
@@ -219,7 +219,7 @@ private fun ColorItemRow(onDismissRequest: () -> Unit, item: String, isSelected:
             onClick = {
                 onDismissRequest()
                 prefs.edit { putString(prefKey, item) }
-                KeyboardSwitcher.getInstance().setThemeNeedsReload()
+                KeyboardSwitcher.getInstance().setThemeNeedsReloadKeepingKeyboards()
             }
         )
         Text(
@@ -246,7 +246,7 @@ private fun ColorItemRow(onDismissRequest: () -> Unit, item: String, isSelected:
                             remove(Settings.PREF_USER_MORE_COLORS_PREFIX + item)
                             if (isSelected) remove(prefKey)
                         }
-                        KeyboardSwitcher.getInstance().setThemeNeedsReload()
+                        KeyboardSwitcher.getInstance().setThemeNeedsReloadKeepingKeyboards()
                     }
                 )
         }
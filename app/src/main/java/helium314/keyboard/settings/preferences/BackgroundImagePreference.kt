@@ -104,7 +104,7 @@ fun BackgroundImagePref(setting: Setting, isLandscape: Boolean) {
             onNeutral = {
                 getFile().delete()
                 Settings.clearCachedBackgroundImages()
-                KeyboardSwitcher.getInstance().setThemeNeedsReload()
+                KeyboardSwitcher.getInstance().setThemeNeedsReloadKeepingKeyboards()
                 showSelectionDialog = false
             }
         )
@@ -117,7 +117,7 @@ fun BackgroundImagePref(setting: Setting, isLandscape: Boolean) {
 private fun setBackgroundImage(ctx: Context, uri: Uri, isNight: Boolean, isLandscape: Boolean): Boolean {
     val imageFile = Settings.getCustomBackgroundFile(ctx, isNight, isLandscape)
     FileUtils.copyContentUriToNewFile(uri, ctx, imageFile)
-    KeyboardSwitcher.getInstance().setThemeNeedsReload()
+    KeyboardSwitcher.getInstance().setThemeNeedsReloadKeepingKeyboards()
     try {
         BitmapFactory.decodeFile(imageFile.absolutePath)
     } catch (_: Exception) {
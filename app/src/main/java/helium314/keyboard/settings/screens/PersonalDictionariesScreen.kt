@@ -48,14 +48,18 @@ import helium314.keyboard.latin.utils.Log
 import kotlinx.coroutines.CoroutineScope
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.launch
+import java.io.BufferedInputStream
 import java.io.BufferedReader
-import java.io.InputStream
 import java.io.InputStreamReader
 import java.util.TreeSet
 import java.util.zip.ZipInputStream
+import android.content.ContentValues
+import android.content.Context
+import android.net.Uri
 import android.provider.UserDictionary
+import androidx.compose.foundation.layout.Column
+import helium314.keyboard.latin.dictionary.UserBinaryDictionary
 import kotlinx.coroutines.withContext
-import java.util.zip.ZipEntry
 
 @Composable
 fun PersonalDictionariesScreen(
@@ -93,14 +97,16 @@ fun PersonalDictionariesScreen(
     )
     
     var showImporting by remember { mutableStateOf(false) }
+    var importedWords by remember { mutableStateOf(0) }
     val scope = androidx.compose.runtime.rememberCoroutineScope()
     
     val importLauncher = rememberLauncherForActivityResult(ActivityResultContracts.OpenDocument()) { uri ->
         if (uri != null) {
             showImporting = true
+            importedWords = 0
             scope.launch(Dispatchers.IO) {
                 try {
-                    val count = importGboardDictionary(ctx, uri)
+                    val count = importGboardDictionary(ctx, uri) { importedWords = it }
                     withContext(Dispatchers.Main) {
                         KeyboardSwitcher.getInstance().showToast("Imported $count words", true)
                         showImporting = false
@@ -126,69 +132,117 @@ fun PersonalDictionariesScreen(
                 .padding(16.dp)
         )
         if (showImporting) {
-            CircularProgressIndicator(modifier = Modifier.align(Alignment.Center))
+            Column(Modifier.align(Alignment.Center), horizontalAlignment = Alignment.CenterHorizontally) {
+                CircularProgressIndicator()
+                if (importedWords > 0)
+                    Text("Imported $importedWords words", Modifier.padding(top = 8.dp))
+            }
         }
     }
 }
 
-private suspend fun importGboardDictionary(context: android.content.Context, uri: android.net.Uri): Int {
-    var addedCount = 0
-    context.contentResolver.openInputStream(uri)?.use { inputStream ->
-        // Check if it's a zip by reading magic bytes or extension (but here we just try zip first)
-        // Gboard export is typically a zip containing dictionary.txt
-        // But users might extract it
-        try {
-            // Try as ZIP
-            val zipStream = ZipInputStream(inputStream)
-            var entry = zipStream.nextEntry
-            while (entry != null) {
-                if (entry.name.endsWith(".txt") || entry.name == "dictionary.txt") {
-                    // Prevent closing the parent stream
-                    val reader = BufferedReader(InputStreamReader(zipStream))
-                    addedCount += parseAndInsert(context, reader)
+private const val IMPORT_BATCH_SIZE = 500
+
+/**
+ * Imports words from a Gboard dictionary export (zip containing dictionary.txt) or a plain text file.
+ * The file is streamed and words are inserted in batches. Dictionaries are updated once at the end.
+ */
+private fun importGboardDictionary(context: Context, uri: Uri, onProgress: (Int) -> Unit): Int {
+    val inserter = UserDictionaryBulkInserter(context, onProgress)
+    UserBinaryDictionary.beginBulkUpdate()
+    try {
+        context.contentResolver.openInputStream(uri)?.use { stream ->
+            val inputStream = BufferedInputStream(stream)
+            if (isZip(inputStream)) {
+                val zipStream = ZipInputStream(inputStream)
+                var entry = zipStream.nextEntry
+                while (entry != null) {
+                    // Gboard export is typically a zip containing dictionary.txt
+                    if (entry.name.endsWith(".txt"))
+                        parseAndInsert(BufferedReader(InputStreamReader(zipStream)), inserter)
+                    zipStream.closeEntry()
+                    entry = zipStream.nextEntry
                 }
-                zipStream.closeEntry()
-                entry = zipStream.nextEntry
-            }
-        } catch (e: Exception) {
-            // Might be a plain text file
-            context.contentResolver.openInputStream(uri)?.use { plainStream ->
-                val reader = BufferedReader(InputStreamReader(plainStream))
-                addedCount += parseAndInsert(context, reader)
+            } else {
+                // users might have extracted the zip
+                parseAndInsert(BufferedReader(InputStreamReader(inputStream)), inserter)
             }
         }
+        inserter.flush()
+    } finally {
+        UserBinaryDictionary.endBulkUpdate()
     }
-    return addedCount
+    return inserter.count
 }
 
-private fun parseAndInsert(context: android.content.Context, reader: BufferedReader): Int {
-    var count = 0
-    reader.forEachLine { line ->
-        if (line.startsWith("#")) return@forEachLine
+private fun isZip(inputStream: BufferedInputStream): Boolean {
+    inputStream.mark(4)
+    val header = ByteArray(4)
+    val read = inputStream.read(header)
+    inputStream.reset()
+    return read == 4 && header[0] == 'P'.code.toByte() && header[1] == 'K'.code.toByte()
+            && header[2] == 3.toByte() && header[3] == 4.toByte()
+}
+
+// does not close the reader, as this would close the zip stream
+private fun parseAndInsert(reader: BufferedReader, inserter: UserDictionaryBulkInserter) {
+    while (true) {
+        val line = reader.readLine() ?: break
+        if (line.startsWith("#")) continue
         val parts = line.split("\t")
-        if (parts.size >= 1) {
-            val word = parts[0]
-            if (word.isNotBlank()) {
-                val shortcut = if (parts.size >= 2) parts[1].ifBlank { null } else null
-                val localeStr = if (parts.size >= 3) parts[2].ifBlank { null } else null
-                
-                val locale = if (localeStr != null) {
-                    try { Locale.forLanguageTag(localeStr) } catch(_: Exception) { null }
-                } else null
-                
-                // Frequency is not always present or standardized, use default
-                // UserDictionary.Words.addWord(context, word, 250, shortcut, locale)
-                // We need to use valid locale
-                try {
-                UserDictionary.Words.addWord(context, word, 250, shortcut, locale)
-                count++
-                } catch (e: Exception) {
-                    Log.w("ImportDict", "Failed to add word $word", e)
-                }
+        val word = parts[0]
+        if (word.isBlank()) continue
+        val shortcut = if (parts.size >= 2) parts[1].ifBlank { null } else null
+        val localeStr = if (parts.size >= 3) parts[2].ifBlank { null } else null
+        val locale = if (localeStr != null) {
+            try { Locale.forLanguageTag(localeStr) } catch(_: Exception) { null }
+        } else null
+        // Frequency is not always present or standardized, use default
+        inserter.add(word, shortcut, locale)
+    }
+}
+
+/** Inserts words into the user dictionary in batches, skipping words that are already present. */
+private class UserDictionaryBulkInserter(private val context: Context, private val onProgress: (Int) -> Unit) {
+    private val existingWords = HashSet<String>()
+    private val batch = ArrayList<ContentValues>(IMPORT_BATCH_SIZE)
+    var count = 0
+        private set
+
+    init {
+        context.contentResolver.query(UserDictionary.Words.CONTENT_URI,
+            arrayOf(UserDictionary.Words.WORD, UserDictionary.Words.LOCALE), null, null, null)?.use { cursor ->
+            while (cursor.moveToNext()) {
+                existingWords.add(cursor.getString(0) + "\t" + cursor.getString(1))
             }
         }
     }
-    return count
+
+    fun add(word: String, shortcut: String?, locale: Locale?) {
+        // same format as UserDictionary.Words.addWord
+        val localeString = locale?.toString()
+        if (!existingWords.add(word + "\t" + localeString)) return
+        batch.add(ContentValues(5).apply {
+            put(UserDictionary.Words.WORD, word)
+            put(UserDictionary.Words.FREQUENCY, 250)
+            put(UserDictionary.Words.LOCALE, localeString)
+            put(UserDictionary.Words.APP_ID, 0)
+            put(UserDictionary.Words.SHORTCUT, shortcut)
+        })
+        if (batch.size >= IMPORT_BATCH_SIZE)
+            flush()
+    }
+
+    fun flush() {
+        if (batch.isEmpty()) return
+        try {
+            count += context.contentResolver.bulkInsert(UserDictionary.Words.CONTENT_URI, batch.toTypedArray())
+        } catch (e: Exception) {
+            Log.w("ImportDict", "Failed to add ${batch.size} words", e)
+        }
+        batch.clear()
+        onProgress(count)
+    }
 }
 
 fun getSortedDictionaryLocales(): TreeSet<Locale> {
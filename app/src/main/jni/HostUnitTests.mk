@@ -52,6 +52,19 @@ LOCAL_SRC_FILES := $(addprefix $(LATIN_IME_TEST_SRC_DIR)/, $(LATIN_IME_CORE_TEST
 LOCAL_STATIC_LIBRARIES += liblatinime_host_static_for_unittests
 include $(BUILD_HOST_NATIVE_TEST)
 
+#################### Host suggestion benchmark
+include $(CLEAR_VARS)
+LATIN_IME_BENCHMARK_SRC_DIR := benchmark
+LOCAL_CFLAGS += -Wno-unused-parameter -Wno-unused-function -DHOST_TOOL
+LOCAL_CLANG := true
+LOCAL_CXX_STL := libc++
+LOCAL_C_INCLUDES += $(LOCAL_PATH)/$(LATIN_IME_SRC_DIR)
+LOCAL_MODULE := latinime_host_suggest_benchmark
+LOCAL_MODULE_TAGS := optional
+LOCAL_SRC_FILES := $(addprefix $(LATIN_IME_BENCHMARK_SRC_DIR)/, $(LATIN_IME_BENCHMARK_FILES))
+LOCAL_STATIC_LIBRARIES += liblatinime_host_static_for_unittests
+include $(BUILD_HOST_EXECUTABLE)
+
 include $(LOCAL_PATH)/CleanupNativeFileList.mk
 
 endif # Darwin - TODO: Remove this
@@ -62,3 +75,4 @@ endif # TARGET_BUILD_APPS
 LATINIME_HOST_OSNAME :=
 LATIN_IME_SRC_DIR :=
 LATIN_IME_TEST_SRC_DIR :=
+LATIN_IME_BENCHMARK_SRC_DIR :=
@@ -83,7 +83,10 @@ LATIN_IME_CORE_SRC_FILES := \
         proximity_info_state.cpp \
         proximity_info_state_utils.cpp) \
     suggest/core/policy/weighting.cpp \
-    suggest/core/session/dic_traverse_session.cpp \
+    $(addprefix suggest/core/session/, \
+        dic_traverse_session.cpp \
+        expansion_worker_pool.cpp \
+        traversal_budget.cpp) \
     $(addprefix suggest/core/result/, \
         suggestion_results.cpp \
         suggestions_output_utils.cpp) \
@@ -139,8 +142,15 @@ LATIN_IME_CORE_TEST_FILES := \
     suggest/core/dicnode/dic_node_pool_test.cpp \
     suggest/core/layout/geometry_utils_test.cpp \
     suggest/core/layout/normal_distribution_2d_test.cpp \
+    suggest/core/session/expansion_worker_pool_test.cpp \
+    suggest/core/session/traversal_budget_test.cpp \
     suggest/policyimpl/utils/damerau_levenshtein_edit_distance_policy_test.cpp \
     utils/autocorrection_threshold_utils_test.cpp \
     utils/char_utils_test.cpp \
     utils/int_array_view_test.cpp \
     utils/time_keeper_test.cpp
+
+LATIN_IME_BENCHMARK_FILES := \
+    benchmark_keyboard.cpp \
+    suggest_benchmark.cpp \
+    suggest_traces.cpp
@@ -0,0 +1,106 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+#include "benchmark_keyboard.h"
+
+#include <algorithm>
+
+#include "host_jni_env.h"
+
+namespace latinime {
+namespace benchmark {
+
+// Values of a typical phone in portrait mode.
+const int BenchmarkKeyboard::KEYBOARD_WIDTH = 1080;
+const int BenchmarkKeyboard::KEYBOARD_HEIGHT = 640;
+const int BenchmarkKeyboard::KEY_WIDTH = 108;
+const int BenchmarkKeyboard::KEY_HEIGHT = 160;
+// config_keyboard_grid_width and config_keyboard_grid_height
+const int BenchmarkKeyboard::GRID_WIDTH = 32;
+const int BenchmarkKeyboard::GRID_HEIGHT = 16;
+// ProximityInfo.SEARCH_DISTANCE in Java
+const float BenchmarkKeyboard::SEARCH_DISTANCE = 1.2f;
+
+BenchmarkKeyboard::BenchmarkKeyboard() : mKeys() {
+    addRow("qwertyuiop", 0, 0);
+    addRow("asdfghjkl", 1, KEY_WIDTH / 2);
+    addRow("zxcvbnm", 2, KEY_WIDTH * 3 / 2);
+    mKeys.push_back(Key{KEYCODE_SPACE, KEY_WIDTH * 5 / 2, KEY_HEIGHT * 3, KEY_WIDTH * 5,
+            KEY_HEIGHT});
+}
+
+void BenchmarkKeyboard::addRow(const char *const codePoints, const int rowIndex,
+        const int leftPadding) {
+    for (int i = 0; codePoints[i] != '\0'; ++i) {
+        mKeys.push_back(Key{codePoints[i], leftPadding + i * KEY_WIDTH, rowIndex * KEY_HEIGHT,
+                KEY_WIDTH, KEY_HEIGHT});
+    }
+}
+
+bool BenchmarkKeyboard::getKeyCenter(const int codePoint, int *const outX, int *const outY) const {
+    for (const Key &key : mKeys) {
+        if (key.mCodePoint == codePoint) {
+            *outX = key.mX + key.mWidth / 2;
+            *outY = key.mY + key.mHeight / 2;
+            return true;
+        }
+    }
+    return false;
+}
+
+int BenchmarkKeyboard::getNearestCodePoint(const int x, const int y) const {
+    int nearestCodePoint = NOT_A_CODE_POINT;
+    int minSquaredDistance = 0;
+    for (const Key &key : mKeys) {
+        const int dx = x - std::max(key.mX, std::min(x, key.mX + key.mWidth));
+        const int dy = y - std::max(key.mY, std::min(y, key.mY + key.mHeight));
+        if (nearestCodePoint == NOT_A_CODE_POINT || dx * dx + dy * dy < minSquaredDistance) {
+            nearestCodePoint = key.mCodePoint;
+            minSquaredDistance = dx * dx + dy * dy;
+        }
+    }
+    return nearestCodePoint;
+}
+
+std::unique_ptr<ProximityInfo> BenchmarkKeyboard::createProximityInfo(JNIEnv *const env) const {
+    const int cellWidth = (KEYBOARD_WIDTH + GRID_WIDTH - 1) / GRID_WIDTH;
+    const int cellHeight = (KEYBOARD_HEIGHT + GRID_HEIGHT - 1) / GRID_HEIGHT;
+    const int threshold = static_cast<int>(KEY_WIDTH * SEARCH_DISTANCE);
+    HostArray<int> proximityChars(GRID_WIDTH * GRID_HEIGHT * MAX_PROXIMITY_CHARS_SIZE);
+    std::fill(proximityChars.data(), proximityChars.data() + proximityChars.size(),
+            NOT_A_CODE_POINT);
+    for (int cell = 0; cell < GRID_WIDTH * GRID_HEIGHT; ++cell) {
+        const int centerX = (cell % GRID_WIDTH) * cellWidth + cellWidth / 2;
+        const int centerY = (cell / GRID_WIDTH) * cellHeight + cellHeight / 2;
+        int count = 0;
+        for (const Key &key : mKeys) {
+            const int edgeX = std::max(key.mX, std::min(centerX, key.mX + key.mWidth));
+            const int edgeY = std::max(key.mY, std::min(centerY, key.mY + key.mHeight));
+            const int dx = centerX - edgeX;
+            const int dy = centerY - edgeY;
+            if (dx * dx + dy * dy < threshold * threshold && count < MAX_PROXIMITY_CHARS_SIZE) {
+                proximityChars.data()[cell * MAX_PROXIMITY_CHARS_SIZE + count++] = key.mCodePoint;
+            }
+        }
+    }
+    const size_t keyCount = mKeys.size();
+    HostArray<int> xs(keyCount), ys(keyCount), widths(keyCount), heights(keyCount),
+            codePoints(keyCount);
+    for (size_t i = 0; i < keyCount; ++i) {
+        xs.data()[i] = mKeys[i].mX;
+        ys.data()[i] = mKeys[i].mY;
+        widths.data()[i] = mKeys[i].mWidth;
+        heights.data()[i] = mKeys[i].mHeight;
+        codePoints.data()[i] = mKeys[i].mCodePoint;
+    }
+    // No touch position correction, like keyboards without sweet spot data.
+    return std::unique_ptr<ProximityInfo>(new ProximityInfo(env, KEYBOARD_WIDTH, KEYBOARD_HEIGHT,
+            GRID_WIDTH, GRID_HEIGHT, KEY_WIDTH, KEY_HEIGHT,
+            proximityChars.toJArray<jintArray>(), static_cast<int>(keyCount),
+            xs.toJArray<jintArray>(), ys.toJArray<jintArray>(), widths.toJArray<jintArray>(),
+            heights.toJArray<jintArray>(), codePoints.toJArray<jintArray>(),
+            nullptr /* sweetSpotCenterXs */, nullptr /* sweetSpotCenterYs */,
+            nullptr /* sweetSpotRadii */));
+}
+
+} // namespace benchmark
+} // namespace latinime
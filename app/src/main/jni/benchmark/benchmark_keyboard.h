@@ -0,0 +1,60 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+#ifndef LATINIME_BENCHMARK_BENCHMARK_KEYBOARD_H
+#define LATINIME_BENCHMARK_BENCHMARK_KEYBOARD_H
+
+#include <memory>
+#include <vector>
+
+#include "defines.h"
+#include "jni.h"
+#include "suggest/core/layout/proximity_info.h"
+
+namespace latinime {
+namespace benchmark {
+
+/**
+ * A phone sized QWERTY keyboard with the same grid and proximity computation as
+ * helium314.keyboard.keyboard.ProximityInfo, for creating the native ProximityInfo and
+ * for generating touch coordinates.
+ */
+class BenchmarkKeyboard {
+ public:
+    struct Key {
+        int mCodePoint;
+        int mX;
+        int mY;
+        int mWidth;
+        int mHeight;
+    };
+
+    BenchmarkKeyboard();
+
+    // Returns false if there is no key for the code point.
+    bool getKeyCenter(const int codePoint, int *const outX, int *const outY) const;
+    // The code point a touch at the given position results in.
+    int getNearestCodePoint(const int x, const int y) const;
+    std::unique_ptr<ProximityInfo> createProximityInfo(JNIEnv *const env) const;
+
+    int getKeyWidth() const { return KEY_WIDTH; }
+    int getKeyHeight() const { return KEY_HEIGHT; }
+
+ private:
+    DISALLOW_COPY_AND_ASSIGN(BenchmarkKeyboard);
+
+    static const int KEYBOARD_WIDTH;
+    static const int KEYBOARD_HEIGHT;
+    static const int KEY_WIDTH;
+    static const int KEY_HEIGHT;
+    static const int GRID_WIDTH;
+    static const int GRID_HEIGHT;
+    static const float SEARCH_DISTANCE;
+
+    void addRow(const char *const codePoints, const int rowIndex, const int leftPadding);
+
+    std::vector<Key> mKeys;
+};
+
+} // namespace benchmark
+} // namespace latinime
+#endif // LATINIME_BENCHMARK_BENCHMARK_KEYBOARD_H
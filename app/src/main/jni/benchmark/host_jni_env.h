@@ -0,0 +1,120 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+#ifndef LATINIME_BENCHMARK_HOST_JNI_ENV_H
+#define LATINIME_BENCHMARK_HOST_JNI_ENV_H
+
+#include <cstdio>
+#include <cstdlib>
+#include <cstring>
+#include <type_traits>
+#include <vector>
+
+#include "defines.h"
+#include "jni.h"
+
+namespace latinime {
+namespace benchmark {
+
+// What a jarray handle created by HostArray points to.
+struct HostArrayHeader {
+    void *mData;
+    size_t mSize;
+};
+
+// Backing storage for a jintArray or jfloatArray passed to native code that expects a JVM.
+template<typename T>
+class HostArray {
+ public:
+    explicit HostArray(const size_t size) : mData(size), mHeader{mData.data(), size} {}
+    HostArray(const T *const data, const size_t size)
+            : mData(data, data + size), mHeader{mData.data(), size} {}
+
+    // Only valid for the env returned by HostJniEnv.
+    template<typename JArray>
+    JArray toJArray() { return reinterpret_cast<JArray>(&mHeader); }
+
+    T *data() { return mData.data(); }
+    size_t size() const { return mData.size(); }
+
+ private:
+    DISALLOW_COPY_AND_ASSIGN(HostArray);
+
+    std::vector<T> mData;
+    HostArrayHeader mHeader;
+};
+
+/**
+ * A JNIEnv without a JVM, for running the native code on the host. Only the calls made by
+ * ProximityInfo, Dictionary and SuggestionResults are supported: array access, and FindClass
+ * failing so that logging to Java is skipped. Any other call aborts.
+ */
+class HostJniEnv {
+ public:
+    HostJniEnv() {
+        // Function pointers and void * have the same size on all platforms we build for.
+        void **const slots = reinterpret_cast<void **>(&mFunctions);
+        for (size_t i = 0; i < sizeof(mFunctions) / sizeof(void *); ++i) {
+            slots[i] = reinterpret_cast<void *>(&unsupportedCall);
+        }
+        mFunctions.GetArrayLength = [](JNIEnv *, jarray array) -> jsize {
+            return static_cast<jsize>(header(array)->mSize);
+        };
+        mFunctions.GetIntArrayRegion = [](JNIEnv *, jintArray array, jsize start, jsize len,
+                jint *buf) { copyFrom(array, start, len, buf); };
+        mFunctions.GetFloatArrayRegion = [](JNIEnv *, jfloatArray array, jsize start, jsize len,
+                jfloat *buf) { copyFrom(array, start, len, buf); };
+        mFunctions.SetIntArrayRegion = [](JNIEnv *, jintArray array, jsize start, jsize len,
+                const jint *buf) { copyTo(array, start, len, buf); };
+        mFunctions.SetFloatArrayRegion = [](JNIEnv *, jfloatArray array, jsize start, jsize len,
+                const jfloat *buf) { copyTo(array, start, len, buf); };
+        mFunctions.FindClass = [](JNIEnv *, const char *) -> jclass { return nullptr; };
+        mFunctions.ExceptionClear = [](JNIEnv *) {};
+        mEnv.functions = &mFunctions;
+    }
+
+    JNIEnv *get() { return &mEnv; }
+
+ private:
+    DISALLOW_COPY_AND_ASSIGN(HostJniEnv);
+
+    // JNINativeInterface_ in the JDK, JNINativeInterface on Android
+    using FunctionTable = typename std::remove_const<
+            typename std::remove_pointer<decltype(JNIEnv::functions)>::type>::type;
+
+    static void unsupportedCall() {
+        fprintf(stderr, "Unsupported JNI call on host\n");
+        abort();
+    }
+
+    static const HostArrayHeader *header(const void *const array) {
+        return reinterpret_cast<const HostArrayHeader *>(array);
+    }
+
+    template<typename T>
+    static void copyFrom(const void *const array, const jsize start, const jsize len, T *buf) {
+        checkRange(array, start, len);
+        memcpy(buf, static_cast<const T *>(header(array)->mData) + start, len * sizeof(T));
+    }
+
+    template<typename T>
+    static void copyTo(const void *const array, const jsize start, const jsize len,
+            const T *buf) {
+        checkRange(array, start, len);
+        memcpy(static_cast<T *>(header(array)->mData) + start, buf, len * sizeof(T));
+    }
+
+    static void checkRange(const void *const array, const jsize start, const jsize len) {
+        if (start < 0 || len < 0 || static_cast<size_t>(start + len) > header(array)->mSize) {
+            fprintf(stderr, "Array access out of bounds: %d + %d > %zu\n", start, len,
+                    header(array)->mSize);
+            abort();
+        }
+    }
+
+    FunctionTable mFunctions;
+    JNIEnv mEnv;
+};
+
+} // namespace benchmark
+} // namespace latinime
+#endif // LATINIME_BENCHMARK_HOST_JNI_ENV_H
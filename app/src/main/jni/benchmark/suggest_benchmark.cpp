@@ -0,0 +1,490 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+/**
+ * Measures Dictionary::getSuggestions on the host, see run-benchmarks.sh for building and usage.
+ *
+ * Typing traces are input like in the app: one query per typed code point, so the continuous
+ * suggestion cache of DicNodesCache is used like on a device. Gesture traces are one query per
+ * gesture, and need a gesture suggest policy, which is not part of this repository.
+ */
+
+#include <dirent.h>
+#include <fcntl.h>
+#include <sys/resource.h>
+#include <unistd.h>
+
+#include <algorithm>
+#include <chrono>
+#include <cstdio>
+#include <cstdlib>
+#include <cstring>
+#include <functional>
+#include <memory>
+#include <numeric>
+#include <random>
+#include <string>
+#include <utility>
+#include <vector>
+
+#include "benchmark_keyboard.h"
+#include "defines.h"
+#include "dictionary/property/ngram_context.h"
+#include "dictionary/structure/dictionary_structure_with_buffer_policy_factory.h"
+#include "dictionary/utils/file_utils.h"
+#include "host_jni_env.h"
+#include "suggest/core/dictionary/dictionary.h"
+#include "suggest/core/result/suggestion_results.h"
+#include "suggest/core/session/dic_traverse_session.h"
+#include "suggest/core/session/expansion_worker_pool.h"
+#include "suggest/core/session/traversal_budget.h"
+#include "suggest/core/suggest_options.h"
+#include "suggest/policyimpl/gesture/gesture_suggest_policy_factory.h"
+#include "suggest_traces.h"
+
+namespace latinime {
+namespace benchmark {
+namespace {
+
+// Most frequent words used for generating traces.
+const int MAX_CANDIDATE_WORDS_FOR_GENERATION = 5000;
+const int DEFAULT_GENERATED_TRACE_COUNT = 200;
+
+struct Options {
+    const char *mDictPath = nullptr;
+    std::vector<const char *> mTracePaths;
+    const char *mWriteTracesPath = nullptr;
+    int mGeneratedTraceCount = -1;
+    unsigned int mSeed = 1;
+    int mIterations = 5;
+    // -1: choose by dictionary size as in the app
+    int mUsesLargeCache = -1;
+    int mDeviceClass = TraversalBudget::DEVICE_CLASS_DEFAULT;
+    int mExpansionThreadCount = 1;
+    bool mCold = false;
+    bool mWarmUp = false;
+    bool mVerbose = false;
+};
+
+struct QueryStats {
+    std::vector<double> mLatenciesUs;
+    std::vector<int> mExpandedDicNodeCounts;
+    int mMaxActiveDicNodeCount = 0;
+    int mTraceCount = 0;
+    int mTopSuggestionMatchCount = 0;
+    long mMajorPageFaults = 0;
+};
+
+void printUsage() {
+    fprintf(stderr,
+            "usage: suggest_benchmark [options] <dictionary file or v4 directory>\n"
+            "  --traces <file>        read traces, may be given multiple times\n"
+            "  --generate <count>     generate typing and gesture traces from frequent words\n"
+            "                         (default %d if no --traces are given)\n"
+            "  --seed <seed>          seed for generating traces (default 1)\n"
+            "  --write-traces <file>  write the traces to a file for later runs\n"
+            "  --iterations <count>   measured runs over all traces (default 5)\n"
+            "  --large-cache, --small-cache\n"
+            "                         DicNodesCache size, default depends on dictionary size\n"
+            "  --device-class <class> low, default or high, the starting point of the\n"
+            "                         traversal budget\n"
+            "  --expansion-threads <count>\n"
+            "                         threads for expanding DicNodes, 1 to %d (default 1)\n"
+            "  --cold                 drop the dictionary from the page cache before loading,\n"
+            "                         needs --traces as generating reads the whole dictionary\n"
+            "  --warm-up              warm up the dictionary before the first query\n"
+            "  --verbose              print the top suggestion for each trace\n",
+            DEFAULT_GENERATED_TRACE_COUNT, ExpansionWorkerPool::MAX_THREAD_COUNT);
+}
+
+bool parseOptions(const int argc, char **const argv, Options *const outOptions) {
+    for (int i = 1; i < argc; ++i) {
+        const std::string arg = argv[i];
+        const bool hasValue = i + 1 < argc;
+        if (arg == "--traces" && hasValue) {
+            outOptions->mTracePaths.push_back(argv[++i]);
+        } else if (arg == "--generate" && hasValue) {
+            outOptions->mGeneratedTraceCount = atoi(argv[++i]);
+        } else if (arg == "--seed" && hasValue) {
+            outOptions->mSeed = static_cast<unsigned int>(strtoul(argv[++i], nullptr, 10));
+        } else if (arg == "--write-traces" && hasValue) {
+            outOptions->mWriteTracesPath = argv[++i];
+        } else if (arg == "--iterations" && hasValue) {
+            outOptions->mIterations = atoi(argv[++i]);
+        } else if (arg == "--large-cache") {
+            outOptions->mUsesLargeCache = 1;
+        } else if (arg == "--small-cache") {
+            outOptions->mUsesLargeCache = 0;
+        } else if (arg == "--device-class" && hasValue) {
+            const std::string deviceClass = argv[++i];
+            if (deviceClass == "low") {
+                outOptions->mDeviceClass = TraversalBudget::DEVICE_CLASS_LOW_END;
+            } else if (deviceClass == "high") {
+                outOptions->mDeviceClass = TraversalBudget::DEVICE_CLASS_HIGH_END;
+            } else if (deviceClass != "default") {
+                fprintf(stderr, "Invalid device class: %s\n", deviceClass.c_str());
+                return false;
+            }
+        } else if (arg == "--expansion-threads" && hasValue) {
+            outOptions->mExpansionThreadCount = atoi(argv[++i]);
+            if (outOptions->mExpansionThreadCount < 1
+                    || outOptions->mExpansionThreadCount > ExpansionWorkerPool::MAX_THREAD_COUNT) {
+                fprintf(stderr, "Invalid expansion thread count: %s\n", argv[i]);
+                return false;
+            }
+        } else if (arg == "--cold") {
+            outOptions->mCold = true;
+        } else if (arg == "--warm-up") {
+            outOptions->mWarmUp = true;
+        } else if (arg == "--verbose") {
+            outOptions->mVerbose = true;
+        } else if (arg[0] != '-' && !outOptions->mDictPath) {
+            outOptions->mDictPath = argv[i];
+        } else {
+            fprintf(stderr, "Invalid argument: %s\n", argv[i]);
+            return false;
+        }
+    }
+    if (outOptions->mGeneratedTraceCount < 0 && outOptions->mTracePaths.empty()) {
+        outOptions->mGeneratedTraceCount = DEFAULT_GENERATED_TRACE_COUNT;
+    }
+    if (outOptions->mCold && outOptions->mGeneratedTraceCount > 0) {
+        fprintf(stderr, "--cold can't be used with generated traces\n");
+        return false;
+    }
+    return outOptions->mDictPath && outOptions->mIterations > 0;
+}
+
+long getPeakRssKb() {
+    struct rusage usage;
+    getrusage(RUSAGE_SELF, &usage);
+    return usage.ru_maxrss;
+}
+
+long getMajorPageFaults() {
+    struct rusage usage;
+    getrusage(RUSAGE_SELF, &usage);
+    return usage.ru_majflt;
+}
+
+// Calls the function for the dictionary file, or for each file of a v4 dictionary directory.
+void forEachDictFile(const char *const path, const std::function<void(const char *)> &function) {
+    if (!FileUtils::existsDir(path)) {
+        function(path);
+        return;
+    }
+    DIR *const dir = opendir(path);
+    if (!dir) {
+        return;
+    }
+    while (const struct dirent *const entry = readdir(dir)) {
+        const std::string filePath = std::string(path) + "/" + entry->d_name;
+        if (!FileUtils::existsDir(filePath.c_str())) {
+            function(filePath.c_str());
+        }
+    }
+    closedir(dir);
+}
+
+int getDictSize(const char *const path) {
+    // v4 dictionaries are a directory with a header and a body file
+    int size = 0;
+    forEachDictFile(path, [&size](const char *const filePath) {
+        size += std::max(0, FileUtils::getFileSize(filePath));
+    });
+    return size;
+}
+
+// Simulates the first start after boot or after the dictionary has been evicted under memory
+// pressure. This only works for pages that are not mapped by any process.
+void evictFromPageCache(const char *const path) {
+    forEachDictFile(path, [](const char *const filePath) {
+        const int fd = open(filePath, O_RDONLY);
+        if (fd < 0) {
+            return;
+        }
+        fdatasync(fd);
+        posix_fadvise(fd, 0 /* offset */, 0 /* len */, POSIX_FADV_DONTNEED);
+        close(fd);
+    });
+}
+
+bool isLowerCaseLatinWord(const std::vector<int> &word) {
+    return word.size() > 1 && std::all_of(word.begin(), word.end(),
+            [](const int codePoint) { return codePoint >= 'a' && codePoint <= 'z'; });
+}
+
+// Picks words weighted towards the most frequent ones, and uses each as previous word for the
+// next trace, like a user typing a text.
+std::vector<SuggestTrace> generateTraces(Dictionary *const dictionary,
+        const BenchmarkKeyboard &keyboard, const int count, const unsigned int seed) {
+    std::vector<std::pair<int, std::vector<int>>> candidates;
+    int codePoints[MAX_WORD_LENGTH];
+    int token = 0;
+    do {
+        int codePointCount = 0;
+        token = dictionary->getNextWordAndNextToken(token, codePoints, &codePointCount);
+        const std::vector<int> word(codePoints, codePoints + codePointCount);
+        if (!isLowerCaseLatinWord(word)) continue;
+        const int probability = dictionary->getProbability(CodePointArrayView(word));
+        if (probability != NOT_A_PROBABILITY) candidates.emplace_back(probability, word);
+    } while (token != 0);
+    std::stable_sort(candidates.begin(), candidates.end(),
+            [](const std::pair<int, std::vector<int>> &a,
+                    const std::pair<int, std::vector<int>> &b) { return a.first > b.first; });
+    if (candidates.size() > static_cast<size_t>(MAX_CANDIDATE_WORDS_FOR_GENERATION)) {
+        candidates.resize(MAX_CANDIDATE_WORDS_FOR_GENERATION);
+    }
+    std::vector<SuggestTrace> traces;
+    if (candidates.empty()) {
+        fprintf(stderr, "No words in the dictionary are suitable for generating traces\n");
+        return traces;
+    }
+    std::mt19937 random(seed);
+    // Squaring a uniform value gives more weight to frequent words.
+    std::uniform_real_distribution<float> uniform(0.0f, 1.0f);
+    std::vector<int> prevWord;
+    for (int i = 0; i < count; ++i) {
+        const float r = uniform(random);
+        const std::vector<int> &word =
+                candidates[static_cast<size_t>(r * r * (candidates.size() - 1))].second;
+        traces.push_back(SuggestTraces::createTypingTrace(keyboard, word, prevWord, &random));
+        SuggestTrace gestureTrace;
+        if (SuggestTraces::createGestureTrace(keyboard, word, prevWord, &random, &gestureTrace)) {
+            traces.push_back(gestureTrace);
+        }
+        prevWord = word;
+    }
+    return traces;
+}
+
+std::vector<int> getTopSuggestion(JNIEnv *const env, SuggestionResults *const results) {
+    HostArray<int> count(1), codePoints(MAX_WORD_LENGTH * MAX_RESULTS), scores(MAX_RESULTS),
+            spaceIndices(MAX_RESULTS), types(MAX_RESULTS), autoCommitConfidence(1);
+    HostArray<float> weight(1);
+    results->outputSuggestions(env, count.toJArray<jintArray>(), codePoints.toJArray<jintArray>(),
+            scores.toJArray<jintArray>(), spaceIndices.toJArray<jintArray>(),
+            types.toJArray<jintArray>(), autoCommitConfidence.toJArray<jintArray>(),
+            weight.toJArray<jfloatArray>());
+    if (count.data()[0] == 0) {
+        return std::vector<int>();
+    }
+    const int best = static_cast<int>(
+            std::max_element(scores.data(), scores.data() + count.data()[0]) - scores.data());
+    const int *const start = codePoints.data() + best * MAX_WORD_LENGTH;
+    return std::vector<int>(start, std::find(start, start + MAX_WORD_LENGTH, 0));
+}
+
+// Returns the top suggestion after the last query of the trace.
+std::vector<int> runTrace(JNIEnv *const env, Dictionary *const dictionary,
+        DicTraverseSession *const session, ProximityInfo *const proximityInfo,
+        const SuggestTrace &trace, QueryStats *const stats) {
+    int options[] = {
+        trace.mIsGesture ? 1 : 0, // isGesture
+        0, // useFullEditDistance
+        1, // blockOffensiveWords
+        1, // spaceAwareGestureEnabled
+        1000, // weightForLocaleInThousands
+    };
+    const SuggestOptions suggestOptions(options, NELEMS(options));
+    // An empty word with isBeginningOfSentence, as passed from Java
+    const int emptyWord[1] = {};
+    const NgramContext ngramContext = trace.mPrevWord.empty()
+            ? NgramContext(emptyWord, 0 /* prevWordCodePointCount */,
+                    true /* isBeginningOfSentence */)
+            : NgramContext(trace.mPrevWord.data(), static_cast<int>(trace.mPrevWord.size()),
+                    false /* isBeginningOfSentence */);
+    std::vector<int> xs(trace.mXs), ys(trace.mYs), times(trace.mTimes),
+            pointerIds(trace.mXs.size(), 0), codePoints(trace.mCodePoints);
+    const int totalInputSize = static_cast<int>(trace.mXs.size());
+    std::vector<int> topSuggestion;
+    const long majorPageFaultsBefore = getMajorPageFaults();
+    for (int inputSize = trace.mIsGesture ? totalInputSize : 1; inputSize <= totalInputSize;
+            ++inputSize) {
+        SuggestionResults results(MAX_RESULTS);
+        session->getDicTraverseCache()->resetStatistics();
+        const auto start = std::chrono::steady_clock::now();
+        dictionary->getSuggestions(proximityInfo, session, xs.data(), ys.data(), times.data(),
+                pointerIds.data(), codePoints.data(), inputSize, &ngramContext, &suggestOptions,
+                NOT_A_WEIGHT_OF_LANG_MODEL_VS_SPATIAL_MODEL, &results);
+        const auto end = std::chrono::steady_clock::now();
+        if (stats) {
+            stats->mLatenciesUs.push_back(
+                    std::chrono::duration<double, std::micro>(end - start).count());
+            stats->mExpandedDicNodeCounts.push_back(
+                    session->getDicTraverseCache()->getPoppedActiveDicNodeCount());
+            stats->mMaxActiveDicNodeCount = std::max(stats->mMaxActiveDicNodeCount,
+                    session->getDicTraverseCache()->getMaxNextActiveDicNodeCount());
+        }
+        if (inputSize == totalInputSize) {
+            topSuggestion = getTopSuggestion(env, &results);
+        }
+    }
+    if (stats) {
+        stats->mMajorPageFaults += getMajorPageFaults() - majorPageFaultsBefore;
+        ++stats->mTraceCount;
+        if (topSuggestion == trace.mExpectedWord) ++stats->mTopSuggestionMatchCount;
+    }
+    return topSuggestion;
+}
+
+template<typename T>
+T getPercentile(const std::vector<T> &sortedValues, const int percentile) {
+    const size_t index = (sortedValues.size() * percentile + 99) / 100;
+    return sortedValues[std::max(static_cast<size_t>(1), index) - 1];
+}
+
+void printStats(const char *const name, QueryStats *const stats) {
+    if (stats->mLatenciesUs.empty()) {
+        return;
+    }
+    std::vector<double> &latencies = stats->mLatenciesUs;
+    std::vector<int> &dicNodes = stats->mExpandedDicNodeCounts;
+    double latencySum = 0;
+    long dicNodeSum = 0;
+    for (const double latency : latencies) latencySum += latency;
+    for (const int count : dicNodes) dicNodeSum += count;
+    std::sort(latencies.begin(), latencies.end());
+    std::sort(dicNodes.begin(), dicNodes.end());
+    printf("%s: %zu queries, %d traces\n", name, latencies.size(), stats->mTraceCount);
+    printf("  latency us: mean %.1f  p50 %.1f  p90 %.1f  p99 %.1f  max %.1f\n",
+            latencySum / latencies.size(), getPercentile(latencies, 50),
+            getPercentile(latencies, 90), getPercentile(latencies, 99), latencies.back());
+    printf("  expanded dicnodes: mean %.1f  p50 %d  p90 %d  p99 %d  max %d\n",
+            static_cast<double>(dicNodeSum) / dicNodes.size(), getPercentile(dicNodes, 50),
+            getPercentile(dicNodes, 90), getPercentile(dicNodes, 99), dicNodes.back());
+    printf("  max active dicnodes: %d\n", stats->mMaxActiveDicNodeCount);
+    printf("  top suggestion is expected word: %d of %d\n", stats->mTopSuggestionMatchCount,
+            stats->mTraceCount);
+}
+
+int runBenchmark(const Options &options) {
+    HostJniEnv hostJniEnv;
+    JNIEnv *const env = hostJniEnv.get();
+    const long rssBeforeLoadKb = getPeakRssKb();
+    const int dictSize = getDictSize(options.mDictPath);
+    if (options.mCold) {
+        evictFromPageCache(options.mDictPath);
+    }
+    const long majorPageFaultsBeforeLoad = getMajorPageFaults();
+    const auto loadStart = std::chrono::steady_clock::now();
+    DictionaryStructureWithBufferPolicy::StructurePolicyPtr policy =
+            DictionaryStructureWithBufferPolicyFactory::newPolicyForExistingDictFile(
+                    options.mDictPath, 0 /* bufOffset */, dictSize, false /* isUpdatable */);
+    if (!policy) {
+        fprintf(stderr, "Cannot open dictionary %s\n", options.mDictPath);
+        return 1;
+    }
+    Dictionary dictionary(env, std::move(policy));
+    const double loadMs = std::chrono::duration<double, std::milli>(
+            std::chrono::steady_clock::now() - loadStart).count();
+    const long rssAfterLoadKb = getPeakRssKb();
+    const long majorPageFaultsAfterLoad = getMajorPageFaults();
+
+    std::unique_ptr<DicTraverseSession> session(options.mUsesLargeCache >= 0
+            ? new DicTraverseSession(env, nullptr /* localeStr */, options.mUsesLargeCache == 1)
+            : static_cast<DicTraverseSession *>(DicTraverseSession::getSessionInstance(env,
+                    nullptr /* localeStr */, dictSize)));
+    session->getTraversalBudget()->setDeviceClass(options.mDeviceClass);
+    session->setExpansionThreadCount(options.mExpansionThreadCount);
+    const BenchmarkKeyboard keyboard;
+    const std::unique_ptr<ProximityInfo> proximityInfo = keyboard.createProximityInfo(env);
+
+    std::vector<SuggestTrace> traces;
+    for (const char *const path : options.mTracePaths) {
+        if (!SuggestTraces::readFromFile(path, &traces)) {
+            return 1;
+        }
+    }
+    if (options.mGeneratedTraceCount > 0) {
+        const std::vector<SuggestTrace> generatedTraces = generateTraces(&dictionary, keyboard,
+                options.mGeneratedTraceCount, options.mSeed);
+        traces.insert(traces.end(), generatedTraces.begin(), generatedTraces.end());
+    }
+    if (options.mWriteTracesPath && !SuggestTraces::writeToFile(options.mWriteTracesPath, traces,
+            "generated with seed " + std::to_string(options.mSeed))) {
+        return 1;
+    }
+    const bool hasGesturePolicy = GestureSuggestPolicyFactory::getGestureSuggestPolicy();
+    if (!hasGesturePolicy && std::any_of(traces.begin(), traces.end(),
+            [](const SuggestTrace &trace) { return trace.mIsGesture; })) {
+        printf("No gesture suggest policy available, skipping gesture traces\n");
+    }
+    traces.erase(std::remove_if(traces.begin(), traces.end(),
+            [hasGesturePolicy](const SuggestTrace &trace) {
+                return trace.mIsGesture && !hasGesturePolicy;
+            }), traces.end());
+    if (traces.empty()) {
+        fprintf(stderr, "No traces to run\n");
+        return 1;
+    }
+    double warmUpMs = 0;
+    if (options.mWarmUp) {
+        const auto warmUpStart = std::chrono::steady_clock::now();
+        dictionary.warmUp();
+        warmUpMs = std::chrono::duration<double, std::milli>(
+                std::chrono::steady_clock::now() - warmUpStart).count();
+    }
+    const long majorPageFaultsAfterWarmUp = getMajorPageFaults();
+    // Generating traces reads the whole dictionary.
+    const long rssBeforeQueriesKb = getPeakRssKb();
+
+    // Warm-up run, also fills the page cache for the dictionary. The first trace is measured,
+    // as it's the first suggestion after opening the dictionary.
+    QueryStats firstTraceStats;
+    for (const SuggestTrace &trace : traces) {
+        const std::vector<int> topSuggestion = runTrace(env, &dictionary, session.get(),
+                proximityInfo.get(), trace,
+                &trace == &traces.front() ? &firstTraceStats : nullptr);
+        if (options.mVerbose) {
+            printf("%s %s -> %s\n", trace.mIsGesture ? "gesture" : "typing",
+                    SuggestTraces::toUtf8(trace.mIsGesture
+                            ? trace.mExpectedWord : trace.mCodePoints).c_str(),
+                    SuggestTraces::toUtf8(topSuggestion).c_str());
+        }
+    }
+    QueryStats typingStats, gestureStats;
+    for (int iteration = 0; iteration < options.mIterations; ++iteration) {
+        for (const SuggestTrace &trace : traces) {
+            runTrace(env, &dictionary, session.get(), proximityInfo.get(), trace,
+                    trace.mIsGesture ? &gestureStats : &typingStats);
+        }
+    }
+
+    printf("dictionary: %s, %d bytes, loaded in %.1f ms\n", options.mDictPath, dictSize, loadMs);
+    if (options.mWarmUp) {
+        printf("dictionary warm-up: %.1f ms\n", warmUpMs);
+    }
+    printf("first trace: first query %.1f us, all %zu queries %.1f us\n",
+            firstTraceStats.mLatenciesUs.front(), firstTraceStats.mLatenciesUs.size(),
+            std::accumulate(firstTraceStats.mLatenciesUs.begin(),
+                    firstTraceStats.mLatenciesUs.end(), 0.0));
+    printf("major page faults: %ld loading, %ld warming up, %ld first trace\n",
+            majorPageFaultsAfterLoad - majorPageFaultsBeforeLoad,
+            majorPageFaultsAfterWarmUp - majorPageFaultsAfterLoad,
+            firstTraceStats.mMajorPageFaults);
+    printf("DicNodesCache: %s\n", options.mUsesLargeCache < 0 ? "chosen by dictionary size"
+            : options.mUsesLargeCache == 1 ? "large" : "small");
+    const TraversalBudget *const budget = session->getTraversalBudget();
+    printf("traversal budget: device class %d, scale %.2f, average latency %d us "
+            "(target %d us)\n", budget->getDeviceClass(), budget->getScale(),
+            budget->getAverageLatencyUs(), budget->getTargetLatencyUs());
+    printStats("typing", &typingStats);
+    printStats("gesture", &gestureStats);
+    printf("peak rss kb: %ld before loading, %ld after loading, %ld before queries, "
+            "%ld after queries\n", rssBeforeLoadKb, rssAfterLoadKb, rssBeforeQueriesKb,
+            getPeakRssKb());
+    return 0;
+}
+
+} // namespace
+} // namespace benchmark
+} // namespace latinime
+
+int main(int argc, char **argv) {
+    latinime::benchmark::Options options;
+    if (!latinime::benchmark::parseOptions(argc, argv, &options)) {
+        latinime::benchmark::printUsage();
+        return 1;
+    }
+    return latinime::benchmark::runBenchmark(options);
+}
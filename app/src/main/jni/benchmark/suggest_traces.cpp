@@ -0,0 +1,210 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+#include "suggest_traces.h"
+
+#include <cmath>
+#include <cstdio>
+#include <fstream>
+#include <sstream>
+
+#include "benchmark_keyboard.h"
+
+namespace latinime {
+namespace benchmark {
+
+const int SuggestTraces::TYPING_INTERVAL_MS = 180;
+const float SuggestTraces::TYPING_DEVIATION_IN_KEY_SIZES = 0.2f;
+const int SuggestTraces::GESTURE_SAMPLING_INTERVAL_MS = 8;
+const float SuggestTraces::GESTURE_SPEED_PX_PER_MS = 1.5f;
+const float SuggestTraces::GESTURE_DEVIATION_IN_KEY_SIZES = 0.1f;
+
+/* static */ bool SuggestTraces::readFromFile(const char *const path,
+        std::vector<SuggestTrace> *const outTraces) {
+    std::ifstream file(path);
+    if (!file) {
+        fprintf(stderr, "Cannot open trace file %s\n", path);
+        return false;
+    }
+    std::string line;
+    int lineNumber = 0;
+    while (std::getline(file, line)) {
+        ++lineNumber;
+        if (line.empty() || line[0] == '#') {
+            continue;
+        }
+        std::istringstream fields(line);
+        std::string type, expectedWord, prevWord, typedWord, point;
+        fields >> type >> expectedWord >> prevWord >> typedWord;
+        SuggestTrace trace;
+        trace.mIsGesture = type == "gesture";
+        if ((!trace.mIsGesture && type != "typing") || typedWord.empty()) {
+            fprintf(stderr, "Invalid trace in %s:%d\n", path, lineNumber);
+            return false;
+        }
+        trace.mExpectedWord = fromUtf8(expectedWord);
+        if (prevWord != "-") {
+            trace.mPrevWord = fromUtf8(prevWord);
+        }
+        if (!trace.mIsGesture) {
+            trace.mCodePoints = fromUtf8(typedWord);
+        }
+        while (fields >> point) {
+            int x, y, time;
+            if (sscanf(point.c_str(), "%d,%d,%d", &x, &y, &time) != 3) {
+                fprintf(stderr, "Invalid point %s in %s:%d\n", point.c_str(), path,
+                        lineNumber);
+                return false;
+            }
+            trace.mXs.push_back(x);
+            trace.mYs.push_back(y);
+            trace.mTimes.push_back(time);
+        }
+        if (trace.mXs.empty() || trace.mXs.size() > MAX_WORD_LENGTH * (trace.mIsGesture ? 10 : 1)
+                || (!trace.mIsGesture && trace.mXs.size() != trace.mCodePoints.size())) {
+            fprintf(stderr, "Invalid number of points in %s:%d\n", path, lineNumber);
+            return false;
+        }
+        outTraces->push_back(trace);
+    }
+    return true;
+}
+
+/* static */ bool SuggestTraces::writeToFile(const char *const path,
+        const std::vector<SuggestTrace> &traces, const std::string &comment) {
+    std::ofstream file(path);
+    if (!file) {
+        fprintf(stderr, "Cannot write trace file %s\n", path);
+        return false;
+    }
+    file << "# " << comment << "\n";
+    for (const SuggestTrace &trace : traces) {
+        file << (trace.mIsGesture ? "gesture " : "typing ") << toUtf8(trace.mExpectedWord) << " "
+                << (trace.mPrevWord.empty() ? "-" : toUtf8(trace.mPrevWord)) << " "
+                << (trace.mIsGesture ? "-" : toUtf8(trace.mCodePoints));
+        for (size_t i = 0; i < trace.mXs.size(); ++i) {
+            file << " " << trace.mXs[i] << "," << trace.mYs[i] << "," << trace.mTimes[i];
+        }
+        file << "\n";
+    }
+    return static_cast<bool>(file);
+}
+
+/* static */ SuggestTrace SuggestTraces::createTypingTrace(const BenchmarkKeyboard &keyboard,
+        const std::vector<int> &word, const std::vector<int> &prevWord,
+        std::mt19937 *const random) {
+    std::normal_distribution<float> deviationX(0.0f,
+            keyboard.getKeyWidth() * TYPING_DEVIATION_IN_KEY_SIZES);
+    std::normal_distribution<float> deviationY(0.0f,
+            keyboard.getKeyHeight() * TYPING_DEVIATION_IN_KEY_SIZES);
+    SuggestTrace trace;
+    trace.mIsGesture = false;
+    trace.mExpectedWord = word;
+    trace.mPrevWord = prevWord;
+    for (size_t i = 0; i < word.size(); ++i) {
+        int x, y;
+        if (keyboard.getKeyCenter(word[i], &x, &y)) {
+            x += static_cast<int>(deviationX(*random));
+            y += static_cast<int>(deviationY(*random));
+            const int nearestCodePoint = keyboard.getNearestCodePoint(x, y);
+            // a space would end the word
+            trace.mCodePoints.push_back(
+                    nearestCodePoint == KEYCODE_SPACE ? word[i] : nearestCodePoint);
+        } else {
+            x = y = NOT_A_COORDINATE;
+            trace.mCodePoints.push_back(word[i]);
+        }
+        trace.mXs.push_back(x);
+        trace.mYs.push_back(y);
+        trace.mTimes.push_back(static_cast<int>(i) * TYPING_INTERVAL_MS);
+    }
+    return trace;
+}
+
+/* static */ bool SuggestTraces::createGestureTrace(const BenchmarkKeyboard &keyboard,
+        const std::vector<int> &word, const std::vector<int> &prevWord,
+        std::mt19937 *const random, SuggestTrace *const outTrace) {
+    std::vector<int> keyXs, keyYs;
+    for (const int codePoint : word) {
+        int x, y;
+        if (!keyboard.getKeyCenter(codePoint, &x, &y)) {
+            return false;
+        }
+        keyXs.push_back(x);
+        keyYs.push_back(y);
+    }
+    std::normal_distribution<float> deviation(0.0f,
+            keyboard.getKeyWidth() * GESTURE_DEVIATION_IN_KEY_SIZES);
+    outTrace->mIsGesture = true;
+    outTrace->mExpectedWord = word;
+    outTrace->mPrevWord = prevWord;
+    outTrace->mCodePoints.clear();
+    outTrace->mXs.clear();
+    outTrace->mYs.clear();
+    outTrace->mTimes.clear();
+    // Key centers are slightly missed, points in between are on a straight line.
+    std::vector<float> targetXs, targetYs;
+    for (size_t i = 0; i < keyXs.size(); ++i) {
+        targetXs.push_back(keyXs[i] + deviation(*random));
+        targetYs.push_back(keyYs[i] + deviation(*random));
+    }
+    const float step = GESTURE_SPEED_PX_PER_MS * GESTURE_SAMPLING_INTERVAL_MS;
+    int time = 0;
+    for (size_t i = 0; i < targetXs.size(); ++i) {
+        if (i > 0) {
+            const float dx = targetXs[i] - targetXs[i - 1];
+            const float dy = targetYs[i] - targetYs[i - 1];
+            const int steps = static_cast<int>(hypotf(dx, dy) / step);
+            for (int j = 1; j < steps; ++j) {
+                time += GESTURE_SAMPLING_INTERVAL_MS;
+                outTrace->mXs.push_back(static_cast<int>(targetXs[i - 1] + dx * j / steps));
+                outTrace->mYs.push_back(static_cast<int>(targetYs[i - 1] + dy * j / steps));
+                outTrace->mTimes.push_back(time);
+            }
+            time += GESTURE_SAMPLING_INTERVAL_MS;
+        }
+        outTrace->mXs.push_back(static_cast<int>(targetXs[i]));
+        outTrace->mYs.push_back(static_cast<int>(targetYs[i]));
+        outTrace->mTimes.push_back(time);
+    }
+    return true;
+}
+
+/* static */ std::vector<int> SuggestTraces::fromUtf8(const std::string &text) {
+    std::vector<int> codePoints;
+    for (size_t i = 0; i < text.size();) {
+        const unsigned char c = static_cast<unsigned char>(text[i]);
+        const int length = c < 0x80 ? 1 : c < 0xE0 ? 2 : c < 0xF0 ? 3 : 4;
+        int codePoint = length == 1 ? c : c & (0x3F >> (length - 1));
+        for (int j = 1; j < length && i + j < text.size(); ++j) {
+            codePoint = (codePoint << 6) | (static_cast<unsigned char>(text[i + j]) & 0x3F);
+        }
+        codePoints.push_back(codePoint);
+        i += length;
+    }
+    return codePoints;
+}
+
+/* static */ std::string SuggestTraces::toUtf8(const std::vector<int> &codePoints) {
+    std::string text;
+    for (const int codePoint : codePoints) {
+        if (codePoint < 0x80) {
+            text += static_cast<char>(codePoint);
+        } else if (codePoint < 0x800) {
+            text += static_cast<char>(0xC0 | (codePoint >> 6));
+            text += static_cast<char>(0x80 | (codePoint & 0x3F));
+        } else if (codePoint < 0x10000) {
+            text += static_cast<char>(0xE0 | (codePoint >> 12));
+            text += static_cast<char>(0x80 | ((codePoint >> 6) & 0x3F));
+            text += static_cast<char>(0x80 | (codePoint & 0x3F));
+        } else {
+            text += static_cast<char>(0xF0 | (codePoint >> 18));
+            text += static_cast<char>(0x80 | ((codePoint >> 12) & 0x3F));
+            text += static_cast<char>(0x80 | ((codePoint >> 6) & 0x3F));
+            text += static_cast<char>(0x80 | (codePoint & 0x3F));
+        }
+    }
+    return text;
+}
+
+} // namespace benchmark
+} // namespace latinime
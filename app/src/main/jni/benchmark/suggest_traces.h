@@ -0,0 +1,69 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+#ifndef LATINIME_BENCHMARK_SUGGEST_TRACES_H
+#define LATINIME_BENCHMARK_SUGGEST_TRACES_H
+
+#include <random>
+#include <string>
+#include <vector>
+
+#include "defines.h"
+
+namespace latinime {
+namespace benchmark {
+
+class BenchmarkKeyboard;
+
+// Input for one word, either typed or gestured.
+struct SuggestTrace {
+    bool mIsGesture;
+    // The word the user wanted to input, for checking the top suggestion.
+    std::vector<int> mExpectedWord;
+    // Empty at the beginning of a sentence.
+    std::vector<int> mPrevWord;
+    // The code points of the touched keys, empty for gestures.
+    std::vector<int> mCodePoints;
+    std::vector<int> mXs;
+    std::vector<int> mYs;
+    std::vector<int> mTimes;
+};
+
+/**
+ * Reading, writing and generating traces. The file format has one trace per line:
+ *   typing <expected word> <previous word or -> <typed word> <x>,<y>,<time> ...
+ *   gesture <expected word> <previous word or -> - <x>,<y>,<time> ...
+ * Typing traces have one point per typed code point, with -1,-1 for code points without a key.
+ * Lines starting with # are ignored.
+ */
+class SuggestTraces {
+ public:
+    static bool readFromFile(const char *const path, std::vector<SuggestTrace> *const outTraces);
+    static bool writeToFile(const char *const path, const std::vector<SuggestTrace> &traces,
+            const std::string &comment);
+
+    // Touches are normally distributed around the key centers, so the typed word may contain
+    // typos if the noise is large.
+    static SuggestTrace createTypingTrace(const BenchmarkKeyboard &keyboard,
+            const std::vector<int> &word, const std::vector<int> &prevWord,
+            std::mt19937 *const random);
+    // Returns false if the word contains code points without a key.
+    static bool createGestureTrace(const BenchmarkKeyboard &keyboard,
+            const std::vector<int> &word, const std::vector<int> &prevWord,
+            std::mt19937 *const random, SuggestTrace *const outTrace);
+
+    static std::vector<int> fromUtf8(const std::string &text);
+    static std::string toUtf8(const std::vector<int> &codePoints);
+
+ private:
+    DISALLOW_IMPLICIT_CONSTRUCTORS(SuggestTraces);
+
+    static const int TYPING_INTERVAL_MS;
+    static const float TYPING_DEVIATION_IN_KEY_SIZES;
+    static const int GESTURE_SAMPLING_INTERVAL_MS;
+    static const float GESTURE_SPEED_PX_PER_MS;
+    static const float GESTURE_DEVIATION_IN_KEY_SIZES;
+};
+
+} // namespace benchmark
+} // namespace latinime
+#endif // LATINIME_BENCHMARK_SUGGEST_TRACES_H
@@ -533,6 +533,14 @@ static bool latinime_BinaryDictionary_isCorruptedNative(JNIEnv *env, jclass claz
     return dictionary->getDictionaryStructurePolicy()->isCorrupted();
 }
 
+static jint latinime_BinaryDictionary_warmUp(JNIEnv *env, jclass clazz, jlong dict) {
+    Dictionary *dictionary = reinterpret_cast<Dictionary *>(dict);
+    if (!dictionary) {
+        return 0;
+    }
+    return dictionary->warmUp();
+}
+
 static DictionaryStructureWithBufferPolicy::StructurePolicyPtr runGCAndGetNewStructurePolicy(
         DictionaryStructureWithBufferPolicy::StructurePolicyPtr structurePolicy,
         const char *const dictFilePath) {
@@ -730,6 +738,11 @@ static const JNINativeMethod sMethods[] = {
         const_cast<char *>("(J)Z"),
         reinterpret_cast<void *>(latinime_BinaryDictionary_isCorruptedNative)
     },
+    {
+        const_cast<char *>("warmUpNative"),
+        const_cast<char *>("(J)I"),
+        reinterpret_cast<void *>(latinime_BinaryDictionary_warmUp)
+    },
     {
         const_cast<char *>("migrateNative"),
         const_cast<char *>("(JLjava/lang/String;J)Z"),
@@ -55,6 +55,24 @@ static void latinime_releaseDicTraverseSession(JNIEnv *env, jclass clazz, jlong
     DicTraverseSession::releaseSessionInstance(ts);
 }
 
+static void latinime_setDeviceClass(JNIEnv *env, jclass clazz, jlong traverseSession,
+        jint deviceClass) {
+    DicTraverseSession *ts = reinterpret_cast<DicTraverseSession *>(traverseSession);
+    if (!ts) {
+        return;
+    }
+    ts->getTraversalBudget()->setDeviceClass(deviceClass);
+}
+
+static void latinime_setExpansionThreadCount(JNIEnv *env, jclass clazz, jlong traverseSession,
+        jint threadCount) {
+    DicTraverseSession *ts = reinterpret_cast<DicTraverseSession *>(traverseSession);
+    if (!ts) {
+        return;
+    }
+    ts->setExpansionThreadCount(threadCount);
+}
+
 static const JNINativeMethod sMethods[] = {
     {
         const_cast<char *>("setDicTraverseSessionNative"),
@@ -70,6 +88,16 @@ static const JNINativeMethod sMethods[] = {
         const_cast<char *>("releaseDicTraverseSessionNative"),
         const_cast<char *>("(J)V"),
         reinterpret_cast<void *>(latinime_releaseDicTraverseSession)
+    },
+    {
+        const_cast<char *>("setDeviceClassNative"),
+        const_cast<char *>("(JI)V"),
+        reinterpret_cast<void *>(latinime_setDeviceClass)
+    },
+    {
+        const_cast<char *>("setExpansionThreadCountNative"),
+        const_cast<char *>("(JI)V"),
+        reinterpret_cast<void *>(latinime_setExpansionThreadCount)
     }
 };
 
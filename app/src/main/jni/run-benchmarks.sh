@@ -0,0 +1,88 @@
+#!/bin/bash
+# SPDX-License-Identifier: GPL-3.0-only
+#
+# Builds the suggestion benchmark for the host and runs it, without the Android build system.
+# Needs a C++17 compiler and a JDK for jni.h.
+#
+# usage: run-benchmarks.sh [--debug] <dictionary> [benchmark options]
+# e.g. run-benchmarks.sh ../assets/dicts/main_en-US.dict --iterations 3
+#      run-benchmarks.sh ../assets/dicts/main_en-US.dict --traces benchmark/traces/en_US.txt
+# Run without dictionary to see the benchmark options.
+#
+# Instead of a dictionary, synthetic:<word count> generates a seeded dictionary of that size with
+# tools/makedict, e.g. run-benchmarks.sh synthetic:200000. Other sizes or v4 dictionaries can be
+# created with the makedict command line, see tools/makedict/README.md.
+# Results are only comparable when built and run on the same machine, so compare against a build
+# of the base commit.
+
+set -e
+
+jni_dir=$(cd "$(dirname "${BASH_SOURCE[0]}")" && pwd)
+out_dir=${OUT_DIR:-$jni_dir/../../../build/native-benchmark}
+cxx=${CXX:-c++}
+cxxflags="-std=c++17 -O2 -DNDEBUG -pthread"
+if [[ $1 == "--debug" ]]; then
+  # enables logging and assertions in the native code
+  cxxflags="-std=c++17 -O1 -g -DFLAG_DBG -pthread"
+  out_dir=$out_dir-debug
+  shift
+fi
+
+if [[ -z $JAVA_HOME ]]; then
+  JAVA_HOME=$(dirname "$(dirname "$(readlink -f "$(command -v javac)")")")
+fi
+if [[ ! -f $JAVA_HOME/include/jni.h ]]; then
+  echo "jni.h not found, set JAVA_HOME to a JDK" 1>&2
+  exit 1
+fi
+
+if [[ $1 == synthetic:* ]]; then
+  word_count=${1#synthetic:}
+  makedict_src=$jni_dir/../../../../tools/makedict/src/main/java
+  makedict_classes=$out_dir/makedict
+  if [[ ! -f $makedict_classes/built || -n $(find "$makedict_src" -newer "$makedict_classes/built" \
+      -name "*.java" -print -quit) ]]; then
+    rm -rf "$makedict_classes"
+    mkdir -p "$makedict_classes"
+    "$JAVA_HOME/bin/javac" -encoding UTF-8 -d "$makedict_classes" $(find "$makedict_src" -name "*.java")
+    touch "$makedict_classes/built"
+  fi
+  dictionary=$out_dir/synthetic_$word_count.dict
+  if [[ ! -f $dictionary || $dictionary -ot $makedict_classes/built ]]; then
+    "$JAVA_HOME/bin/java" -cp "$makedict_classes" helium314.keyboard.tools.makedict.MakeDict \
+        generate "$dictionary" -w "$word_count"
+  fi
+  shift
+  set -- "$dictionary" "$@"
+fi
+
+# same sources as the host unit tests, see NativeFileList.mk
+src_files=$(cd "$jni_dir/src" && find . -name "*.cpp" | sort)
+objects=()
+pids=()
+for file in $src_files ../benchmark/benchmark_keyboard.cpp ../benchmark/suggest_traces.cpp \
+    ../benchmark/suggest_benchmark.cpp; do
+  relative_path=${file#./}
+  relative_path=${relative_path#../}
+  object=$out_dir/obj/${relative_path%.cpp}.o
+  objects+=("$object")
+  # rebuild if the source or any header is newer, included headers are not tracked individually
+  if [[ ! -f $object || -n $(find "$jni_dir/src" "$jni_dir/benchmark" -newer "$object" \
+      \( -name "*.h" -o -path "*/$relative_path" \) -print -quit) ]]; then
+    mkdir -p "$(dirname "$object")"
+    $cxx $cxxflags -w -DHOST_TOOL -I"$jni_dir/src" -I"$JAVA_HOME/include" \
+        -I"$JAVA_HOME/include/linux" -c "$jni_dir/src/$file" -o "$object" &
+    pids+=($!)
+    if (( ${#pids[@]} >= $(nproc) )); then
+      wait "${pids[0]}"
+      pids=("${pids[@]:1}")
+    fi
+  fi
+done
+for pid in "${pids[@]}"; do
+  wait "$pid"
+done
+$cxx -pthread "${objects[@]}" -o "$out_dir/suggest_benchmark"
+
+cd "$jni_dir"
+"$out_dir/suggest_benchmark" "$@"
@@ -269,9 +269,6 @@ static inline void showStackTrace() {
 // TODO: Remove
 #define MAX_VALUE_FOR_WEIGHTING 10000000
 
-// The max number of the keys in one keyboard layout
-#define MAX_KEY_COUNT_IN_A_KEYBOARD 64
-
 // TODO: Remove
 #define MAX_POINTER_COUNT 1
 #define MAX_POINTER_COUNT_G 2
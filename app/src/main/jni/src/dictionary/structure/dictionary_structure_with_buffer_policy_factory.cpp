@@ -35,6 +35,14 @@
 
 namespace latinime {
 
+// Main dictionaries are a few MB. Larger files are only read as needed, to not fill the page
+// cache with parts that may never be used.
+const int DictionaryStructureWithBufferPolicyFactory::MAX_FILE_DICT_SIZE_TO_PREFETCH =
+        16 * 1024 * 1024;
+// Covers the header, the root PtNode array and the start of the first subtree.
+const int DictionaryStructureWithBufferPolicyFactory::PREFETCH_SIZE_FOR_LARGE_FILE_DICT =
+        16 * 1024;
+
 /* static */ DictionaryStructureWithBufferPolicy::StructurePolicyPtr
         DictionaryStructureWithBufferPolicyFactory::newPolicyForExistingDictFile(
                 const char *const path, const int bufOffset, const int size,
@@ -175,6 +183,10 @@ template<class DictConstants, class DictBuffers, class DictBuffersPtr, class Str
     if (!mmappedBuffer) {
         return nullptr;
     }
+    // Lookups jump around in the file, so without this the first suggestions after opening wait
+    // for many small reads, one per page fault.
+    mmappedBuffer->adviseWillNeed(0 /* offset */, size <= MAX_FILE_DICT_SIZE_TO_PREFETCH
+            ? size : PREFETCH_SIZE_FOR_LARGE_FILE_DICT);
     switch (FormatUtils::detectFormatVersion(mmappedBuffer->getReadOnlyByteArrayView())) {
         case FormatUtils::VERSION_2:
         case FormatUtils::VERSION_201:
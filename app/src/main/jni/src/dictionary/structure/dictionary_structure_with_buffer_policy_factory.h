@@ -40,6 +40,9 @@ class DictionaryStructureWithBufferPolicyFactory {
  private:
     DISALLOW_IMPLICIT_CONSTRUCTORS(DictionaryStructureWithBufferPolicyFactory);
 
+    static const int MAX_FILE_DICT_SIZE_TO_PREFETCH;
+    static const int PREFETCH_SIZE_FOR_LARGE_FILE_DICT;
+
     template<class DictConstants, class DictBuffers, class DictBuffersPtr, class StructurePolicy>
     static DictionaryStructureWithBufferPolicy::StructurePolicyPtr
             newPolicyForOnMemoryV4Dict(const FormatUtils::FORMAT_VERSION formatVersion,
@@ -30,8 +30,13 @@ class DynamicLanguageModelProbabilityUtils {
  public:
     static float computeRawProbabilityFromCounts(const int count, const int contextCount,
             const NgramType ngramType) {
-        const int minCount = ASSUMED_MIN_COUNTS[static_cast<int>(ngramType)];
-        return static_cast<float>(count) / static_cast<float>(std::max(contextCount, minCount));
+        return static_cast<float>(count)
+                / static_cast<float>(getEffectiveContextCount(contextCount, ngramType));
+    }
+
+    // The context count computeRawProbabilityFromCounts actually divides by.
+    static int getEffectiveContextCount(const int contextCount, const NgramType ngramType) {
+        return std::max(contextCount, ASSUMED_MIN_COUNTS[static_cast<int>(ngramType)]);
     }
 
     static float backoff(const int ngramProbability, const NgramType ngramType) {
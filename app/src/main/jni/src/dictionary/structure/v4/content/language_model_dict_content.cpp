@@ -27,6 +27,8 @@ namespace latinime {
 
 const int LanguageModelDictContent::TRIE_MAP_BUFFER_INDEX = 0;
 const int LanguageModelDictContent::GLOBAL_COUNTERS_BUFFER_INDEX = 1;
+// Covers the counts of nearly all entries, larger counts are computed on each lookup.
+const int LanguageModelDictContent::UNIGRAM_PROBABILITY_TABLE_SIZE = 256;
 
 bool LanguageModelDictContent::save(FILE *const file) const {
     return mTrieMap.save(file) && mGlobalCounters.save(file);
@@ -55,7 +57,11 @@ const WordAttributes LanguageModelDictContent::getWordAttributes(const WordIdArr
         bitmapEntryIndices[i + 1] = nextBitmapEntryIndex;
     }
 
-    const ProbabilityEntry unigramProbabilityEntry = getProbabilityEntry(wordId);
+    // The loop below needs the unigram entry again, so it is only looked up once.
+    const TrieMap::Result unigramResult = mTrieMap.getRoot(wordId);
+    const ProbabilityEntry unigramProbabilityEntry = unigramResult.mIsValid
+            ? ProbabilityEntry::decode(unigramResult.mValue, mHasHistoricalInfo)
+            : ProbabilityEntry();
     if (mHasHistoricalInfo && unigramProbabilityEntry.getHistoricalInfo()->getCount() == 0) {
         // The word should be treated as a invalid word.
         return WordAttributes();
@@ -64,7 +70,8 @@ const WordAttributes LanguageModelDictContent::getWordAttributes(const WordIdArr
         if (mustMatchAllPrevWords && prevWordIds.size() > static_cast<size_t>(i)) {
             break;
         }
-        const TrieMap::Result result = mTrieMap.get(wordId, bitmapEntryIndices[i]);
+        const TrieMap::Result result =
+                i == 0 ? unigramResult : mTrieMap.get(wordId, bitmapEntryIndices[i]);
         if (!result.mIsValid) {
             continue;
         }
@@ -91,11 +98,11 @@ const WordAttributes LanguageModelDictContent::getWordAttributes(const WordIdArr
                 contextCount = prevWordProbabilityEntry.getHistoricalInfo()->getCount();
             }
             const NgramType ngramType = NgramUtils::getNgramTypeFromWordCount(i + 1);
-            const float rawProbability =
-                    DynamicLanguageModelProbabilityUtils::computeRawProbabilityFromCounts(
-                            historicalInfo->getCount(), contextCount, ngramType);
-            const int encodedRawProbability =
-                    ProbabilityUtils::encodeRawProbability(rawProbability);
+            const int encodedRawProbability = i == 0
+                    ? getEncodedUnigramProbability(historicalInfo->getCount())
+                    : ProbabilityUtils::encodeRawProbability(
+                            DynamicLanguageModelProbabilityUtils::computeRawProbabilityFromCounts(
+                                    historicalInfo->getCount(), contextCount, ngramType));
             const int decayedProbability =
                     DynamicLanguageModelProbabilityUtils::getDecayedProbability(
                             encodedRawProbability, *historicalInfo);
@@ -231,6 +238,7 @@ bool LanguageModelDictContent::updateAllEntriesOnInputWord(const WordIdArrayView
         return false;
     }
     mGlobalCounters.incrementTotalCount();
+    updateUnigramProbabilityTable();
     mGlobalCounters.updateMaxValueOfCounters(
             updatedUnigramProbabilityEntry.getHistoricalInfo()->getCount());
     for (size_t i = 0; i < prevWordIds.size(); ++i) {
@@ -293,6 +301,33 @@ bool LanguageModelDictContent::runGCInner(
     return true;
 }
 
+void LanguageModelDictContent::updateUnigramProbabilityTable() {
+    if (!mHasHistoricalInfo) {
+        return;
+    }
+    const int contextCount = DynamicLanguageModelProbabilityUtils::getEffectiveContextCount(
+            mGlobalCounters.getTotalCount(), NgramType::Unigram);
+    if (!mUnigramProbabilityTable.empty() && contextCount == mUnigramProbabilityTableContextCount) {
+        return;
+    }
+    mUnigramProbabilityTable.resize(UNIGRAM_PROBABILITY_TABLE_SIZE);
+    for (int count = 0; count < UNIGRAM_PROBABILITY_TABLE_SIZE; ++count) {
+        mUnigramProbabilityTable[count] = ProbabilityUtils::encodeRawProbability(
+                DynamicLanguageModelProbabilityUtils::computeRawProbabilityFromCounts(
+                        count, contextCount, NgramType::Unigram));
+    }
+    mUnigramProbabilityTableContextCount = contextCount;
+}
+
+int LanguageModelDictContent::getEncodedUnigramProbability(const int count) const {
+    if (count >= 0 && count < static_cast<int>(mUnigramProbabilityTable.size())) {
+        return mUnigramProbabilityTable[count];
+    }
+    return ProbabilityUtils::encodeRawProbability(
+            DynamicLanguageModelProbabilityUtils::computeRawProbabilityFromCounts(
+                    count, mGlobalCounters.getTotalCount(), NgramType::Unigram));
+}
+
 int LanguageModelDictContent::createAndGetBitmapEntryIndex(const WordIdArrayView prevWordIds) {
     int lastBitmapEntryIndex = mTrieMap.getRootBitmapEntryIndex();
     for (const int wordId : prevWordIds) {
@@ -136,10 +136,16 @@ class LanguageModelDictContent {
             const bool hasHistoricalInfo)
             : mTrieMap(buffers[TRIE_MAP_BUFFER_INDEX]),
               mGlobalCounters(buffers[GLOBAL_COUNTERS_BUFFER_INDEX]),
-              mHasHistoricalInfo(hasHistoricalInfo) {}
+              mHasHistoricalInfo(hasHistoricalInfo), mUnigramProbabilityTable(),
+              mUnigramProbabilityTableContextCount(0) {
+        updateUnigramProbabilityTable();
+    }
 
     explicit LanguageModelDictContent(const bool hasHistoricalInfo)
-            : mTrieMap(), mGlobalCounters(), mHasHistoricalInfo(hasHistoricalInfo) {}
+            : mTrieMap(), mGlobalCounters(), mHasHistoricalInfo(hasHistoricalInfo),
+              mUnigramProbabilityTable(), mUnigramProbabilityTableContextCount(0) {
+        updateUnigramProbabilityTable();
+    }
 
     bool isNearSizeLimit() const {
         return mTrieMap.isNearSizeLimit() || mGlobalCounters.needsToHalveCounters();
@@ -159,6 +165,7 @@ class LanguageModelDictContent {
 
     bool setProbabilityEntry(const int wordId, const ProbabilityEntry *const probabilityEntry) {
         mGlobalCounters.addToTotalCount(probabilityEntry->getHistoricalInfo()->getCount());
+        updateUnigramProbabilityTable();
         return setNgramProbabilityEntry(WordIdArrayView(), wordId, probabilityEntry);
     }
 
@@ -188,6 +195,7 @@ class LanguageModelDictContent {
         }
         if (mGlobalCounters.needsToHalveCounters()) {
             mGlobalCounters.halveCounters();
+            updateUnigramProbabilityTable();
         }
         return true;
     }
@@ -230,10 +238,19 @@ class LanguageModelDictContent {
 
     static const int TRIE_MAP_BUFFER_INDEX;
     static const int GLOBAL_COUNTERS_BUFFER_INDEX;
+    static const int UNIGRAM_PROBABILITY_TABLE_SIZE;
 
     TrieMap mTrieMap;
     LanguageModelDictContentGlobalCounters mGlobalCounters;
     const bool mHasHistoricalInfo;
+    // With historical info, the encoded unigram probability before decaying for each count below
+    // UNIGRAM_PROBABILITY_TABLE_SIZE. It only depends on the total count, so it is computed in one
+    // batch whenever the total count changes instead of on each lookup during traversal.
+    std::vector<int> mUnigramProbabilityTable;
+    int mUnigramProbabilityTableContextCount;
+
+    void updateUnigramProbabilityTable();
+    int getEncodedUnigramProbability(const int count) const;
 
     bool runGCInner(const TerminalPositionLookupTable::TerminalIdMap *const terminalIdMap,
             const TrieMap::TrieMapRange trieMapRange, const int nextLevelBitmapEntryIndex);
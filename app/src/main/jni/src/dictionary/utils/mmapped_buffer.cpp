@@ -16,6 +16,7 @@
 
 #include "dictionary/utils/mmapped_buffer.h"
 
+#include <algorithm>
 #include <cerrno>
 #include <climits>
 #include <cstdio>
@@ -81,6 +82,24 @@ namespace latinime {
     return openBuffer(filePath, isUpdatable);
 }
 
+void MmappedBuffer::adviseWillNeed(const int offset, const int size) const {
+    if (mAlignedSize == 0 || size <= 0) {
+        return;
+    }
+    // madvise needs a page aligned start address.
+    uint8_t *const mmappedStart = static_cast<uint8_t *>(mMmappedBuffer);
+    const int pagesize = sysconf(_SC_PAGESIZE);
+    const int start = static_cast<int>(mByteArrayView.data() + offset - mmappedStart);
+    const int alignedStart = start - start % pagesize;
+    const int end = std::min(start + size, mAlignedSize);
+    if (alignedStart >= end) {
+        return;
+    }
+    if (madvise(mmappedStart + alignedStart, end - alignedStart, MADV_WILLNEED) != 0) {
+        AKLOGI("DICT: madvise failed. errno=%d", errno);
+    }
+}
+
 MmappedBuffer::~MmappedBuffer() {
     if (mAlignedSize == 0) {
         return;
@@ -52,6 +52,10 @@ class MmappedBuffer {
         return mIsUpdatable;
     }
 
+    // Lets the kernel start reading the given range of the buffer in the background. This only
+    // affects performance, so failures are ignored.
+    void adviseWillNeed(const int offset, const int size) const;
+
  private:
     AK_FORCE_INLINE MmappedBuffer(uint8_t *const buffer, const int bufferSize,
             void *const mmappedBuffer, const int alignedSize, const int mmapFd,
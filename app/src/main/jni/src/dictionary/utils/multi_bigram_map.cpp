@@ -25,7 +25,7 @@ namespace latinime {
 // could improve bigram lookup speed for multi-word suggestions, but at the cost of more memory
 // usage. Also, there are diminishing returns since the most frequently used bigrams are
 // typically near the beginning of the input and are thus the first ones to be cached. Note
-// that these bigrams are reset for each new composing word.
+// that these bigrams are reset when the previous words change, see DicTraverseSession::init().
 const size_t MultiBigramMap::MAX_CACHED_PREV_WORDS_IN_BIGRAM_MAP = 25;
 
 // Most common previous word contexts currently have 100 bigrams
@@ -41,7 +41,8 @@ class DicNodesCache {
               mNextActiveDicNodes(&mDicNodePriorityQueue1),
               mCachedDicNodesForContinuousSuggestion(&mDicNodePriorityQueue2),
               mTerminalDicNodes(&mDicNodePriorityQueueForTerminal),
-              mInputIndex(0), mLastCachedInputIndex(0) {}
+              mInputIndex(0), mLastCachedInputIndex(0), mPoppedActiveDicNodeCount(0),
+              mMaxNextActiveDicNodeCount(0) {}
 
     AK_FORCE_INLINE virtual ~DicNodesCache() {}
 
@@ -70,6 +71,8 @@ class DicNodesCache {
         if (DEBUG_DICT_FULL) {
             mNextActiveDicNodes->dump();
         }
+        mMaxNextActiveDicNodeCount =
+                std::max(mMaxNextActiveDicNodeCount, mNextActiveDicNodes->getSize());
         mNextActiveDicNodes =
                 moveNodesAndReturnReusableEmptyQueue(mNextActiveDicNodes, &mActiveDicNodes);
     }
@@ -107,6 +110,7 @@ class DicNodesCache {
 
     void popActive(DicNode *dest) {
         mActiveDicNodes->copyPop(dest);
+        ++mPoppedActiveDicNodeCount;
     }
 
     bool hasCachedDicNodesForContinuousSuggestion() const {
@@ -127,6 +131,20 @@ class DicNodesCache {
         mLastCachedInputIndex = mInputIndex;
     }
 
+    AK_FORCE_INLINE int getCacheCapacity() const {
+        return mUsesLargeCapacityCache ?
+                LARGE_PRIORITY_QUEUE_CAPACITY : SMALL_PRIORITY_QUEUE_CAPACITY;
+    }
+
+    // Statistics for benchmarks, they are not reset by reset() or continueSearch().
+    int getPoppedActiveDicNodeCount() const { return mPoppedActiveDicNodeCount; }
+    int getMaxNextActiveDicNodeCount() const { return mMaxNextActiveDicNodeCount; }
+
+    void resetStatistics() {
+        mPoppedActiveDicNodeCount = 0;
+        mMaxNextActiveDicNodeCount = 0;
+    }
+
  private:
     DISALLOW_COPY_AND_ASSIGN(DicNodesCache);
 
@@ -154,11 +172,6 @@ class DicNodesCache {
         return tmp;
     }
 
-    AK_FORCE_INLINE int getCacheCapacity() const {
-        return mUsesLargeCapacityCache ?
-                LARGE_PRIORITY_QUEUE_CAPACITY : SMALL_PRIORITY_QUEUE_CAPACITY;
-    }
-
     AK_FORCE_INLINE void resetTemporaryCaches() {
         mActiveDicNodes->clear();
         mNextActiveDicNodes->clear();
@@ -185,6 +198,10 @@ class DicNodesCache {
     DicNodePriorityQueue *mTerminalDicNodes;
     int mInputIndex;
     int mLastCachedInputIndex;
+    // Number of expanded DicNodes since the last resetStatistics().
+    int mPoppedActiveDicNodeCount;
+    // Largest number of DicNodes in the next active queue since the last resetStatistics().
+    int mMaxNextActiveDicNodeCount;
 };
 } // namespace latinime
 #endif // LATINIME_DIC_NODES_CACHE_H
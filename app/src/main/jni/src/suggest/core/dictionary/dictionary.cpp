@@ -35,12 +35,14 @@
 namespace latinime {
 
 const int Dictionary::HEADER_ATTRIBUTE_BUFFER_SIZE = 32;
+std::atomic<uint64_t> Dictionary::sNextContentVersion(1);
 
 Dictionary::Dictionary(JNIEnv *env, DictionaryStructureWithBufferPolicy::StructurePolicyPtr
         dictionaryStructureWithBufferPolicy)
         : mDictionaryStructureWithBufferPolicy(std::move(dictionaryStructureWithBufferPolicy)),
           mGestureSuggest(new Suggest(GestureSuggestPolicyFactory::getGestureSuggestPolicy())),
-          mTypingSuggest(new Suggest(TypingSuggestPolicyFactory::getTypingSuggestPolicy())) {
+          mTypingSuggest(new Suggest(TypingSuggestPolicyFactory::getTypingSuggestPolicy())),
+          mContentVersion(sNextContentVersion++) {
     logDictionaryInfo(env);
 }
 
@@ -135,22 +137,26 @@ bool Dictionary::addUnigramEntry(const CodePointArrayView codePoints,
         return false;
     }
     TimeKeeper::setCurrentTime();
+    onContentChanged();
     return mDictionaryStructureWithBufferPolicy->addUnigramEntry(codePoints, unigramProperty);
 }
 
 bool Dictionary::removeUnigramEntry(const CodePointArrayView codePoints) {
     TimeKeeper::setCurrentTime();
+    onContentChanged();
     return mDictionaryStructureWithBufferPolicy->removeUnigramEntry(codePoints);
 }
 
 bool Dictionary::addNgramEntry(const NgramProperty *const ngramProperty) {
     TimeKeeper::setCurrentTime();
+    onContentChanged();
     return mDictionaryStructureWithBufferPolicy->addNgramEntry(ngramProperty);
 }
 
 bool Dictionary::removeNgramEntry(const NgramContext *const ngramContext,
         const CodePointArrayView codePoints) {
     TimeKeeper::setCurrentTime();
+    onContentChanged();
     return mDictionaryStructureWithBufferPolicy->removeNgramEntry(ngramContext, codePoints);
 }
 
@@ -158,6 +164,7 @@ bool Dictionary::updateEntriesForWordWithNgramContext(const NgramContext *const
         const CodePointArrayView codePoints, const bool isValidWord,
         const HistoricalInfo historicalInfo) {
     TimeKeeper::setCurrentTime();
+    onContentChanged();
     return mDictionaryStructureWithBufferPolicy->updateEntriesForWordWithNgramContext(ngramContext,
             codePoints, isValidWord, historicalInfo);
 }
@@ -169,6 +176,7 @@ bool Dictionary::flush(const char *const filePath) {
 
 bool Dictionary::flushWithGC(const char *const filePath) {
     TimeKeeper::setCurrentTime();
+    onContentChanged();
     return mDictionaryStructureWithBufferPolicy->flushWithGC(filePath);
 }
 
@@ -196,6 +204,11 @@ int Dictionary::getNextWordAndNextToken(const int token, int *const outCodePoint
             token, outCodePoints, outCodePointCount);
 }
 
+int Dictionary::warmUp() const {
+    TimeKeeper::setCurrentTime();
+    return DictionaryUtils::warmUp(mDictionaryStructureWithBufferPolicy.get());
+}
+
 void Dictionary::logDictionaryInfo(JNIEnv *const env) const {
     int dictionaryIdCodePointBuffer[HEADER_ATTRIBUTE_BUFFER_SIZE];
     int versionStringCodePointBuffer[HEADER_ATTRIBUTE_BUFFER_SIZE];
@@ -17,6 +17,8 @@
 #ifndef LATINIME_DICTIONARY_H
 #define LATINIME_DICTIONARY_H
 
+#include <atomic>
+#include <cstdint>
 #include <memory>
 
 #include "defines.h"
@@ -112,10 +114,20 @@ class Dictionary {
     int getNextWordAndNextToken(const int token, int *const outCodePoints,
             int *const outCodePointCount);
 
+    // Loads the parts of the dictionary needed for the first suggestions, see
+    // DictionaryUtils::warmUp().
+    int warmUp() const;
+
     const DictionaryStructureWithBufferPolicy *getDictionaryStructurePolicy() const {
         return mDictionaryStructureWithBufferPolicy.get();
     }
 
+    // Changes whenever the dictionary content may have changed. Versions are unique across all
+    // dictionaries, so caches of the content can be validated by comparing only the version.
+    uint64_t getContentVersion() const {
+        return mContentVersion;
+    }
+
  private:
     DISALLOW_IMPLICIT_CONSTRUCTORS(Dictionary);
 
@@ -138,13 +150,19 @@ class Dictionary {
     };
 
     static const int HEADER_ATTRIBUTE_BUFFER_SIZE;
+    static std::atomic<uint64_t> sNextContentVersion;
 
     const DictionaryStructureWithBufferPolicy::StructurePolicyPtr
             mDictionaryStructureWithBufferPolicy;
     const SuggestInterfacePtr mGestureSuggest;
     const SuggestInterfacePtr mTypingSuggest;
+    uint64_t mContentVersion;
 
     void logDictionaryInfo(JNIEnv *const env) const;
+
+    void onContentChanged() {
+        mContentVersion = sNextContentVersion++;
+    }
 };
 } // namespace latinime
 #endif // LATINIME_DICTIONARY_H
@@ -16,6 +16,9 @@
 
 #include "suggest/core/dictionary/dictionary_utils.h"
 
+#include <algorithm>
+#include <functional>
+
 #include "dictionary/interface/dictionary_structure_with_buffer_policy.h"
 #include "dictionary/property/ngram_context.h"
 #include "suggest/core/dicnode/dic_node.h"
@@ -27,6 +30,11 @@
 
 namespace latinime {
 
+// Most words typed are short and frequent, and the suggestion search reads the top levels of
+// the trie for any input.
+const int DictionaryUtils::WARM_UP_PT_NODE_DEPTH = 3;
+const int DictionaryUtils::WARM_UP_NGRAM_WORD_COUNT = 100;
+
 /* static */ int DictionaryUtils::getMaxProbabilityOfExactMatches(
         const DictionaryStructureWithBufferPolicy *const dictionaryStructurePolicy,
         const CodePointArrayView codePoints) {
@@ -97,4 +105,47 @@ namespace latinime {
     }
 }
 
+/* static */ int DictionaryUtils::warmUp(
+        const DictionaryStructureWithBufferPolicy *const dictionaryStructurePolicy) {
+    DicNode rootDicNode;
+    DicNodeUtils::initAsRoot(dictionaryStructurePolicy, WordIdArrayView(), &rootDicNode);
+    std::vector<std::pair<int, int>> probabilitiesAndWordIds;
+    collectWordsInTopLevels(dictionaryStructurePolicy, &rootDicNode, WARM_UP_PT_NODE_DEPTH,
+            &probabilitiesAndWordIds);
+    const int ngramWordCount = std::min(WARM_UP_NGRAM_WORD_COUNT,
+            static_cast<int>(probabilitiesAndWordIds.size()));
+    std::partial_sort(probabilitiesAndWordIds.begin(),
+            probabilitiesAndWordIds.begin() + ngramWordCount, probabilitiesAndWordIds.end(),
+            std::greater<std::pair<int, int>>());
+    NgramCounter ngramCounter;
+    for (int i = 0; i < ngramWordCount; ++i) {
+        const int prevWordId = probabilitiesAndWordIds[i].second;
+        dictionaryStructurePolicy->iterateNgramEntries(WordIdArrayView::singleElementView(
+                &prevWordId), &ngramCounter);
+    }
+    return ngramCounter.getCount();
+}
+
+/* static */ void DictionaryUtils::collectWordsInTopLevels(
+        const DictionaryStructureWithBufferPolicy *const dictionaryStructurePolicy,
+        const DicNode *const parentDicNode, const int remainingDepth,
+        std::vector<std::pair<int, int>> *const outProbabilitiesAndWordIds) {
+    DicNodeVector childDicNodes;
+    DicNodeUtils::getAllChildDicNodes(parentDicNode, dictionaryStructurePolicy, &childDicNodes);
+    for (int childIndex = 0; childIndex < childDicNodes.getSizeAndLock(); ++childIndex) {
+        const DicNode *const childDicNode = childDicNodes[childIndex];
+        const int wordId = childDicNode->getWordId();
+        if (wordId != NOT_A_WORD_ID) {
+            const WordAttributes wordAttributes =
+                    dictionaryStructurePolicy->getWordAttributesInContext(WordIdArrayView(),
+                            wordId, nullptr /* multiBigramMap */);
+            outProbabilitiesAndWordIds->emplace_back(wordAttributes.getProbability(), wordId);
+        }
+        if (remainingDepth > 1) {
+            collectWordsInTopLevels(dictionaryStructurePolicy, childDicNode, remainingDepth - 1,
+                    outProbabilitiesAndWordIds);
+        }
+    }
+}
+
 } // namespace latinime
@@ -17,9 +17,11 @@
 #ifndef LATINIME_DICTIONARY_UTILS_H
 #define LATINIME_DICTIONARY_UTILS_H
 
+#include <utility>
 #include <vector>
 
 #include "defines.h"
+#include "dictionary/interface/ngram_listener.h"
 #include "utils/int_array_view.h"
 
 namespace latinime {
@@ -33,9 +35,36 @@ class DictionaryUtils {
             const DictionaryStructureWithBufferPolicy *const dictionaryStructurePolicy,
             const CodePointArrayView codePoints);
 
+    // Reads the top levels of the trie and the n-grams of the most probable words found there,
+    // so the pages needed for the first suggestions are loaded. Returns the number of n-gram
+    // entries read.
+    static int warmUp(const DictionaryStructureWithBufferPolicy *const dictionaryStructurePolicy);
+
  private:
     DISALLOW_IMPLICIT_CONSTRUCTORS(DictionaryUtils);
 
+    static const int WARM_UP_PT_NODE_DEPTH;
+    static const int WARM_UP_NGRAM_WORD_COUNT;
+
+    class NgramCounter : public NgramListener {
+     public:
+        NgramCounter() : mCount(0) {}
+        virtual void onVisitEntry(const int ngramProbability, const int targetWordId) {
+            ++mCount;
+        }
+        int getCount() const { return mCount; }
+
+     private:
+        DISALLOW_COPY_AND_ASSIGN(NgramCounter);
+
+        int mCount;
+    };
+
+    static void collectWordsInTopLevels(
+            const DictionaryStructureWithBufferPolicy *const dictionaryStructurePolicy,
+            const DicNode *const parentDicNode, const int remainingDepth,
+            std::vector<std::pair<int, int>> *const outProbabilitiesAndWordIds);
+
     static void processChildDicNodes(
             const DictionaryStructureWithBufferPolicy *const dictionaryStructurePolicy,
             const int inputCodePoint, const DicNode *const parentDicNode,
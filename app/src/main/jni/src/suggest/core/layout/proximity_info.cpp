@@ -63,7 +63,7 @@ ProximityInfo::ProximityInfo(JNIEnv *env, const int keyboardWidth, const int key
                           static_cast<float>(mostCommonKeyWidth))),
           CELL_WIDTH((keyboardWidth + gridWidth - 1) / gridWidth),
           CELL_HEIGHT((keyboardHeight + gridHeight - 1) / gridHeight),
-          KEY_COUNT(std::min(keyCount, MAX_KEY_COUNT_IN_A_KEYBOARD)),
+          KEY_COUNT(keyCount),
           KEYBOARD_WIDTH(keyboardWidth), KEYBOARD_HEIGHT(keyboardHeight),
           KEYBOARD_HYPOTENUSE(hypotf(KEYBOARD_WIDTH, KEYBOARD_HEIGHT)),
           HAS_TOUCH_POSITION_CORRECTION_DATA(keyCount > 0 && keyXCoordinates && keyYCoordinates
@@ -71,7 +71,13 @@ ProximityInfo::ProximityInfo(JNIEnv *env, const int keyboardWidth, const int key
                   && sweetSpotCenterYs && sweetSpotRadii),
           mProximityCharsArray(new int[GRID_WIDTH * GRID_HEIGHT * MAX_PROXIMITY_CHARS_SIZE
                   /* proximityCharsLength */]),
-          mLowerCodePointToKeyMap() {
+          mKeyXCoordinates(KEY_COUNT), mKeyYCoordinates(KEY_COUNT), mKeyWidths(KEY_COUNT),
+          mKeyHeights(KEY_COUNT), mKeyCodePoints(KEY_COUNT), mSweetSpotCenterXs(KEY_COUNT),
+          mSweetSpotCenterYs(KEY_COUNT), mSweetSpotCenterYsG(KEY_COUNT), mSweetSpotRadii(KEY_COUNT),
+          mLowerCodePointToKeyMap(), mKeyIndexToOriginalCodePoint(KEY_COUNT),
+          mKeyIndexToLowerCodePointG(KEY_COUNT), mCenterXsG(KEY_COUNT), mCenterYsG(KEY_COUNT),
+          mKeyKeyDistancesG(KEY_COUNT * KEY_COUNT), mNearKeyIds(), mNearKeyIdsStartIndices(),
+          mAllKeyIds() {
     /* Let's check the input array length here to make sure */
     const jsize proximityCharsLength = env->GetArrayLength(proximityChars);
     if (proximityCharsLength != GRID_WIDTH * GRID_HEIGHT * MAX_PROXIMITY_CHARS_SIZE) {
@@ -84,14 +90,14 @@ ProximityInfo::ProximityInfo(JNIEnv *env, const int keyboardWidth, const int key
     }
     safeGetOrFillZeroIntArrayRegion(env, proximityChars, proximityCharsLength,
             mProximityCharsArray);
-    safeGetOrFillZeroIntArrayRegion(env, keyXCoordinates, KEY_COUNT, mKeyXCoordinates);
-    safeGetOrFillZeroIntArrayRegion(env, keyYCoordinates, KEY_COUNT, mKeyYCoordinates);
-    safeGetOrFillZeroIntArrayRegion(env, keyWidths, KEY_COUNT, mKeyWidths);
-    safeGetOrFillZeroIntArrayRegion(env, keyHeights, KEY_COUNT, mKeyHeights);
-    safeGetOrFillZeroIntArrayRegion(env, keyCharCodes, KEY_COUNT, mKeyCodePoints);
-    safeGetOrFillZeroFloatArrayRegion(env, sweetSpotCenterXs, KEY_COUNT, mSweetSpotCenterXs);
-    safeGetOrFillZeroFloatArrayRegion(env, sweetSpotCenterYs, KEY_COUNT, mSweetSpotCenterYs);
-    safeGetOrFillZeroFloatArrayRegion(env, sweetSpotRadii, KEY_COUNT, mSweetSpotRadii);
+    safeGetOrFillZeroIntArrayRegion(env, keyXCoordinates, KEY_COUNT, mKeyXCoordinates.data());
+    safeGetOrFillZeroIntArrayRegion(env, keyYCoordinates, KEY_COUNT, mKeyYCoordinates.data());
+    safeGetOrFillZeroIntArrayRegion(env, keyWidths, KEY_COUNT, mKeyWidths.data());
+    safeGetOrFillZeroIntArrayRegion(env, keyHeights, KEY_COUNT, mKeyHeights.data());
+    safeGetOrFillZeroIntArrayRegion(env, keyCharCodes, KEY_COUNT, mKeyCodePoints.data());
+    safeGetOrFillZeroFloatArrayRegion(env, sweetSpotCenterXs, KEY_COUNT, mSweetSpotCenterXs.data());
+    safeGetOrFillZeroFloatArrayRegion(env, sweetSpotCenterYs, KEY_COUNT, mSweetSpotCenterYs.data());
+    safeGetOrFillZeroFloatArrayRegion(env, sweetSpotRadii, KEY_COUNT, mSweetSpotRadii.data());
     initializeG();
 }
 
@@ -169,23 +175,111 @@ void ProximityInfo::initializeG() {
         mKeyIndexToLowerCodePointG[i] = lowerCode;
     }
     for (int i = 0; i < KEY_COUNT; i++) {
-        mKeyKeyDistancesG[i][i] = 0;
+        mKeyKeyDistancesG[i * KEY_COUNT + i] = 0;
         for (int j = i + 1; j < KEY_COUNT; j++) {
             if (hasTouchPositionCorrectionData()) {
                 // Computes distances using sweet spots if they exist.
                 // We have two types of Y coordinate sweet spots, for geometric and for the others.
                 // The sweet spots for geometric input are used for calculating key-key distances
                 // here.
-                mKeyKeyDistancesG[i][j] = GeometryUtils::getDistanceInt(
+                mKeyKeyDistancesG[i * KEY_COUNT + j] = GeometryUtils::getDistanceInt(
                         mSweetSpotCenterXs[i], mSweetSpotCenterYsG[i],
                         mSweetSpotCenterXs[j], mSweetSpotCenterYsG[j]);
             } else {
-                mKeyKeyDistancesG[i][j] = GeometryUtils::getDistanceInt(
+                mKeyKeyDistancesG[i * KEY_COUNT + j] = GeometryUtils::getDistanceInt(
                         mCenterXsG[i], mCenterYsG[i], mCenterXsG[j], mCenterYsG[j]);
             }
-            mKeyKeyDistancesG[j][i] = mKeyKeyDistancesG[i][j];
+            mKeyKeyDistancesG[j * KEY_COUNT + i] = mKeyKeyDistancesG[i * KEY_COUNT + j];
         }
     }
+    initializeNearKeyIds();
+}
+
+void ProximityInfo::initializeNearKeyIds() {
+    mAllKeyIds.resize(KEY_COUNT);
+    for (int i = 0; i < KEY_COUNT; ++i) {
+        mAllKeyIds[i] = i;
+    }
+    if (MOST_COMMON_KEY_WIDTH <= 0 || CELL_WIDTH <= 0 || CELL_HEIGHT <= 0) {
+        // All keys are returned for all points without the grid.
+        return;
+    }
+    // Uses the same grid as the proximity chars, whose cells are a fraction of a key in size.
+    std::vector<std::vector<int>> keyIdsOfCells(GRID_WIDTH * GRID_HEIGHT);
+    const int maxDistance = getMaxNearKeyDistance();
+    for (int keyId = 0; keyId < KEY_COUNT; ++keyId) {
+        // Only the cells around the key centers for both geometric and other input can be near.
+        int minCenterX = S_INT_MAX;
+        int maxCenterX = S_INT_MIN;
+        int minCenterY = S_INT_MAX;
+        int maxCenterY = S_INT_MIN;
+        for (const bool isGeometric : { true, false }) {
+            const int centerX = getKeyCenterXOfKeyIdG(keyId, NOT_A_COORDINATE, isGeometric);
+            const int centerY = getKeyCenterYOfKeyIdG(keyId, NOT_A_COORDINATE, isGeometric);
+            const int keyWidthHalfDiff = getKeyWidthHalfDiff(keyId);
+            minCenterX = std::min(minCenterX, centerX - keyWidthHalfDiff);
+            maxCenterX = std::max(maxCenterX, centerX + keyWidthHalfDiff);
+            minCenterY = std::min(minCenterY, centerY);
+            maxCenterY = std::max(maxCenterY, isOnBottomRow(keyId, centerY)
+                    ? CELL_HEIGHT * GRID_HEIGHT : centerY);
+        }
+        const int firstCellX = std::max(0, (minCenterX - maxDistance) / CELL_WIDTH);
+        const int lastCellX = std::min(GRID_WIDTH - 1, (maxCenterX + maxDistance) / CELL_WIDTH);
+        const int firstCellY = std::max(0, (minCenterY - maxDistance) / CELL_HEIGHT);
+        const int lastCellY = std::min(GRID_HEIGHT - 1, (maxCenterY + maxDistance) / CELL_HEIGHT);
+        for (int cellY = firstCellY; cellY <= lastCellY; ++cellY) {
+            for (int cellX = firstCellX; cellX <= lastCellX; ++cellX) {
+                const int left = cellX * CELL_WIDTH;
+                const int top = cellY * CELL_HEIGHT;
+                const int right = left + CELL_WIDTH - 1;
+                const int bottom = top + CELL_HEIGHT - 1;
+                if (mayBeNearKey(keyId, left, top, right, bottom, true /* isGeometric */)
+                        || mayBeNearKey(keyId, left, top, right, bottom,
+                                false /* isGeometric */)) {
+                    keyIdsOfCells[cellY * GRID_WIDTH + cellX].push_back(keyId);
+                }
+            }
+        }
+    }
+    mNearKeyIdsStartIndices.reserve(keyIdsOfCells.size() + 1);
+    for (const std::vector<int> &keyIds : keyIdsOfCells) {
+        mNearKeyIdsStartIndices.push_back(static_cast<int>(mNearKeyIds.size()));
+        mNearKeyIds.insert(mNearKeyIds.end(), keyIds.begin(), keyIds.end());
+    }
+    mNearKeyIdsStartIndices.push_back(static_cast<int>(mNearKeyIds.size()));
+}
+
+// Returns whether a point in the given rectangle can be nearer to the key than
+// ProximityInfoParams::NEAR_KEY_THRESHOLD_FOR_DISTANCE. The key center is the line segment that
+// getKeyCenterXOfKeyIdG and getKeyCenterYOfKeyIdG use for wide keys and keys on the bottom row.
+bool ProximityInfo::mayBeNearKey(const int keyId, const int left, const int top, const int right,
+        const int bottom, const bool isGeometric) const {
+    const int centerX = getKeyCenterXOfKeyIdG(keyId, NOT_A_COORDINATE, isGeometric);
+    const int centerY = getKeyCenterYOfKeyIdG(keyId, NOT_A_COORDINATE, isGeometric);
+    const int keyWidthHalfDiff = getKeyWidthHalfDiff(keyId);
+    const int distanceX = std::max(0, std::max(centerX - keyWidthHalfDiff - right,
+            left - centerX - keyWidthHalfDiff));
+    const int distanceY = std::max(0, isOnBottomRow(keyId, centerY) ? centerY - bottom
+            : std::max(centerY - bottom, top - centerY));
+    const int maxDistance = getMaxNearKeyDistance();
+    return distanceX * distanceX + distanceY * distanceY <= maxDistance * maxDistance;
+}
+
+int ProximityInfo::getMaxNearKeyDistance() const {
+    // One pixel more for rounding errors.
+    return static_cast<int>(ceilf(sqrtf(ProximityInfoParams::NEAR_KEY_THRESHOLD_FOR_DISTANCE)
+            * static_cast<float>(MOST_COMMON_KEY_WIDTH))) + 1;
+}
+
+IntArrayView ProximityInfo::getNearKeyIds(const int x, const int y) const {
+    if (mNearKeyIdsStartIndices.empty() || x < 0 || y < 0 || x >= CELL_WIDTH * GRID_WIDTH
+            || y >= CELL_HEIGHT * GRID_HEIGHT) {
+        return IntArrayView(mAllKeyIds);
+    }
+    const int cellIndex = (y / CELL_HEIGHT) * GRID_WIDTH + x / CELL_WIDTH;
+    const int startIndex = mNearKeyIdsStartIndices[cellIndex];
+    return IntArrayView(mNearKeyIds.data() + startIndex,
+            mNearKeyIdsStartIndices[cellIndex + 1] - startIndex);
 }
 
 // referencePointX is used only for keys wider than most common key width. When the referencePointX
@@ -244,7 +338,7 @@ int ProximityInfo::getKeyCenterYOfKeyIdG(
 
 int ProximityInfo::getKeyKeyDistanceG(const int keyId0, const int keyId1) const {
     if (keyId0 >= 0 && keyId1 >= 0) {
-        return mKeyKeyDistancesG[keyId0][keyId1];
+        return mKeyKeyDistancesG[keyId0 * KEY_COUNT + keyId1];
     }
     return MAX_VALUE_FOR_WEIGHTING;
 }
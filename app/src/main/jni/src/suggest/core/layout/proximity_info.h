@@ -17,12 +17,14 @@
 #ifndef LATINIME_PROXIMITY_INFO_H
 #define LATINIME_PROXIMITY_INFO_H
 
+#include <algorithm>
 #include <unordered_map>
 #include <vector>
 
 #include "defines.h"
 #include "jni.h"
 #include "suggest/core/layout/proximity_info_utils.h"
+#include "utils/int_array_view.h"
 
 namespace latinime {
 
@@ -69,14 +71,19 @@ class ProximityInfo {
     int getKeyCenterYOfKeyIdG(
             const int keyId, const int referencePointY, const bool isGeometric) const;
     int getKeyKeyDistanceG(int keyId0, int keyId1) const;
+    // Returns the ids of the keys whose normalized squared distance from the given point can be
+    // below ProximityInfoParams::NEAR_KEY_THRESHOLD_FOR_DISTANCE, using a grid built when the
+    // keyboard is created. The ids of a few farther keys may be included as well, and all key
+    // ids are returned for points outside the keyboard.
+    IntArrayView getNearKeyIds(const int x, const int y) const;
 
     AK_FORCE_INLINE void initializeProximities(const int *const inputCodes,
             const int *const inputXCoordinates, const int *const inputYCoordinates,
             const int inputSize, int *allInputCodes, const std::vector<int> *locale) const {
         ProximityInfoUtils::initializeProximities(inputCodes, inputXCoordinates, inputYCoordinates,
-                inputSize, mKeyXCoordinates, mKeyYCoordinates, mKeyWidths, mKeyHeights,
-                mProximityCharsArray, CELL_HEIGHT, CELL_WIDTH, GRID_WIDTH, MOST_COMMON_KEY_WIDTH,
-                KEY_COUNT, locale, &mLowerCodePointToKeyMap, allInputCodes);
+                inputSize, mKeyXCoordinates.data(), mKeyYCoordinates.data(), mKeyWidths.data(),
+                mKeyHeights.data(), mProximityCharsArray, CELL_HEIGHT, CELL_WIDTH, GRID_WIDTH,
+                MOST_COMMON_KEY_WIDTH, KEY_COUNT, locale, &mLowerCodePointToKeyMap, allInputCodes);
     }
 
     AK_FORCE_INLINE int getKeyIndexOf(const int c) const {
@@ -91,6 +98,21 @@ class ProximityInfo {
     DISALLOW_IMPLICIT_CONSTRUCTORS(ProximityInfo);
 
     void initializeG();
+    void initializeNearKeyIds();
+    bool mayBeNearKey(const int keyId, const int left, const int top, const int right,
+            const int bottom, const bool isGeometric) const;
+    int getMaxNearKeyDistance() const;
+
+    // For keys wider than most common keys, getKeyCenterXOfKeyIdG uses a line segment of twice this
+    // length instead of the center point.
+    int getKeyWidthHalfDiff(const int keyId) const {
+        return std::max(0, (mKeyWidths[keyId] - MOST_COMMON_KEY_WIDTH) / 2);
+    }
+
+    // getKeyCenterYOfKeyIdG extends the center point of keys on the bottom row to the bottom edge.
+    bool isOnBottomRow(const int keyId, const int centerY) const {
+        return centerY + mKeyHeights[keyId] > KEYBOARD_HEIGHT;
+    }
 
     const int GRID_WIDTH;
     const int GRID_HEIGHT;
@@ -105,22 +127,28 @@ class ProximityInfo {
     const float KEYBOARD_HYPOTENUSE;
     const bool HAS_TOUCH_POSITION_CORRECTION_DATA;
     int *mProximityCharsArray;
-    int mKeyXCoordinates[MAX_KEY_COUNT_IN_A_KEYBOARD];
-    int mKeyYCoordinates[MAX_KEY_COUNT_IN_A_KEYBOARD];
-    int mKeyWidths[MAX_KEY_COUNT_IN_A_KEYBOARD];
-    int mKeyHeights[MAX_KEY_COUNT_IN_A_KEYBOARD];
-    int mKeyCodePoints[MAX_KEY_COUNT_IN_A_KEYBOARD];
-    float mSweetSpotCenterXs[MAX_KEY_COUNT_IN_A_KEYBOARD];
-    float mSweetSpotCenterYs[MAX_KEY_COUNT_IN_A_KEYBOARD];
+    std::vector<int> mKeyXCoordinates;
+    std::vector<int> mKeyYCoordinates;
+    std::vector<int> mKeyWidths;
+    std::vector<int> mKeyHeights;
+    std::vector<int> mKeyCodePoints;
+    std::vector<float> mSweetSpotCenterXs;
+    std::vector<float> mSweetSpotCenterYs;
     // Sweet spots for geometric input. Note that we have extra sweet spots only for Y coordinates.
-    float mSweetSpotCenterYsG[MAX_KEY_COUNT_IN_A_KEYBOARD];
-    float mSweetSpotRadii[MAX_KEY_COUNT_IN_A_KEYBOARD];
+    std::vector<float> mSweetSpotCenterYsG;
+    std::vector<float> mSweetSpotRadii;
     std::unordered_map<int, int> mLowerCodePointToKeyMap;
-    int mKeyIndexToOriginalCodePoint[MAX_KEY_COUNT_IN_A_KEYBOARD];
-    int mKeyIndexToLowerCodePointG[MAX_KEY_COUNT_IN_A_KEYBOARD];
-    int mCenterXsG[MAX_KEY_COUNT_IN_A_KEYBOARD];
-    int mCenterYsG[MAX_KEY_COUNT_IN_A_KEYBOARD];
-    int mKeyKeyDistancesG[MAX_KEY_COUNT_IN_A_KEYBOARD][MAX_KEY_COUNT_IN_A_KEYBOARD];
+    std::vector<int> mKeyIndexToOriginalCodePoint;
+    std::vector<int> mKeyIndexToLowerCodePointG;
+    std::vector<int> mCenterXsG;
+    std::vector<int> mCenterYsG;
+    // KEY_COUNT * KEY_COUNT distances, indexed by keyId0 * KEY_COUNT + keyId1.
+    std::vector<int> mKeyKeyDistancesG;
+    // The ids of the near keys of each grid cell, stored one cell after another. The ids of the
+    // cell at index i are in [mNearKeyIdsStartIndices[i], mNearKeyIdsStartIndices[i + 1]).
+    std::vector<int> mNearKeyIds;
+    std::vector<int> mNearKeyIdsStartIndices;
+    std::vector<int> mAllKeyIds;
 };
 } // namespace latinime
 #endif // LATINIME_PROXIMITY_INFO_H
@@ -124,9 +124,9 @@ void ProximityInfoState::initInputParams(const int pointerId, const float maxPoi
     }
 
     if (mSampledInputSize > 0) {
-        ProximityInfoStateUtils::initGeometricDistanceInfos(mProximityInfo, mSampledInputSize,
-                lastSavedInputSize, isGeometric, &mSampledInputXs, &mSampledInputYs,
-                &mSampledNormalizedSquaredLengthCache);
+        ProximityInfoStateUtils::initGeometricDistanceInfos(mProximityInfo, mMaxPointToKeyLength,
+                mSampledInputSize, lastSavedInputSize, isGeometric, &mSampledInputXs,
+                &mSampledInputYs, &mSampledNormalizedSquaredLengthCache);
         if (isGeometric) {
             // updates probabilities of skipping or mapping each key for all points.
             ProximityInfoStateUtils::updateAlignPointProbabilities(
@@ -276,7 +276,7 @@ ProximityType ProximityInfoState::getProximityTypeG(const int index, const int c
 
 bool ProximityInfoState::isKeyInSerchKeysAfterIndex(const int index, const int keyId) const {
     ASSERT(keyId >= 0 && index >= 0 && index < mSampledInputSize);
-    return mSampledSearchKeySets[index].test(keyId);
+    return mSampledSearchKeySets[index][keyId];
 }
 
 float ProximityInfoState::getDirection(const int index0, const int index1) const {
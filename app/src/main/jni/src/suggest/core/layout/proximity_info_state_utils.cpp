@@ -28,6 +28,7 @@
 #include "suggest/core/layout/normal_distribution_2d.h"
 #include "suggest/core/layout/proximity_info.h"
 #include "suggest/core/layout/proximity_info_params.h"
+#include "utils/int_array_view.h"
 
 namespace latinime {
 
@@ -184,23 +185,33 @@ namespace latinime {
     return squaredDistance / squaredRadius;
 }
 
+// The cached distances are only read capped at maxPointToKeyLength. When the keys that are not
+// near a point are farther than that anyway, only the distances of the near keys are calculated.
 /* static */ void ProximityInfoStateUtils::initGeometricDistanceInfos(
-        const ProximityInfo *const proximityInfo, const int sampledInputSize,
-        const int lastSavedInputSize, const bool isGeometric,
+        const ProximityInfo *const proximityInfo, const float maxPointToKeyLength,
+        const int sampledInputSize, const int lastSavedInputSize, const bool isGeometric,
         const std::vector<int> *const sampledInputXs,
         const std::vector<int> *const sampledInputYs,
         std::vector<float> *sampledNormalizedSquaredLengthCache) {
     const int keyCount = proximityInfo->getKeyCount();
+    const bool onlyNearKeys =
+            maxPointToKeyLength <= ProximityInfoParams::NEAR_KEY_THRESHOLD_FOR_DISTANCE;
     sampledNormalizedSquaredLengthCache->resize(sampledInputSize * keyCount);
     for (int i = lastSavedInputSize; i < sampledInputSize; ++i) {
-        for (int k = 0; k < keyCount; ++k) {
-            const int index = i * keyCount + k;
-            const int x = (*sampledInputXs)[i];
-            const int y = (*sampledInputYs)[i];
-            const float normalizedSquaredDistance =
-                    proximityInfo->getNormalizedSquaredDistanceFromCenterFloatG(
-                            k, x, y, isGeometric);
-            (*sampledNormalizedSquaredLengthCache)[index] = normalizedSquaredDistance;
+        const int x = (*sampledInputXs)[i];
+        const int y = (*sampledInputYs)[i];
+        float *const distances = sampledNormalizedSquaredLengthCache->data() + i * keyCount;
+        if (!onlyNearKeys) {
+            for (int k = 0; k < keyCount; ++k) {
+                distances[k] = proximityInfo->getNormalizedSquaredDistanceFromCenterFloatG(
+                        k, x, y, isGeometric);
+            }
+            continue;
+        }
+        std::fill(distances, distances + keyCount, maxPointToKeyLength);
+        for (const int k : proximityInfo->getNearKeyIds(x, y)) {
+            distances[k] = proximityInfo->getNormalizedSquaredDistanceFromCenterFloatG(
+                    k, x, y, isGeometric);
         }
     }
 }
@@ -315,9 +326,9 @@ namespace latinime {
         const ProximityInfo *const proximityInfo, const float maxPointToKeyLength, const int x,
         const int y, const bool isGeometric, NearKeysDistanceMap *const currentNearKeysDistances) {
     currentNearKeysDistances->clear();
-    const int keyCount = proximityInfo->getKeyCount();
+    const IntArrayView nearKeyIds = proximityInfo->getNearKeyIds(x, y);
     float nearestKeyDistance = maxPointToKeyLength;
-    for (int k = 0; k < keyCount; ++k) {
+    for (const int k : nearKeyIds) {
         const float dist = proximityInfo->getNormalizedSquaredDistanceFromCenterFloatG(k, x, y,
                 isGeometric);
         if (dist < ProximityInfoParams::NEAR_KEY_THRESHOLD_FOR_DISTANCE) {
@@ -327,6 +338,16 @@ namespace latinime {
             nearestKeyDistance = dist;
         }
     }
+    const int keyCount = proximityInfo->getKeyCount();
+    if (nearestKeyDistance >= ProximityInfoParams::NEAR_KEY_THRESHOLD_FOR_DISTANCE
+            && static_cast<int>(nearKeyIds.size()) < keyCount) {
+        // No key is near the point, so the nearest key can be any of the others.
+        for (int k = 0; k < keyCount; ++k) {
+            nearestKeyDistance = std::min(nearestKeyDistance,
+                    proximityInfo->getNormalizedSquaredDistanceFromCenterFloatG(k, x, y,
+                            isGeometric));
+        }
+    }
     return nearestKeyDistance;
 }
 
@@ -830,9 +851,10 @@ namespace latinime {
     const int readForwordLength = static_cast<int>(
             hypotf(proximityInfo->getKeyboardWidth(), proximityInfo->getKeyboardHeight())
                     * ProximityInfoParams::SEARCH_KEY_RADIUS_RATIO);
+    const int keyCount = proximityInfo->getKeyCount();
     for (int i = 0; i < sampledInputSize; ++i) {
         if (i >= lastSavedInputSize) {
-            (*sampledSearchKeySets)[i].reset();
+            (*sampledSearchKeySets)[i].assign(keyCount, false);
         }
         for (int j = std::max(i, lastSavedInputSize); j < sampledInputSize; ++j) {
             // TODO: Investigate if this is required. This may not fail.
@@ -843,16 +865,15 @@ namespace latinime {
                 if (charProbability.first == NOT_AN_INDEX) {
                     continue;
                 }
-                (*sampledSearchKeySets)[i].set(charProbability.first);
+                (*sampledSearchKeySets)[i][charProbability.first] = true;
             }
         }
     }
-    const int keyCount = proximityInfo->getKeyCount();
     for (int i = 0; i < sampledInputSize; ++i) {
         std::vector<int> *searchKeyVector = &(*sampledSearchKeyVectors)[i];
         searchKeyVector->clear();
         for (int j = 0; j < keyCount; ++j) {
-            if ((*sampledSearchKeySets)[i].test(j)) {
+            if ((*sampledSearchKeySets)[i][j]) {
                 const int keyCodePoint = proximityInfo->getCodePointOf(j);
                 if (std::find(searchKeyVector->begin(), searchKeyVector->end(), keyCodePoint)
                         == searchKeyVector->end()) {
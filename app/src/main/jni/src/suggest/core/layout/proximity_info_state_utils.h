@@ -17,7 +17,6 @@
 #ifndef LATINIME_PROXIMITY_INFO_STATE_UTILS_H
 #define LATINIME_PROXIMITY_INFO_STATE_UTILS_H
 
-#include <bitset>
 #include <unordered_map>
 #include <vector>
 
@@ -30,7 +29,8 @@ class ProximityInfoParams;
 class ProximityInfoStateUtils {
  public:
     typedef std::unordered_map<int, float> NearKeysDistanceMap;
-    typedef std::bitset<MAX_KEY_COUNT_IN_A_KEYBOARD> NearKeycodesSet;
+    // Indexed by key id.
+    typedef std::vector<bool> NearKeycodesSet;
 
     static int trimLastTwoTouchPoints(std::vector<int> *sampledInputXs,
             std::vector<int> *sampledInputYs, std::vector<int> *sampledInputTimes,
@@ -83,7 +83,8 @@ class ProximityInfoStateUtils {
             const std::vector<float> *const sampledNormalizedSquaredLengthCache, const int keyCount,
             const int inputIndex, const int keyId);
     static void initGeometricDistanceInfos(const ProximityInfo *const proximityInfo,
-            const int sampledInputSize, const int lastSavedInputSize, const bool isGeometric,
+            const float maxPointToKeyLength, const int sampledInputSize,
+            const int lastSavedInputSize, const bool isGeometric,
             const std::vector<int> *const sampledInputXs,
             const std::vector<int> *const sampledInputYs,
             std::vector<float> *sampledNormalizedSquaredLengthCache);
@@ -16,6 +16,8 @@
 
 #include "suggest/core/session/dic_traverse_session.h"
 
+#include <algorithm>
+
 #include "defines.h"
 #include "dictionary/interface/dictionary_header_structure_policy.h"
 #include "dictionary/interface/dictionary_structure_with_buffer_policy.h"
@@ -35,8 +37,22 @@ void DicTraverseSession::init(const Dictionary *const dictionary,
     mMultiWordCostMultiplier = getDictionaryStructurePolicy()->getHeaderStructurePolicy()
             ->getMultiWordCostMultiplier();
     mSuggestOptions = suggestOptions;
-    mPrevWordIdCount = ngramContext->getPrevWordIds(getDictionaryStructurePolicy(),
-            &mPrevWordIdArray, true /* tryLowerCaseSearch */).size();
+    WordIdArray<MAX_PREV_WORD_COUNT_FOR_N_GRAM> prevWordIdArray;
+    const WordIdArrayView prevWordIds = ngramContext->getPrevWordIds(
+            getDictionaryStructurePolicy(), &prevWordIdArray, true /* tryLowerCaseSearch */);
+    // The cached bigrams are reused for all keystrokes of the composing word, so they are only
+    // read again when the previous words or the dictionary content change.
+    if (mMultiBigramMapContentVersion != dictionary->getContentVersion()
+            || prevWordIds.size() != mPrevWordIdCount
+            || !std::equal(prevWordIds.begin(), prevWordIds.end(), mPrevWordIdArray.begin())) {
+        mMultiBigramMap.clear();
+        for (const std::unique_ptr<ExpansionContext> &expansionContext : mExpansionContexts) {
+            expansionContext->clearOwnedMultiBigramMap();
+        }
+        mMultiBigramMapContentVersion = dictionary->getContentVersion();
+    }
+    prevWordIds.copyToArray(&mPrevWordIdArray, 0 /* offset */);
+    mPrevWordIdCount = prevWordIds.size();
 }
 
 void DicTraverseSession::setupForGetSuggestions(const ProximityInfo *pInfo,
@@ -55,9 +71,25 @@ const DictionaryStructureWithBufferPolicy *DicTraverseSession::getDictionaryStru
 }
 
 void DicTraverseSession::resetCache(const int thresholdForNextActiveDicNodes, const int maxWords) {
-    mDicNodesCache.reset(thresholdForNextActiveDicNodes /* nextActiveSize */,
-            maxWords /* terminalSize */);
-    mMultiBigramMap.clear();
+    mDicNodesCache.reset(mTraversalBudget.getNextActiveSize(thresholdForNextActiveDicNodes,
+            mDicNodesCache.getCacheCapacity()) /* nextActiveSize */, maxWords /* terminalSize */);
+}
+
+void DicTraverseSession::setExpansionThreadCount(const int threadCount) {
+    if (threadCount < 1 || threadCount > ExpansionWorkerPool::MAX_THREAD_COUNT) {
+        AKLOGE("Invalid expansion thread count %d.", threadCount);
+        ASSERT(false);
+        return;
+    }
+    mExpansionContexts.clear();
+    if (threadCount == 1) {
+        mExpansionWorkerPool.reset();
+        return;
+    }
+    mExpansionWorkerPool.reset(new ExpansionWorkerPool(threadCount));
+    for (int i = 0; i < threadCount; ++i) {
+        mExpansionContexts.emplace_back(new ExpansionContext());
+    }
 }
 
 void DicTraverseSession::initializeProximityInfoStates(const int *const inputCodePoints,
@@ -17,6 +17,8 @@
 #ifndef LATINIME_DIC_TRAVERSE_SESSION_H
 #define LATINIME_DIC_TRAVERSE_SESSION_H
 
+#include <cstdint>
+#include <memory>
 #include <vector>
 
 #include "defines.h"
@@ -24,6 +26,9 @@
 #include "jni.h"
 #include "suggest/core/dicnode/dic_nodes_cache.h"
 #include "suggest/core/layout/proximity_info_state.h"
+#include "suggest/core/session/expansion_context.h"
+#include "suggest/core/session/expansion_worker_pool.h"
+#include "suggest/core/session/traversal_budget.h"
 #include "utils/int_array_view.h"
 
 namespace latinime {
@@ -51,9 +56,11 @@ class DicTraverseSession {
     }
 
     AK_FORCE_INLINE DicTraverseSession(JNIEnv *env, jstring localeStr, bool usesLargeCache)
-            : mPrevWordIdCount(0), mProximityInfo(nullptr), mDictionary(nullptr),
-              mSuggestOptions(nullptr), mDicNodesCache(usesLargeCache), mMultiBigramMap(),
-              mInputSize(0), mMaxPointerCount(1), mMultiWordCostMultiplier(1.0f) {
+            : mPrevWordIdCount(0), mMultiBigramMapContentVersion(0), mProximityInfo(nullptr),
+              mDictionary(nullptr), mSuggestOptions(nullptr), mDicNodesCache(usesLargeCache),
+              mMultiBigramMap(), mTraversalBudget(), mInputSize(0), mMaxPointerCount(1),
+              mExpansionWorkerPool(), mExpansionContexts(), mExpansionDicNodes(),
+              mMultiWordCostMultiplier(1.0f) {
         // NOTE: mProximityInfoStates is an array of instances.
         // No need to initialize it explicitly here.
     }
@@ -69,6 +76,9 @@ class DicTraverseSession {
             const int *const times, const int *const pointerIds, const float maxSpatialDistance,
             const int maxPointerCount);
     void resetCache(const int thresholdForNextActiveDicNodes, const int maxWords);
+    // Expands the active DicNodes of an input index on up to threadCount threads when there are
+    // enough of them. 1 expands all DicNodes on the calling thread, which is the default.
+    void setExpansionThreadCount(const int threadCount);
 
     const DictionaryStructureWithBufferPolicy *getDictionaryStructurePolicy() const;
 
@@ -82,6 +92,15 @@ class DicTraverseSession {
     }
     DicNodesCache *getDicTraverseCache() { return &mDicNodesCache; }
     MultiBigramMap *getMultiBigramMap() { return &mMultiBigramMap; }
+    TraversalBudget *getTraversalBudget() { return &mTraversalBudget; }
+    // nullptr when all DicNodes are expanded on the calling thread.
+    ExpansionWorkerPool *getExpansionWorkerPool() { return mExpansionWorkerPool.get(); }
+    // The context of each task index of the worker pool.
+    ExpansionContext *getExpansionContext(const int taskIndex) {
+        return mExpansionContexts[taskIndex].get();
+    }
+    // Buffer for the active DicNodes that are expanded on the worker pool.
+    std::vector<DicNode> *getExpansionDicNodes() { return &mExpansionDicNodes; }
     const ProximityInfoState *getProximityInfoState(int id) const {
         return &mProximityInfoStates[id];
     }
@@ -168,18 +187,25 @@ class DicTraverseSession {
 
     WordIdArray<MAX_PREV_WORD_COUNT_FOR_N_GRAM> mPrevWordIdArray;
     size_t mPrevWordIdCount;
+    // Content version of the dictionary the cached bigrams were read from.
+    uint64_t mMultiBigramMapContentVersion;
     const ProximityInfo *mProximityInfo;
     const Dictionary *mDictionary;
     const SuggestOptions *mSuggestOptions;
 
     DicNodesCache mDicNodesCache;
-    // Temporary cache for bigram frequencies
+    // Cache for bigram frequencies, kept while the previous words and the dictionary don't change
     MultiBigramMap mMultiBigramMap;
+    TraversalBudget mTraversalBudget;
     ProximityInfoState mProximityInfoStates[MAX_POINTER_COUNT_G];
 
     int mInputSize;
     int mMaxPointerCount;
 
+    std::unique_ptr<ExpansionWorkerPool> mExpansionWorkerPool;
+    std::vector<std::unique_ptr<ExpansionContext>> mExpansionContexts;
+    std::vector<DicNode> mExpansionDicNodes;
+
     /////////////////////////////////
     // Configuration per dictionary
     float mMultiWordCostMultiplier;
@@ -0,0 +1,102 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+#ifndef LATINIME_EXPANSION_CONTEXT_H
+#define LATINIME_EXPANSION_CONTEXT_H
+
+#include <vector>
+
+#include "defines.h"
+#include "dictionary/utils/multi_bigram_map.h"
+#include "suggest/core/dicnode/dic_node.h"
+#include "suggest/core/dicnode/dic_nodes_cache.h"
+
+namespace latinime {
+
+/**
+ * The state expanding DicNodes needs besides the DicTraverseSession, which is shared by all
+ * threads expanding DicNodes of the same input index.
+ *
+ * Expanding on the thread of the session pushes the resulting DicNodes to the DicNodesCache right
+ * away. Expanding on a worker thread records them instead, and pushRecordedDicNodes pushes them
+ * in the recorded order on the thread of the session afterwards.
+ */
+class ExpansionContext {
+ public:
+    // For expanding on the thread of the session.
+    ExpansionContext(DicNodesCache *const dicNodesCache, MultiBigramMap *const multiBigramMap)
+            : mDicNodesCache(dicNodesCache), mMultiBigramMap(multiBigramMap),
+              mOwnedMultiBigramMap(), mRecordedQueues(), mRecordedDicNodes() {}
+
+    // For expanding on a worker thread, with its own bigram cache.
+    ExpansionContext()
+            : mDicNodesCache(nullptr), mMultiBigramMap(&mOwnedMultiBigramMap),
+              mOwnedMultiBigramMap(), mRecordedQueues(), mRecordedDicNodes() {}
+
+    MultiBigramMap *getMultiBigramMap() const { return mMultiBigramMap; }
+
+    // Needs to be called when the bigram cache of the session is cleared.
+    void clearOwnedMultiBigramMap() {
+        mOwnedMultiBigramMap.clear();
+    }
+
+    void copyPushTerminal(DicNode *dicNode) {
+        copyPush(QUEUE_TERMINAL, dicNode);
+    }
+
+    void copyPushNextActive(DicNode *dicNode) {
+        copyPush(QUEUE_NEXT_ACTIVE, dicNode);
+    }
+
+    void copyPushContinue(DicNode *dicNode) {
+        copyPush(QUEUE_CONTINUE, dicNode);
+    }
+
+    void pushRecordedDicNodes(DicNodesCache *const dicNodesCache) {
+        for (size_t i = 0; i < mRecordedDicNodes.size(); ++i) {
+            pushToQueue(dicNodesCache, mRecordedQueues[i], &mRecordedDicNodes[i]);
+        }
+        mRecordedQueues.clear();
+        mRecordedDicNodes.clear();
+    }
+
+ private:
+    DISALLOW_COPY_AND_ASSIGN(ExpansionContext);
+
+    enum Queue {
+        QUEUE_TERMINAL,
+        QUEUE_NEXT_ACTIVE,
+        QUEUE_CONTINUE,
+    };
+
+    void copyPush(const Queue queue, DicNode *dicNode) {
+        if (mDicNodesCache) {
+            pushToQueue(mDicNodesCache, queue, dicNode);
+            return;
+        }
+        mRecordedQueues.push_back(queue);
+        mRecordedDicNodes.push_back(*dicNode);
+    }
+
+    static void pushToQueue(DicNodesCache *const dicNodesCache, const Queue queue,
+            DicNode *dicNode) {
+        switch (queue) {
+            case QUEUE_TERMINAL:
+                dicNodesCache->copyPushTerminal(dicNode);
+                break;
+            case QUEUE_NEXT_ACTIVE:
+                dicNodesCache->copyPushNextActive(dicNode);
+                break;
+            case QUEUE_CONTINUE:
+                dicNodesCache->copyPushContinue(dicNode);
+                break;
+        }
+    }
+
+    DicNodesCache *const mDicNodesCache;
+    MultiBigramMap *const mMultiBigramMap;
+    MultiBigramMap mOwnedMultiBigramMap;
+    std::vector<Queue> mRecordedQueues;
+    std::vector<DicNode> mRecordedDicNodes;
+};
+} // namespace latinime
+#endif // LATINIME_EXPANSION_CONTEXT_H
@@ -0,0 +1,96 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+#define LOG_TAG "LatinIME: expansion_worker_pool.cpp"
+
+#include "suggest/core/session/expansion_worker_pool.h"
+
+namespace latinime {
+
+// More threads don't pay off for the few hundred DicNodes of one input index.
+const int ExpansionWorkerPool::MAX_THREAD_COUNT = 4;
+
+ExpansionWorkerPool::ExpansionWorkerPool(const int threadCount)
+        : mThreads(), mMutex(), mTasksAvailable(), mTasksFinished(), mTask(nullptr),
+          mTaskCount(0), mNextTaskIndex(0), mFinishedTaskCount(0), mRunCount(0),
+          mIsStopping(false) {
+    if (threadCount < 1 || threadCount > MAX_THREAD_COUNT) {
+        AKLOGE("Invalid thread count %d.", threadCount);
+        ASSERT(false);
+        return;
+    }
+    for (int i = 1; i < threadCount; ++i) {
+        mThreads.emplace_back(&ExpansionWorkerPool::runWorker, this);
+    }
+}
+
+ExpansionWorkerPool::~ExpansionWorkerPool() {
+    {
+        std::lock_guard<std::mutex> lock(mMutex);
+        mIsStopping = true;
+    }
+    mTasksAvailable.notify_all();
+    for (std::thread &thread : mThreads) {
+        thread.join();
+    }
+}
+
+void ExpansionWorkerPool::run(const int taskCount,
+        const std::function<void(const int taskIndex)> &task) {
+    if (taskCount <= 0) {
+        return;
+    }
+    {
+        std::lock_guard<std::mutex> lock(mMutex);
+        mTask = &task;
+        mTaskCount = taskCount;
+        mNextTaskIndex = 0;
+        mFinishedTaskCount = 0;
+        ++mRunCount;
+    }
+    mTasksAvailable.notify_all();
+    runTasks();
+    std::unique_lock<std::mutex> lock(mMutex);
+    mTasksFinished.wait(lock, [this] { return mFinishedTaskCount == mTaskCount; });
+    mTask = nullptr;
+}
+
+void ExpansionWorkerPool::runWorker() {
+    uint64_t lastRunCount = 0;
+    while (true) {
+        {
+            std::unique_lock<std::mutex> lock(mMutex);
+            mTasksAvailable.wait(lock,
+                    [this, lastRunCount] { return mIsStopping || mRunCount != lastRunCount; });
+            if (mIsStopping) {
+                return;
+            }
+            lastRunCount = mRunCount;
+        }
+        runTasks();
+    }
+}
+
+void ExpansionWorkerPool::runTasks() {
+    while (true) {
+        const std::function<void(const int taskIndex)> *task;
+        int taskIndex;
+        {
+            std::lock_guard<std::mutex> lock(mMutex);
+            if (mNextTaskIndex >= mTaskCount) {
+                return;
+            }
+            task = mTask;
+            taskIndex = mNextTaskIndex++;
+        }
+        (*task)(taskIndex);
+        bool isLastTask;
+        {
+            std::lock_guard<std::mutex> lock(mMutex);
+            isLastTask = ++mFinishedTaskCount == mTaskCount;
+        }
+        if (isLastTask) {
+            mTasksFinished.notify_all();
+        }
+    }
+}
+} // namespace latinime
@@ -0,0 +1,56 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+#ifndef LATINIME_EXPANSION_WORKER_POOL_H
+#define LATINIME_EXPANSION_WORKER_POOL_H
+
+#include <condition_variable>
+#include <cstdint>
+#include <functional>
+#include <mutex>
+#include <thread>
+#include <vector>
+
+#include "defines.h"
+
+namespace latinime {
+
+/**
+ * A small pool of threads for expanding the active DicNodes of one input index in parallel.
+ *
+ * run() calls a task for each task index on the worker threads and on the calling thread, and
+ * returns when all calls have finished. Which thread runs a task index is not defined, so tasks
+ * must only use state that belongs to their task index for results to be deterministic.
+ */
+class ExpansionWorkerPool {
+ public:
+    static const int MAX_THREAD_COUNT;
+
+    // threadCount includes the thread calling run(), so threadCount - 1 threads are started.
+    explicit ExpansionWorkerPool(const int threadCount);
+    ~ExpansionWorkerPool();
+
+    int getThreadCount() const { return static_cast<int>(mThreads.size()) + 1; }
+
+    void run(const int taskCount, const std::function<void(const int taskIndex)> &task);
+
+ private:
+    DISALLOW_IMPLICIT_CONSTRUCTORS(ExpansionWorkerPool);
+
+    void runWorker();
+    void runTasks();
+
+    std::vector<std::thread> mThreads;
+    std::mutex mMutex;
+    std::condition_variable mTasksAvailable;
+    std::condition_variable mTasksFinished;
+    // The members below are guarded by mMutex.
+    const std::function<void(const int taskIndex)> *mTask;
+    int mTaskCount;
+    int mNextTaskIndex;
+    int mFinishedTaskCount;
+    // Incremented by each run(), so workers don't miss a run that started while they were busy.
+    uint64_t mRunCount;
+    bool mIsStopping;
+};
+} // namespace latinime
+#endif // LATINIME_EXPANSION_WORKER_POOL_H
@@ -0,0 +1,76 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+#include "suggest/core/session/traversal_budget.h"
+
+#include <algorithm>
+#include <cmath>
+
+namespace latinime {
+
+const int TraversalBudget::DEVICE_CLASS_LOW_END = 0;
+const int TraversalBudget::DEVICE_CLASS_DEFAULT = 1;
+const int TraversalBudget::DEVICE_CLASS_HIGH_END = 2;
+const int TraversalBudget::NOT_MEASURED = -1;
+
+// Slow devices get a longer target, as getting within a frame would cost too much accuracy.
+// Default devices are not adapted and keep the sizes chosen by the traversal policy, as changing
+// the search width changes suggestions for most users.
+const TraversalBudget::Profile TraversalBudget::PROFILES[] = {
+    { 24000 /* mTargetLatencyUs */, 0.7f /* mInitialScale */, 0.3f /* mMinScale */,
+            1.0f /* mMaxScale */ }, // DEVICE_CLASS_LOW_END
+    { 16000 /* mTargetLatencyUs */, 1.0f /* mInitialScale */, 1.0f /* mMinScale */,
+            1.0f /* mMaxScale */ }, // DEVICE_CLASS_DEFAULT
+    { 12000 /* mTargetLatencyUs */, 1.0f /* mInitialScale */, 0.5f /* mMinScale */,
+            2.0f /* mMaxScale */ }, // DEVICE_CLASS_HIGH_END
+};
+// Below this, the expected word is dropped too often even for exact input.
+const int TraversalBudget::MIN_NEXT_ACTIVE_SIZE = 30;
+const float TraversalBudget::LATENCY_AVERAGE_WEIGHT = 0.125f;
+// The average follows a change of the scale after about 1 / LATENCY_AVERAGE_WEIGHT queries, so
+// the scale is not adjusted again before that.
+const int TraversalBudget::QUERIES_PER_ADJUSTMENT = 8;
+const float TraversalBudget::SCALE_DECREASE_FACTOR = 0.8f;
+const float TraversalBudget::SCALE_INCREASE_FACTOR = 1.1f;
+const float TraversalBudget::LATENCY_RATIO_TO_INCREASE_SCALE = 0.5f;
+
+void TraversalBudget::setDeviceClass(const int deviceClass) {
+    if (deviceClass < DEVICE_CLASS_LOW_END || deviceClass > DEVICE_CLASS_HIGH_END) {
+        AKLOGE("Invalid device class %d.", deviceClass);
+        ASSERT(false);
+        return;
+    }
+    mDeviceClass = deviceClass;
+    mProfile = &PROFILES[deviceClass];
+    mScale = mProfile->mInitialScale;
+    mAverageLatencyUs = NOT_MEASURED;
+    mQueriesSinceAdjustment = 0;
+}
+
+int TraversalBudget::getNextActiveSize(const int policySize, const int capacity) const {
+    const int scaledSize = static_cast<int>(std::lround(policySize * mScale));
+    // Never use more than the policy for small policy sizes, they are chosen on purpose.
+    return std::min(capacity, std::max(std::min(policySize, MIN_NEXT_ACTIVE_SIZE), scaledSize));
+}
+
+void TraversalBudget::onQueryFinished(const int latencyUs) {
+    // NOT_MEASURED is negative, latencies are not.
+    if (mAverageLatencyUs < 0.0f) {
+        mAverageLatencyUs = static_cast<float>(latencyUs);
+    } else {
+        mAverageLatencyUs += (latencyUs - mAverageLatencyUs) * LATENCY_AVERAGE_WEIGHT;
+    }
+    mQueriesSinceAdjustment = std::min(mQueriesSinceAdjustment + 1, QUERIES_PER_ADJUSTMENT);
+    if (mQueriesSinceAdjustment < QUERIES_PER_ADJUSTMENT) {
+        return;
+    }
+    // Decrease fast to get back within the target quickly, but increase slowly.
+    if (mAverageLatencyUs > mProfile->mTargetLatencyUs) {
+        mScale = std::max(mProfile->mMinScale, mScale * SCALE_DECREASE_FACTOR);
+        mQueriesSinceAdjustment = 0;
+    } else if (mAverageLatencyUs
+            < mProfile->mTargetLatencyUs * LATENCY_RATIO_TO_INCREASE_SCALE) {
+        mScale = std::min(mProfile->mMaxScale, mScale * SCALE_INCREASE_FACTOR);
+        mQueriesSinceAdjustment = 0;
+    }
+}
+} // namespace latinime
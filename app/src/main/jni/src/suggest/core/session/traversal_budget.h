@@ -0,0 +1,84 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+#ifndef LATINIME_TRAVERSAL_BUDGET_H
+#define LATINIME_TRAVERSAL_BUDGET_H
+
+#include <chrono>
+
+#include "defines.h"
+
+namespace latinime {
+
+/**
+ * Scales the number of DicNodes kept for the next input index, which the traversal policy
+ * chooses for an average device, to the speed of the device.
+ *
+ * The scale starts at a value depending on the device class and is adjusted to keep the average
+ * query latency within the target latency of the device class. Slow devices search narrower to
+ * stay responsive, and fast devices search wider as long as they are well below the target.
+ * The default device class keeps a scale of 1.
+ */
+class TraversalBudget {
+ public:
+    // Must be equal to the constants in com.android.inputmethod.latin.DicTraverseSession
+    static const int DEVICE_CLASS_LOW_END;
+    static const int DEVICE_CLASS_DEFAULT;
+    static const int DEVICE_CLASS_HIGH_END;
+    static const int NOT_MEASURED;
+
+    TraversalBudget() : mDeviceClass(DEVICE_CLASS_DEFAULT), mProfile(&PROFILES[mDeviceClass]),
+            mScale(mProfile->mInitialScale), mAverageLatencyUs(NOT_MEASURED),
+            mQueriesSinceAdjustment(0), mQueryStartTime() {}
+
+    void setDeviceClass(const int deviceClass);
+
+    // Returns the size of the next active DicNode queue for the size chosen by the traversal
+    // policy, limited to the capacity of the cache.
+    int getNextActiveSize(const int policySize, const int capacity) const;
+
+    void startQuery() {
+        mQueryStartTime = std::chrono::steady_clock::now();
+    }
+
+    void finishQuery() {
+        onQueryFinished(static_cast<int>(std::chrono::duration_cast<std::chrono::microseconds>(
+                std::chrono::steady_clock::now() - mQueryStartTime).count()));
+    }
+
+    void onQueryFinished(const int latencyUs);
+
+    int getDeviceClass() const { return mDeviceClass; }
+    float getScale() const { return mScale; }
+    int getTargetLatencyUs() const { return mProfile->mTargetLatencyUs; }
+    // Returns NOT_MEASURED before the first query.
+    int getAverageLatencyUs() const { return static_cast<int>(mAverageLatencyUs); }
+
+ private:
+    DISALLOW_COPY_AND_ASSIGN(TraversalBudget);
+
+    // Indexed by device class.
+    struct Profile {
+        const int mTargetLatencyUs;
+        const float mInitialScale;
+        const float mMinScale;
+        const float mMaxScale;
+    };
+
+    static const Profile PROFILES[];
+    static const int MIN_NEXT_ACTIVE_SIZE;
+    static const float LATENCY_AVERAGE_WEIGHT;
+    static const int QUERIES_PER_ADJUSTMENT;
+    static const float SCALE_DECREASE_FACTOR;
+    static const float SCALE_INCREASE_FACTOR;
+    static const float LATENCY_RATIO_TO_INCREASE_SCALE;
+
+    int mDeviceClass;
+    const Profile *mProfile;
+    float mScale;
+    // Exponential moving average of the latency.
+    float mAverageLatencyUs;
+    int mQueriesSinceAdjustment;
+    std::chrono::steady_clock::time_point mQueryStartTime;
+};
+} // namespace latinime
+#endif // LATINIME_TRAVERSAL_BUDGET_H
@@ -16,6 +16,9 @@
 
 #include "suggest/core/suggest.h"
 
+#include <algorithm>
+#include <vector>
+
 #include "dictionary/interface/dictionary_structure_with_buffer_policy.h"
 #include "dictionary/property/word_attributes.h"
 #include "suggest/core/dicnode/dic_node.h"
@@ -35,6 +38,8 @@ namespace latinime {
 
 // Initialization of class constants.
 const int Suggest::MIN_CONTINUOUS_SUGGESTION_INPUT_SIZE = 2;
+// Fewer dicNodes are expanded faster than the worker threads are woken up.
+const int Suggest::MIN_DIC_NODE_COUNT_PER_EXPANSION_TASK = 32;
 
 /**
  * Returns a set of suggestions for the given input touch points. The commitPoint argument indicates
@@ -53,6 +58,7 @@ void Suggest::getSuggestions(ProximityInfo *pInfo, void *traverseSession,
     PROF_TIMER_START(0);
     const float maxSpatialDistance = TRAVERSAL->getMaxSpatialDistance();
     DicTraverseSession *tSession = static_cast<DicTraverseSession *>(traverseSession);
+    tSession->getTraversalBudget()->startQuery();
     tSession->setupForGetSuggestions(pInfo, inputCodePoints, inputSize, inputXs, inputYs, times,
             pointerIds, maxSpatialDistance, TRAVERSAL->getMaxPointerCount());
     // TODO: Add the way to evaluate cache
@@ -72,6 +78,7 @@ void Suggest::getSuggestions(ProximityInfo *pInfo, void *traverseSession,
     SuggestionsOutputUtils::outputSuggestions(
             SCORING, tSession, weightOfLangModelVsSpatialModel, outSuggestionResults);
     PROF_TIMER_END(2);
+    tSession->getTraversalBudget()->finishQuery();
 }
 
 /**
@@ -105,129 +112,193 @@ void Suggest::initializeSearch(DicTraverseSession *traverseSession) const {
  * nodes based on the next touch point(s) (or no touch points for lookahead)
  */
 void Suggest::expandCurrentDicNodes(DicTraverseSession *traverseSession) const {
-    const int inputSize = traverseSession->getInputSize();
-    DicNodeVector childDicNodes(TRAVERSAL->getDefaultExpandDicNodeSize());
-    DicNode correctionDicNode;
+    DicNodesCache *const dicNodesCache = traverseSession->getDicTraverseCache();
 
     // TODO: Find more efficient caching
     const bool shouldDepthLevelCache = TRAVERSAL->shouldDepthLevelCache(traverseSession);
     if (shouldDepthLevelCache) {
-        traverseSession->getDicTraverseCache()->updateLastCachedInputIndex();
+        dicNodesCache->updateLastCachedInputIndex();
     }
     if (DEBUG_CACHE) {
         AKLOGI("expandCurrentDicNodes depth level cache = %d, inputSize = %d",
-                shouldDepthLevelCache, inputSize);
+                shouldDepthLevelCache, traverseSession->getInputSize());
+    }
+    ExpansionWorkerPool *const workerPool = traverseSession->getExpansionWorkerPool();
+    if (workerPool) {
+        const int taskCount = std::min(workerPool->getThreadCount(),
+                dicNodesCache->activeSize() / MIN_DIC_NODE_COUNT_PER_EXPANSION_TASK);
+        if (taskCount > 1) {
+            expandCurrentDicNodesInParallel(traverseSession, shouldDepthLevelCache, workerPool,
+                    taskCount);
+            return;
+        }
     }
-    while (traverseSession->getDicTraverseCache()->activeSize() > 0) {
+    DicNodeVector childDicNodes(TRAVERSAL->getDefaultExpandDicNodeSize());
+    DicNode correctionDicNode;
+    ExpansionContext expansionContext(dicNodesCache, traverseSession->getMultiBigramMap());
+    while (dicNodesCache->activeSize() > 0) {
         DicNode dicNode;
-        traverseSession->getDicTraverseCache()->popActive(&dicNode);
+        dicNodesCache->popActive(&dicNode);
         if (dicNode.isTotalInputSizeExceedingLimit()) {
             return;
         }
-        childDicNodes.clear();
-        const int point0Index = dicNode.getInputIndex(0);
-        const bool canDoLookAheadCorrection =
-                TRAVERSAL->canDoLookAheadCorrection(traverseSession, &dicNode);
-        const bool isLookAheadCorrection = canDoLookAheadCorrection
-                && traverseSession->getDicTraverseCache()->
-                        isLookAheadCorrectionInputIndex(static_cast<int>(point0Index));
-        const bool isCompletion = dicNode.isCompletion(inputSize);
-
-        const bool shouldNodeLevelCache =
-                TRAVERSAL->shouldNodeLevelCache(traverseSession, &dicNode);
-        if (shouldDepthLevelCache || shouldNodeLevelCache) {
-            if (DEBUG_CACHE) {
-                dicNode.dump("PUSH_CACHE");
-            }
-            traverseSession->getDicTraverseCache()->copyPushContinue(&dicNode);
-            dicNode.setCached();
+        expandDicNode(traverseSession, shouldDepthLevelCache, &dicNode, &childDicNodes,
+                &correctionDicNode, &expansionContext);
+    }
+}
+
+/**
+ * Expands the active dicNodes on the threads of the worker pool. Each task expands a contiguous
+ * range of the dicNodes in the order they are popped, and the resulting dicNodes are pushed in
+ * the order of the tasks. The dicNodes are pushed in the same order as when expanding all of them
+ * on this thread, so the results don't depend on the thread count.
+ */
+void Suggest::expandCurrentDicNodesInParallel(DicTraverseSession *traverseSession,
+        const bool shouldDepthLevelCache, ExpansionWorkerPool *const workerPool,
+        const int taskCount) const {
+    DicNodesCache *const dicNodesCache = traverseSession->getDicTraverseCache();
+    std::vector<DicNode> *const dicNodes = traverseSession->getExpansionDicNodes();
+    dicNodes->clear();
+    while (dicNodesCache->activeSize() > 0) {
+        dicNodes->emplace_back();
+        dicNodesCache->popActive(&dicNodes->back());
+        if (dicNodes->back().isTotalInputSizeExceedingLimit()) {
+            // Like expanding on this thread, stop at the first dicNode exceeding the limit.
+            dicNodes->pop_back();
+            break;
+        }
+    }
+    const int dicNodeCount = static_cast<int>(dicNodes->size());
+    workerPool->run(taskCount, [&](const int taskIndex) {
+        DicNodeVector childDicNodes(TRAVERSAL->getDefaultExpandDicNodeSize());
+        DicNode correctionDicNode;
+        ExpansionContext *const expansionContext =
+                traverseSession->getExpansionContext(taskIndex);
+        const int endIndex = dicNodeCount * (taskIndex + 1) / taskCount;
+        for (int i = dicNodeCount * taskIndex / taskCount; i < endIndex; ++i) {
+            expandDicNode(traverseSession, shouldDepthLevelCache, &(*dicNodes)[i],
+                    &childDicNodes, &correctionDicNode, expansionContext);
+        }
+    });
+    for (int i = 0; i < taskCount; ++i) {
+        traverseSession->getExpansionContext(i)->pushRecordedDicNodes(dicNodesCache);
+    }
+}
+
+/**
+ * Expands a dicNode popped from the active dicNodes. childDicNodes and correctionDicNode are only
+ * passed for reusing them.
+ */
+void Suggest::expandDicNode(DicTraverseSession *traverseSession,
+        const bool shouldDepthLevelCache, DicNode *dicNode, DicNodeVector *childDicNodes,
+        DicNode *correctionDicNode, ExpansionContext *const expansionContext) const {
+    const int inputSize = traverseSession->getInputSize();
+    childDicNodes->clear();
+    const int point0Index = dicNode->getInputIndex(0);
+    const bool canDoLookAheadCorrection =
+            TRAVERSAL->canDoLookAheadCorrection(traverseSession, dicNode);
+    const bool isLookAheadCorrection = canDoLookAheadCorrection
+            && traverseSession->getDicTraverseCache()->
+                    isLookAheadCorrectionInputIndex(static_cast<int>(point0Index));
+    const bool isCompletion = dicNode->isCompletion(inputSize);
+
+    const bool shouldNodeLevelCache =
+            TRAVERSAL->shouldNodeLevelCache(traverseSession, dicNode);
+    if (shouldDepthLevelCache || shouldNodeLevelCache) {
+        if (DEBUG_CACHE) {
+            dicNode->dump("PUSH_CACHE");
         }
+        expansionContext->copyPushContinue(dicNode);
+        dicNode->setCached();
+    }
 
-        if (dicNode.isInDigraph()) {
-            // Finish digraph handling if the node is in the middle of a digraph expansion.
-            processDicNodeAsDigraph(traverseSession, &dicNode);
-        } else if (isLookAheadCorrection) {
-            // The algorithm maintains a small set of "deferred" nodes that have not consumed the
-            // latest touch point yet. These are needed to apply look-ahead correction operations
-            // that require special handling of the latest touch point. For example, with insertions
-            // (e.g., "thiis" -> "this") the latest touch point should not be consumed at all.
-            processDicNodeAsTransposition(traverseSession, &dicNode);
-            processDicNodeAsInsertion(traverseSession, &dicNode);
-        } else { // !isLookAheadCorrection
-            // Only consider typing error corrections if the normalized compound distance is
-            // below a spatial distance threshold.
-            // NOTE: the threshold may need to be updated if scoring model changes.
-            // TODO: Remove. Do not prune node here.
-            const bool allowsErrorCorrections = TRAVERSAL->allowsErrorCorrections(&dicNode);
-            // Process for handling space substitution (e.g., hevis => he is)
-            if (TRAVERSAL->isSpaceSubstitutionTerminal(traverseSession, &dicNode)) {
-                createNextWordDicNode(traverseSession, &dicNode, true /* spaceSubstitution */);
-            }
+    if (dicNode->isInDigraph()) {
+        // Finish digraph handling if the node is in the middle of a digraph expansion.
+        processDicNodeAsDigraph(traverseSession, dicNode, expansionContext);
+    } else if (isLookAheadCorrection) {
+        // The algorithm maintains a small set of "deferred" nodes that have not consumed the
+        // latest touch point yet. These are needed to apply look-ahead correction operations
+        // that require special handling of the latest touch point. For example, with insertions
+        // (e.g., "thiis" -> "this") the latest touch point should not be consumed at all.
+        processDicNodeAsTransposition(traverseSession, dicNode, expansionContext);
+        processDicNodeAsInsertion(traverseSession, dicNode, expansionContext);
+    } else { // !isLookAheadCorrection
+        // Only consider typing error corrections if the normalized compound distance is
+        // below a spatial distance threshold.
+        // NOTE: the threshold may need to be updated if scoring model changes.
+        // TODO: Remove. Do not prune node here.
+        const bool allowsErrorCorrections = TRAVERSAL->allowsErrorCorrections(dicNode);
+        // Process for handling space substitution (e.g., hevis => he is)
+        if (TRAVERSAL->isSpaceSubstitutionTerminal(traverseSession, dicNode)) {
+            createNextWordDicNode(traverseSession, dicNode, true /* spaceSubstitution */,
+                    expansionContext);
+        }
 
-            DicNodeUtils::getAllChildDicNodes(
-                    &dicNode, traverseSession->getDictionaryStructurePolicy(), &childDicNodes);
+        DicNodeUtils::getAllChildDicNodes(
+                dicNode, traverseSession->getDictionaryStructurePolicy(), childDicNodes);
 
-            const int childDicNodesSize = childDicNodes.getSizeAndLock();
-            for (int i = 0; i < childDicNodesSize; ++i) {
-                DicNode *const childDicNode = childDicNodes[i];
-                if (isCompletion) {
-                    // Handle forward lookahead when the lexicon letter exceeds the input size.
-                    processDicNodeAsMatch(traverseSession, childDicNode);
-                    continue;
-                }
-                if (DigraphUtils::hasDigraphForCodePoint(
-                        traverseSession->getDictionaryStructurePolicy()
-                                ->getHeaderStructurePolicy(),
-                        childDicNode->getNodeCodePoint())) {
-                    correctionDicNode.initByCopy(childDicNode);
-                    correctionDicNode.advanceDigraphIndex();
-                    processDicNodeAsDigraph(traverseSession, &correctionDicNode);
-                }
-                if (TRAVERSAL->isOmission(traverseSession, &dicNode, childDicNode,
-                        allowsErrorCorrections)) {
-                    // TODO: (Gesture) Change weight between omission and substitution errors
-                    // TODO: (Gesture) Terminal node should not be handled as omission
-                    correctionDicNode.initByCopy(childDicNode);
-                    processDicNodeAsOmission(traverseSession, &correctionDicNode);
-                }
-                const ProximityType proximityType = TRAVERSAL->getProximityType(
-                        traverseSession, &dicNode, childDicNode);
-                switch (proximityType) {
-                    // TODO: Consider the difference of proximityType here
-                    case MATCH_CHAR:
-                    case PROXIMITY_CHAR:
-                        processDicNodeAsMatch(traverseSession, childDicNode);
-                        break;
-                    case ADDITIONAL_PROXIMITY_CHAR:
-                        if (allowsErrorCorrections) {
-                            processDicNodeAsAdditionalProximityChar(traverseSession, &dicNode,
-                                    childDicNode);
-                        }
-                        break;
-                    case SUBSTITUTION_CHAR:
-                        if (allowsErrorCorrections) {
-                            processDicNodeAsSubstitution(traverseSession, &dicNode, childDicNode);
-                        }
-                        break;
-                    case UNRELATED_CHAR:
-                        // Just drop this dicNode and do nothing.
-                        break;
-                    default:
-                        // Just drop this dicNode and do nothing.
-                        break;
-                }
+        const int childDicNodesSize = childDicNodes->getSizeAndLock();
+        for (int i = 0; i < childDicNodesSize; ++i) {
+            DicNode *const childDicNode = (*childDicNodes)[i];
+            if (isCompletion) {
+                // Handle forward lookahead when the lexicon letter exceeds the input size.
+                processDicNodeAsMatch(traverseSession, childDicNode, expansionContext);
+                continue;
             }
-
-            // Push the dicNode for look-ahead correction
-            if (allowsErrorCorrections && canDoLookAheadCorrection) {
-                traverseSession->getDicTraverseCache()->copyPushNextActive(&dicNode);
+            if (DigraphUtils::hasDigraphForCodePoint(
+                    traverseSession->getDictionaryStructurePolicy()
+                            ->getHeaderStructurePolicy(),
+                    childDicNode->getNodeCodePoint())) {
+                correctionDicNode->initByCopy(childDicNode);
+                correctionDicNode->advanceDigraphIndex();
+                processDicNodeAsDigraph(traverseSession, correctionDicNode, expansionContext);
             }
+            if (TRAVERSAL->isOmission(traverseSession, dicNode, childDicNode,
+                    allowsErrorCorrections)) {
+                // TODO: (Gesture) Change weight between omission and substitution errors
+                // TODO: (Gesture) Terminal node should not be handled as omission
+                correctionDicNode->initByCopy(childDicNode);
+                processDicNodeAsOmission(traverseSession, correctionDicNode, expansionContext);
+            }
+            const ProximityType proximityType = TRAVERSAL->getProximityType(
+                    traverseSession, dicNode, childDicNode);
+            switch (proximityType) {
+                // TODO: Consider the difference of proximityType here
+                case MATCH_CHAR:
+                case PROXIMITY_CHAR:
+                    processDicNodeAsMatch(traverseSession, childDicNode, expansionContext);
+                    break;
+                case ADDITIONAL_PROXIMITY_CHAR:
+                    if (allowsErrorCorrections) {
+                        processDicNodeAsAdditionalProximityChar(traverseSession, dicNode,
+                                childDicNode, expansionContext);
+                    }
+                    break;
+                case SUBSTITUTION_CHAR:
+                    if (allowsErrorCorrections) {
+                        processDicNodeAsSubstitution(traverseSession, dicNode, childDicNode,
+                                expansionContext);
+                    }
+                    break;
+                case UNRELATED_CHAR:
+                    // Just drop this dicNode and do nothing.
+                    break;
+                default:
+                    // Just drop this dicNode and do nothing.
+                    break;
+            }
+        }
+
+        // Push the dicNode for look-ahead correction
+        if (allowsErrorCorrections && canDoLookAheadCorrection) {
+            expansionContext->copyPushNextActive(dicNode);
         }
     }
 }
 
 void Suggest::processTerminalDicNode(
-        DicTraverseSession *traverseSession, DicNode *dicNode) const {
+        DicTraverseSession *traverseSession, DicNode *dicNode,
+        ExpansionContext *const expansionContext) const {
     if (dicNode->getCompoundDistance() >= static_cast<float>(MAX_VALUE_FOR_WEIGHTING)) {
         return;
     }
@@ -245,11 +316,11 @@ void Suggest::processTerminalDicNode(
     if (TRAVERSAL->needsToTraverseAllUserInput()
             && dicNode->getInputIndex(0) < traverseSession->getInputSize()) {
         Weighting::addCostAndForwardInputIndex(WEIGHTING, CT_TERMINAL_INSERTION, traverseSession, 0,
-                &terminalDicNode, traverseSession->getMultiBigramMap());
+                &terminalDicNode, expansionContext->getMultiBigramMap());
     }
     Weighting::addCostAndForwardInputIndex(WEIGHTING, CT_TERMINAL, traverseSession, 0,
-            &terminalDicNode, traverseSession->getMultiBigramMap());
-    traverseSession->getDicTraverseCache()->copyPushTerminal(&terminalDicNode);
+            &terminalDicNode, expansionContext->getMultiBigramMap());
+    expansionContext->copyPushTerminal(&terminalDicNode);
 }
 
 /**
@@ -257,50 +328,52 @@ void Suggest::processTerminalDicNode(
  * (by the space omission error correction) search path if input dicNode is on a terminal.
  */
 void Suggest::processExpandedDicNode(
-        DicTraverseSession *traverseSession, DicNode *dicNode) const {
-    processTerminalDicNode(traverseSession, dicNode);
+        DicTraverseSession *traverseSession, DicNode *dicNode,
+        ExpansionContext *const expansionContext) const {
+    processTerminalDicNode(traverseSession, dicNode, expansionContext);
     if (dicNode->getCompoundDistance() < static_cast<float>(MAX_VALUE_FOR_WEIGHTING)) {
         if (TRAVERSAL->isSpaceOmissionTerminal(traverseSession, dicNode)) {
-            createNextWordDicNode(traverseSession, dicNode, false /* spaceSubstitution */);
+            createNextWordDicNode(traverseSession, dicNode, false /* spaceSubstitution */,
+                    expansionContext);
         }
         const int allowsLookAhead = !(dicNode->hasMultipleWords()
                 && dicNode->isCompletion(traverseSession->getInputSize()));
         if (dicNode->hasChildren() && allowsLookAhead) {
-            traverseSession->getDicTraverseCache()->copyPushNextActive(dicNode);
+            expansionContext->copyPushNextActive(dicNode);
         }
     }
 }
 
 void Suggest::processDicNodeAsMatch(DicTraverseSession *traverseSession,
-        DicNode *childDicNode) const {
+        DicNode *childDicNode, ExpansionContext *const expansionContext) const {
     weightChildNode(traverseSession, childDicNode);
-    processExpandedDicNode(traverseSession, childDicNode);
+    processExpandedDicNode(traverseSession, childDicNode, expansionContext);
 }
 
 void Suggest::processDicNodeAsAdditionalProximityChar(DicTraverseSession *traverseSession,
-        DicNode *dicNode, DicNode *childDicNode) const {
+        DicNode *dicNode, DicNode *childDicNode, ExpansionContext *const expansionContext) const {
     // Note: Most types of corrections don't need to look up the bigram information since they do
     // not treat the node as a terminal. There is no need to pass the bigram map in these cases.
     Weighting::addCostAndForwardInputIndex(WEIGHTING, CT_ADDITIONAL_PROXIMITY,
             traverseSession, dicNode, childDicNode, 0 /* multiBigramMap */);
-    processExpandedDicNode(traverseSession, childDicNode);
+    processExpandedDicNode(traverseSession, childDicNode, expansionContext);
 }
 
 void Suggest::processDicNodeAsSubstitution(DicTraverseSession *traverseSession,
-        DicNode *dicNode, DicNode *childDicNode) const {
+        DicNode *dicNode, DicNode *childDicNode, ExpansionContext *const expansionContext) const {
     Weighting::addCostAndForwardInputIndex(WEIGHTING, CT_SUBSTITUTION, traverseSession,
             dicNode, childDicNode, 0 /* multiBigramMap */);
-    processExpandedDicNode(traverseSession, childDicNode);
+    processExpandedDicNode(traverseSession, childDicNode, expansionContext);
 }
 
 // Process the DicNode codepoint as a digraph. This means that composite glyphs like the German
 // u-umlaut is expanded to the transliteration "ue". Note that this happens in parallel with
 // the normal non-digraph traversal, so both "uber" and "ueber" can be corrected to "[u-umlaut]ber".
 void Suggest::processDicNodeAsDigraph(DicTraverseSession *traverseSession,
-        DicNode *childDicNode) const {
+        DicNode *childDicNode, ExpansionContext *const expansionContext) const {
     weightChildNode(traverseSession, childDicNode);
     childDicNode->advanceDigraphIndex();
-    processExpandedDicNode(traverseSession, childDicNode);
+    processExpandedDicNode(traverseSession, childDicNode, expansionContext);
 }
 
 /**
@@ -310,8 +383,8 @@ void Suggest::processDicNodeAsDigraph(DicTraverseSession *traverseSession,
  * the possible *next* letters after the omission to better limit search to plausible omissions.
  * Note that apostrophes are handled as omissions.
  */
-void Suggest::processDicNodeAsOmission(
-        DicTraverseSession *traverseSession, DicNode *dicNode) const {
+void Suggest::processDicNodeAsOmission(DicTraverseSession *traverseSession, DicNode *dicNode,
+        ExpansionContext *const expansionContext) const {
     DicNodeVector childDicNodes;
     DicNodeUtils::getAllChildDicNodes(
             dicNode, traverseSession->getDictionaryStructurePolicy(), &childDicNodes);
@@ -326,7 +399,7 @@ void Suggest::processDicNodeAsOmission(
         if (!TRAVERSAL->isPossibleOmissionChildNode(traverseSession, dicNode, childDicNode)) {
             continue;
         }
-        processExpandedDicNode(traverseSession, childDicNode);
+        processExpandedDicNode(traverseSession, childDicNode, expansionContext);
     }
 }
 
@@ -335,7 +408,7 @@ void Suggest::processDicNodeAsOmission(
  * consider matches for the next touch point.
  */
 void Suggest::processDicNodeAsInsertion(DicTraverseSession *traverseSession,
-        DicNode *dicNode) const {
+        DicNode *dicNode, ExpansionContext *const expansionContext) const {
     const int16_t pointIndex = dicNode->getInputIndex(0);
     DicNodeVector childDicNodes;
     DicNodeUtils::getAllChildDicNodes(dicNode, traverseSession->getDictionaryStructurePolicy(),
@@ -349,7 +422,7 @@ void Suggest::processDicNodeAsInsertion(DicTraverseSession *traverseSession,
         DicNode *const childDicNode = childDicNodes[i];
         Weighting::addCostAndForwardInputIndex(WEIGHTING, CT_INSERTION, traverseSession,
                 dicNode, childDicNode, 0 /* multiBigramMap */);
-        processExpandedDicNode(traverseSession, childDicNode);
+        processExpandedDicNode(traverseSession, childDicNode, expansionContext);
     }
 }
 
@@ -357,7 +430,7 @@ void Suggest::processDicNodeAsInsertion(DicTraverseSession *traverseSession,
  * Handle the dicNode as a transposition error (e.g., thsi => this). Swap the next two touch points.
  */
 void Suggest::processDicNodeAsTransposition(DicTraverseSession *traverseSession,
-        DicNode *dicNode) const {
+        DicNode *dicNode, ExpansionContext *const expansionContext) const {
     const int16_t pointIndex = dicNode->getInputIndex(0);
     DicNodeVector childDicNodes1;
     DicNodeVector childDicNodes2;
@@ -386,7 +459,7 @@ void Suggest::processDicNodeAsTransposition(DicTraverseSession *traverseSession,
                 }
                 Weighting::addCostAndForwardInputIndex(WEIGHTING, CT_TRANSPOSITION,
                         traverseSession, childDicNodes1[i], childDicNode2, 0 /* multiBigramMap */);
-                processExpandedDicNode(traverseSession, childDicNode2);
+                processExpandedDicNode(traverseSession, childDicNode2, expansionContext);
             }
         }
     }
@@ -411,11 +484,11 @@ void Suggest::weightChildNode(DicTraverseSession *traverseSession, DicNode *dicN
  * incorporates the unigram / bigram score for the ending word into the new dicNode.
  */
 void Suggest::createNextWordDicNode(DicTraverseSession *traverseSession, DicNode *dicNode,
-        const bool spaceSubstitution) const {
+        const bool spaceSubstitution, ExpansionContext *const expansionContext) const {
     const WordAttributes wordAttributes =
             traverseSession->getDictionaryStructurePolicy()->getWordAttributesInContext(
                     dicNode->getPrevWordIds(), dicNode->getWordId(),
-                    traverseSession->getMultiBigramMap());
+                    expansionContext->getMultiBigramMap());
     if (SuggestionsOutputUtils::shouldBlockWord(traverseSession->getSuggestOptions(),
             dicNode, wordAttributes, false /* isLastWord */)) {
         return;
@@ -432,13 +505,13 @@ void Suggest::createNextWordDicNode(DicTraverseSession *traverseSession, DicNode
     const CorrectionType correctionType = spaceSubstitution ?
             CT_NEW_WORD_SPACE_SUBSTITUTION : CT_NEW_WORD_SPACE_OMISSION;
     Weighting::addCostAndForwardInputIndex(WEIGHTING, correctionType, traverseSession, dicNode,
-            &newDicNode, traverseSession->getMultiBigramMap());
+            &newDicNode, expansionContext->getMultiBigramMap());
     if (newDicNode.getCompoundDistance() < static_cast<float>(MAX_VALUE_FOR_WEIGHTING)) {
         // newDicNode is worth continuing to traverse.
         // CAVEAT: This pruning is important for speed. Remove this when we can afford not to prune
         // here because here is not the right place to do pruning. Pruning should take place only
         // in DicNodePriorityQueue.
-        traverseSession->getDicTraverseCache()->copyPushNextActive(&newDicNode);
+        expansionContext->copyPushNextActive(&newDicNode);
     }
 }
 } // namespace latinime
@@ -33,7 +33,10 @@ namespace latinime {
 //       priority of a suggested word
 
 class DicNode;
+class DicNodeVector;
 class DicTraverseSession;
+class ExpansionContext;
+class ExpansionWorkerPool;
 class ProximityInfo;
 class Scoring;
 class SuggestionResults;
@@ -55,25 +58,38 @@ class Suggest : public SuggestInterface {
  private:
     DISALLOW_IMPLICIT_CONSTRUCTORS(Suggest);
     void createNextWordDicNode(DicTraverseSession *traverseSession, DicNode *dicNode,
-            const bool spaceSubstitution) const;
+            const bool spaceSubstitution, ExpansionContext *const expansionContext) const;
     void initializeSearch(DicTraverseSession *traverseSession) const;
     void expandCurrentDicNodes(DicTraverseSession *traverseSession) const;
-    void processTerminalDicNode(DicTraverseSession *traverseSession, DicNode *dicNode) const;
-    void processExpandedDicNode(DicTraverseSession *traverseSession, DicNode *dicNode) const;
+    void expandCurrentDicNodesInParallel(DicTraverseSession *traverseSession,
+            const bool shouldDepthLevelCache, ExpansionWorkerPool *const workerPool,
+            const int taskCount) const;
+    void expandDicNode(DicTraverseSession *traverseSession, const bool shouldDepthLevelCache,
+            DicNode *dicNode, DicNodeVector *childDicNodes, DicNode *correctionDicNode,
+            ExpansionContext *const expansionContext) const;
+    void processTerminalDicNode(DicTraverseSession *traverseSession, DicNode *dicNode,
+            ExpansionContext *const expansionContext) const;
+    void processExpandedDicNode(DicTraverseSession *traverseSession, DicNode *dicNode,
+            ExpansionContext *const expansionContext) const;
     void weightChildNode(DicTraverseSession *traverseSession, DicNode *dicNode) const;
-    void processDicNodeAsOmission(DicTraverseSession *traverseSession, DicNode *dicNode) const;
-    void processDicNodeAsDigraph(DicTraverseSession *traverseSession, DicNode *dicNode) const;
+    void processDicNodeAsOmission(DicTraverseSession *traverseSession, DicNode *dicNode,
+            ExpansionContext *const expansionContext) const;
+    void processDicNodeAsDigraph(DicTraverseSession *traverseSession, DicNode *dicNode,
+            ExpansionContext *const expansionContext) const;
     void processDicNodeAsTransposition(DicTraverseSession *traverseSession,
-            DicNode *dicNode) const;
-    void processDicNodeAsInsertion(DicTraverseSession *traverseSession, DicNode *dicNode) const;
+            DicNode *dicNode, ExpansionContext *const expansionContext) const;
+    void processDicNodeAsInsertion(DicTraverseSession *traverseSession, DicNode *dicNode,
+            ExpansionContext *const expansionContext) const;
     void processDicNodeAsAdditionalProximityChar(DicTraverseSession *traverseSession,
-            DicNode *dicNode, DicNode *childDicNode) const;
+            DicNode *dicNode, DicNode *childDicNode,
+            ExpansionContext *const expansionContext) const;
     void processDicNodeAsSubstitution(DicTraverseSession *traverseSession, DicNode *dicNode,
-            DicNode *childDicNode) const;
+            DicNode *childDicNode, ExpansionContext *const expansionContext) const;
     void processDicNodeAsMatch(DicTraverseSession *traverseSession,
-            DicNode *childDicNode) const;
+            DicNode *childDicNode, ExpansionContext *const expansionContext) const;
 
     static const int MIN_CONTINUOUS_SUGGESTION_INPUT_SIZE;
+    static const int MIN_DIC_NODE_COUNT_PER_EXPANSION_TASK;
 
     const Traversal *const TRAVERSAL;
     const Scoring *const SCORING;
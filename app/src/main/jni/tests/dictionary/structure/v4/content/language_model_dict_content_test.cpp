@@ -21,7 +21,10 @@
 #include <array>
 #include <unordered_set>
 
+#include "dictionary/structure/v4/content/dynamic_language_model_probability_utils.h"
+#include "dictionary/utils/probability_utils.h"
 #include "utils/int_array_view.h"
+#include "utils/time_keeper.h"
 
 namespace latinime {
 namespace {
@@ -70,6 +73,50 @@ TEST(LanguageModelDictContentTest, TestUnigramProbabilityWithHistoricalInfo) {
     EXPECT_TRUE(languageModelDictContent.removeProbabilityEntry(wordId));
 }
 
+// The probability of a unigram with historical info computed from its count on each lookup.
+int computeUnigramProbability(const HistoricalInfo &historicalInfo, const int totalCount) {
+    const int encodedRawProbability = ProbabilityUtils::encodeRawProbability(
+            DynamicLanguageModelProbabilityUtils::computeRawProbabilityFromCounts(
+                    historicalInfo.getCount(), totalCount, NgramType::Unigram));
+    return DynamicLanguageModelProbabilityUtils::backoff(
+            DynamicLanguageModelProbabilityUtils::getDecayedProbability(
+                    encodedRawProbability, historicalInfo), NgramType::Unigram);
+}
+
+TEST(LanguageModelDictContentTest, TestWordProbabilityWithHistoricalInfo) {
+    static const int TEST_CURRENT_TIME = 100000;
+    TimeKeeper::startTestModeWithForceCurrentTime(TEST_CURRENT_TIME);
+    LanguageModelDictContent languageModelDictContent(true /* useHistoricalInfo */);
+
+    // The total count exceeds the minimum count assumed for unigrams after the last word.
+    const int counts[] = { 1, 2, 3, 10, 100, 255, 256, 1000, 5000, 20000 };
+    int totalCount = 0;
+    int wordId = 0;
+    for (const int count : counts) {
+        const HistoricalInfo historicalInfo(TEST_CURRENT_TIME - count, 0 /* level */, count);
+        const ProbabilityEntry probabilityEntry(0 /* flags */, &historicalInfo);
+        languageModelDictContent.setProbabilityEntry(++wordId, &probabilityEntry);
+        totalCount += count;
+        // The probabilities of all words change with the total count.
+        for (int i = 1; i <= wordId; ++i) {
+            const ProbabilityEntry storedEntry = languageModelDictContent.getProbabilityEntry(i);
+            EXPECT_EQ(computeUnigramProbability(*storedEntry.getHistoricalInfo(), totalCount),
+                    languageModelDictContent.getWordAttributes(WordIdArrayView(), i,
+                            false /* mustMatchAllPrevWords */, nullptr /* headerPolicy */)
+                                    .getProbability());
+        }
+    }
+
+    // Entries with timestamps in the future are decayed away.
+    const HistoricalInfo futureHistoricalInfo(TEST_CURRENT_TIME + 1, 0 /* level */, 10);
+    const ProbabilityEntry futureProbabilityEntry(0 /* flags */, &futureHistoricalInfo);
+    languageModelDictContent.setProbabilityEntry(++wordId, &futureProbabilityEntry);
+    EXPECT_EQ(NOT_A_PROBABILITY, languageModelDictContent.getWordAttributes(WordIdArrayView(),
+            wordId, false /* mustMatchAllPrevWords */, nullptr /* headerPolicy */)
+                    .getProbability());
+    TimeKeeper::stopTestMode();
+}
+
 TEST(LanguageModelDictContentTest, TestIterateProbabilityEntry) {
     LanguageModelDictContent languageModelDictContent(false /* useHistoricalInfo */);
 
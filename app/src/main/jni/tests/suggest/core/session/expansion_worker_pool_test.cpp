@@ -0,0 +1,52 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+#include "suggest/core/session/expansion_worker_pool.h"
+
+#include <gtest/gtest.h>
+
+#include <atomic>
+#include <vector>
+
+namespace latinime {
+namespace {
+
+TEST(ExpansionWorkerPoolTest, TestThreadCount) {
+    for (int threadCount = 1; threadCount <= ExpansionWorkerPool::MAX_THREAD_COUNT;
+            ++threadCount) {
+        ExpansionWorkerPool workerPool(threadCount);
+        EXPECT_EQ(threadCount, workerPool.getThreadCount());
+    }
+}
+
+TEST(ExpansionWorkerPoolTest, TestRunEachTaskOnce) {
+    ExpansionWorkerPool workerPool(ExpansionWorkerPool::MAX_THREAD_COUNT);
+    for (int taskCount = 0; taskCount <= 10; ++taskCount) {
+        std::vector<std::atomic<int>> runCounts(taskCount);
+        for (std::atomic<int> &runCount : runCounts) {
+            runCount = 0;
+        }
+        workerPool.run(taskCount, [&](const int taskIndex) {
+            ++runCounts[taskIndex];
+        });
+        for (int i = 0; i < taskCount; ++i) {
+            EXPECT_EQ(1, runCounts[i]);
+        }
+    }
+}
+
+TEST(ExpansionWorkerPoolTest, TestRepeatedRuns) {
+    ExpansionWorkerPool workerPool(2);
+    std::vector<int> results(4);
+    for (int i = 0; i < 1000; ++i) {
+        workerPool.run(static_cast<int>(results.size()), [&](const int taskIndex) {
+            results[taskIndex] = i + taskIndex;
+        });
+        // All tasks have finished when run() returns.
+        for (int j = 0; j < static_cast<int>(results.size()); ++j) {
+            ASSERT_EQ(i + j, results[j]);
+        }
+    }
+}
+
+}  // namespace
+}  // namespace latinime
@@ -0,0 +1,92 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+#include "suggest/core/session/traversal_budget.h"
+
+#include <gtest/gtest.h>
+
+namespace latinime {
+namespace {
+
+static const int POLICY_SIZE = 170;
+static const int CAPACITY = 310;
+
+TEST(TraversalBudgetTest, TestDefault) {
+    TraversalBudget budget;
+    EXPECT_EQ(TraversalBudget::DEVICE_CLASS_DEFAULT, budget.getDeviceClass());
+    EXPECT_EQ(TraversalBudget::NOT_MEASURED, budget.getAverageLatencyUs());
+    EXPECT_EQ(POLICY_SIZE, budget.getNextActiveSize(POLICY_SIZE, CAPACITY));
+}
+
+TEST(TraversalBudgetTest, TestDefaultIsNotAdapted) {
+    TraversalBudget budget;
+    for (int i = 0; i < 100; ++i) {
+        budget.onQueryFinished(budget.getTargetLatencyUs() * 2);
+    }
+    EXPECT_EQ(POLICY_SIZE, budget.getNextActiveSize(POLICY_SIZE, CAPACITY));
+    for (int i = 0; i < 1000; ++i) {
+        budget.onQueryFinished(1);
+    }
+    EXPECT_EQ(POLICY_SIZE, budget.getNextActiveSize(POLICY_SIZE, CAPACITY));
+}
+
+TEST(TraversalBudgetTest, TestDecreaseWhenSlow) {
+    TraversalBudget budget;
+    budget.setDeviceClass(TraversalBudget::DEVICE_CLASS_HIGH_END);
+    const int slowLatencyUs = budget.getTargetLatencyUs() * 2;
+    for (int i = 0; i < 100; ++i) {
+        budget.onQueryFinished(slowLatencyUs);
+    }
+    const int size = budget.getNextActiveSize(POLICY_SIZE, CAPACITY);
+    EXPECT_LT(size, POLICY_SIZE);
+    EXPECT_GT(size, 0);
+    // Stays at the minimum.
+    for (int i = 0; i < 100; ++i) {
+        budget.onQueryFinished(slowLatencyUs);
+    }
+    EXPECT_EQ(size, budget.getNextActiveSize(POLICY_SIZE, CAPACITY));
+}
+
+TEST(TraversalBudgetTest, TestIncreaseWhenFast) {
+    TraversalBudget budget;
+    budget.setDeviceClass(TraversalBudget::DEVICE_CLASS_HIGH_END);
+    for (int i = 0; i < 1000; ++i) {
+        budget.onQueryFinished(1);
+    }
+    EXPECT_GT(budget.getNextActiveSize(POLICY_SIZE, CAPACITY), POLICY_SIZE);
+    EXPECT_EQ(CAPACITY, budget.getNextActiveSize(CAPACITY, CAPACITY));
+}
+
+TEST(TraversalBudgetTest, TestKeepWithinTarget) {
+    TraversalBudget budget;
+    budget.setDeviceClass(TraversalBudget::DEVICE_CLASS_HIGH_END);
+    const float initialScale = budget.getScale();
+    const int latencyUs = budget.getTargetLatencyUs() * 3 / 4;
+    for (int i = 0; i < 100; ++i) {
+        budget.onQueryFinished(latencyUs);
+    }
+    EXPECT_FLOAT_EQ(initialScale, budget.getScale());
+    EXPECT_EQ(latencyUs, budget.getAverageLatencyUs());
+}
+
+TEST(TraversalBudgetTest, TestLowEndDevice) {
+    TraversalBudget budget;
+    budget.setDeviceClass(TraversalBudget::DEVICE_CLASS_LOW_END);
+    EXPECT_LT(budget.getNextActiveSize(POLICY_SIZE, CAPACITY), POLICY_SIZE);
+    for (int i = 0; i < 1000; ++i) {
+        budget.onQueryFinished(1);
+    }
+    // Low end devices never search wider than the policy.
+    EXPECT_EQ(POLICY_SIZE, budget.getNextActiveSize(POLICY_SIZE, CAPACITY));
+}
+
+TEST(TraversalBudgetTest, TestSmallPolicySize) {
+    TraversalBudget budget;
+    budget.setDeviceClass(TraversalBudget::DEVICE_CLASS_LOW_END);
+    for (int i = 0; i < 1000; ++i) {
+        budget.onQueryFinished(budget.getTargetLatencyUs() * 2);
+    }
+    EXPECT_EQ(10, budget.getNextActiveSize(10, CAPACITY));
+}
+
+}  // namespace
+}  // namespace latinime
@@ -0,0 +1,53 @@
+// SPDX-License-Identifier: GPL-3.0-only
+package helium314.keyboard
+
+import helium314.keyboard.keyboard.internal.keyboard_parser.CompiledLayoutCache
+import helium314.keyboard.keyboard.internal.keyboard_parser.LayoutParser
+import helium314.keyboard.keyboard.internal.keyboard_parser.floris.AbstractKeyData
+import helium314.keyboard.latin.utils.LayoutType
+import helium314.keyboard.latin.utils.LayoutType.Companion.folder
+import kotlinx.serialization.ExperimentalSerializationApi
+import kotlinx.serialization.PolymorphicSerializer
+import kotlinx.serialization.builtins.ListSerializer
+import kotlinx.serialization.json.Json
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.RuntimeEnvironment
+import java.io.ByteArrayOutputStream
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.File
+import kotlin.test.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertTrue
+
+@RunWith(RobolectricTestRunner::class)
+class CompiledLayoutCacheTest {
+    // key data classes don't implement equals, so layouts are compared by their json
+    @OptIn(ExperimentalSerializationApi::class)
+    private val json = Json {
+        classDiscriminator = "$"
+        encodeDefaults = true
+        serializersModule = LayoutParser.keyDataSerializersModule
+    }
+    private val layoutSerializer = ListSerializer(ListSerializer(PolymorphicSerializer(AbstractKeyData::class)))
+
+    @Test fun builtInJsonLayoutsSurviveRoundTrip() {
+        val assets = RuntimeEnvironment.getApplication().assets
+        var count = 0
+        LayoutType.entries.forEach { layoutType ->
+            assets.list(layoutType.folder).orEmpty().filter { it.endsWith(".json") }.forEach { fileName ->
+                val content = assets.open(layoutType.folder + File.separator + fileName).reader().readText()
+                val rows = LayoutParser.parseJsonString(content, false)
+                val bytes = ByteArrayOutputStream()
+                DataOutputStream(bytes).use { CompiledLayoutCache.encodeJsonLayout(rows, it) }
+                val decoded = DataInputStream(bytes.toByteArray().inputStream()).use { input ->
+                    CompiledLayoutCache.decodeJsonLayout(input).also { assertEquals(-1, input.read(), "$fileName not fully read") }
+                }
+                assertEquals(json.encodeToString(layoutSerializer, rows), json.encodeToString(layoutSerializer, decoded), fileName)
+                count++
+            }
+        }
+        assertTrue(count > 0)
+    }
+}
@@ -0,0 +1,34 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+package helium314.keyboard.benchmark;
+
+import android.content.Context;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * State shared by the benchmarks, set up by {@link MicroBenchmarks} before JMH starts.
+ */
+public final class BenchmarkEnvironment {
+    // the LatinIME service, which initializes settings
+    public static Context context;
+
+    /**
+     * Reads a file from the app assets, unit tests are run in the app directory.
+     */
+    public static String readAsset(final String path) {
+        try {
+            return new String(Files.readAllBytes(new File("src/main/assets", path).toPath()),
+                    StandardCharsets.UTF_8);
+        } catch (final IOException e) {
+            throw new IllegalStateException("Cannot read asset " + path, e);
+        }
+    }
+
+    private BenchmarkEnvironment() {
+        // This utility class is not publicly instantiable.
+    }
+}
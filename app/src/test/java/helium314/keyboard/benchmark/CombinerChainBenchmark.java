@@ -0,0 +1,60 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+package helium314.keyboard.benchmark;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import helium314.keyboard.event.CombinerChain;
+import helium314.keyboard.event.Event;
+import helium314.keyboard.latin.common.Constants;
+
+/**
+ * Typing a word through the combiner chain, the same way {@link helium314.keyboard.latin.WordComposer}
+ * does it. Reported time is per word, not per event.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Thread)
+public class CombinerChainBenchmark {
+    @Param({ "hangul", "bn_khipro" })
+    public String mCombiningSpec;
+
+    private CombinerChain mCombinerChain;
+    private Event[] mInput;
+    private final ArrayList<Event> mEvents = new ArrayList<>();
+
+    @Setup
+    public void setup() {
+        mCombinerChain = new CombinerChain("", mCombiningSpec);
+        // 한국어 as jamo from the korean layout, বাংলা as romanized input for khipro
+        final String input = mCombiningSpec.equals("hangul") ? "ㅎㅏㄴㄱㅜㄱㅇㅓ" : "bangla";
+        mInput = input.codePoints().mapToObj(codePoint -> Event.createSoftwareKeypressEvent(codePoint, 0,
+                Constants.NOT_A_COORDINATE, Constants.NOT_A_COORDINATE, false)).toArray(Event[]::new);
+    }
+
+    @Benchmark
+    public CharSequence typeWord() {
+        mCombinerChain.reset();
+        mEvents.clear();
+        for (final Event event : mInput) {
+            final Event processedEvent = mCombinerChain.processEvent(mEvents, event);
+            mEvents.add(event);
+            mCombinerChain.applyProcessedEvent(processedEvent);
+        }
+        return mCombinerChain.getComposingWordWithCombiningFeedback();
+    }
+}
@@ -0,0 +1,93 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+package helium314.keyboard.benchmark;
+
+import android.graphics.Path;
+import android.graphics.Rect;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import helium314.keyboard.keyboard.internal.RoundedLine;
+
+/**
+ * Creating the geometry of a gesture trail, done for every frame while gesture typing.
+ * Compares a path per segment with all segments added to one reused path, allocations are shown
+ * by the gc profiler. Needs the native graphics mode of {@link MicroBenchmarks}, as the shadow
+ * {@link Path} does not do the work of the actual one.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Thread)
+public class GestureTrailBenchmark {
+    // number of points in a trail, a long word has a few hundred
+    @Param({ "50", "500" })
+    public int mPointCount;
+
+    private float[] mXCoordinates;
+    private float[] mYCoordinates;
+    private float[] mRadii;
+    private final RoundedLine mRoundedLine = new RoundedLine();
+    private final Path mTrailPath = new Path();
+    private final Rect mBounds = new Rect();
+    private final Rect mSegmentBounds = new Rect();
+
+    @Setup
+    public void setup() {
+        mXCoordinates = new float[mPointCount];
+        mYCoordinates = new float[mPointCount];
+        mRadii = new float[mPointCount];
+        for (int i = 0; i < mPointCount; i++) {
+            mXCoordinates[i] = (float) (500 + 400 * Math.sin(i * 0.1));
+            mYCoordinates[i] = (float) (300 + 200 * Math.cos(i * 0.07));
+            // the trail gets thinner towards its start
+            mRadii[i] = 2f + 8f * i / mPointCount;
+        }
+    }
+
+    @Benchmark
+    public Rect pathPerSegment() {
+        mBounds.setEmpty();
+        for (int i = 1; i < mPointCount; i++) {
+            final Path path = mRoundedLine.makePath(mXCoordinates[i - 1], mYCoordinates[i - 1], mRadii[i - 1],
+                    mXCoordinates[i], mYCoordinates[i], mRadii[i]);
+            if (!path.isEmpty()) {
+                mRoundedLine.getBounds(mSegmentBounds);
+                mBounds.union(mSegmentBounds);
+            }
+        }
+        return mBounds;
+    }
+
+    @Benchmark
+    public Rect batchedPath() {
+        mBounds.setEmpty();
+        mTrailPath.rewind();
+        boolean hasStartCircle = false;
+        for (int i = 1; i < mPointCount; i++) {
+            final float p1x = mXCoordinates[i - 1], p1y = mYCoordinates[i - 1], r1 = mRadii[i - 1];
+            final float p2x = mXCoordinates[i], p2y = mYCoordinates[i], r2 = mRadii[i];
+            hasStartCircle = RoundedLine.addToPath(mTrailPath, p1x, p1y, r1, p2x, p2y, r2, !hasStartCircle);
+            if (hasStartCircle) {
+                // like GestureTrailDrawingPoints, bounds are computed from the circles
+                mBounds.union((int) Math.floor(Math.min(p1x - r1, p2x - r2)),
+                        (int) Math.floor(Math.min(p1y - r1, p2y - r2)),
+                        (int) Math.ceil(Math.max(p1x + r1, p2x + r2)),
+                        (int) Math.ceil(Math.max(p1y + r1, p2y + r2)));
+            }
+        }
+        return mBounds;
+    }
+}
@@ -0,0 +1,74 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+package helium314.keyboard.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import helium314.keyboard.latin.common.Constants;
+import helium314.keyboard.latin.common.InputPointers;
+import helium314.keyboard.latin.common.ResizableIntArray;
+
+/**
+ * Collecting gesture points, done for every touch move event while gesture typing.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Thread)
+public class InputPointersBenchmark {
+    // number of points in a gesture, a long word has a few hundred
+    @Param({ "50", "500" })
+    public int mPointCount;
+
+    private final ResizableIntArray mTimes = new ResizableIntArray(Constants.DEFAULT_GESTURE_POINTS_CAPACITY);
+    private final ResizableIntArray mXCoordinates = new ResizableIntArray(Constants.DEFAULT_GESTURE_POINTS_CAPACITY);
+    private final ResizableIntArray mYCoordinates = new ResizableIntArray(Constants.DEFAULT_GESTURE_POINTS_CAPACITY);
+
+    @Setup
+    public void setup() {
+        for (int i = 0; i < mPointCount; i++) {
+            mTimes.add(i * 8);
+            mXCoordinates.add((int) (500 + 400 * Math.sin(i * 0.1)));
+            mYCoordinates.add((int) (300 + 200 * Math.cos(i * 0.07)));
+        }
+    }
+
+    @Benchmark
+    public InputPointers addPointers() {
+        final InputPointers pointers = new InputPointers(Constants.DEFAULT_GESTURE_POINTS_CAPACITY);
+        for (int i = 0; i < mPointCount; i++) {
+            pointers.addPointer(mXCoordinates.get(i), mYCoordinates.get(i), 0, mTimes.get(i));
+        }
+        return pointers;
+    }
+
+    @Benchmark
+    public InputPointers appendAndShift() {
+        final InputPointers pointers = new InputPointers(Constants.DEFAULT_GESTURE_POINTS_CAPACITY);
+        pointers.append(0, mTimes, mXCoordinates, mYCoordinates, 0, mPointCount);
+        pointers.shift(mPointCount / 2);
+        return pointers;
+    }
+
+    @Benchmark
+    public ResizableIntArray resizableArrayAdd() {
+        // starts small to include growing the array
+        final ResizableIntArray array = new ResizableIntArray(8);
+        for (int i = 0; i < mPointCount; i++) {
+            array.add(i);
+        }
+        return array;
+    }
+}
@@ -0,0 +1,45 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+package helium314.keyboard.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import helium314.keyboard.keyboard.internal.KeySpecParser;
+
+/**
+ * Key spec parsing, done for every key and popup key when creating a keyboard.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Thread)
+public class KeySpecParserBenchmark {
+    @Param({ "a", "hey|there", "a\\|b|c", "!icon/settings_key|!code/key_settings", "😀|0x1F600" })
+    public String mKeySpec;
+
+    @Benchmark
+    public void parse(final Blackhole blackhole) {
+        final int code = KeySpecParser.getCode(mKeySpec);
+        blackhole.consume(code);
+        blackhole.consume(KeySpecParser.getLabel(mKeySpec));
+        blackhole.consume(KeySpecParser.getOutputText(mKeySpec, code));
+        blackhole.consume(KeySpecParser.getIconName(mKeySpec));
+    }
+
+    @Benchmark
+    public int parseCode() {
+        return KeySpecParser.parseCode("!code/key_settings", 0);
+    }
+}
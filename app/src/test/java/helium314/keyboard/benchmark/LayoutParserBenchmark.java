@@ -0,0 +1,100 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+package helium314.keyboard.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import helium314.keyboard.keyboard.KeyboardId;
+import helium314.keyboard.keyboard.KeyboardLayoutSet;
+import helium314.keyboard.keyboard.internal.KeyboardParams;
+import helium314.keyboard.keyboard.internal.keyboard_parser.CompiledLayoutCache;
+import helium314.keyboard.keyboard.internal.keyboard_parser.KeyboardParser;
+import helium314.keyboard.keyboard.internal.keyboard_parser.LayoutParser;
+import helium314.keyboard.keyboard.internal.keyboard_parser.LocaleKeyboardInfosKt;
+import helium314.keyboard.latin.utils.PopupKeysUtilsKt;
+
+/**
+ * Parsing of layout files and creation of the key list, done when a keyboard is created.
+ * The uncached variant corresponds to the first keyboard after a layout change, and reads the
+ * layouts from the {@link CompiledLayoutCache} after the first run.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@State(Scope.Thread)
+public class LayoutParserBenchmark {
+    private String mSimpleLayout;
+    private String mJsonLayout;
+    private String mFunctionalLayout;
+    private byte[] mCompiledJsonLayout;
+
+    @Setup
+    public void setup() {
+        mSimpleLayout = BenchmarkEnvironment.readAsset("layouts/main/qwerty.txt");
+        mJsonLayout = BenchmarkEnvironment.readAsset("layouts/main/azerty.json");
+        mFunctionalLayout = BenchmarkEnvironment.readAsset("layouts/functional/functional_keys.json");
+        final ByteArrayOutputStream compiled = new ByteArrayOutputStream();
+        CompiledLayoutCache.INSTANCE.encodeJsonLayout(
+                LayoutParser.INSTANCE.parseJsonString(mJsonLayout, true), new DataOutputStream(compiled));
+        mCompiledJsonLayout = compiled.toByteArray();
+    }
+
+    @Benchmark
+    public List<?> parseSimpleString() {
+        return LayoutParser.INSTANCE.parseSimpleString(mSimpleLayout);
+    }
+
+    @Benchmark
+    public List<?> parseJsonString() {
+        return LayoutParser.INSTANCE.parseJsonString(mJsonLayout, true);
+    }
+
+    // same layout as parseJsonString
+    @Benchmark
+    public List<?> decodeCompiledJsonLayout() {
+        return CompiledLayoutCache.INSTANCE.decodeJsonLayout(
+                new DataInputStream(new ByteArrayInputStream(mCompiledJsonLayout)));
+    }
+
+    @Benchmark
+    public List<?> parseFunctionalKeys() {
+        return LayoutParser.INSTANCE.parseJsonString(mFunctionalLayout, true);
+    }
+
+    @Benchmark
+    public List<?> keyboardParserCached() {
+        return new KeyboardParser(createParams(), BenchmarkEnvironment.context).parseLayout();
+    }
+
+    @Benchmark
+    public List<?> keyboardParserUncached() {
+        LayoutParser.INSTANCE.clearCache();
+        return new KeyboardParser(createParams(), BenchmarkEnvironment.context).parseLayout();
+    }
+
+    // parseLayout modifies the params, so each run needs new ones
+    private static KeyboardParams createParams() {
+        final KeyboardParams params = new KeyboardParams();
+        params.mId = KeyboardLayoutSet.getFakeKeyboardId(KeyboardId.ELEMENT_ALPHABET);
+        params.mPopupKeyTypes.add(PopupKeysUtilsKt.POPUP_KEYS_LAYOUT);
+        LocaleKeyboardInfosKt.addLocaleKeyTextsToParams(BenchmarkEnvironment.context, params,
+                LocaleKeyboardInfosKt.POPUP_KEYS_NORMAL);
+        return params;
+    }
+}
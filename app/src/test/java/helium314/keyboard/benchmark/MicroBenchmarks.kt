@@ -0,0 +1,57 @@
+// SPDX-License-Identifier: GPL-3.0-only
+package helium314.keyboard.benchmark
+
+import helium314.keyboard.ShadowInputMethodManager2
+import helium314.keyboard.ShadowProximityInfo
+import helium314.keyboard.latin.LatinIME
+import org.junit.Assume
+import org.junit.runner.RunWith
+import org.openjdk.jmh.profile.GCProfiler
+import org.openjdk.jmh.results.format.ResultFormatType
+import org.openjdk.jmh.runner.Runner
+import org.openjdk.jmh.runner.options.OptionsBuilder
+import org.robolectric.Robolectric
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.annotation.Config
+import org.robolectric.annotation.GraphicsMode
+import java.io.File
+import kotlin.test.Test
+
+/**
+ * Runs the JMH benchmarks in this package inside the Robolectric environment, as most of the
+ * benchmarked code needs the Android framework and an initialized [LatinIME].
+ *
+ * Skipped unless the benchmark property is set, see benchmarks/README.md:
+ * `./gradlew :app:testStandardDebugUnitTest --tests '*MicroBenchmarks' -Pbenchmark`
+ * The property value is a regex for selecting benchmarks, `-Pbenchmark=KeySpec` only runs
+ * [KeySpecParserBenchmark]. Results are written to app/build/benchmarks/results.json.
+ *
+ * Native graphics are used, so e.g. [GestureTrailBenchmark] measures the actual Skia path code
+ * instead of the Robolectric shadows.
+ */
+@RunWith(RobolectricTestRunner::class)
+@GraphicsMode(GraphicsMode.Mode.NATIVE)
+@Config(shadows = [
+    ShadowInputMethodManager2::class,
+    ShadowProximityInfo::class,
+])
+class MicroBenchmarks {
+    @Test fun runBenchmarks() {
+        val filter = System.getProperty("benchmark")
+        Assume.assumeTrue("benchmarks are only run with -Pbenchmark", filter != null)
+
+        BenchmarkEnvironment.context = Robolectric.setupService(LatinIME::class.java)
+        val resultFile = File("build/benchmarks/results.json")
+        resultFile.parentFile?.mkdirs()
+        val options = OptionsBuilder()
+            .include(BenchmarkEnvironment::class.java.packageName + ".*" + filter!! + ".*")
+            // forking would lose the Robolectric environment, benchmarks run in this JVM
+            .forks(0)
+            // allocations per operation, reported as gc.alloc.rate.norm
+            .addProfiler(GCProfiler::class.java)
+            .result(resultFile.absolutePath)
+            .resultFormat(ResultFormatType.JSON)
+            .build()
+        Runner(options).run()
+    }
+}
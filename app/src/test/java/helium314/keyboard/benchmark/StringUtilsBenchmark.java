@@ -0,0 +1,97 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+package helium314.keyboard.benchmark;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import helium314.keyboard.latin.common.StringUtils;
+import helium314.keyboard.latin.common.StringUtilsKt;
+import helium314.keyboard.latin.settings.Settings;
+import helium314.keyboard.latin.settings.SpacingAndPunctuations;
+import helium314.keyboard.latin.utils.ScriptUtils;
+
+/**
+ * String functions called for every key press or cursor move.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Thread)
+public class StringUtilsBenchmark {
+    private static final String TEXT_BEFORE_CURSOR = "Yesterday I went to the shop and bought some things, "
+            + "then I checked https://example.com/some/path and wrote \"hello wor";
+    private static final String TEXT_AFTER_CURSOR = "ld\" to my friend.";
+    private static final String TEXT_WITH_EMOJI = "that is great 👍🏽";
+
+    private SpacingAndPunctuations mSpacingAndPunctuations;
+    private int[] mSortedSeparators;
+
+    @Setup
+    public void setup() {
+        mSpacingAndPunctuations = Settings.getValues().mSpacingAndPunctuations;
+        mSortedSeparators = mSpacingAndPunctuations.mSortedWordSeparators;
+    }
+
+    @Benchmark
+    public int capitalizationType() {
+        return StringUtils.getCapitalizationType("HeliBoard");
+    }
+
+    @Benchmark
+    public String capitalizeEachWord() {
+        return StringUtils.capitalizeEachWord("the quick brown fox", mSortedSeparators, Locale.ENGLISH);
+    }
+
+    @Benchmark
+    public boolean lastPartLooksLikeUrl() {
+        return StringUtils.lastPartLooksLikeURL(TEXT_BEFORE_CURSOR);
+    }
+
+    @Benchmark
+    public boolean insideDoubleQuote() {
+        return StringUtils.isInsideDoubleQuoteOrAfterDigit(TEXT_BEFORE_CURSOR);
+    }
+
+    @Benchmark
+    public int[] toCodePointArray() {
+        return StringUtils.toCodePointArray(TEXT_BEFORE_CURSOR);
+    }
+
+    @Benchmark
+    public int[] toSortedCodePointArray() {
+        return StringUtils.toSortedCodePointArray(TEXT_BEFORE_CURSOR);
+    }
+
+    @Benchmark
+    public String fullEmojiAtEnd() {
+        return StringUtilsKt.getFullEmojiAtEnd(TEXT_WITH_EMOJI);
+    }
+
+    @Benchmark
+    public Object touchedWordRange() {
+        return StringUtilsKt.getTouchedWordRange(TEXT_BEFORE_CURSOR, TEXT_AFTER_CURSOR,
+                ScriptUtils.SCRIPT_LATIN, mSpacingAndPunctuations);
+    }
+
+    @Benchmark
+    public boolean nonWordCodePointBeforeCursor() {
+        return StringUtilsKt.nonWordCodePointAndNoSpaceBeforeCursor(TEXT_BEFORE_CURSOR, mSpacingAndPunctuations);
+    }
+
+    @Benchmark
+    public Object splitOnWhitespace() {
+        return StringUtilsKt.splitOnWhitespace("a b$$c   eé è f");
+    }
+}
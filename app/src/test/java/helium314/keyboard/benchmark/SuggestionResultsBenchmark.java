@@ -0,0 +1,73 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+package helium314.keyboard.benchmark;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import helium314.keyboard.latin.SuggestedWords;
+import helium314.keyboard.latin.SuggestedWords.SuggestedWordInfo;
+import helium314.keyboard.latin.dictionary.Dictionary;
+import helium314.keyboard.latin.utils.SuggestionResults;
+
+/**
+ * Merging the suggestions of all dictionaries and locales, like
+ * {@code DictionaryFacilitatorImpl.getSuggestionResults} does after each
+ * input.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Thread)
+public class SuggestionResultsBenchmark {
+    // one per enabled locale
+    @Param({ "1", "3" })
+    public int mGroupCount;
+
+    // suggestions from all dictionaries of a group
+    @Param({ "20", "200" })
+    public int mSuggestionsPerGroup;
+
+    private final ArrayList<ArrayList<SuggestedWordInfo>> mSuggestions = new ArrayList<>();
+
+    @Setup
+    public void setup() {
+        final Random random = new Random(1);
+        for (int group = 0; group < mGroupCount; group++) {
+            final ArrayList<SuggestedWordInfo> suggestions = new ArrayList<>(mSuggestionsPerGroup);
+            for (int i = 0; i < mSuggestionsPerGroup; i++) {
+                final StringBuilder word = new StringBuilder();
+                final int length = 2 + random.nextInt(8);
+                for (int j = 0; j < length; j++) {
+                    word.append((char) ('a' + random.nextInt(26)));
+                }
+                suggestions.add(new SuggestedWordInfo(word.toString(), "", random.nextInt(2000000),
+                        SuggestedWordInfo.KIND_CORRECTION, Dictionary.DICTIONARY_USER_TYPED,
+                        SuggestedWordInfo.NOT_AN_INDEX, SuggestedWordInfo.NOT_A_CONFIDENCE));
+            }
+            mSuggestions.add(suggestions);
+        }
+    }
+
+    @Benchmark
+    public SuggestionResults merge() {
+        final SuggestionResults results = new SuggestionResults(SuggestedWords.MAX_SUGGESTIONS, false, false);
+        for (final ArrayList<SuggestedWordInfo> suggestions : mSuggestions) {
+            results.addAll(suggestions);
+        }
+        return results;
+    }
+}
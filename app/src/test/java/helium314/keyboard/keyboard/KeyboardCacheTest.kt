@@ -0,0 +1,112 @@
+// SPDX-License-Identifier: GPL-3.0-only
+package helium314.keyboard.keyboard
+
+import helium314.keyboard.ShadowInputMethodManager2
+import helium314.keyboard.latin.LatinIME
+import org.junit.runner.RunWith
+import org.mockito.Mockito
+import org.robolectric.Robolectric
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.annotation.Config
+import kotlin.test.BeforeTest
+import kotlin.test.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertNotNull
+import kotlin.test.assertNull
+import kotlin.test.assertTrue
+
+@RunWith(RobolectricTestRunner::class)
+@Config(shadows = [
+    ShadowInputMethodManager2::class,
+])
+class KeyboardCacheTest {
+    @BeforeTest fun setUp() {
+        Robolectric.setupService(LatinIME::class.java)
+    }
+
+    private fun key(elementId: Int) = KeyboardCache.CacheKey(KeyboardLayoutSet.getFakeKeyboardId(elementId), "config")
+
+    private fun keyboard(size: Int): Keyboard = Mockito.mock(Keyboard::class.java).also {
+        Mockito.`when`(it.estimateSizeInBytes()).thenReturn(size)
+    }
+
+    private fun KeyboardCache.put(key: KeyboardCache.CacheKey, size: Int) = put(key, keyboard(size), generation, 0, false)
+
+    private fun KeyboardCache.size() = Regex("size: (\\d+)/").find(stats)!!.groupValues[1].toInt()
+
+    @Test fun sizeIsSumOfKeyboardSizes() {
+        val cache = KeyboardCache(1000)
+        cache.put(key(KeyboardId.ELEMENT_ALPHABET), 100)
+        cache.put(key(KeyboardId.ELEMENT_SYMBOLS), 200)
+        assertEquals(300, cache.size())
+        // replacing a keyboard replaces its size
+        cache.put(key(KeyboardId.ELEMENT_SYMBOLS), 50)
+        assertEquals(150, cache.size())
+        cache.clear()
+        assertEquals(0, cache.size())
+    }
+
+    @Test fun evictsLessUsedOfLeastRecentlyUsedHalf() {
+        val cache = KeyboardCache(300)
+        val alphabet = key(KeyboardId.ELEMENT_ALPHABET)
+        val symbols = key(KeyboardId.ELEMENT_SYMBOLS)
+        val number = key(KeyboardId.ELEMENT_NUMBER)
+        cache.put(alphabet, 100)
+        cache.put(symbols, 100)
+        cache.put(number, 100)
+        // access order is alphabet, symbols, number, but alphabet is used most
+        repeat(3) { cache.get(alphabet, true) }
+        cache.get(symbols, true)
+        cache.get(number, true)
+
+        cache.put(key(KeyboardId.ELEMENT_PHONE), 100)
+        assertNull(cache.peek(symbols))
+        assertNotNull(cache.peek(alphabet))
+        assertNotNull(cache.peek(number))
+        assertEquals(300, cache.size())
+
+        // the recently used half is kept even if used less
+        cache.put(key(KeyboardId.ELEMENT_PHONE_SYMBOLS), 100)
+        assertNull(cache.peek(number))
+        assertNotNull(cache.peek(alphabet))
+        assertNotNull(cache.peek(key(KeyboardId.ELEMENT_PHONE)))
+        assertEquals(300, cache.size())
+    }
+
+    @Test fun uncountedLookupsDontKeepKeyboard() {
+        val cache = KeyboardCache(300)
+        val alphabet = key(KeyboardId.ELEMENT_ALPHABET)
+        val symbols = key(KeyboardId.ELEMENT_SYMBOLS)
+        val number = key(KeyboardId.ELEMENT_NUMBER)
+        cache.put(alphabet, 100)
+        cache.put(symbols, 100)
+        cache.put(number, 100)
+        // e.g. lookups by the spell checker
+        repeat(3) { cache.get(alphabet, false) }
+        cache.get(symbols, true)
+        cache.get(number, true)
+
+        cache.put(key(KeyboardId.ELEMENT_PHONE), 100)
+        assertNull(cache.peek(alphabet))
+        assertNotNull(cache.peek(symbols))
+    }
+
+    @Test fun addedKeyboardIsKeptIfLargerThanCache() {
+        val cache = KeyboardCache(100)
+        cache.put(key(KeyboardId.ELEMENT_ALPHABET), 50)
+        cache.put(key(KeyboardId.ELEMENT_SYMBOLS), 500)
+        assertNull(cache.peek(key(KeyboardId.ELEMENT_ALPHABET)))
+        assertNotNull(cache.peek(key(KeyboardId.ELEMENT_SYMBOLS)))
+        assertEquals(500, cache.size())
+        assertTrue("evictions: 1" in cache.stats)
+    }
+
+    @Test fun keyboardCreatedBeforeClearIsNotAdded() {
+        val cache = KeyboardCache(1000)
+        val generation = cache.generation
+        cache.clear()
+        cache.put(key(KeyboardId.ELEMENT_ALPHABET), keyboard(100), generation, 0, false)
+        assertNull(cache.peek(key(KeyboardId.ELEMENT_ALPHABET)))
+        assertEquals(0, cache.size())
+    }
+}
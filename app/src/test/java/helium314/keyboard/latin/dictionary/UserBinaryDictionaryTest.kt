@@ -0,0 +1,56 @@
+// SPDX-License-Identifier: GPL-3.0-only
+package helium314.keyboard.latin.dictionary
+
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import kotlin.test.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertTrue
+
+@RunWith(RobolectricTestRunner::class)
+class UserBinaryDictionaryTest {
+    private fun entry(word: String, shortcut: String? = null, frequency: Int = 250) =
+        UserBinaryDictionary.Entry(word, shortcut, frequency, "en_US")
+
+    private fun delta(loaded: List<UserBinaryDictionary.Entry>, new: List<UserBinaryDictionary.Entry>) =
+        UserBinaryDictionary.computeDelta(loaded.map { it.toSnapshotLine() }.toSet(), new.associateBy { it.toSnapshotLine() })
+
+    @Test fun unchangedEntriesAreKept() {
+        val entries = listOf(entry("hello"), entry("be right back", "brb"))
+        val delta = delta(entries, entries)
+        assertTrue(delta.mRemovedUnigrams.isEmpty())
+        assertTrue(delta.mAddedEntries.isEmpty())
+        assertEquals(0, delta.mAddedCount)
+        assertEquals(0, delta.mRemovedCount)
+    }
+
+    @Test fun addedAndRemovedWords() {
+        val delta = delta(listOf(entry("hello"), entry("old")), listOf(entry("hello"), entry("new")))
+        assertEquals(setOf("old"), delta.mRemovedUnigrams)
+        assertEquals(listOf("new"), delta.mAddedEntries.map { it.mWord })
+        assertEquals(1, delta.mAddedCount)
+        assertEquals(1, delta.mRemovedCount)
+    }
+
+    @Test fun changedFrequencyAddsWordAgain() {
+        val delta = delta(listOf(entry("hello", frequency = 100)), listOf(entry("hello", frequency = 200)))
+        assertEquals(listOf(200), delta.mAddedEntries.map { it.mFrequency })
+    }
+
+    @Test fun renamedShortcutTargetRemovesOldTarget() {
+        val delta = delta(listOf(entry("be right back", "brb")), listOf(entry("be back soon", "brb")))
+        // removing the shortcut removes the shortcut to the old word, the new one is added again
+        assertEquals(setOf("be right back", "brb"), delta.mRemovedUnigrams)
+        assertEquals(listOf("be back soon" to "brb"), delta.mAddedEntries.map { it.mWord to it.mShortcut })
+    }
+
+    @Test fun removedShortcutTargetKeepsOtherTargets() {
+        val kept = entry("be back soon", "brb")
+        val delta = delta(listOf(entry("be right back", "brb"), kept), listOf(kept))
+        assertTrue("brb" in delta.mRemovedUnigrams)
+        // unchanged, but needs to be added again as its shortcut is removed
+        assertEquals(listOf(kept), delta.mAddedEntries)
+        assertEquals(0, delta.mAddedCount)
+        assertEquals(1, delta.mRemovedCount)
+    }
+}
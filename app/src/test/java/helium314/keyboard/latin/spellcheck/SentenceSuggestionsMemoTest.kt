@@ -0,0 +1,110 @@
+// SPDX-License-Identifier: GPL-3.0-only
+package helium314.keyboard.latin.spellcheck
+
+import android.view.textservice.SentenceSuggestionsInfo
+import android.view.textservice.SuggestionsInfo
+import android.view.textservice.TextInfo
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import kotlin.random.Random
+import kotlin.test.Test
+import kotlin.test.assertContentEquals
+import kotlin.test.assertEquals
+import kotlin.test.assertTrue
+
+@RunWith(RobolectricTestRunner::class)
+class SentenceSuggestionsMemoTest {
+    private var lookups = 0
+
+    // splits on spaces, words containing x are typos
+    private fun check(sentences: Array<TextInfo>): Array<SentenceSuggestionsInfo?> = sentences.map { sentence ->
+        val text = sentence.text
+        val offsets = mutableListOf<Int>()
+        val lengths = mutableListOf<Int>()
+        val infos = mutableListOf<SuggestionsInfo>()
+        Regex("[^ .\n]+").findAll(text).forEach {
+            lookups++
+            offsets.add(it.range.first)
+            lengths.add(it.value.length)
+            infos.add(if ("x" in it.value) SuggestionsInfo(SuggestionsInfo.RESULT_ATTR_LOOKS_LIKE_TYPO, arrayOf(it.value.replace("x", "")))
+                else SuggestionsInfo(SuggestionsInfo.RESULT_ATTR_IN_THE_DICTIONARY, emptyArray()))
+        }
+        if (infos.isEmpty()) null
+        else SentenceSuggestionsInfo(infos.toTypedArray(), offsets.toIntArray(), lengths.toIntArray())
+    }.toTypedArray()
+
+    private fun assertSameResult(expected: SentenceSuggestionsInfo, actual: SentenceSuggestionsInfo) {
+        assertEquals(expected.suggestionsCount, actual.suggestionsCount)
+        for (i in 0 until expected.suggestionsCount) {
+            assertEquals(expected.getOffsetAt(i), actual.getOffsetAt(i))
+            assertEquals(expected.getLengthAt(i), actual.getLengthAt(i))
+            val e = expected.getSuggestionsInfoAt(i)
+            val a = actual.getSuggestionsInfoAt(i)
+            assertEquals(e.suggestionsAttributes, a.suggestionsAttributes)
+            assertContentEquals((0 until e.suggestionsCount).map { e.getSuggestionAt(it) },
+                (0 until a.suggestionsCount).map { a.getSuggestionAt(it) })
+        }
+    }
+
+    @Test fun sentenceBoundaries() {
+        assertContentEquals(intArrayOf(0, 0), SentenceSuggestionsMemo.getSentenceBoundaries(""))
+        assertContentEquals(intArrayOf(0, 10), SentenceSuggestionsMemo.getSentenceBoundaries("Hello you."))
+        assertContentEquals(intArrayOf(0, 4, 10, 13, 15), SentenceSuggestionsMemo.getSentenceBoundaries("Hi. Yes?! Ok\nno"))
+        assertContentEquals(intArrayOf(0, 5, 9), SentenceSuggestionsMemo.getSentenceBoundaries("e.g. this"))
+    }
+
+    @Test fun editSessionOnLongDocument() {
+        val random = Random(42)
+        val words = listOf("the", "quick", "brown", "fox", "jumps", "over", "lazy", "dog", "and", "runs", "away")
+        val sentences = MutableList(300) { (0 until 12).joinToString(" ") { words.random(random) }
+            .replaceFirstChar { it.uppercase() } + "." }
+        val memo = SentenceSuggestionsMemo()
+        var document = sentences.joinToString(" ")
+
+        memo.getSuggestions(arrayOf(TextInfo(document))) { check(it) }
+        val initialLookups = lookups
+        assertTrue(initialLookups <= sentences.size * 12)
+
+        var editedWords = 0
+        var editLookups = 0
+        repeat(100) {
+            // edit one word somewhere in the document, or add a new sentence
+            val index = random.nextInt(sentences.size)
+            if (random.nextInt(5) == 0) {
+                sentences.add(index, "A new sentence with a tyxpo.")
+                editedWords += 6
+            } else {
+                val sentenceWords = sentences[index].removeSuffix(".").split(" ").toMutableList()
+                sentenceWords[random.nextInt(sentenceWords.size)] = "wrxng"
+                sentences[index] = sentenceWords.joinToString(" ") + "."
+                editedWords += sentenceWords.size
+            }
+            document = sentences.joinToString(" ")
+
+            lookups = 0
+            val expected = check(arrayOf(TextInfo(document))).single()!!
+            lookups = 0
+            val result = memo.getSuggestions(arrayOf(TextInfo(document))) { check(it) }.single()
+            assertSameResult(expected, result)
+            // only the edited sentence is checked again
+            assertTrue(lookups <= 12, "$lookups lookups for a single edit")
+            editLookups += lookups
+        }
+        // dictionary lookups are proportional to the edited text, not to the document size
+        assertTrue(editLookups <= editedWords)
+        assertTrue(editLookups < initialLookups)
+    }
+
+    @Test fun stateChangeForgetsResults() {
+        val memo = SentenceSuggestionsMemo()
+        val textInfos = arrayOf(TextInfo("One sentence. And another one."))
+        memo.setStateKey("en/5/0")
+        memo.getSuggestions(textInfos) { check(it) }
+        lookups = 0
+        memo.getSuggestions(textInfos) { check(it) }
+        assertEquals(0, lookups)
+        memo.setStateKey("en/5/1")
+        memo.getSuggestions(textInfos) { check(it) }
+        assertEquals(5, lookups)
+    }
+}
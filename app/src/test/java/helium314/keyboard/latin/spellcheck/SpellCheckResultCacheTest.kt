@@ -0,0 +1,82 @@
+// SPDX-License-Identifier: GPL-3.0-only
+package helium314.keyboard.latin.spellcheck
+
+import android.content.Context
+import android.view.textservice.SuggestionsInfo
+import com.android.inputmethod.latin.BinaryDictionary
+import helium314.keyboard.latin.dictionary.Dictionary
+import helium314.keyboard.latin.dictionary.ExpandableBinaryDictionary
+import helium314.keyboard.latin.utils.ExecutorUtils
+import org.junit.runner.RunWith
+import org.mockito.Mockito
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.RuntimeEnvironment
+import java.util.Locale
+import java.util.concurrent.Executors
+import kotlin.test.AfterTest
+import kotlin.test.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertNotNull
+import kotlin.test.assertNull
+import kotlin.test.assertTrue
+
+@RunWith(RobolectricTestRunner::class)
+class SpellCheckResultCacheTest {
+    private val locale = Locale.ENGLISH
+    private val typo = SuggestionsInfo.RESULT_ATTR_LOOKS_LIKE_TYPO
+
+    @AfterTest fun tearDown() {
+        ExecutorUtils.setExecutorServiceForTests(null)
+    }
+
+    private fun SpellCheckResultCache.count(name: String) = Regex("$name: (\\d+)").find(stats)!!.groupValues[1].toInt()
+
+    @Test fun onlyServedLookupsAreHits() {
+        val cache = SpellCheckResultCache()
+        cache.put(cache.version, locale, "teh", typo, arrayOf("the", "ten"), 2)
+        assertNotNull(cache.get(locale, "teh", 1))
+        // more suggestions than cached can't be served
+        assertNull(cache.get(locale, "teh", 5))
+        assertTrue(cache.isTypoWithSuggestions(locale, "teh"))
+        assertEquals(1, cache.count("hits"))
+        assertEquals(1, cache.count("misses"))
+    }
+
+    @Test fun resultIsNotStoredIfDictionariesChangedDuringLookup() {
+        val cache = SpellCheckResultCache()
+        val version = cache.version
+        cache.onDictionariesChanged()
+        cache.put(version, locale, "word", SuggestionsInfo.RESULT_ATTR_IN_THE_DICTIONARY)
+        assertNull(cache.get(locale, "word", 5))
+        cache.put(cache.version, locale, "word", SuggestionsInfo.RESULT_ATTR_IN_THE_DICTIONARY)
+        assertNotNull(cache.get(locale, "word", 5))
+    }
+
+    @Test fun incrementalDictionaryUpdateInvalidatesResults() {
+        val executor = Executors.newSingleThreadScheduledExecutor()
+        ExecutorUtils.setExecutorServiceForTests(executor)
+        val dictionary = TestDictionary(RuntimeEnvironment.getApplication())
+        val cache = SpellCheckResultCache()
+        cache.put(cache.version, locale, "newcontact", typo, arrayOf("new contact"), 5)
+        val version = cache.version
+
+        dictionary.update { }
+        executor.submit { }.get()
+
+        assertTrue(cache.version != version)
+        assertNull(cache.get(locale, "newcontact", 5))
+    }
+
+    // a loaded dictionary, without native code
+    private class TestDictionary(context: Context) :
+        ExpandableBinaryDictionary(context, "test", Locale.ENGLISH, Dictionary.TYPE_CONTACTS, null) {
+        init {
+            ExpandableBinaryDictionary::class.java.getDeclaredField("mBinaryDictionary").apply { isAccessible = true }
+                .set(this, Mockito.mock(BinaryDictionary::class.java))
+        }
+
+        override fun loadInitialContentsLocked() { }
+
+        fun update(task: Runnable) = asyncUpdateDictionaryIncrementally(task)
+    }
+}
@@ -0,0 +1,72 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+package helium314.keyboard.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import helium314.keyboard.latin.utils.T5Tokenizer;
+
+/**
+ * Tokenizing a sentence for proofreading, with the character fallback and with a loaded vocabulary.
+ * The vocabulary is generated from the sentence's substrings, which is much smaller than a real
+ * SentencePiece vocabulary, but lookups are hash based so the size hardly matters.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Thread)
+public class T5TokenizerBenchmark {
+    private static final String TEXT = "I has went to the store yesterday and buyed three apple for my mother.";
+
+    @Param({ "false", "true" })
+    public boolean mWithVocab;
+
+    private T5Tokenizer mTokenizer;
+    private File mVocabFile;
+
+    @Setup
+    public void setup() throws IOException {
+        mTokenizer = new T5Tokenizer(BenchmarkEnvironment.context);
+        if (!mWithVocab) return;
+        final String text = ("grammar: " + TEXT).replace(' ', '▁');
+        final ArrayList<String> lines = new ArrayList<>();
+        for (int start = 0; start < text.length(); start++) {
+            for (int end = start + 1; end <= Math.min(text.length(), start + 6); end++) {
+                lines.add(text.substring(start, end) + "\t" + lines.size());
+            }
+        }
+        mVocabFile = File.createTempFile("vocab", ".tsv");
+        Files.write(mVocabFile.toPath(), lines, StandardCharsets.UTF_8);
+        if (!mTokenizer.loadVocab(mVocabFile)) {
+            throw new IllegalStateException("Cannot load vocabulary");
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (mVocabFile != null) mVocabFile.delete();
+    }
+
+    @Benchmark
+    public long[] encode() {
+        return mTokenizer.encode(TEXT, true);
+    }
+}
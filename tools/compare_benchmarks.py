@@ -0,0 +1,79 @@
+#!/bin/python
+
+# compares JMH results in JSON format, see app/benchmarks/README.md
+
+import argparse
+import json
+import os
+import shutil
+import sys
+
+
+# benchmark name with parameters -> (score, error, unit)
+def read_results(file_name):
+    if not os.path.exists(file_name):
+        return {}
+    with open(file_name) as f:
+        results = json.load(f)
+    scores = {}
+    for result in results:
+        name = result["benchmark"].removeprefix("helium314.keyboard.benchmark.")
+        params = result.get("params")
+        if params:
+            name += " [" + ", ".join(f"{k}={v}" for k, v in sorted(params.items())) + "]"
+        metric = result["primaryMetric"]
+        error = metric.get("scoreError")
+        if not isinstance(error, (int, float)):  # "NaN" for single iterations
+            error = 0.0
+        scores[name] = (metric["score"], error, metric["scoreUnit"])
+    return scores
+
+
+def main():
+    parser = argparse.ArgumentParser(description="Compare JMH benchmark results to a baseline.")
+    parser.add_argument("baseline")
+    parser.add_argument("results")
+    parser.add_argument("-t", "--threshold", type=float, default=10.0,
+                        help="slowdown in percent that counts as regression (default 10)")
+    parser.add_argument("--update", action="store_true", help="replace the baseline with the results")
+    args = parser.parse_args()
+
+    baseline = read_results(args.baseline)
+    results = read_results(args.results)
+    if not results:
+        sys.exit(f"no results in {args.results}")
+    if not baseline and not args.update:
+        # comparing against nothing would never report a regression
+        sys.exit(f"no baseline results in {args.baseline}, create them on the reference machine with --update")
+
+    regressions = []
+    width = max(len(name) for name in results)
+    for name, (score, error, unit) in sorted(results.items()):
+        line = f"{name:<{width}}  {score:12.3f} ± {error:8.3f} {unit}"
+        if name in baseline:
+            base_score, base_error, base_unit = baseline[name]
+            if base_unit != unit:
+                line += f"  (baseline unit {base_unit})"
+            else:
+                change = (score - base_score) / base_score * 100 if base_score else 0.0
+                line += f"  {change:+7.1f} %"
+                # only count as regression if the difference is larger than the measurement error
+                if change > args.threshold and score - error > base_score + base_error:
+                    line += "  REGRESSION"
+                    regressions.append(name)
+        else:
+            line += "  (new)"
+        print(line)
+    for name in sorted(baseline.keys() - results.keys()):
+        print(f"{name:<{width}}  missing in results")
+
+    if args.update:
+        shutil.copyfile(args.results, args.baseline)
+        print(f"updated {args.baseline}")
+    elif regressions:
+        print(f"{len(regressions)} benchmarks slower by more than {args.threshold} %")
+        sys.exit(1)
+
+
+if __name__ == "__main__":
+    main()
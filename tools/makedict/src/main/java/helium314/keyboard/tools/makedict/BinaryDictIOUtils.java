@@ -0,0 +1,70 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+package helium314.keyboard.tools.makedict;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+
+/**
+ * Entry point for reading and writing dictionary files. v4 dictionaries are directories, v2
+ * dictionaries are single files.
+ */
+public final class BinaryDictIOUtils {
+    /**
+     * Reads only the header, without parsing the body.
+     */
+    public static DictionaryHeader readHeader(final File file) throws IOException, UnsupportedFormatException {
+        if (file.isDirectory()) {
+            return Ver4DictDecoder.readHeader(file);
+        }
+        final byte[] headerStart;
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            final byte[] fixedPart = in.readNBytes(FormatSpec.HEADER_ATTRIBUTES_POSITION);
+            final int headerSize = new ByteArrayReader(fixedPart).readUint(FormatSpec.HEADER_SIZE_FIELD_SIZE,
+                    FormatSpec.HEADER_ATTRIBUTES_POSITION - FormatSpec.HEADER_SIZE_FIELD_SIZE);
+            if (headerSize < fixedPart.length || headerSize > file.length()) {
+                throw new UnsupportedFormatException("Invalid header size " + headerSize);
+            }
+            headerStart = new byte[headerSize];
+            System.arraycopy(fixedPart, 0, headerStart, 0, fixedPart.length);
+            final int read = in.readNBytes(headerStart, fixedPart.length, headerStart.length - fixedPart.length);
+            if (read != headerStart.length - fixedPart.length) {
+                throw new UnsupportedFormatException("File is shorter than its header");
+            }
+        }
+        return HeaderReadWriteUtils.readHeader(new ByteArrayReader(headerStart));
+    }
+
+    public static Dictionary readDictionary(final File file) throws IOException, UnsupportedFormatException {
+        if (file.isDirectory()) {
+            return Ver4DictDecoder.readDictionary(file);
+        }
+        return readDictionary(Files.readAllBytes(file.toPath()));
+    }
+
+    /**
+     * Reads a v2 dictionary, e.g. from an asset.
+     */
+    public static Dictionary readDictionary(final byte[] data) throws UnsupportedFormatException {
+        return Ver2DictDecoder.readDictionary(data);
+    }
+
+    /**
+     * Writes the dictionary in the given format version.
+     * @param file the file for v2, the directory for v4
+     */
+    public static void writeDictionary(final Dictionary dictionary, final File file, final int version)
+            throws IOException, UnsupportedFormatException {
+        switch (version) {
+            case FormatSpec.VERSION202 -> new Ver2DictEncoder(true).writeDictionary(dictionary, file);
+            case FormatSpec.VERSION403 -> new Ver4DictEncoder().writeDictionary(dictionary, file);
+            default -> throw new UnsupportedFormatException("Cannot write version " + version);
+        }
+    }
+
+    private BinaryDictIOUtils() {
+        // This utility class is not publicly instantiable.
+    }
+}
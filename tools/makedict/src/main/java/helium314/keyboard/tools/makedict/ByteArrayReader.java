@@ -0,0 +1,105 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+package helium314.keyboard.tools.makedict;
+
+/**
+ * Big-endian reading of a part of a byte array, positions are relative to the start of that part.
+ */
+final class ByteArrayReader {
+    static final int NOT_A_CODE_POINT = -1;
+
+    private final byte[] mBuffer;
+    private final int mStart;
+    private final int mSize;
+    int mPosition;
+
+    ByteArrayReader(final byte[] buffer) throws UnsupportedFormatException {
+        this(buffer, 0, buffer.length);
+    }
+
+    ByteArrayReader(final byte[] buffer, final int start, final int size)
+            throws UnsupportedFormatException {
+        if (start < 0 || size < 0 || start + size > buffer.length) {
+            throw new UnsupportedFormatException("Invalid buffer range " + start + "+" + size);
+        }
+        mBuffer = buffer;
+        mStart = start;
+        mSize = size;
+    }
+
+    int size() {
+        return mSize;
+    }
+
+    int readUint8() throws UnsupportedFormatException {
+        checkPosition(mPosition, 1);
+        return mBuffer[mStart + mPosition++] & 0xFF;
+    }
+
+    int readUint16() throws UnsupportedFormatException {
+        return readUint8() << 8 | readUint8();
+    }
+
+    int readUint24() throws UnsupportedFormatException {
+        return readUint8() << 16 | readUint16();
+    }
+
+    int readInt32() throws UnsupportedFormatException {
+        return readUint16() << 16 | readUint16();
+    }
+
+    int readUint(final int size) throws UnsupportedFormatException {
+        int value = 0;
+        for (int i = 0; i < size; i++) {
+            value = (value << 8) | readUint8();
+        }
+        return value;
+    }
+
+    int readUint(final int size, final int pos) throws UnsupportedFormatException {
+        final int oldPosition = mPosition;
+        mPosition = pos;
+        final int value = readUint(size);
+        mPosition = oldPosition;
+        return value;
+    }
+
+    int readSint24() throws UnsupportedFormatException {
+        final int value = readUint24();
+        return (value & 0x800000) == 0 ? value : -(value & 0x7FFFFF);
+    }
+
+    /**
+     * @return the code point, or {@link #NOT_A_CODE_POINT} for the terminator
+     */
+    int readCodePoint(final int[] codePointTable) throws UnsupportedFormatException {
+        final int firstByte = readUint8();
+        if (firstByte < FormatSpec.MINIMAL_ONE_BYTE_CHARACTER_VALUE) {
+            if (firstByte == FormatSpec.PTNODE_CHARACTERS_TERMINATOR) {
+                return NOT_A_CODE_POINT;
+            }
+            return firstByte << 16 | readUint16();
+        }
+        if (codePointTable != null) {
+            return codePointTable[firstByte - FormatSpec.MINIMAL_ONE_BYTE_CHARACTER_VALUE];
+        }
+        return firstByte;
+    }
+
+    String readString(final int[] codePointTable) throws UnsupportedFormatException {
+        final StringBuilder sb = new StringBuilder();
+        int codePoint = readCodePoint(codePointTable);
+        while (codePoint != NOT_A_CODE_POINT) {
+            sb.appendCodePoint(codePoint);
+            codePoint = readCodePoint(codePointTable);
+        }
+        return sb.toString();
+    }
+
+    private void checkPosition(final int pos, final int size) throws UnsupportedFormatException {
+        if (pos < 0 || pos + size > mSize) {
+            throw new UnsupportedFormatException("Reading outside of the buffer at " + pos
+                    + ", size " + mSize);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+package helium314.keyboard.tools.makedict;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Growable big-endian byte buffer, the counterpart of the native BufferWithExtendableBuffer.
+ */
+final class ByteArrayWriter {
+    private byte[] mBuffer;
+    private int mSize;
+
+    ByteArrayWriter() {
+        this(1024);
+    }
+
+    ByteArrayWriter(final int initialCapacity) {
+        mBuffer = new byte[Math.max(initialCapacity, 16)];
+    }
+
+    int size() {
+        return mSize;
+    }
+
+    /**
+     * Increases the size by the given number of zero bytes.
+     */
+    void extend(final int size) {
+        ensureCapacity(mSize + size);
+        mSize += size;
+    }
+
+    void writeUint(final long value, final int size) {
+        writeUint(value, size, mSize);
+    }
+
+    /**
+     * Writes the lowest size bytes of the value at the given position, extending the buffer if
+     * necessary.
+     */
+    void writeUint(final long value, final int size, final int pos) {
+        ensureCapacity(pos + size);
+        for (int i = 0; i < size; i++) {
+            mBuffer[pos + i] = (byte) (value >>> ((size - 1 - i) * 8));
+        }
+        mSize = Math.max(mSize, pos + size);
+    }
+
+    long readUint(final int size, final int pos) {
+        long value = 0;
+        for (int i = 0; i < size; i++) {
+            value = (value << 8) | (mBuffer[pos + i] & 0xFF);
+        }
+        return value;
+    }
+
+    /**
+     * Writes code points in the dictionary char format: latin-1 code points >= 0x20 in 1 byte,
+     * others in 3 bytes. Code points not in the code point table (if any) always take 3 bytes.
+     */
+    void writeCodePoints(final int[] codePoints, final boolean writesTerminator,
+            final CodePointTable codePointTable) {
+        for (final int codePoint : codePoints) {
+            final int oneByteValue = codePointTable == null
+                    ? (isOneByteCharacter(codePoint) ? codePoint : -1)
+                    : codePointTable.getOneByteValue(codePoint);
+            if (oneByteValue < 0) {
+                writeUint(codePoint, 3);
+            } else {
+                writeUint(oneByteValue, 1);
+            }
+        }
+        if (writesTerminator) {
+            writeUint(FormatSpec.PTNODE_CHARACTERS_TERMINATOR, 1);
+        }
+    }
+
+    static int getCodePointsSize(final int[] codePoints, final boolean writesTerminator,
+            final CodePointTable codePointTable) {
+        int size = writesTerminator ? 1 : 0;
+        for (final int codePoint : codePoints) {
+            final boolean oneByte = codePointTable == null ? isOneByteCharacter(codePoint)
+                    : codePointTable.getOneByteValue(codePoint) >= 0;
+            size += oneByte ? 1 : 3;
+        }
+        return size;
+    }
+
+    private static boolean isOneByteCharacter(final int codePoint) {
+        return codePoint >= FormatSpec.MINIMAL_ONE_BYTE_CHARACTER_VALUE
+                && codePoint <= FormatSpec.MAXIMAL_ONE_BYTE_CHARACTER_VALUE;
+    }
+
+    void write(final byte[] bytes) {
+        ensureCapacity(mSize + bytes.length);
+        System.arraycopy(bytes, 0, mBuffer, mSize, bytes.length);
+        mSize += bytes.length;
+    }
+
+    void writeTo(final OutputStream out) throws IOException {
+        out.write(mBuffer, 0, mSize);
+    }
+
+    /**
+     * Writes the size as 4 byte value, followed by the content, like the native
+     * DictFileWritingUtils::writeBufferToFileTail.
+     */
+    void writeWithSizeTo(final OutputStream out) throws IOException {
+        out.write(new byte[] { (byte) (mSize >>> 24), (byte) (mSize >>> 16), (byte) (mSize >>> 8), (byte) mSize });
+        writeTo(out);
+    }
+
+    byte[] toByteArray() {
+        return Arrays.copyOf(mBuffer, mSize);
+    }
+
+    private void ensureCapacity(final int capacity) {
+        if (capacity > mBuffer.length) {
+            mBuffer = Arrays.copyOf(mBuffer, Math.max(capacity, mBuffer.length * 2));
+        }
+    }
+}
@@ -0,0 +1,58 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+package helium314.keyboard.tools.makedict;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Maps the most frequent code points of a v2 dictionary to the 1 byte values 0x20 - 0xFF. Other
+ * code points are stored with 3 bytes, even if they are in the latin-1 range. The table is
+ * stored as the codePointTable header attribute.
+ */
+final class CodePointTable {
+    private static final int MAX_SIZE =
+            FormatSpec.MAXIMAL_ONE_BYTE_CHARACTER_VALUE - FormatSpec.MINIMAL_ONE_BYTE_CHARACTER_VALUE + 1;
+
+    private final int[] mCodePoints;
+    private final HashMap<Integer, Integer> mOneByteValues = new HashMap<>();
+
+    private CodePointTable(final int[] codePoints) {
+        mCodePoints = codePoints;
+        for (int i = 0; i < codePoints.length; i++) {
+            mOneByteValues.put(codePoints[i], i + FormatSpec.MINIMAL_ONE_BYTE_CHARACTER_VALUE);
+        }
+    }
+
+    /**
+     * @param counts number of occurrences of each code point in the trie
+     */
+    static CodePointTable create(final Map<Integer, Integer> counts) {
+        final ArrayList<Map.Entry<Integer, Integer>> entries = new ArrayList<>(counts.entrySet());
+        entries.sort((e1, e2) -> e1.getValue().equals(e2.getValue())
+                ? Integer.compare(e1.getKey(), e2.getKey()) : Integer.compare(e2.getValue(), e1.getValue()));
+        final int size = Math.min(entries.size(), MAX_SIZE);
+        final int[] codePoints = new int[size];
+        for (int i = 0; i < size; i++) {
+            codePoints[i] = entries.get(i).getKey();
+        }
+        return new CodePointTable(codePoints);
+    }
+
+    /**
+     * @return the 1 byte value, or -1 if the code point must be stored in 3 bytes
+     */
+    int getOneByteValue(final int codePoint) {
+        final Integer value = mOneByteValues.get(codePoint);
+        return value == null ? -1 : value;
+    }
+
+    String toAttributeValue() {
+        return new String(mCodePoints, 0, mCodePoints.length);
+    }
+
+    static int[] fromAttributeValue(final String value) {
+        return value == null ? null : value.codePoints().toArray();
+    }
+}
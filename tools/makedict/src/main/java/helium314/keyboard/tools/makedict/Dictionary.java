@@ -0,0 +1,94 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+package helium314.keyboard.tools.makedict;
+
+import java.util.Collection;
+import java.util.TreeMap;
+
+/**
+ * In-memory content of a binary dictionary: the header and all words with their bigrams and
+ * shortcuts.
+ */
+public final class Dictionary {
+    public DictionaryHeader mHeader;
+    private final TreeMap<String, WordProperty> mWords = new TreeMap<>();
+
+    public Dictionary(final DictionaryHeader header) {
+        mHeader = header;
+    }
+
+    /**
+     * Adds the word, replacing an existing entry for the same word.
+     */
+    public void add(final WordProperty wordProperty) {
+        mWords.put(wordProperty.mWord, wordProperty);
+    }
+
+    public WordProperty addWord(final String word, final int probability) {
+        final WordProperty wordProperty = new WordProperty(word, probability);
+        add(wordProperty);
+        return wordProperty;
+    }
+
+    /**
+     * Adds a bigram between two words that must already be in the dictionary.
+     */
+    public void addBigram(final String word, final String nextWord, final ProbabilityInfo probabilityInfo) {
+        final WordProperty wordProperty = getExisting(word);
+        getExisting(nextWord);
+        wordProperty.mBigrams.removeIf(bigram -> bigram.mWord.equals(nextWord));
+        wordProperty.mBigrams.add(new WeightedString(nextWord, probabilityInfo));
+    }
+
+    public void addShortcut(final String word, final String target, final int probability) {
+        getExisting(word).mShortcutTargets.add(new WeightedString(target, probability));
+    }
+
+    public WordProperty getWordProperty(final String word) {
+        return mWords.get(word);
+    }
+
+    public boolean contains(final String word) {
+        return mWords.containsKey(word);
+    }
+
+    /**
+     * @return all words, sorted by UTF-16 order
+     */
+    public Collection<WordProperty> getWords() {
+        return mWords.values();
+    }
+
+    public int size() {
+        return mWords.size();
+    }
+
+    public int getBigramCount() {
+        int count = 0;
+        for (final WordProperty wordProperty : mWords.values()) {
+            count += wordProperty.mBigrams.size();
+        }
+        return count;
+    }
+
+    private WordProperty getExisting(final String word) {
+        final WordProperty wordProperty = mWords.get(word);
+        if (wordProperty == null) {
+            throw new IllegalArgumentException("Word is not in the dictionary: " + word);
+        }
+        return wordProperty;
+    }
+
+    // headers are not compared, as writing a dictionary fills in counts and date
+    @Override
+    public boolean equals(final Object o) {
+        if (o == this) return true;
+        if (!(o instanceof Dictionary d)) return false;
+        return mWords.equals(d.mWords);
+    }
+
+    @Override
+    public int hashCode() {
+        return mWords.hashCode();
+    }
+}
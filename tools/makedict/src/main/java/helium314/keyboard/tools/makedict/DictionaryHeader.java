@@ -0,0 +1,58 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+package helium314.keyboard.tools.makedict;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Format version and attributes of a dictionary header.
+ */
+public final class DictionaryHeader {
+    // Note that these are corresponding definitions in native code in latinime::HeaderPolicy.
+    public static final String DICTIONARY_VERSION_KEY = "version";
+    public static final String DICTIONARY_LOCALE_KEY = "locale";
+    public static final String DICTIONARY_ID_KEY = "dictionary";
+    public static final String DICTIONARY_DESCRIPTION_KEY = "description";
+    public static final String DICTIONARY_DATE_KEY = "date";
+    public static final String HAS_HISTORICAL_INFO_KEY = "HAS_HISTORICAL_INFO";
+    public static final String USES_FORGETTING_CURVE_KEY = "USES_FORGETTING_CURVE";
+    public static final String UNIGRAM_COUNT_KEY = "UNIGRAM_COUNT";
+    public static final String BIGRAM_COUNT_KEY = "BIGRAM_COUNT";
+    public static final String TRIGRAM_COUNT_KEY = "TRIGRAM_COUNT";
+    public static final String QUADGRAM_COUNT_KEY = "QUADGRAM_COUNT";
+    public static final String EXTENDED_REGION_SIZE_KEY = "EXTENDED_REGION_SIZE";
+    public static final String CODE_POINT_TABLE_KEY = "codePointTable";
+    public static final String ATTRIBUTE_VALUE_TRUE = "1";
+
+    public final int mVersion;
+    // sorted like the std::map used by the native code for writing
+    public final TreeMap<String, String> mAttributes;
+
+    public DictionaryHeader(final int version, final Map<String, String> attributes) {
+        mVersion = version;
+        mAttributes = new TreeMap<>(attributes);
+    }
+
+    public String getAttribute(final String key) {
+        return mAttributes.get(key);
+    }
+
+    public boolean hasHistoricalInfo() {
+        return ATTRIBUTE_VALUE_TRUE.equals(mAttributes.get(HAS_HISTORICAL_INFO_KEY));
+    }
+
+    public boolean isVersion4() {
+        return mVersion == FormatSpec.VERSION403 || mVersion == FormatSpec.VERSION4_ONLY_FOR_TESTING;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("version ").append(mVersion);
+        for (final Map.Entry<String, String> attribute : mAttributes.entrySet()) {
+            if (CODE_POINT_TABLE_KEY.equals(attribute.getKey())) continue;
+            sb.append('\n').append(attribute.getKey()).append(" = ").append(attribute.getValue());
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,105 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+package helium314.keyboard.tools.makedict;
+
+/**
+ * Constants of the binary dictionary formats, matching the native code in
+ * app/src/main/jni/src/dictionary. See FormatSpec in the app for a description of the v2 layout.
+ * <p>
+ * Version 4 dictionaries are directories containing a header file (same layout as the v2 header)
+ * and a body file, which consists of size-prefixed buffers: the trie, the terminal position
+ * lookup table, the language model (a TrieMap and global counters) and the shortcuts (a sparse
+ * table made of lookup table, address table and content).
+ */
+public final class FormatSpec {
+    public static final int MAGIC_NUMBER = 0x9BC13AFE;
+
+    public static final int VERSION202 = 202;
+    public static final int VERSION4_ONLY_FOR_TESTING = 399;
+    public static final int VERSION403 = 403;
+    public static final int MINIMUM_SUPPORTED_VERSION_OF_CODE_POINT_TABLE = 201;
+
+    static final int HEADER_MAGIC_NUMBER_SIZE = 4;
+    static final int HEADER_VERSION_SIZE = 2;
+    static final int HEADER_FLAGS_SIZE = 2;
+    static final int HEADER_SIZE_FIELD_SIZE = 4;
+    static final int HEADER_ATTRIBUTES_POSITION =
+            HEADER_MAGIC_NUMBER_SIZE + HEADER_VERSION_SIZE + HEADER_FLAGS_SIZE + HEADER_SIZE_FIELD_SIZE;
+
+    static final int MAX_WORD_LENGTH = 48;
+
+    // PtNode flags, shared by v2 and v4
+    static final int MASK_CHILDREN_ADDRESS_TYPE = 0xC0;
+    static final int FLAG_CHILDREN_ADDRESS_TYPE_NOADDRESS = 0x00;
+    static final int FLAG_CHILDREN_ADDRESS_TYPE_ONEBYTE = 0x40;
+    static final int FLAG_CHILDREN_ADDRESS_TYPE_TWOBYTES = 0x80;
+    static final int FLAG_CHILDREN_ADDRESS_TYPE_THREEBYTES = 0xC0;
+    static final int FLAG_HAS_MULTIPLE_CHARS = 0x20;
+    static final int FLAG_IS_TERMINAL = 0x10;
+    static final int FLAG_HAS_SHORTCUT_TARGETS = 0x08;
+    static final int FLAG_HAS_BIGRAMS = 0x04;
+    static final int FLAG_IS_NOT_A_WORD = 0x02;
+    static final int FLAG_IS_POSSIBLY_OFFENSIVE = 0x01;
+
+    // v4 uses the children address type bits for the moved state
+    static final int MASK_MOVED = 0xC0;
+    static final int FLAG_IS_NOT_MOVED = 0xC0;
+    static final int FLAG_IS_MOVED = 0x40;
+    static final int FLAG_IS_DELETED = 0x80;
+
+    static final int FLAG_BIGRAM_SHORTCUT_ATTR_HAS_NEXT = 0x80;
+    static final int FLAG_BIGRAM_ATTR_OFFSET_NEGATIVE = 0x40;
+    static final int MASK_BIGRAM_ATTR_ADDRESS_TYPE = 0x30;
+    static final int FLAG_BIGRAM_ATTR_ADDRESS_TYPE_ONEBYTE = 0x10;
+    static final int FLAG_BIGRAM_ATTR_ADDRESS_TYPE_TWOBYTES = 0x20;
+    static final int FLAG_BIGRAM_ATTR_ADDRESS_TYPE_THREEBYTES = 0x30;
+    static final int FLAG_BIGRAM_SHORTCUT_ATTR_FREQUENCY = 0x0F;
+
+    static final int PTNODE_CHARACTERS_TERMINATOR = 0x1F;
+    static final int PTNODE_SHORTCUT_LIST_SIZE_SIZE = 2;
+    static final int MAX_PTNODES_FOR_ONE_BYTE_PTNODE_COUNT = 0x7F;
+    static final int LARGE_PTNODE_ARRAY_SIZE_FIELD_SIZE_FLAG = 0x8000;
+    static final int MAX_PTNODES_IN_A_PT_NODE_ARRAY = 0x7FFF;
+    static final int MAX_SHORTCUT_LIST_SIZE_IN_A_PTNODE = 0xFFFF;
+    static final int MINIMAL_ONE_BYTE_CHARACTER_VALUE = 0x20;
+    static final int MAXIMAL_ONE_BYTE_CHARACTER_VALUE = 0xFF;
+
+    public static final int MAX_TERMINAL_FREQUENCY = 255;
+    public static final int MAX_BIGRAM_FREQUENCY = 15;
+    public static final int SHORTCUT_WHITELIST_FREQUENCY = 15;
+    public static final int NOT_A_PROBABILITY = -1;
+    public static final int NOT_A_TIMESTAMP = -1;
+
+    // v4 specific
+    public static final String HEADER_FILE_EXTENSION = ".header";
+    public static final String BODY_FILE_EXTENSION = ".body";
+    static final int V4_NUM_OF_BUFFERS_IN_BODY_FILE = 7;
+    static final int V4_DICT_OFFSET_FIELD_SIZE = 3;
+    static final int V4_DICT_OFFSET_INVALID = 0;
+    static final int V4_DICT_OFFSET_ZERO_OFFSET = 0x7FFFFF;
+    static final int V4_DICT_OFFSET_NEGATIVE_FLAG = 0x800000;
+    static final int V4_MAX_DICT_OFFSET_VALUE = 0x7FFFFF;
+    static final int V4_PTNODE_ARRAY_SIZE_FIELD_SIZE = 2;
+    static final int V4_TERMINAL_ID_FIELD_SIZE = 4;
+    static final int V4_TERMINAL_ADDRESS_TABLE_ADDRESS_SIZE = 3;
+    static final int V4_NOT_A_TERMINAL_ADDRESS = 0;
+    static final int V4_GLOBAL_COUNTER_SIZE = 4;
+    static final int V4_TIME_STAMP_FIELD_SIZE = 4;
+    static final int V4_WORD_COUNT_FIELD_SIZE = 2;
+    static final int V4_MAX_WORD_COUNT = 0xFFFF;
+    static final int V4_SHORTCUT_ADDRESS_TABLE_BLOCK_SIZE = 64;
+    static final int V4_SHORTCUT_ADDRESS_TABLE_DATA_SIZE = 4;
+    static final int V4_SPARSE_TABLE_INDEX_SIZE = 4;
+    static final int V4_SPARSE_TABLE_NOT_EXIST = -1;
+
+    // flags of v4 language model entries
+    static final int V4_FLAG_REPRESENTS_BEGINNING_OF_SENTENCE = 0x1;
+    static final int V4_FLAG_NOT_A_VALID_ENTRY = 0x2;
+    static final int V4_FLAG_NOT_A_WORD = 0x4;
+    static final int V4_FLAG_BLACKLISTED = 0x8;
+    static final int V4_FLAG_POSSIBLY_OFFENSIVE = 0x10;
+
+    private FormatSpec() {
+        // This utility class is not publicly instantiable.
+    }
+}
@@ -0,0 +1,66 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+package helium314.keyboard.tools.makedict;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Reads and writes the dictionary header, which is the same for all versions.
+ * <p>
+ * Layout: magic number (4 bytes), version (2 bytes), flags (2 bytes, unused), header size
+ * including the previous fields (4 bytes), then pairs of key and value strings in the dictionary
+ * char format, each with terminator. Header strings never use the code point table.
+ */
+final class HeaderReadWriteUtils {
+    private static final int NO_FLAGS = 0;
+
+    /**
+     * Reads the header and leaves the reader position at the end of the header.
+     */
+    static DictionaryHeader readHeader(final ByteArrayReader reader) throws UnsupportedFormatException {
+        reader.mPosition = 0;
+        if (reader.size() < FormatSpec.HEADER_ATTRIBUTES_POSITION) {
+            throw new UnsupportedFormatException("File is too small to be a dictionary");
+        }
+        final int magicNumber = reader.readInt32();
+        if (magicNumber != FormatSpec.MAGIC_NUMBER) {
+            throw new UnsupportedFormatException("Wrong magic number " + Integer.toHexString(magicNumber));
+        }
+        final int version = reader.readUint16();
+        reader.readUint16(); // flags
+        final int headerSize = reader.readInt32();
+        if (headerSize < FormatSpec.HEADER_ATTRIBUTES_POSITION || headerSize > reader.size()) {
+            throw new UnsupportedFormatException("Invalid header size " + headerSize);
+        }
+        final TreeMap<String, String> attributes = new TreeMap<>();
+        while (reader.mPosition < headerSize) {
+            final String key = reader.readString(null);
+            final String value = reader.readString(null);
+            attributes.put(key, value);
+        }
+        return new DictionaryHeader(version, attributes);
+    }
+
+    static ByteArrayWriter writeHeader(final DictionaryHeader header) {
+        final ByteArrayWriter writer = new ByteArrayWriter();
+        writer.writeUint(FormatSpec.MAGIC_NUMBER, FormatSpec.HEADER_MAGIC_NUMBER_SIZE);
+        writer.writeUint(header.mVersion, FormatSpec.HEADER_VERSION_SIZE);
+        writer.writeUint(NO_FLAGS, FormatSpec.HEADER_FLAGS_SIZE);
+        final int headerSizeFieldPos = writer.size();
+        writer.writeUint(0, FormatSpec.HEADER_SIZE_FIELD_SIZE);
+        for (final Map.Entry<String, String> attribute : header.mAttributes.entrySet()) {
+            if (attribute.getKey().isEmpty() || attribute.getValue().isEmpty()) {
+                continue;
+            }
+            writer.writeCodePoints(attribute.getKey().codePoints().toArray(), true, null);
+            writer.writeCodePoints(attribute.getValue().codePoints().toArray(), true, null);
+        }
+        writer.writeUint(writer.size(), FormatSpec.HEADER_SIZE_FIELD_SIZE, headerSizeFieldPos);
+        return writer;
+    }
+
+    private HeaderReadWriteUtils() {
+        // This utility class is not publicly instantiable.
+    }
+}
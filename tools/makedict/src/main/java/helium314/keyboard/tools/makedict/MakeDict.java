@@ -0,0 +1,133 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+package helium314.keyboard.tools.makedict;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.stream.Stream;
+
+/**
+ * Command line interface for inspecting, converting, generating and verifying dictionaries.
+ */
+public final class MakeDict {
+    private static final String USAGE = """
+            usage: makedict info <dict>
+                   makedict convert <input> <output> [-v 202|403]
+                   makedict generate <output> [-v 202|403] [-w <word count>] [-b <bigrams per word>] [-s <seed>] [--historical]
+                   makedict verify <dict>
+            v4 (403) dictionaries are directories, v2 (202) dictionaries are files.""";
+
+    public static void main(final String[] argsArray) {
+        final ArrayDeque<String> args = new ArrayDeque<>(List.of(argsArray));
+        if (args.isEmpty()) usage(null);
+        final String command = args.removeFirst();
+        try {
+            switch (command) {
+                case "info" -> info(new File(args.removeFirst()));
+                case "convert" -> convert(new File(args.removeFirst()), new File(args.removeFirst()), args);
+                case "generate" -> generate(new File(args.removeFirst()), args);
+                case "verify" -> {
+                    if (!verify(new File(args.removeFirst()))) System.exit(1);
+                }
+                default -> usage("Unknown command: " + command);
+            }
+        } catch (final NoSuchElementException e) {
+            usage("Missing argument");
+        } catch (final NumberFormatException e) {
+            usage("Invalid number: " + e.getMessage());
+        } catch (final IOException | UnsupportedFormatException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private static void usage(final String message) {
+        if (message != null) System.err.println(message);
+        System.err.println(USAGE);
+        System.exit(1);
+    }
+
+    private static int parseVersion(final String version) {
+        final int v = Integer.parseInt(version);
+        if (v != FormatSpec.VERSION202 && v != FormatSpec.VERSION403) {
+            usage("Unsupported version: " + version);
+        }
+        return v;
+    }
+
+    private static void info(final File file) throws IOException, UnsupportedFormatException {
+        final Dictionary dictionary = BinaryDictIOUtils.readDictionary(file);
+        int shortcutCount = 0;
+        for (final WordProperty word : dictionary.getWords()) {
+            shortcutCount += word.mShortcutTargets.size();
+        }
+        System.out.println(dictionary.mHeader);
+        System.out.println("words: " + dictionary.size());
+        System.out.println("bigrams: " + dictionary.getBigramCount());
+        System.out.println("shortcuts: " + shortcutCount);
+    }
+
+    private static void convert(final File input, final File output, final ArrayDeque<String> args)
+            throws IOException, UnsupportedFormatException {
+        int version = FormatSpec.VERSION202;
+        while (!args.isEmpty()) {
+            final String arg = args.removeFirst();
+            if (arg.equals("-v")) version = parseVersion(args.removeFirst());
+            else usage("Unknown option: " + arg);
+        }
+        BinaryDictIOUtils.writeDictionary(BinaryDictIOUtils.readDictionary(input), output, version);
+    }
+
+    private static void generate(final File output, final ArrayDeque<String> args)
+            throws IOException, UnsupportedFormatException {
+        final SyntheticDictionaryGenerator generator = new SyntheticDictionaryGenerator();
+        int version = FormatSpec.VERSION202;
+        while (!args.isEmpty()) {
+            final String arg = args.removeFirst();
+            switch (arg) {
+                case "-v" -> version = parseVersion(args.removeFirst());
+                case "-w" -> generator.setWordCount(Integer.parseInt(args.removeFirst()));
+                case "-b" -> generator.setBigramsPerWord(Integer.parseInt(args.removeFirst()));
+                case "-s" -> generator.setSeed(Long.parseLong(args.removeFirst()));
+                case "--historical" -> generator.setHasHistoricalInfo(true);
+                default -> usage("Unknown option: " + arg);
+            }
+        }
+        BinaryDictIOUtils.writeDictionary(generator.generate(), output, version);
+    }
+
+    /**
+     * Reads the dictionary, writes it in its own format and as v4, and checks that reading the
+     * results gives the same content. v4 can store everything v2 can, but not the other way round.
+     */
+    private static boolean verify(final File file) throws IOException, UnsupportedFormatException {
+        final Dictionary dictionary = BinaryDictIOUtils.readDictionary(file);
+        final Path tempDir = Files.createTempDirectory("makedict");
+        boolean ok = true;
+        try {
+            for (final int version : new int[] { FormatSpec.VERSION202, FormatSpec.VERSION403 }) {
+                if (version == FormatSpec.VERSION202 && dictionary.mHeader.isVersion4()) continue;
+                final File output = tempDir.resolve("dict" + version).toFile();
+                BinaryDictIOUtils.writeDictionary(dictionary, output, version);
+                final Dictionary result = BinaryDictIOUtils.readDictionary(output);
+                if (result.equals(dictionary)) {
+                    System.out.println("version " + version + ": ok");
+                } else {
+                    System.out.println("version " + version + ": content differs");
+                    ok = false;
+                }
+            }
+        } finally {
+            try (Stream<Path> paths = Files.walk(tempDir)) {
+                paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+        return ok;
+    }
+}
@@ -0,0 +1,134 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+package helium314.keyboard.tools.makedict;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+
+/**
+ * Patricia trie of the words of a dictionary, as it is laid out by the encoders.
+ * <p>
+ * PtNode arrays are listed in depth-first order, so children arrays always come after the PtNode
+ * pointing to them. This is required for v2, where children addresses are unsigned.
+ */
+final class PatriciaTrie {
+    static final class PtNode {
+        final int[] mChars;
+        // null if the PtNode is not terminal
+        final WordProperty mWord;
+        final PtNodeArray mChildren;
+        int mPosition;
+        int mTerminalId = -1;
+        // sizes of variable length fields in v2, 0 if there is no field
+        int mChildrenAddressSize;
+        int[] mBigramAddressSizes;
+
+        PtNode(final int[] chars, final WordProperty word, final PtNodeArray children) {
+            mChars = chars;
+            mWord = word;
+            mChildren = children;
+        }
+
+        boolean isTerminal() {
+            return mWord != null;
+        }
+    }
+
+    static final class PtNodeArray {
+        final ArrayList<PtNode> mNodes;
+        // null for the root array
+        PtNode mParent;
+        int mPosition;
+
+        PtNodeArray(final ArrayList<PtNode> nodes) {
+            mNodes = nodes;
+        }
+    }
+
+    final PtNodeArray mRoot;
+    // all PtNode arrays in the order they are written
+    final ArrayList<PtNodeArray> mFlattenedArrays = new ArrayList<>();
+    // terminal PtNodes in the order they are written
+    final ArrayList<PtNode> mTerminals = new ArrayList<>();
+    final HashMap<String, PtNode> mTerminalsByWord = new HashMap<>();
+
+    PatriciaTrie(final Collection<WordProperty> words) throws UnsupportedFormatException {
+        final int[][] codePoints = new int[words.size()][];
+        final WordProperty[] wordProperties = new WordProperty[words.size()];
+        final Integer[] order = new Integer[words.size()];
+        int i = 0;
+        for (final WordProperty word : words) {
+            codePoints[i] = word.mWord.codePoints().toArray();
+            wordProperties[i] = word;
+            order[i] = i;
+            i++;
+        }
+        // sort by code points, UTF-16 order differs for characters outside the BMP
+        Arrays.sort(order, (i1, i2) -> Arrays.compare(codePoints[i1], codePoints[i2]));
+        final int[][] sortedCodePoints = new int[order.length][];
+        final WordProperty[] sortedWords = new WordProperty[order.length];
+        for (int j = 0; j < order.length; j++) {
+            sortedCodePoints[j] = codePoints[order[j]];
+            sortedWords[j] = wordProperties[order[j]];
+        }
+        mRoot = buildArray(sortedCodePoints, sortedWords, 0, order.length, 0);
+        flatten(mRoot);
+    }
+
+    private static PtNodeArray buildArray(final int[][] codePoints, final WordProperty[] words,
+            final int from, final int to, final int depth) throws UnsupportedFormatException {
+        final ArrayList<PtNode> nodes = new ArrayList<>();
+        int groupStart = from;
+        while (groupStart < to) {
+            final int firstCodePoint = codePoints[groupStart][depth];
+            int groupEnd = groupStart + 1;
+            while (groupEnd < to && codePoints[groupEnd][depth] == firstCodePoint) {
+                groupEnd++;
+            }
+            // words are sorted, so the common prefix of the group is the one of first and last word
+            final int[] first = codePoints[groupStart];
+            final int[] last = codePoints[groupEnd - 1];
+            int end = depth + 1;
+            while (end < first.length && end < last.length && first[end] == last[end]) {
+                end++;
+            }
+            // a word ending here sorts before all longer words of the group
+            final boolean isTerminal = first.length == end;
+            final int childrenStart = isTerminal ? groupStart + 1 : groupStart;
+            final PtNodeArray children = childrenStart < groupEnd
+                    ? buildArray(codePoints, words, childrenStart, groupEnd, end) : null;
+            nodes.add(new PtNode(Arrays.copyOfRange(first, depth, end),
+                    isTerminal ? words[groupStart] : null, children));
+            groupStart = groupEnd;
+        }
+        if (nodes.size() > FormatSpec.MAX_PTNODES_IN_A_PT_NODE_ARRAY) {
+            throw new UnsupportedFormatException("Too many PtNodes in one array: " + nodes.size());
+        }
+        return new PtNodeArray(nodes);
+    }
+
+    private void flatten(final PtNodeArray array) {
+        mFlattenedArrays.add(array);
+        for (final PtNode node : array.mNodes) {
+            if (node.isTerminal()) {
+                node.mTerminalId = mTerminals.size();
+                mTerminals.add(node);
+                mTerminalsByWord.put(node.mWord.mWord, node);
+            }
+            if (node.mChildren != null) {
+                node.mChildren.mParent = node;
+                flatten(node.mChildren);
+            }
+        }
+    }
+
+    PtNode getTerminal(final String word) throws UnsupportedFormatException {
+        final PtNode node = mTerminalsByWord.get(word);
+        if (node == null) {
+            throw new UnsupportedFormatException("Bigram target is not in the dictionary: " + word);
+        }
+        return node;
+    }
+}
@@ -0,0 +1,54 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+package helium314.keyboard.tools.makedict;
+
+import java.util.Objects;
+
+/**
+ * Probability of a word or n-gram as stored in the dictionary.
+ * <p>
+ * Timestamp, level and count are only stored in dictionaries with historical info (user history),
+ * which don't store a probability.
+ */
+public final class ProbabilityInfo {
+    public final int mProbability;
+    public final int mTimestamp;
+    public final int mLevel;
+    public final int mCount;
+
+    public ProbabilityInfo(final int probability) {
+        this(probability, FormatSpec.NOT_A_TIMESTAMP, 0, 0);
+    }
+
+    public ProbabilityInfo(final int probability, final int timestamp, final int level,
+            final int count) {
+        mProbability = probability;
+        mTimestamp = timestamp;
+        mLevel = level;
+        mCount = count;
+    }
+
+    public boolean hasHistoricalInfo() {
+        return mTimestamp != FormatSpec.NOT_A_TIMESTAMP;
+    }
+
+    @Override
+    public int hashCode() {
+        return hasHistoricalInfo() ? Objects.hash(mProbability, mTimestamp, mLevel, mCount)
+                : Integer.hashCode(mProbability);
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (o == this) return true;
+        if (!(o instanceof ProbabilityInfo p)) return false;
+        return mProbability == p.mProbability && mTimestamp == p.mTimestamp && mLevel == p.mLevel
+                && mCount == p.mCount;
+    }
+
+    @Override
+    public String toString() {
+        if (!hasHistoricalInfo()) return "f=" + mProbability;
+        return "f=" + mProbability + ",historicalInfo=" + mTimestamp + ":" + mLevel + ":" + mCount;
+    }
+}
@@ -0,0 +1,147 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+package helium314.keyboard.tools.makedict;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Random;
+
+/**
+ * Generates dictionaries of arbitrary size for tests and benchmarks.
+ * <p>
+ * Words are random letter sequences with a length distribution similar to natural language, and
+ * probabilities follow Zipf's law by rank, as in real dictionaries. The output only depends on
+ * the parameters, so benchmark results stay comparable between runs.
+ */
+public final class SyntheticDictionaryGenerator {
+    private static final String LETTERS = "etaoinshrdlcumwfgypbvkjxqz";
+    private static final int MIN_WORD_LENGTH = 1;
+    private static final int MAX_WORD_LENGTH = 14;
+
+    private int mWordCount = 10000;
+    private int mBigramsPerWord = 3;
+    private float mShortcutRatio = 0.001f;
+    private long mSeed = 1;
+    private String mAlphabet = LETTERS;
+    private String mLocale = "en_US";
+    private boolean mHasHistoricalInfo = false;
+
+    public SyntheticDictionaryGenerator setWordCount(final int wordCount) {
+        mWordCount = wordCount;
+        return this;
+    }
+
+    /**
+     * Sets the average number of bigrams per word. Frequent words get more bigrams.
+     */
+    public SyntheticDictionaryGenerator setBigramsPerWord(final int bigramsPerWord) {
+        mBigramsPerWord = bigramsPerWord;
+        return this;
+    }
+
+    public SyntheticDictionaryGenerator setShortcutRatio(final float shortcutRatio) {
+        mShortcutRatio = shortcutRatio;
+        return this;
+    }
+
+    public SyntheticDictionaryGenerator setSeed(final long seed) {
+        mSeed = seed;
+        return this;
+    }
+
+    /**
+     * Sets the letters words are made of, in descending frequency. Using letters outside of
+     * latin-1 results in dictionaries that need the code point table (v2) or 3 byte characters.
+     */
+    public SyntheticDictionaryGenerator setAlphabet(final String alphabet) {
+        mAlphabet = alphabet;
+        return this;
+    }
+
+    public SyntheticDictionaryGenerator setLocale(final String locale) {
+        mLocale = locale;
+        return this;
+    }
+
+    /**
+     * Generates counts and timestamps like a user history dictionary instead of probabilities.
+     */
+    public SyntheticDictionaryGenerator setHasHistoricalInfo(final boolean hasHistoricalInfo) {
+        mHasHistoricalInfo = hasHistoricalInfo;
+        return this;
+    }
+
+    public Dictionary generate() {
+        final Random random = new Random(mSeed);
+        final HashMap<String, String> attributes = new HashMap<>();
+        attributes.put(DictionaryHeader.DICTIONARY_ID_KEY, "main:" + mLocale.toLowerCase());
+        attributes.put(DictionaryHeader.DICTIONARY_LOCALE_KEY, mLocale);
+        attributes.put(DictionaryHeader.DICTIONARY_DESCRIPTION_KEY, "Synthetic " + mWordCount + " words, seed " + mSeed);
+        attributes.put(DictionaryHeader.DICTIONARY_VERSION_KEY, "1");
+        attributes.put(DictionaryHeader.DICTIONARY_DATE_KEY, "0");
+        if (mHasHistoricalInfo) {
+            attributes.put(DictionaryHeader.HAS_HISTORICAL_INFO_KEY, DictionaryHeader.ATTRIBUTE_VALUE_TRUE);
+            attributes.put(DictionaryHeader.USES_FORGETTING_CURVE_KEY, DictionaryHeader.ATTRIBUTE_VALUE_TRUE);
+        }
+        final Dictionary dictionary = new Dictionary(new DictionaryHeader(FormatSpec.VERSION202, attributes));
+
+        // words in rank order
+        final ArrayList<String> words = new ArrayList<>(mWordCount);
+        final int[] alphabet = mAlphabet.codePoints().toArray();
+        while (words.size() < mWordCount) {
+            final String word = createWord(random, alphabet);
+            if (dictionary.contains(word)) continue;
+            words.add(word);
+            final int rank = words.size();
+            dictionary.add(new WordProperty(word, getProbabilityInfo(random, rank, FormatSpec.MAX_TERMINAL_FREQUENCY),
+                    false, random.nextInt(1000) == 0));
+        }
+        for (int rank = 1; rank <= words.size(); rank++) {
+            final String word = words.get(rank - 1);
+            // frequent words precede more different words
+            final int bigramCount = Math.min(words.size() - 1,
+                    (int) (mBigramsPerWord * 2 * (1 - (double) rank / (words.size() + 1)) + random.nextDouble()));
+            for (int i = 0; i < bigramCount; i++) {
+                final String nextWord = words.get(getZipfRank(random, words.size()) - 1);
+                if (nextWord.equals(word)) continue;
+                dictionary.addBigram(word, nextWord, getProbabilityInfo(random,
+                        getZipfRank(random, words.size()), FormatSpec.MAX_BIGRAM_FREQUENCY));
+            }
+            if (random.nextFloat() < mShortcutRatio) {
+                dictionary.addShortcut(word, createWord(random, alphabet), random.nextInt(FormatSpec.MAX_BIGRAM_FREQUENCY + 1));
+            }
+        }
+        return dictionary;
+    }
+
+    private static String createWord(final Random random, final int[] alphabet) {
+        // roughly log-normal word length, mostly 3 to 10 letters
+        final int length = Math.max(MIN_WORD_LENGTH, Math.min(MAX_WORD_LENGTH,
+                (int) Math.round(Math.exp(1.7 + random.nextGaussian() * 0.4))));
+        final StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            // skewed towards the first letters, like letter frequencies
+            final double r = random.nextDouble();
+            sb.appendCodePoint(alphabet[(int) (r * r * alphabet.length)]);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @return a rank in 1..size, distributed according to Zipf's law
+     */
+    private static int getZipfRank(final Random random, final int size) {
+        // inverse of the cumulative distribution of 1/rank, approximated by the integral
+        return Math.min(size, (int) Math.exp(random.nextDouble() * Math.log(size + 1)));
+    }
+
+    private ProbabilityInfo getProbabilityInfo(final Random random, final int rank, final int maxProbability) {
+        if (mHasHistoricalInfo) {
+            final int count = Math.max(1, 1000 / rank);
+            return new ProbabilityInfo(FormatSpec.NOT_A_PROBABILITY, 1700000000 + random.nextInt(30000000),
+                    0, count);
+        }
+        // probability falls with the logarithm of the rank, as frequency falls with 1/rank
+        return new ProbabilityInfo(Math.max(0, (int) Math.round(maxProbability * (1 - Math.log(rank) / Math.log(mWordCount + 1)))));
+    }
+}
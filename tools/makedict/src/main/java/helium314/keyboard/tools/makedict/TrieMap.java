@@ -0,0 +1,343 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+package helium314.keyboard.tools.makedict;
+
+import java.util.ArrayList;
+
+/**
+ * Port of the native TrieMap (utils/trie_map.cpp), the hash array mapped trie storing the v4
+ * language model. Keys are terminal ids; an entry may link to a next level map, which holds the
+ * n-grams following the word.
+ * <p>
+ * The buffer starts with the empty table links (3 bytes for each table size), followed by 7 byte
+ * entries: bitmap entries (bitmap and table index), terminal entries (key and value or link to a
+ * value entry) and value entries. Removal is not supported, as dictionaries are written at once.
+ */
+final class TrieMap {
+    static final int INVALID_INDEX = -1;
+    static final int ROOT_BITMAP_ENTRY_INDEX = 0;
+
+    private static final int FIELD0_SIZE = 4;
+    private static final int FIELD1_SIZE = 3;
+    private static final int ENTRY_SIZE = FIELD0_SIZE + FIELD1_SIZE;
+    private static final int VALUE_FLAG = 0x400000;
+    private static final int VALUE_MASK = 0x3FFFFF;
+    private static final int INVALID_VALUE_IN_KEY_VALUE_ENTRY = VALUE_MASK;
+    private static final int TERMINAL_LINK_FLAG = 0x800000;
+    private static final int TERMINAL_LINK_MASK = 0x7FFFFF;
+    private static final int NUM_OF_BITS_USED_FOR_ONE_LEVEL = 5;
+    private static final int LABEL_MASK = 0x1F;
+    private static final int MAX_NUM_OF_ENTRIES_IN_ONE_LEVEL = 1 << NUM_OF_BITS_USED_FOR_ONE_LEVEL;
+    private static final int ROOT_BITMAP_ENTRY_POS = MAX_NUM_OF_ENTRIES_IN_ONE_LEVEL * FIELD0_SIZE;
+    private static final int TERMINAL_LINKED_ENTRY_COUNT = 2; // Value entry and bitmap entry.
+    static final long MAX_VALUE = (1L << (ENTRY_SIZE * 8)) - 1;
+
+    static final class Result {
+        final int mKey;
+        final long mValue;
+        final int mNextLevelBitmapEntryIndex;
+
+        Result(final int key, final long value, final int nextLevelBitmapEntryIndex) {
+            mKey = key;
+            mValue = value;
+            mNextLevelBitmapEntryIndex = nextLevelBitmapEntryIndex;
+        }
+    }
+
+    private final ByteArrayWriter mBuffer;
+
+    TrieMap() {
+        mBuffer = new ByteArrayWriter();
+        mBuffer.extend(ROOT_BITMAP_ENTRY_POS);
+        writeEntry(0, 0, ROOT_BITMAP_ENTRY_INDEX);
+    }
+
+    TrieMap(final byte[] content) throws UnsupportedFormatException {
+        if (content.length < ROOT_BITMAP_ENTRY_POS + ENTRY_SIZE) {
+            throw new UnsupportedFormatException("Language model buffer is too small: " + content.length);
+        }
+        mBuffer = new ByteArrayWriter(content.length);
+        mBuffer.write(content);
+    }
+
+    ByteArrayWriter getBuffer() {
+        return mBuffer;
+    }
+
+    /**
+     * @return the result for the key, or null if the key is not in the map
+     */
+    Result get(final int key, final int bitmapEntryIndex) {
+        final int terminalEntryIndex = getTerminalEntryIndex(key, getBitShuffledKey(key),
+                bitmapEntryIndex, 0 /* level */);
+        if (terminalEntryIndex == INVALID_INDEX) {
+            return null;
+        }
+        return readTerminalEntry(terminalEntryIndex);
+    }
+
+    boolean put(final int key, final long value, final int bitmapEntryIndex) {
+        if (value < 0 || value > MAX_VALUE) {
+            return false;
+        }
+        return putInternal(key, value, getBitShuffledKey(key), bitmapEntryIndex, 0 /* level */);
+    }
+
+    /**
+     * @return the bitmap entry index of the next level map for the key, which is created if
+     * necessary, or {@link #INVALID_INDEX} if the key is not in the map
+     */
+    int getNextLevelBitmapEntryIndex(final int key, final int bitmapEntryIndex) {
+        final int terminalEntryIndex = getTerminalEntryIndex(key, getBitShuffledKey(key),
+                bitmapEntryIndex, 0 /* level */);
+        if (terminalEntryIndex == INVALID_INDEX) {
+            return INVALID_INDEX;
+        }
+        final int field1 = readField1(terminalEntryIndex);
+        if (hasTerminalLink(field1)) {
+            return (field1 & TERMINAL_LINK_MASK) + 1;
+        }
+        // Create a value entry and a bitmap entry.
+        final int valueEntryIndex = allocateTable(TERMINAL_LINKED_ENTRY_COUNT);
+        writeEntry(0, field1 & VALUE_MASK, valueEntryIndex);
+        writeEntry(0, 0, valueEntryIndex + 1);
+        writeField1(valueEntryIndex | TERMINAL_LINK_FLAG, terminalEntryIndex);
+        return valueEntryIndex + 1;
+    }
+
+    /**
+     * @return all valid entries in the level of the given bitmap entry, in storage order
+     */
+    ArrayList<Result> getEntries(final int bitmapEntryIndex) {
+        final ArrayList<Result> results = new ArrayList<>();
+        collectEntries(readField0(bitmapEntryIndex), readField1(bitmapEntryIndex), results);
+        return results;
+    }
+
+    private void collectEntries(final int bitmap, final int tableIndex, final ArrayList<Result> results) {
+        final int tableSize = Integer.bitCount(bitmap);
+        for (int i = 0; i < tableSize; i++) {
+            final int entryIndex = tableIndex + i;
+            final int field1 = readField1(entryIndex);
+            if (isBitmapEntry(field1)) {
+                collectEntries(readField0(entryIndex), field1, results);
+            } else if (isValidTerminalEntry(field1)) {
+                results.add(readTerminalEntry(entryIndex));
+            }
+        }
+    }
+
+    private Result readTerminalEntry(final int terminalEntryIndex) {
+        final int key = readField0(terminalEntryIndex);
+        final int field1 = readField1(terminalEntryIndex);
+        if (!hasTerminalLink(field1)) {
+            return new Result(key, field1 & VALUE_MASK, INVALID_INDEX);
+        }
+        final int valueEntryIndex = field1 & TERMINAL_LINK_MASK;
+        final long value = ((readField0(valueEntryIndex) & 0xFFFFFFFFL) << (FIELD1_SIZE * 8))
+                ^ readField1(valueEntryIndex);
+        return new Result(key, value, valueEntryIndex + 1);
+    }
+
+    /**
+     * Shuffle bits of the key in the fixed order, used as hash function.
+     */
+    private static int getBitShuffledKey(final int key) {
+        int shuffledKey = 0;
+        for (int i = 0; i < 4; ++i) {
+            final int keyPiece = (key >>> (i * 8)) & 0xFF;
+            shuffledKey ^= ((keyPiece ^ (keyPiece << 7) ^ (keyPiece << 14) ^ (keyPiece << 21))
+                    & 0x11111111) << i;
+        }
+        return shuffledKey;
+    }
+
+    private static int getLabel(final int hashedKey, final int level) {
+        return (hashedKey >>> (level * NUM_OF_BITS_USED_FOR_ONE_LEVEL)) & LABEL_MASK;
+    }
+
+    private static boolean exists(final int bitmap, final int label) {
+        return (bitmap & (1 << label)) != 0;
+    }
+
+    private static int popCount(final int bitmap, final int label) {
+        return Integer.bitCount(bitmap & ((1 << label) - 1));
+    }
+
+    private static boolean isBitmapEntry(final int field1) {
+        return (field1 & VALUE_FLAG) == 0 && (field1 & TERMINAL_LINK_FLAG) == 0;
+    }
+
+    private static boolean hasTerminalLink(final int field1) {
+        return (field1 & TERMINAL_LINK_FLAG) != 0;
+    }
+
+    private static boolean isValidTerminalEntry(final int field1) {
+        return hasTerminalLink(field1) || (field1 & VALUE_MASK) != INVALID_VALUE_IN_KEY_VALUE_ENTRY;
+    }
+
+    private int getTerminalEntryIndex(final int key, final int hashedKey, final int bitmapEntryIndex,
+            final int level) {
+        final int bitmap = readField0(bitmapEntryIndex);
+        final int label = getLabel(hashedKey, level);
+        if (!exists(bitmap, label)) {
+            return INVALID_INDEX;
+        }
+        final int entryIndex = readField1(bitmapEntryIndex) + popCount(bitmap, label);
+        final int field1 = readField1(entryIndex);
+        if (isBitmapEntry(field1)) {
+            // Move to the next level.
+            return getTerminalEntryIndex(key, hashedKey, entryIndex, level + 1);
+        }
+        if (!isValidTerminalEntry(field1)) {
+            return INVALID_INDEX;
+        }
+        return readField0(entryIndex) == key ? entryIndex : INVALID_INDEX;
+    }
+
+    private boolean putInternal(final int key, final long value, final int hashedKey,
+            final int bitmapEntryIndex, final int level) {
+        final int label = getLabel(hashedKey, level);
+        final int bitmap = readField0(bitmapEntryIndex);
+        final int tableIndex = readField1(bitmapEntryIndex);
+        if (!exists(bitmap, label)) {
+            // Current map doesn't contain the label.
+            return addNewEntryByExpandingTable(key, value, tableIndex, bitmap, bitmapEntryIndex, label);
+        }
+        final int entryIndex = tableIndex + popCount(bitmap, label);
+        final int field1 = readField1(entryIndex);
+        if (isBitmapEntry(field1)) {
+            return putInternal(key, value, hashedKey, entryIndex, level + 1);
+        }
+        if (!isValidTerminalEntry(field1)) {
+            writeTerminalEntry(key, value, entryIndex);
+            return true;
+        }
+        if (readField0(entryIndex) == key) {
+            updateValue(field1, value, entryIndex);
+            return true;
+        }
+        return addNewEntryByResolvingConflict(key, value, hashedKey, entryIndex, level);
+    }
+
+    private boolean addNewEntryByResolvingConflict(final int key, final long value,
+            final int hashedKey, final int conflictedEntryIndex, final int level) {
+        final int conflictedField0 = readField0(conflictedEntryIndex);
+        final int conflictedField1 = readField1(conflictedEntryIndex);
+        final int conflictedKeyNextLabel = getLabel(getBitShuffledKey(conflictedField0), level + 1);
+        final int nextLabel = getLabel(hashedKey, level + 1);
+        if (conflictedKeyNextLabel == nextLabel) {
+            // Conflicted again in the next level.
+            final int newTableIndex = allocateTable(1);
+            writeEntry(conflictedField0, conflictedField1, newTableIndex);
+            writeEntry(1 << nextLabel, newTableIndex, conflictedEntryIndex);
+            return putInternal(key, value, hashedKey, conflictedEntryIndex, level + 1);
+        }
+        // The conflict has been resolved. Create a table that contains 2 entries.
+        final int newTableIndex = allocateTable(2);
+        if (nextLabel < conflictedKeyNextLabel) {
+            writeTerminalEntry(key, value, newTableIndex);
+            writeEntry(conflictedField0, conflictedField1, newTableIndex + 1);
+        } else {
+            writeEntry(conflictedField0, conflictedField1, newTableIndex);
+            writeTerminalEntry(key, value, newTableIndex + 1);
+        }
+        writeEntry((1 << nextLabel) | (1 << conflictedKeyNextLabel), newTableIndex, conflictedEntryIndex);
+        return true;
+    }
+
+    private boolean addNewEntryByExpandingTable(final int key, final long value, final int tableIndex,
+            final int bitmap, final int bitmapEntryIndex, final int label) {
+        final int entryCount = Integer.bitCount(bitmap);
+        final int newTableIndex = allocateTable(entryCount + 1);
+        final int newEntryIndexInTable = popCount(bitmap, label);
+        // Copy from existing table to the new table.
+        for (int i = 0; i < entryCount; ++i) {
+            final int newIndex = newTableIndex + i + (i >= newEntryIndexInTable ? 1 : 0);
+            writeEntry(readField0(tableIndex + i), readField1(tableIndex + i), newIndex);
+        }
+        writeTerminalEntry(key, value, newTableIndex + newEntryIndexInTable);
+        writeEntry(bitmap | (1 << label), newTableIndex, bitmapEntryIndex);
+        if (entryCount > 0) {
+            freeTable(tableIndex, entryCount);
+        }
+        return true;
+    }
+
+    private void writeTerminalEntry(final int key, final long value, final int entryIndex) {
+        writeField0(key, entryIndex);
+        writeValue(value, entryIndex);
+    }
+
+    private void writeValue(final long value, final int terminalEntryIndex) {
+        if (value < VALUE_MASK) {
+            // Write value into the terminal entry.
+            writeField1((int) value | VALUE_FLAG, terminalEntryIndex);
+            return;
+        }
+        // Create value entry and write value.
+        final int valueEntryIndex = allocateTable(TERMINAL_LINKED_ENTRY_COUNT);
+        writeEntry((int) (value >>> (FIELD1_SIZE * 8)), (int) value & 0xFFFFFF, valueEntryIndex);
+        writeEntry(0, 0, valueEntryIndex + 1);
+        writeField1(valueEntryIndex | TERMINAL_LINK_FLAG, terminalEntryIndex);
+    }
+
+    private void updateValue(final int terminalField1, final long value, final int terminalEntryIndex) {
+        if (!hasTerminalLink(terminalField1)) {
+            writeValue(value, terminalEntryIndex);
+            return;
+        }
+        writeEntry((int) (value >>> (FIELD1_SIZE * 8)), (int) value & 0xFFFFFF,
+                terminalField1 & TERMINAL_LINK_MASK);
+    }
+
+    private void freeTable(final int tableIndex, final int entryCount) {
+        writeField0(readEmptyTableLink(entryCount), tableIndex);
+        writeEmptyTableLink(tableIndex, entryCount);
+    }
+
+    /**
+     * Allocate table with entryCount-entries. Reuse freed table if possible.
+     */
+    private int allocateTable(final int entryCount) {
+        if (entryCount > 0 && entryCount <= MAX_NUM_OF_ENTRIES_IN_ONE_LEVEL) {
+            final int tableIndex = readEmptyTableLink(entryCount);
+            if (tableIndex > 0) {
+                writeEmptyTableLink(readField0(tableIndex), entryCount);
+                return tableIndex;
+            }
+        }
+        final int mapIndex = (mBuffer.size() - ROOT_BITMAP_ENTRY_POS) / ENTRY_SIZE;
+        mBuffer.extend(entryCount * ENTRY_SIZE);
+        return mapIndex;
+    }
+
+    private int readEmptyTableLink(final int entryCount) {
+        return (int) mBuffer.readUint(FIELD1_SIZE, (entryCount - 1) * FIELD1_SIZE);
+    }
+
+    private void writeEmptyTableLink(final int tableIndex, final int entryCount) {
+        mBuffer.writeUint(tableIndex, FIELD1_SIZE, (entryCount - 1) * FIELD1_SIZE);
+    }
+
+    private int readField0(final int entryIndex) {
+        return (int) mBuffer.readUint(FIELD0_SIZE, ROOT_BITMAP_ENTRY_POS + entryIndex * ENTRY_SIZE);
+    }
+
+    private int readField1(final int entryIndex) {
+        return (int) mBuffer.readUint(FIELD1_SIZE, ROOT_BITMAP_ENTRY_POS + entryIndex * ENTRY_SIZE + FIELD0_SIZE);
+    }
+
+    private void writeField0(final int data, final int entryIndex) {
+        mBuffer.writeUint(data, FIELD0_SIZE, ROOT_BITMAP_ENTRY_POS + entryIndex * ENTRY_SIZE);
+    }
+
+    private void writeField1(final int data, final int entryIndex) {
+        mBuffer.writeUint(data, FIELD1_SIZE, ROOT_BITMAP_ENTRY_POS + entryIndex * ENTRY_SIZE + FIELD0_SIZE);
+    }
+
+    private void writeEntry(final int field0, final int field1, final int entryIndex) {
+        writeField0(field0, entryIndex);
+        writeField1(field1, entryIndex);
+    }
+}
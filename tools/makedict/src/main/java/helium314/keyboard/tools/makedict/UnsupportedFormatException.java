@@ -0,0 +1,14 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+package helium314.keyboard.tools.makedict;
+
+/**
+ * Thrown when a dictionary can't be read, or the content can't be stored in the requested format.
+ */
+public final class UnsupportedFormatException extends Exception {
+    private static final long serialVersionUID = 1L;
+
+    public UnsupportedFormatException(final String description) {
+        super(description);
+    }
+}
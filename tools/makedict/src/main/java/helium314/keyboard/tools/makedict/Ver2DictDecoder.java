@@ -0,0 +1,151 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+package helium314.keyboard.tools.makedict;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Reads v2 (202) dictionaries.
+ * <p>
+ * PtNode positions are relative to the end of the header. Bigram targets are positions of
+ * terminal PtNodes, which are resolved to words after the whole trie has been read.
+ */
+final class Ver2DictDecoder {
+    private static final class PendingBigram {
+        final WordProperty mWord;
+        final int mProbability;
+        final int mTargetPosition;
+
+        PendingBigram(final WordProperty word, final int probability, final int targetPosition) {
+            mWord = word;
+            mProbability = probability;
+            mTargetPosition = targetPosition;
+        }
+    }
+
+    private final ByteArrayReader mReader;
+    private final int[] mCodePointTable;
+    private final Dictionary mDictionary;
+    private final HashMap<Integer, String> mWordsByPosition = new HashMap<>();
+    private final ArrayList<PendingBigram> mPendingBigrams = new ArrayList<>();
+
+    private Ver2DictDecoder(final byte[] data, final DictionaryHeader header, final int headerSize)
+            throws UnsupportedFormatException {
+        mReader = new ByteArrayReader(data, headerSize, data.length - headerSize);
+        mCodePointTable = header.mVersion >= FormatSpec.MINIMUM_SUPPORTED_VERSION_OF_CODE_POINT_TABLE
+                ? CodePointTable.fromAttributeValue(header.getAttribute(DictionaryHeader.CODE_POINT_TABLE_KEY))
+                : null;
+        mDictionary = new Dictionary(header);
+    }
+
+    static Dictionary readDictionary(final byte[] data) throws UnsupportedFormatException {
+        final ByteArrayReader headerReader = new ByteArrayReader(data);
+        final DictionaryHeader header = HeaderReadWriteUtils.readHeader(headerReader);
+        if (header.mVersion != FormatSpec.VERSION202) {
+            throw new UnsupportedFormatException("Unsupported v2 version " + header.mVersion);
+        }
+        final Ver2DictDecoder decoder = new Ver2DictDecoder(data, header, headerReader.mPosition);
+        decoder.readPtNodeArray(0, "");
+        decoder.resolveBigrams();
+        return decoder.mDictionary;
+    }
+
+    private void readPtNodeArray(final int position, final String prefix) throws UnsupportedFormatException {
+        mReader.mPosition = position;
+        int count = mReader.readUint8();
+        if (count > FormatSpec.MAX_PTNODES_FOR_ONE_BYTE_PTNODE_COUNT) {
+            count = ((count & 0x7F) << 8) | mReader.readUint8();
+        }
+        final int[] childrenPositions = new int[count];
+        final String[] childrenPrefixes = new String[count];
+        for (int i = 0; i < count; i++) {
+            final int nodePosition = mReader.mPosition;
+            final int flags = mReader.readUint8();
+            final String chars;
+            if ((flags & FormatSpec.FLAG_HAS_MULTIPLE_CHARS) != 0) {
+                chars = mReader.readString(mCodePointTable);
+            } else {
+                final int codePoint = mReader.readCodePoint(mCodePointTable);
+                if (codePoint == ByteArrayReader.NOT_A_CODE_POINT) {
+                    throw new UnsupportedFormatException("Missing character at " + nodePosition);
+                }
+                chars = new String(Character.toChars(codePoint));
+            }
+            final String word = prefix + chars;
+            final boolean isTerminal = (flags & FormatSpec.FLAG_IS_TERMINAL) != 0;
+            final int probability = isTerminal ? mReader.readUint8() : FormatSpec.NOT_A_PROBABILITY;
+            final int childrenAddressFieldPosition = mReader.mPosition;
+            final int childrenAddressSize = switch (flags & FormatSpec.MASK_CHILDREN_ADDRESS_TYPE) {
+                case FormatSpec.FLAG_CHILDREN_ADDRESS_TYPE_ONEBYTE -> 1;
+                case FormatSpec.FLAG_CHILDREN_ADDRESS_TYPE_TWOBYTES -> 2;
+                case FormatSpec.FLAG_CHILDREN_ADDRESS_TYPE_THREEBYTES -> 3;
+                default -> 0;
+            };
+            childrenPositions[i] = childrenAddressSize == 0 ? -1
+                    : childrenAddressFieldPosition + mReader.readUint(childrenAddressSize);
+            childrenPrefixes[i] = word;
+
+            final WordProperty wordProperty = isTerminal ? new WordProperty(word, new ProbabilityInfo(probability),
+                    (flags & FormatSpec.FLAG_IS_NOT_A_WORD) != 0,
+                    (flags & FormatSpec.FLAG_IS_POSSIBLY_OFFENSIVE) != 0) : null;
+            if ((flags & FormatSpec.FLAG_HAS_SHORTCUT_TARGETS) != 0) {
+                final int listEnd = mReader.mPosition + mReader.readUint16();
+                boolean hasNext = true;
+                while (hasNext) {
+                    final int shortcutFlags = mReader.readUint8();
+                    hasNext = (shortcutFlags & FormatSpec.FLAG_BIGRAM_SHORTCUT_ATTR_HAS_NEXT) != 0;
+                    final String target = mReader.readString(null);
+                    if (wordProperty != null) {
+                        wordProperty.mShortcutTargets.add(new WeightedString(target,
+                                shortcutFlags & FormatSpec.FLAG_BIGRAM_SHORTCUT_ATTR_FREQUENCY));
+                    }
+                }
+                mReader.mPosition = listEnd;
+            }
+            if ((flags & FormatSpec.FLAG_HAS_BIGRAMS) != 0) {
+                boolean hasNext = true;
+                while (hasNext) {
+                    final int bigramFlags = mReader.readUint8();
+                    hasNext = (bigramFlags & FormatSpec.FLAG_BIGRAM_SHORTCUT_ATTR_HAS_NEXT) != 0;
+                    final int origin = mReader.mPosition;
+                    final int offset = switch (bigramFlags & FormatSpec.MASK_BIGRAM_ATTR_ADDRESS_TYPE) {
+                        case FormatSpec.FLAG_BIGRAM_ATTR_ADDRESS_TYPE_ONEBYTE -> mReader.readUint8();
+                        case FormatSpec.FLAG_BIGRAM_ATTR_ADDRESS_TYPE_TWOBYTES -> mReader.readUint16();
+                        case FormatSpec.FLAG_BIGRAM_ATTR_ADDRESS_TYPE_THREEBYTES -> mReader.readUint24();
+                        default -> 0;
+                    };
+                    final int target = (bigramFlags & FormatSpec.FLAG_BIGRAM_ATTR_OFFSET_NEGATIVE) != 0
+                            ? origin - offset : origin + offset;
+                    if (wordProperty != null) {
+                        mPendingBigrams.add(new PendingBigram(wordProperty,
+                                bigramFlags & FormatSpec.FLAG_BIGRAM_SHORTCUT_ATTR_FREQUENCY, target));
+                    }
+                }
+            }
+            if (wordProperty != null) {
+                if (mDictionary.contains(word)) {
+                    throw new UnsupportedFormatException("Duplicate word " + word);
+                }
+                mDictionary.add(wordProperty);
+                mWordsByPosition.put(nodePosition, word);
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            if (childrenPositions[i] >= 0) {
+                readPtNodeArray(childrenPositions[i], childrenPrefixes[i]);
+            }
+        }
+    }
+
+    private void resolveBigrams() throws UnsupportedFormatException {
+        for (final PendingBigram bigram : mPendingBigrams) {
+            final String target = mWordsByPosition.get(bigram.mTargetPosition);
+            if (target == null) {
+                throw new UnsupportedFormatException("Bigram of " + bigram.mWord.mWord
+                        + " points to invalid position " + bigram.mTargetPosition);
+            }
+            bigram.mWord.mBigrams.add(new WeightedString(target, bigram.mProbability));
+        }
+    }
+}
@@ -0,0 +1,259 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+package helium314.keyboard.tools.makedict;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.TreeMap;
+
+import helium314.keyboard.tools.makedict.PatriciaTrie.PtNode;
+import helium314.keyboard.tools.makedict.PatriciaTrie.PtNodeArray;
+
+/**
+ * Writes v2 (202) dictionaries, the format of the dictionaries shipped with the app.
+ * <p>
+ * Children and bigram addresses are relative and take 1 to 3 bytes depending on the distance,
+ * which depends on the size of the PtNodes in between. Sizes are computed starting from the
+ * largest address size and shrunk until the layout is stable. Shrinking a field never increases
+ * a distance, so this terminates.
+ */
+public final class Ver2DictEncoder {
+    private static final int MAX_LAYOUT_PASSES = 32;
+
+    private final boolean mUsesCodePointTable;
+
+    /**
+     * @param usesCodePointTable whether to store the most frequent characters of the trie in 1
+     *        byte, which makes dictionaries in non-latin scripts a lot smaller
+     */
+    public Ver2DictEncoder(final boolean usesCodePointTable) {
+        mUsesCodePointTable = usesCodePointTable;
+    }
+
+    public void writeDictionary(final Dictionary dictionary, final File file)
+            throws IOException, UnsupportedFormatException {
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+            writeDictionary(dictionary, out);
+        }
+    }
+
+    public void writeDictionary(final Dictionary dictionary, final OutputStream out)
+            throws IOException, UnsupportedFormatException {
+        final PatriciaTrie trie = new PatriciaTrie(dictionary.getWords());
+        final CodePointTable codePointTable = mUsesCodePointTable ? createCodePointTable(trie) : null;
+        final TreeMap<String, String> attributes = new TreeMap<>(dictionary.mHeader.mAttributes);
+        attributes.remove(DictionaryHeader.CODE_POINT_TABLE_KEY);
+        if (codePointTable != null) {
+            attributes.put(DictionaryHeader.CODE_POINT_TABLE_KEY, codePointTable.toAttributeValue());
+        }
+        final DictionaryHeader header = new DictionaryHeader(FormatSpec.VERSION202, attributes);
+        HeaderReadWriteUtils.writeHeader(header).writeTo(out);
+
+        final int size = computeLayout(trie, codePointTable);
+        final ByteArrayWriter body = new ByteArrayWriter(size);
+        for (final PtNodeArray array : trie.mFlattenedArrays) {
+            writePtNodeArray(body, array, trie, codePointTable);
+        }
+        if (body.size() != size) {
+            throw new IllegalStateException("Wrote " + body.size() + " bytes, expected " + size);
+        }
+        body.writeTo(out);
+    }
+
+    private static CodePointTable createCodePointTable(final PatriciaTrie trie) {
+        final HashMap<Integer, Integer> counts = new HashMap<>();
+        for (final PtNodeArray array : trie.mFlattenedArrays) {
+            for (final PtNode node : array.mNodes) {
+                for (final int codePoint : node.mChars) {
+                    counts.merge(codePoint, 1, Integer::sum);
+                }
+            }
+        }
+        return CodePointTable.create(counts);
+    }
+
+    /**
+     * Sets positions and address sizes of all PtNodes.
+     * @return the size of the trie
+     */
+    private static int computeLayout(final PatriciaTrie trie, final CodePointTable codePointTable)
+            throws UnsupportedFormatException {
+        for (final PtNodeArray array : trie.mFlattenedArrays) {
+            for (final PtNode node : array.mNodes) {
+                node.mChildrenAddressSize = node.mChildren == null ? 0 : 3;
+                if (node.isTerminal()) {
+                    node.mBigramAddressSizes = new int[node.mWord.mBigrams.size()];
+                    Arrays.fill(node.mBigramAddressSizes, 3);
+                }
+            }
+        }
+        for (int pass = 0; pass < MAX_LAYOUT_PASSES; pass++) {
+            final int size = setPositions(trie, codePointTable);
+            boolean changed = false;
+            for (final PtNodeArray array : trie.mFlattenedArrays) {
+                for (final PtNode node : array.mNodes) {
+                    if (node.mChildren != null) {
+                        final int addressSize = getAddressSize(node.mChildren.mPosition
+                                - getChildrenAddressFieldPosition(node, codePointTable));
+                        changed |= addressSize != node.mChildrenAddressSize;
+                        node.mChildrenAddressSize = addressSize;
+                    }
+                    if (!node.isTerminal()) continue;
+                    int bigramPosition = getBigramListPosition(node, codePointTable);
+                    for (int i = 0; i < node.mBigramAddressSizes.length; i++) {
+                        final PtNode target = trie.getTerminal(node.mWord.mBigrams.get(i).mWord);
+                        final int addressSize = getAddressSize(Math.abs(target.mPosition - (bigramPosition + 1)));
+                        changed |= addressSize != node.mBigramAddressSizes[i];
+                        bigramPosition += 1 + node.mBigramAddressSizes[i];
+                        node.mBigramAddressSizes[i] = addressSize;
+                    }
+                }
+            }
+            if (!changed) {
+                return size;
+            }
+        }
+        throw new IllegalStateException("Dictionary layout did not converge");
+    }
+
+    private static int setPositions(final PatriciaTrie trie, final CodePointTable codePointTable)
+            throws UnsupportedFormatException {
+        int position = 0;
+        for (final PtNodeArray array : trie.mFlattenedArrays) {
+            array.mPosition = position;
+            position += array.mNodes.size() > FormatSpec.MAX_PTNODES_FOR_ONE_BYTE_PTNODE_COUNT ? 2 : 1;
+            for (final PtNode node : array.mNodes) {
+                node.mPosition = position;
+                position += getPtNodeSize(node, codePointTable);
+            }
+        }
+        return position;
+    }
+
+    private static int getCharsSize(final PtNode node, final CodePointTable codePointTable) {
+        return ByteArrayWriter.getCodePointsSize(node.mChars, node.mChars.length > 1, codePointTable);
+    }
+
+    private static int getChildrenAddressFieldPosition(final PtNode node, final CodePointTable codePointTable) {
+        return node.mPosition + 1 + getCharsSize(node, codePointTable) + (node.isTerminal() ? 1 : 0);
+    }
+
+    private static int getShortcutListSize(final WordProperty word) throws UnsupportedFormatException {
+        if (word.mShortcutTargets.isEmpty()) return 0;
+        int size = FormatSpec.PTNODE_SHORTCUT_LIST_SIZE_SIZE;
+        for (final WeightedString target : word.mShortcutTargets) {
+            size += 1 + ByteArrayWriter.getCodePointsSize(target.mWord.codePoints().toArray(), true, null);
+        }
+        if (size > FormatSpec.MAX_SHORTCUT_LIST_SIZE_IN_A_PTNODE) {
+            throw new UnsupportedFormatException("Too many shortcuts for " + word.mWord);
+        }
+        return size;
+    }
+
+    private static int getBigramListPosition(final PtNode node, final CodePointTable codePointTable)
+            throws UnsupportedFormatException {
+        return getChildrenAddressFieldPosition(node, codePointTable) + node.mChildrenAddressSize
+                + getShortcutListSize(node.mWord);
+    }
+
+    private static int getPtNodeSize(final PtNode node, final CodePointTable codePointTable)
+            throws UnsupportedFormatException {
+        int size = 1 + getCharsSize(node, codePointTable) + node.mChildrenAddressSize;
+        if (node.isTerminal()) {
+            size += 1 + getShortcutListSize(node.mWord);
+            for (final int bigramAddressSize : node.mBigramAddressSizes) {
+                size += 1 + bigramAddressSize;
+            }
+        }
+        return size;
+    }
+
+    private static int getAddressSize(final int offset) throws UnsupportedFormatException {
+        if (offset <= 0xFF) return 1;
+        if (offset <= 0xFFFF) return 2;
+        if (offset <= 0xFFFFFF) return 3;
+        throw new UnsupportedFormatException("Dictionary is too large for v2, offset " + offset);
+    }
+
+    private static void writePtNodeArray(final ByteArrayWriter writer, final PtNodeArray array,
+            final PatriciaTrie trie, final CodePointTable codePointTable) throws UnsupportedFormatException {
+        final int count = array.mNodes.size();
+        if (count > FormatSpec.MAX_PTNODES_FOR_ONE_BYTE_PTNODE_COUNT) {
+            writer.writeUint(count | FormatSpec.LARGE_PTNODE_ARRAY_SIZE_FIELD_SIZE_FLAG, 2);
+        } else {
+            writer.writeUint(count, 1);
+        }
+        for (final PtNode node : array.mNodes) {
+            writePtNode(writer, node, trie, codePointTable);
+        }
+    }
+
+    private static void writePtNode(final ByteArrayWriter writer, final PtNode node,
+            final PatriciaTrie trie, final CodePointTable codePointTable) throws UnsupportedFormatException {
+        final WordProperty word = node.mWord;
+        int flags = switch (node.mChildrenAddressSize) {
+            case 1 -> FormatSpec.FLAG_CHILDREN_ADDRESS_TYPE_ONEBYTE;
+            case 2 -> FormatSpec.FLAG_CHILDREN_ADDRESS_TYPE_TWOBYTES;
+            case 3 -> FormatSpec.FLAG_CHILDREN_ADDRESS_TYPE_THREEBYTES;
+            default -> FormatSpec.FLAG_CHILDREN_ADDRESS_TYPE_NOADDRESS;
+        };
+        if (node.mChars.length > 1) flags |= FormatSpec.FLAG_HAS_MULTIPLE_CHARS;
+        if (word != null) {
+            flags |= FormatSpec.FLAG_IS_TERMINAL;
+            if (!word.mShortcutTargets.isEmpty()) flags |= FormatSpec.FLAG_HAS_SHORTCUT_TARGETS;
+            if (!word.mBigrams.isEmpty()) flags |= FormatSpec.FLAG_HAS_BIGRAMS;
+            if (word.mIsNotAWord) flags |= FormatSpec.FLAG_IS_NOT_A_WORD;
+            if (word.mIsPossiblyOffensive) flags |= FormatSpec.FLAG_IS_POSSIBLY_OFFENSIVE;
+        }
+        writer.writeUint(flags, 1);
+        writer.writeCodePoints(node.mChars, node.mChars.length > 1, codePointTable);
+        if (word != null) {
+            writer.writeUint(checkRange(word.getProbability(), FormatSpec.MAX_TERMINAL_FREQUENCY,
+                    word.mWord), 1);
+        }
+        if (node.mChildren != null) {
+            writer.writeUint(node.mChildren.mPosition - writer.size(), node.mChildrenAddressSize);
+        }
+        if (word == null) return;
+
+        if (!word.mShortcutTargets.isEmpty()) {
+            writer.writeUint(getShortcutListSize(word), FormatSpec.PTNODE_SHORTCUT_LIST_SIZE_SIZE);
+            for (int i = 0; i < word.mShortcutTargets.size(); i++) {
+                final WeightedString target = word.mShortcutTargets.get(i);
+                int shortcutFlags = checkRange(target.getProbability(), FormatSpec.MAX_BIGRAM_FREQUENCY, target.mWord);
+                if (i < word.mShortcutTargets.size() - 1) shortcutFlags |= FormatSpec.FLAG_BIGRAM_SHORTCUT_ATTR_HAS_NEXT;
+                writer.writeUint(shortcutFlags, 1);
+                writer.writeCodePoints(target.mWord.codePoints().toArray(), true, null);
+            }
+        }
+        for (int i = 0; i < word.mBigrams.size(); i++) {
+            final WeightedString bigram = word.mBigrams.get(i);
+            final int origin = writer.size() + 1;
+            final int offset = trie.getTerminal(bigram.mWord).mPosition - origin;
+            int bigramFlags = checkRange(bigram.getProbability(), FormatSpec.MAX_BIGRAM_FREQUENCY, bigram.mWord);
+            bigramFlags |= switch (node.mBigramAddressSizes[i]) {
+                case 1 -> FormatSpec.FLAG_BIGRAM_ATTR_ADDRESS_TYPE_ONEBYTE;
+                case 2 -> FormatSpec.FLAG_BIGRAM_ATTR_ADDRESS_TYPE_TWOBYTES;
+                default -> FormatSpec.FLAG_BIGRAM_ATTR_ADDRESS_TYPE_THREEBYTES;
+            };
+            if (offset < 0) bigramFlags |= FormatSpec.FLAG_BIGRAM_ATTR_OFFSET_NEGATIVE;
+            if (i < word.mBigrams.size() - 1) bigramFlags |= FormatSpec.FLAG_BIGRAM_SHORTCUT_ATTR_HAS_NEXT;
+            writer.writeUint(bigramFlags, 1);
+            writer.writeUint(Math.abs(offset), node.mBigramAddressSizes[i]);
+        }
+    }
+
+    private static int checkRange(final int probability, final int max, final String word)
+            throws UnsupportedFormatException {
+        if (probability < 0 || probability > max) {
+            throw new UnsupportedFormatException("Probability " + probability + " of " + word
+                    + " is not in range 0.." + max);
+        }
+        return probability;
+    }
+}
@@ -0,0 +1,268 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+package helium314.keyboard.tools.makedict;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+
+/**
+ * Reads v4 (403) dictionaries.
+ * <p>
+ * Unlike the encoder, this handles everything the native code may write into a dictionary that
+ * is not garbage collected: 1 byte array sizes, forward links to additional PtNode arrays, and
+ * moved or deleted PtNodes. N-grams above bigrams and the beginning-of-sentence entry are
+ * skipped, as they have no representation in {@link Dictionary}.
+ */
+final class Ver4DictDecoder {
+    private static final int TRIE_BUFFER_INDEX = 0;
+    private static final int TERMINAL_ADDRESS_LOOKUP_TABLE_BUFFER_INDEX = 1;
+    private static final int LANGUAGE_MODEL_BUFFER_INDEX = 2;
+    private static final int SHORTCUT_INDEX_TABLE_BUFFER_INDEX = 4;
+    private static final int SHORTCUT_ADDRESS_TABLE_BUFFER_INDEX = 5;
+    private static final int SHORTCUT_CONTENT_BUFFER_INDEX = 6;
+
+    private final byte[][] mBuffers = new byte[FormatSpec.V4_NUM_OF_BUFFERS_IN_BODY_FILE][];
+    private final boolean mHasHistoricalInfo;
+    private final ArrayList<String> mWordsByTerminalId = new ArrayList<>();
+
+    private Ver4DictDecoder(final byte[] body, final boolean hasHistoricalInfo)
+            throws UnsupportedFormatException {
+        mHasHistoricalInfo = hasHistoricalInfo;
+        final ByteArrayReader reader = new ByteArrayReader(body);
+        for (int i = 0; i < mBuffers.length; i++) {
+            final int size = reader.readInt32();
+            if (size < 0 || reader.mPosition + size > body.length) {
+                throw new UnsupportedFormatException("Invalid size " + size + " of buffer " + i);
+            }
+            mBuffers[i] = new byte[size];
+            System.arraycopy(body, reader.mPosition, mBuffers[i], 0, size);
+            reader.mPosition += size;
+        }
+    }
+
+    static File getHeaderFile(final File dictDir) {
+        return new File(dictDir, dictDir.getName() + FormatSpec.HEADER_FILE_EXTENSION);
+    }
+
+    static File getBodyFile(final File dictDir) {
+        return new File(dictDir, dictDir.getName() + FormatSpec.BODY_FILE_EXTENSION);
+    }
+
+    static DictionaryHeader readHeader(final File dictDir) throws IOException, UnsupportedFormatException {
+        final DictionaryHeader header = HeaderReadWriteUtils.readHeader(
+                new ByteArrayReader(Files.readAllBytes(getHeaderFile(dictDir).toPath())));
+        if (!header.isVersion4()) {
+            throw new UnsupportedFormatException("Unsupported v4 version " + header.mVersion);
+        }
+        return header;
+    }
+
+    static Dictionary readDictionary(final File dictDir) throws IOException, UnsupportedFormatException {
+        final DictionaryHeader header = readHeader(dictDir);
+        final Ver4DictDecoder decoder = new Ver4DictDecoder(
+                Files.readAllBytes(getBodyFile(dictDir).toPath()), header.hasHistoricalInfo());
+        final Dictionary dictionary = new Dictionary(header);
+        decoder.readTrie();
+        decoder.readLanguageModel(dictionary);
+        decoder.readShortcuts(dictionary);
+        return dictionary;
+    }
+
+    private void readTrie() throws UnsupportedFormatException {
+        final ByteArrayReader reader = new ByteArrayReader(mBuffers[TRIE_BUFFER_INDEX]);
+        final ByteArrayReader lookupTable = new ByteArrayReader(
+                mBuffers[TERMINAL_ADDRESS_LOOKUP_TABLE_BUFFER_INDEX]);
+        final HashSet<Integer> visitedArrays = new HashSet<>();
+        readPtNodeArray(reader, 0, "", visitedArrays);
+        // only terminals referenced by the lookup table are valid
+        for (int terminalId = 0; terminalId < mWordsByTerminalId.size(); terminalId++) {
+            if (mWordsByTerminalId.get(terminalId) == null) continue;
+            final int pos = terminalId * FormatSpec.V4_TERMINAL_ADDRESS_TABLE_ADDRESS_SIZE;
+            if (pos + FormatSpec.V4_TERMINAL_ADDRESS_TABLE_ADDRESS_SIZE > lookupTable.size()
+                    || lookupTable.readUint(FormatSpec.V4_TERMINAL_ADDRESS_TABLE_ADDRESS_SIZE, pos)
+                            == FormatSpec.V4_NOT_A_TERMINAL_ADDRESS) {
+                mWordsByTerminalId.set(terminalId, null);
+            }
+        }
+    }
+
+    private void readPtNodeArray(final ByteArrayReader reader, final int position, final String prefix,
+            final HashSet<Integer> visitedArrays) throws UnsupportedFormatException {
+        final ArrayList<Integer> childrenPositions = new ArrayList<>();
+        final ArrayList<String> childrenPrefixes = new ArrayList<>();
+        int arrayPosition = position;
+        // follow forward links, guarding against loops in broken files
+        while (arrayPosition >= 0 && visitedArrays.add(arrayPosition)) {
+            reader.mPosition = arrayPosition;
+            int count = reader.readUint8();
+            if (count > FormatSpec.MAX_PTNODES_FOR_ONE_BYTE_PTNODE_COUNT) {
+                count = ((count & 0x7F) << 8) | reader.readUint8();
+            }
+            for (int i = 0; i < count; i++) {
+                final int nodeEnd = readPtNode(reader, reader.mPosition, prefix, childrenPositions,
+                        childrenPrefixes);
+                reader.mPosition = nodeEnd;
+            }
+            final int forwardLinkFieldPos = reader.mPosition;
+            if (forwardLinkFieldPos + FormatSpec.V4_DICT_OFFSET_FIELD_SIZE > reader.size()) break;
+            final int forwardLink = reader.readSint24();
+            arrayPosition = getPosition(forwardLink, forwardLinkFieldPos);
+        }
+        for (int i = 0; i < childrenPositions.size(); i++) {
+            readPtNodeArray(reader, childrenPositions.get(i), childrenPrefixes.get(i), visitedArrays);
+        }
+    }
+
+    /**
+     * Reads the PtNode at the position, or the PtNode it has been moved to.
+     * @return the end of the PtNode at the given position, where the next sibling starts
+     */
+    private int readPtNode(final ByteArrayReader reader, final int nodePosition, final String prefix,
+            final ArrayList<Integer> childrenPositions, final ArrayList<String> childrenPrefixes)
+            throws UnsupportedFormatException {
+        int headPosition = nodePosition;
+        int siblingPosition = -1;
+        for (int moveCount = 0; moveCount <= reader.size(); moveCount++) {
+            reader.mPosition = headPosition;
+            final int flags = reader.readUint8();
+            final int parentOffset = reader.readSint24();
+            final String chars;
+            if ((flags & FormatSpec.FLAG_HAS_MULTIPLE_CHARS) != 0) {
+                chars = reader.readString(null);
+            } else {
+                chars = new String(Character.toChars(reader.readCodePoint(null)));
+            }
+            final boolean isTerminal = (flags & FormatSpec.FLAG_IS_TERMINAL) != 0;
+            final int terminalId = isTerminal ? reader.readInt32() : -1;
+            final int childrenFieldPos = reader.mPosition;
+            final int childrenPosition = getPosition(reader.readSint24(), childrenFieldPos);
+            if (siblingPosition < 0) {
+                siblingPosition = reader.mPosition;
+            }
+            switch (flags & FormatSpec.MASK_MOVED) {
+                case FormatSpec.FLAG_IS_MOVED:
+                    // the destination is stored in the parent field
+                    headPosition = getPosition(parentOffset, headPosition);
+                    if (headPosition < 0) {
+                        throw new UnsupportedFormatException("Moved PtNode at " + nodePosition
+                                + " has no destination");
+                    }
+                    continue;
+                case FormatSpec.FLAG_IS_DELETED:
+                    return siblingPosition;
+                default:
+                    break;
+            }
+            final String word = prefix + chars;
+            // PtNodes that will become non-terminal keep the terminal flag
+            if (isTerminal && (flags & FormatSpec.MASK_MOVED) == FormatSpec.FLAG_IS_NOT_MOVED) {
+                while (mWordsByTerminalId.size() <= terminalId) {
+                    mWordsByTerminalId.add(null);
+                }
+                mWordsByTerminalId.set(terminalId, word);
+            }
+            if (childrenPosition >= 0) {
+                childrenPositions.add(childrenPosition);
+                childrenPrefixes.add(word);
+            }
+            return siblingPosition;
+        }
+        throw new UnsupportedFormatException("Loop of moved PtNodes at " + nodePosition);
+    }
+
+    /**
+     * Resolves an offset like the native DynamicPtReadingUtils.
+     * @return the position, or -1 for no position
+     */
+    private static int getPosition(final int offset, final int basePosition) {
+        if (offset == FormatSpec.V4_DICT_OFFSET_INVALID) return -1;
+        if (offset == FormatSpec.V4_DICT_OFFSET_ZERO_OFFSET) return basePosition;
+        return basePosition + offset;
+    }
+
+    private void readLanguageModel(final Dictionary dictionary) throws UnsupportedFormatException {
+        final TrieMap trieMap = new TrieMap(mBuffers[LANGUAGE_MODEL_BUFFER_INDEX]);
+        final ArrayList<TrieMap.Result> bigramLevels = new ArrayList<>();
+        for (int terminalId = 0; terminalId < mWordsByTerminalId.size(); terminalId++) {
+            final String word = mWordsByTerminalId.get(terminalId);
+            if (word == null) continue;
+            final TrieMap.Result result = trieMap.get(terminalId, TrieMap.ROOT_BITMAP_ENTRY_INDEX);
+            if (result == null) continue;
+            final int flags = getFlags(result.mValue);
+            if ((flags & (FormatSpec.V4_FLAG_NOT_A_VALID_ENTRY
+                    | FormatSpec.V4_FLAG_REPRESENTS_BEGINNING_OF_SENTENCE)) != 0) {
+                continue;
+            }
+            dictionary.add(new WordProperty(word, decodeProbabilityInfo(result.mValue),
+                    (flags & FormatSpec.V4_FLAG_NOT_A_WORD) != 0,
+                    (flags & FormatSpec.V4_FLAG_POSSIBLY_OFFENSIVE) != 0));
+            if (result.mNextLevelBitmapEntryIndex != TrieMap.INVALID_INDEX) {
+                bigramLevels.add(result);
+            }
+        }
+        for (final TrieMap.Result prevWord : bigramLevels) {
+            final WordProperty wordProperty = dictionary.getWordProperty(mWordsByTerminalId.get(prevWord.mKey));
+            for (final TrieMap.Result bigram : trieMap.getEntries(prevWord.mNextLevelBitmapEntryIndex)) {
+                final String target = bigram.mKey < mWordsByTerminalId.size()
+                        ? mWordsByTerminalId.get(bigram.mKey) : null;
+                if (target == null || !dictionary.contains(target)
+                        || (getFlags(bigram.mValue) & FormatSpec.V4_FLAG_NOT_A_VALID_ENTRY) != 0) {
+                    continue;
+                }
+                wordProperty.mBigrams.add(new WeightedString(target, decodeProbabilityInfo(bigram.mValue)));
+            }
+            // the storage order depends on the hashes of the terminal ids
+            wordProperty.mBigrams.sort(Comparator.comparing(bigram -> bigram.mWord));
+        }
+    }
+
+    private int getFlags(final long value) {
+        return (int) (value >>> (mHasHistoricalInfo
+                ? (FormatSpec.V4_TIME_STAMP_FIELD_SIZE + FormatSpec.V4_WORD_COUNT_FIELD_SIZE) * 8 : 8)) & 0xFF;
+    }
+
+    private ProbabilityInfo decodeProbabilityInfo(final long value) {
+        if (!mHasHistoricalInfo) {
+            return new ProbabilityInfo((int) value & 0xFF);
+        }
+        return new ProbabilityInfo(FormatSpec.NOT_A_PROBABILITY,
+                (int) (value >>> (FormatSpec.V4_WORD_COUNT_FIELD_SIZE * 8)), 0,
+                (int) value & FormatSpec.V4_MAX_WORD_COUNT);
+    }
+
+    private void readShortcuts(final Dictionary dictionary) throws UnsupportedFormatException {
+        final ByteArrayReader indexTable = new ByteArrayReader(mBuffers[SHORTCUT_INDEX_TABLE_BUFFER_INDEX]);
+        final ByteArrayReader addressTable = new ByteArrayReader(mBuffers[SHORTCUT_ADDRESS_TABLE_BUFFER_INDEX]);
+        final ByteArrayReader content = new ByteArrayReader(mBuffers[SHORTCUT_CONTENT_BUFFER_INDEX]);
+        final int blockSize = FormatSpec.V4_SHORTCUT_ADDRESS_TABLE_BLOCK_SIZE;
+        final int blockCount = indexTable.size() / FormatSpec.V4_SPARSE_TABLE_INDEX_SIZE;
+        for (int block = 0; block < blockCount; block++) {
+            final int index = indexTable.readInt32();
+            if (index == FormatSpec.V4_SPARSE_TABLE_NOT_EXIST) continue;
+            for (int i = 0; i < blockSize; i++) {
+                final int terminalId = block * blockSize + i;
+                final int listPosition = addressTable.readUint(FormatSpec.V4_SHORTCUT_ADDRESS_TABLE_DATA_SIZE,
+                        (index * blockSize + i) * FormatSpec.V4_SHORTCUT_ADDRESS_TABLE_DATA_SIZE);
+                if (listPosition == FormatSpec.V4_SPARSE_TABLE_NOT_EXIST
+                        || terminalId >= mWordsByTerminalId.size()) {
+                    continue;
+                }
+                final String word = mWordsByTerminalId.get(terminalId);
+                final WordProperty wordProperty = word == null ? null : dictionary.getWordProperty(word);
+                if (wordProperty == null) continue;
+                content.mPosition = listPosition;
+                boolean hasNext = true;
+                while (hasNext) {
+                    final int flags = content.readUint8();
+                    hasNext = (flags & FormatSpec.FLAG_BIGRAM_SHORTCUT_ATTR_HAS_NEXT) != 0;
+                    wordProperty.mShortcutTargets.add(new WeightedString(content.readString(null),
+                            flags & FormatSpec.FLAG_BIGRAM_SHORTCUT_ATTR_FREQUENCY));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,265 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+package helium314.keyboard.tools.makedict;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.TreeMap;
+
+import helium314.keyboard.tools.makedict.PatriciaTrie.PtNode;
+import helium314.keyboard.tools.makedict.PatriciaTrie.PtNodeArray;
+
+/**
+ * Writes v4 (403) dictionaries, the format of the dictionaries created on the device (user
+ * history, contacts, ...).
+ * <p>
+ * The result is laid out like a dictionary just written by the native code after garbage
+ * collection: all PtNodes are "not moved", array sizes use 2 bytes and there are no forward links.
+ * Addresses have a fixed size, so no layout passes are necessary.
+ */
+public final class Ver4DictEncoder {
+    public void writeDictionary(final Dictionary dictionary, final File dictDir)
+            throws IOException, UnsupportedFormatException {
+        if (!dictDir.isDirectory() && !dictDir.mkdirs()) {
+            throw new IOException("Cannot create directory " + dictDir);
+        }
+        final String name = dictDir.getName();
+        final PatriciaTrie trie = new PatriciaTrie(dictionary.getWords());
+        final DictionaryHeader header = createHeader(dictionary);
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(
+                new File(dictDir, name + FormatSpec.HEADER_FILE_EXTENSION)))) {
+            HeaderReadWriteUtils.writeHeader(header).writeTo(out);
+        }
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(
+                new File(dictDir, name + FormatSpec.BODY_FILE_EXTENSION)))) {
+            writeBody(trie, header.hasHistoricalInfo(), out);
+        }
+    }
+
+    private static DictionaryHeader createHeader(final Dictionary dictionary)
+            throws UnsupportedFormatException {
+        final TreeMap<String, String> attributes = new TreeMap<>(dictionary.mHeader.mAttributes);
+        attributes.remove(DictionaryHeader.CODE_POINT_TABLE_KEY);
+        attributes.put(DictionaryHeader.UNIGRAM_COUNT_KEY, Integer.toString(dictionary.size()));
+        attributes.put(DictionaryHeader.BIGRAM_COUNT_KEY, Integer.toString(dictionary.getBigramCount()));
+        attributes.put(DictionaryHeader.TRIGRAM_COUNT_KEY, "0");
+        attributes.put(DictionaryHeader.QUADGRAM_COUNT_KEY, "0");
+        attributes.put(DictionaryHeader.EXTENDED_REGION_SIZE_KEY, "0");
+        final DictionaryHeader header = new DictionaryHeader(FormatSpec.VERSION403, attributes);
+        // same check as the native HeaderPolicy::isValid
+        if (DictionaryHeader.ATTRIBUTE_VALUE_TRUE.equals(header.getAttribute(DictionaryHeader.USES_FORGETTING_CURVE_KEY))
+                && !header.hasHistoricalInfo()) {
+            throw new UnsupportedFormatException("Forgetting curve requires historical info");
+        }
+        return header;
+    }
+
+    private static void writeBody(final PatriciaTrie trie, final boolean hasHistoricalInfo,
+            final OutputStream out) throws IOException, UnsupportedFormatException {
+        final int trieSize = setPositions(trie);
+        final ByteArrayWriter trieBuffer = new ByteArrayWriter(trieSize);
+        for (final PtNodeArray array : trie.mFlattenedArrays) {
+            writePtNodeArray(trieBuffer, array);
+        }
+        if (trieBuffer.size() != trieSize) {
+            throw new IllegalStateException("Wrote " + trieBuffer.size() + " bytes, expected " + trieSize);
+        }
+        trieBuffer.writeWithSizeTo(out);
+        createTerminalPositionLookupTable(trie).writeWithSizeTo(out);
+        final LanguageModel languageModel = createLanguageModel(trie, hasHistoricalInfo);
+        languageModel.mTrieMap.getBuffer().writeWithSizeTo(out);
+        languageModel.mGlobalCounters.writeWithSizeTo(out);
+        writeShortcuts(trie, out);
+    }
+
+    private static int setPositions(final PatriciaTrie trie) {
+        int position = 0;
+        for (final PtNodeArray array : trie.mFlattenedArrays) {
+            array.mPosition = position;
+            position += FormatSpec.V4_PTNODE_ARRAY_SIZE_FIELD_SIZE;
+            for (final PtNode node : array.mNodes) {
+                node.mPosition = position;
+                position += getPtNodeSize(node);
+            }
+            position += FormatSpec.V4_DICT_OFFSET_FIELD_SIZE; // forward link
+        }
+        return position;
+    }
+
+    private static int getPtNodeSize(final PtNode node) {
+        return 1 + FormatSpec.V4_DICT_OFFSET_FIELD_SIZE
+                + ByteArrayWriter.getCodePointsSize(node.mChars, node.mChars.length > 1, null)
+                + (node.isTerminal() ? FormatSpec.V4_TERMINAL_ID_FIELD_SIZE : 0)
+                + FormatSpec.V4_DICT_OFFSET_FIELD_SIZE;
+    }
+
+    private static void writePtNodeArray(final ByteArrayWriter writer, final PtNodeArray array)
+            throws UnsupportedFormatException {
+        writer.writeUint(array.mNodes.size() | FormatSpec.LARGE_PTNODE_ARRAY_SIZE_FIELD_SIZE_FLAG,
+                FormatSpec.V4_PTNODE_ARRAY_SIZE_FIELD_SIZE);
+        for (final PtNode node : array.mNodes) {
+            writePtNode(writer, node, array.mParent);
+        }
+        writer.writeUint(FormatSpec.V4_DICT_OFFSET_INVALID, FormatSpec.V4_DICT_OFFSET_FIELD_SIZE);
+    }
+
+    private static void writePtNode(final ByteArrayWriter writer, final PtNode node, final PtNode parent)
+            throws UnsupportedFormatException {
+        int flags = FormatSpec.FLAG_IS_NOT_MOVED;
+        if (node.mChars.length > 1) flags |= FormatSpec.FLAG_HAS_MULTIPLE_CHARS;
+        if (node.isTerminal()) flags |= FormatSpec.FLAG_IS_TERMINAL;
+        writer.writeUint(flags, 1);
+        writeDictOffset(writer, parent == null ? -1 : parent.mPosition, node.mPosition);
+        writer.writeCodePoints(node.mChars, node.mChars.length > 1, null);
+        if (node.isTerminal()) {
+            writer.writeUint(node.mTerminalId, FormatSpec.V4_TERMINAL_ID_FIELD_SIZE);
+        }
+        writeDictOffset(writer, node.mChildren == null ? -1 : node.mChildren.mPosition, writer.size());
+    }
+
+    /**
+     * Writes the offset like the native DynamicPtWritingUtils::writeDictOffset.
+     * @param targetPos the position to point to, or -1 if there is none
+     */
+    private static void writeDictOffset(final ByteArrayWriter writer, final int targetPos,
+            final int basePos) throws UnsupportedFormatException {
+        final int offset = targetPos - basePos;
+        final int data;
+        if (targetPos < 0) {
+            data = FormatSpec.V4_DICT_OFFSET_INVALID;
+        } else if (offset == 0) {
+            data = FormatSpec.V4_DICT_OFFSET_ZERO_OFFSET;
+        } else if (Math.abs(offset) > FormatSpec.V4_MAX_DICT_OFFSET_VALUE) {
+            throw new UnsupportedFormatException("Dictionary is too large for v4, offset " + offset);
+        } else {
+            data = offset > 0 ? offset : -offset | FormatSpec.V4_DICT_OFFSET_NEGATIVE_FLAG;
+        }
+        writer.writeUint(data, FormatSpec.V4_DICT_OFFSET_FIELD_SIZE);
+    }
+
+    private static ByteArrayWriter createTerminalPositionLookupTable(final PatriciaTrie trie) {
+        final ByteArrayWriter table = new ByteArrayWriter(
+                trie.mTerminals.size() * FormatSpec.V4_TERMINAL_ADDRESS_TABLE_ADDRESS_SIZE);
+        for (final PtNode terminal : trie.mTerminals) {
+            table.writeUint(terminal.mPosition, FormatSpec.V4_TERMINAL_ADDRESS_TABLE_ADDRESS_SIZE);
+        }
+        return table;
+    }
+
+    private static final class LanguageModel {
+        final TrieMap mTrieMap = new TrieMap();
+        final ByteArrayWriter mGlobalCounters = new ByteArrayWriter(2 * FormatSpec.V4_GLOBAL_COUNTER_SIZE);
+    }
+
+    private static LanguageModel createLanguageModel(final PatriciaTrie trie, final boolean hasHistoricalInfo)
+            throws UnsupportedFormatException {
+        final LanguageModel languageModel = new LanguageModel();
+        final TrieMap trieMap = languageModel.mTrieMap;
+        long totalCount = 0;
+        int maxCount = 0;
+        // unigrams must be added first, the bigram levels hang off the unigram entries
+        for (final PtNode terminal : trie.mTerminals) {
+            final WordProperty word = terminal.mWord;
+            int flags = 0;
+            if (word.mIsNotAWord) flags |= FormatSpec.V4_FLAG_NOT_A_WORD;
+            if (word.mIsPossiblyOffensive) flags |= FormatSpec.V4_FLAG_POSSIBLY_OFFENSIVE;
+            trieMap.put(terminal.mTerminalId, encodeEntry(flags, word.mProbabilityInfo,
+                    hasHistoricalInfo, word.mWord), TrieMap.ROOT_BITMAP_ENTRY_INDEX);
+            if (hasHistoricalInfo) {
+                totalCount += word.mProbabilityInfo.mCount;
+                maxCount = Math.max(maxCount, word.mProbabilityInfo.mCount);
+            }
+        }
+        for (final PtNode terminal : trie.mTerminals) {
+            final WordProperty word = terminal.mWord;
+            if (word.mBigrams.isEmpty()) continue;
+            final int bitmapEntryIndex = trieMap.getNextLevelBitmapEntryIndex(terminal.mTerminalId,
+                    TrieMap.ROOT_BITMAP_ENTRY_INDEX);
+            for (final WeightedString bigram : word.mBigrams) {
+                trieMap.put(trie.getTerminal(bigram.mWord).mTerminalId, encodeEntry(0,
+                        bigram.mProbabilityInfo, hasHistoricalInfo, bigram.mWord), bitmapEntryIndex);
+                if (hasHistoricalInfo) {
+                    maxCount = Math.max(maxCount, bigram.mProbabilityInfo.mCount);
+                }
+            }
+        }
+        if (totalCount > Integer.MAX_VALUE) {
+            throw new UnsupportedFormatException("Total count " + totalCount + " is too large");
+        }
+        languageModel.mGlobalCounters.writeUint(totalCount, FormatSpec.V4_GLOBAL_COUNTER_SIZE);
+        languageModel.mGlobalCounters.writeUint(maxCount, FormatSpec.V4_GLOBAL_COUNTER_SIZE);
+        return languageModel;
+    }
+
+    /**
+     * Encodes the entry like the native ProbabilityEntry::encode.
+     */
+    private static long encodeEntry(final int flags, final ProbabilityInfo probabilityInfo,
+            final boolean hasHistoricalInfo, final String word) throws UnsupportedFormatException {
+        if (!hasHistoricalInfo) {
+            if (probabilityInfo.mProbability < 0 || probabilityInfo.mProbability > FormatSpec.MAX_TERMINAL_FREQUENCY) {
+                throw new UnsupportedFormatException("Probability " + probabilityInfo.mProbability
+                        + " of " + word + " is not in range 0.." + FormatSpec.MAX_TERMINAL_FREQUENCY);
+            }
+            return ((long) flags << 8) | probabilityInfo.mProbability;
+        }
+        if (!probabilityInfo.hasHistoricalInfo()) {
+            throw new UnsupportedFormatException("Missing historical info for " + word);
+        }
+        if (probabilityInfo.mCount < 0 || probabilityInfo.mCount > FormatSpec.V4_MAX_WORD_COUNT) {
+            throw new UnsupportedFormatException("Count " + probabilityInfo.mCount + " of " + word
+                    + " is not in range 0.." + FormatSpec.V4_MAX_WORD_COUNT);
+        }
+        return ((long) flags << 48) | ((probabilityInfo.mTimestamp & 0xFFFFFFFFL) << 16)
+                | probabilityInfo.mCount;
+    }
+
+    /**
+     * Writes the shortcut sparse table: index table, address table and shortcut lists.
+     */
+    private static void writeShortcuts(final PatriciaTrie trie, final OutputStream out)
+            throws IOException, UnsupportedFormatException {
+        final int blockSize = FormatSpec.V4_SHORTCUT_ADDRESS_TABLE_BLOCK_SIZE;
+        final ByteArrayWriter indexTable = new ByteArrayWriter();
+        final ByteArrayWriter addressTable = new ByteArrayWriter();
+        final ByteArrayWriter content = new ByteArrayWriter();
+        for (final PtNode terminal : trie.mTerminals) {
+            final WordProperty word = terminal.mWord;
+            if (word.mShortcutTargets.isEmpty()) continue;
+            final int block = terminal.mTerminalId / blockSize;
+            final int indexPos = block * FormatSpec.V4_SPARSE_TABLE_INDEX_SIZE;
+            while (indexTable.size() <= indexPos) {
+                indexTable.writeUint(FormatSpec.V4_SPARSE_TABLE_NOT_EXIST, FormatSpec.V4_SPARSE_TABLE_INDEX_SIZE);
+            }
+            int index = (int) indexTable.readUint(FormatSpec.V4_SPARSE_TABLE_INDEX_SIZE, indexPos);
+            if (index == FormatSpec.V4_SPARSE_TABLE_NOT_EXIST) {
+                index = addressTable.size() / FormatSpec.V4_SHORTCUT_ADDRESS_TABLE_DATA_SIZE / blockSize;
+                indexTable.writeUint(index, FormatSpec.V4_SPARSE_TABLE_INDEX_SIZE, indexPos);
+                for (int i = 0; i < blockSize; i++) {
+                    addressTable.writeUint(FormatSpec.V4_SPARSE_TABLE_NOT_EXIST,
+                            FormatSpec.V4_SHORTCUT_ADDRESS_TABLE_DATA_SIZE);
+                }
+            }
+            addressTable.writeUint(content.size(), FormatSpec.V4_SHORTCUT_ADDRESS_TABLE_DATA_SIZE,
+                    (index * blockSize + terminal.mTerminalId % blockSize)
+                            * FormatSpec.V4_SHORTCUT_ADDRESS_TABLE_DATA_SIZE);
+            for (int i = 0; i < word.mShortcutTargets.size(); i++) {
+                final WeightedString target = word.mShortcutTargets.get(i);
+                int flags = target.getProbability();
+                if (flags < 0 || flags > FormatSpec.MAX_BIGRAM_FREQUENCY) {
+                    throw new UnsupportedFormatException("Probability " + flags + " of shortcut "
+                            + target.mWord + " is not in range 0.." + FormatSpec.MAX_BIGRAM_FREQUENCY);
+                }
+                if (i < word.mShortcutTargets.size() - 1) flags |= FormatSpec.FLAG_BIGRAM_SHORTCUT_ATTR_HAS_NEXT;
+                content.writeUint(flags, 1);
+                content.writeCodePoints(target.mWord.codePoints().toArray(), true, null);
+            }
+        }
+        indexTable.writeWithSizeTo(out);
+        addressTable.writeWithSizeTo(out);
+        content.writeWithSizeTo(out);
+    }
+}
@@ -0,0 +1,43 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+package helium314.keyboard.tools.makedict;
+
+import java.util.Objects;
+
+/**
+ * A string with a probability, i.e. the target of a bigram or a shortcut.
+ */
+public final class WeightedString {
+    public final String mWord;
+    public final ProbabilityInfo mProbabilityInfo;
+
+    public WeightedString(final String word, final int probability) {
+        this(word, new ProbabilityInfo(probability));
+    }
+
+    public WeightedString(final String word, final ProbabilityInfo probabilityInfo) {
+        mWord = word;
+        mProbabilityInfo = probabilityInfo;
+    }
+
+    public int getProbability() {
+        return mProbabilityInfo.mProbability;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(mWord, mProbabilityInfo);
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (o == this) return true;
+        if (!(o instanceof WeightedString w)) return false;
+        return mWord.equals(w.mWord) && mProbabilityInfo.equals(w.mProbabilityInfo);
+    }
+
+    @Override
+    public String toString() {
+        return mWord + "(" + mProbabilityInfo + ")";
+    }
+}
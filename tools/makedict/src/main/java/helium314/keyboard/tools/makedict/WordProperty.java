@@ -0,0 +1,77 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+package helium314.keyboard.tools.makedict;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Objects;
+
+/**
+ * A word of a dictionary with its attributes.
+ * <p>
+ * Bigram probabilities are stored as they are in the format: 4 bit values relative to the unigram
+ * probability in v2 dictionaries, 8 bit probabilities in v4 dictionaries.
+ */
+public final class WordProperty {
+    public final String mWord;
+    public final ProbabilityInfo mProbabilityInfo;
+    public final boolean mIsNotAWord;
+    public final boolean mIsPossiblyOffensive;
+    public final ArrayList<WeightedString> mShortcutTargets = new ArrayList<>();
+    public final ArrayList<WeightedString> mBigrams = new ArrayList<>();
+
+    public WordProperty(final String word, final ProbabilityInfo probabilityInfo,
+            final boolean isNotAWord, final boolean isPossiblyOffensive) {
+        if (word.isEmpty()) {
+            throw new IllegalArgumentException("Empty words can't be stored in a dictionary");
+        }
+        if (word.codePointCount(0, word.length()) > FormatSpec.MAX_WORD_LENGTH) {
+            throw new IllegalArgumentException("Word is too long: " + word);
+        }
+        mWord = word;
+        mProbabilityInfo = probabilityInfo;
+        mIsNotAWord = isNotAWord;
+        mIsPossiblyOffensive = isPossiblyOffensive;
+    }
+
+    public WordProperty(final String word, final int probability) {
+        this(word, new ProbabilityInfo(probability), false, false);
+    }
+
+    public int getProbability() {
+        return mProbabilityInfo.mProbability;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(mWord, mProbabilityInfo, mIsNotAWord, mIsPossiblyOffensive,
+                mShortcutTargets, new HashSet<>(mBigrams));
+    }
+
+    // bigram order is not compared, as v4 dictionaries store bigrams in hash order
+
+    @Override
+    public boolean equals(final Object o) {
+        if (o == this) return true;
+        if (!(o instanceof WordProperty w)) return false;
+        return mWord.equals(w.mWord) && mProbabilityInfo.equals(w.mProbabilityInfo)
+                && mIsNotAWord == w.mIsNotAWord && mIsPossiblyOffensive == w.mIsPossiblyOffensive
+                && mShortcutTargets.equals(w.mShortcutTargets)
+                && new HashSet<>(mBigrams).equals(new HashSet<>(w.mBigrams));
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder(" word=").append(mWord).append(',')
+                .append(mProbabilityInfo);
+        if (mIsNotAWord) sb.append(",not_a_word=true");
+        if (mIsPossiblyOffensive) sb.append(",possibly_offensive=true");
+        for (final WeightedString bigram : mBigrams) {
+            sb.append("\n  bigram=").append(bigram);
+        }
+        for (final WeightedString shortcut : mShortcutTargets) {
+            sb.append("\n  shortcut=").append(shortcut);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,104 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+package helium314.keyboard.tools.makedict;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class DictionaryRoundTripTest {
+    @Rule
+    public final TemporaryFolder mTempFolder = new TemporaryFolder();
+
+    private Dictionary writeAndRead(final Dictionary dictionary, final int version)
+            throws IOException, UnsupportedFormatException {
+        final File file = new File(mTempFolder.getRoot(), "dict" + version);
+        BinaryDictIOUtils.writeDictionary(dictionary, file, version);
+        return BinaryDictIOUtils.readDictionary(file);
+    }
+
+    private static Dictionary createSmallDictionary() {
+        final HashMap<String, String> attributes = new HashMap<>();
+        attributes.put(DictionaryHeader.DICTIONARY_LOCALE_KEY, "en_US");
+        final Dictionary dictionary = new Dictionary(new DictionaryHeader(FormatSpec.VERSION202, attributes));
+        dictionary.addWord("a", 200);
+        dictionary.addWord("ab", 100);
+        dictionary.addWord("abc", 50);
+        dictionary.addWord("b", 0);
+        dictionary.addWord("😀", 255); // outside the BMP
+        dictionary.addWord("été", 20);
+        dictionary.add(new WordProperty("shit", new ProbabilityInfo(10), false, true));
+        dictionary.addBigram("a", "abc", new ProbabilityInfo(15));
+        dictionary.addBigram("a", "b", new ProbabilityInfo(0));
+        dictionary.addBigram("😀", "a", new ProbabilityInfo(7));
+        dictionary.addShortcut("ab", "about", 14);
+        dictionary.addShortcut("ab", "abbey", 3);
+        return dictionary;
+    }
+
+    @Test
+    public void v2RoundTrip() throws Exception {
+        final Dictionary dictionary = createSmallDictionary();
+        assertEquals(dictionary, writeAndRead(dictionary, FormatSpec.VERSION202));
+    }
+
+    @Test
+    public void v4RoundTrip() throws Exception {
+        final Dictionary dictionary = createSmallDictionary();
+        final Dictionary result = writeAndRead(dictionary, FormatSpec.VERSION403);
+        assertEquals(dictionary, result);
+        assertEquals("7", result.mHeader.getAttribute(DictionaryHeader.UNIGRAM_COUNT_KEY));
+        assertEquals("3", result.mHeader.getAttribute(DictionaryHeader.BIGRAM_COUNT_KEY));
+    }
+
+    @Test
+    public void syntheticDictionaryRoundTrip() throws Exception {
+        final Dictionary dictionary = new SyntheticDictionaryGenerator().setWordCount(5000)
+                .setShortcutRatio(0.01f).generate();
+        assertEquals(5000, dictionary.size());
+        assertEquals(dictionary, writeAndRead(dictionary, FormatSpec.VERSION202));
+        assertEquals(dictionary, writeAndRead(dictionary, FormatSpec.VERSION403));
+    }
+
+    @Test
+    public void nonLatinDictionaryRoundTrip() throws Exception {
+        final Dictionary dictionary = new SyntheticDictionaryGenerator().setWordCount(3000)
+                .setAlphabet("оеаинтсрвлкмдпуяыьгзбчйхжшюцщэфъё").generate();
+        assertEquals(dictionary, writeAndRead(dictionary, FormatSpec.VERSION202));
+    }
+
+    @Test
+    public void historicalInfoRoundTrip() throws Exception {
+        final Dictionary dictionary = new SyntheticDictionaryGenerator().setWordCount(3000)
+                .setHasHistoricalInfo(true).generate();
+        assertEquals(dictionary, writeAndRead(dictionary, FormatSpec.VERSION403));
+    }
+
+    @Test
+    public void generatorIsDeterministic() {
+        final SyntheticDictionaryGenerator generator = new SyntheticDictionaryGenerator().setWordCount(1000).setSeed(42);
+        assertEquals(generator.generate(), generator.generate());
+    }
+
+    @Test
+    public void outOfRangeProbabilityIsRejected() {
+        final Dictionary dictionary = createSmallDictionary();
+        dictionary.addBigram("ab", "a", new ProbabilityInfo(16));
+        assertThrows(UnsupportedFormatException.class, () -> writeAndRead(dictionary, FormatSpec.VERSION202));
+    }
+
+    @Test
+    public void brokenFileIsRejected() throws Exception {
+        final File file = mTempFolder.newFile("broken");
+        Files.write(file.toPath(), new byte[] { 1, 2, 3 });
+        assertThrows(UnsupportedFormatException.class, () -> BinaryDictIOUtils.readDictionary(file));
+    }
+}